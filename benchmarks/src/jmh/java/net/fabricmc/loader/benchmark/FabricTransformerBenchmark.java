@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import net.fabricmc.api.EnvType;
+import net.fabricmc.loader.impl.transformer.FabricTransformer;
+import net.fabricmc.loader.impl.util.LoaderUtil;
+
+/**
+ * Runs the non-mixin class transformation on a few differently sized classes.
+ *
+ * <p>The inputs are loader classes, which are treated like mod classes: only environment stripping applies and the
+ * launcher and access widener aren't needed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FabricTransformerBenchmark {
+	@Param({"net.fabricmc.loader.impl.discovery.ModSolver", "net.fabricmc.loader.impl.FabricLoaderImpl", "net.fabricmc.loader.impl.lib.gson.JsonReader"})
+	public String className;
+
+	private byte[] bytes;
+
+	@Setup
+	public void setup() throws IOException {
+		bytes = readClass(className);
+	}
+
+	@Benchmark
+	public byte[] transform() {
+		return FabricTransformer.transform(false, EnvType.CLIENT, className, bytes);
+	}
+
+	private static byte[] readClass(String name) throws IOException {
+		String fileName = LoaderUtil.getClassFileName(name);
+
+		try (InputStream is = FabricTransformerBenchmark.class.getClassLoader().getResourceAsStream(fileName)) {
+			if (is == null) throw new IOException("missing class file "+fileName);
+
+			ByteArrayOutputStream os = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int len;
+
+			while ((len = is.read(buffer)) > 0) {
+				os.write(buffer, 0, len);
+			}
+
+			return os.toByteArray();
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.fabricmc.loader.impl.lib.gson.JsonReader;
+import net.fabricmc.loader.impl.lib.gson.JsonToken;
+import net.fabricmc.loader.impl.metadata.DependencyOverrides;
+import net.fabricmc.loader.impl.metadata.ModMetadataParser;
+import net.fabricmc.loader.impl.metadata.ParseMetadataException;
+import net.fabricmc.loader.impl.metadata.VersionOverrides;
+
+/**
+ * Compares tokenizing {@code fabric.mod.json} through a {@link java.io.Reader} with the byte input mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonReaderBenchmark {
+	private static final JsonReader.NameTable NAMES = new JsonReader.NameTable("schemaVersion", "id", "version", "name", "description",
+			"authors", "contact", "license", "icon", "environment", "entrypoints", "mixins", "depends", "custom");
+
+	@Param({"required.json", "example_1.json", "long.json"})
+	public String file;
+
+	private byte[] data;
+	private VersionOverrides versionOverrides;
+	private DependencyOverrides depOverrides;
+
+	@Setup
+	public void setup() throws IOException {
+		try (InputStream is = JsonReaderBenchmark.class.getClassLoader().getResourceAsStream(file)) {
+			if (is == null) throw new IOException("missing benchmark resource "+file);
+
+			byte[] buffer = new byte[4096];
+			int offset = 0;
+			int len;
+
+			while ((len = is.read(buffer, offset, buffer.length - offset)) >= 0) {
+				offset += len;
+				if (offset == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			}
+
+			data = Arrays.copyOf(buffer, offset);
+		}
+
+		versionOverrides = new VersionOverrides();
+		depOverrides = new DependencyOverrides(Paths.get("missing"));
+	}
+
+	@Benchmark
+	public void tokenizeReader(Blackhole bh) throws IOException {
+		try (JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8))) {
+			consume(reader, null, bh);
+		}
+	}
+
+	@Benchmark
+	public void tokenizeBytes(Blackhole bh) throws IOException {
+		try (JsonReader reader = new JsonReader(ByteBuffer.wrap(data))) {
+			consume(reader, NAMES, bh);
+		}
+	}
+
+	@Benchmark
+	public Object parseMetadata() throws ParseMetadataException {
+		return ModMetadataParser.parseMetadata(new ByteArrayInputStream(data), file, Collections.emptyList(), versionOverrides, depOverrides, false);
+	}
+
+	private static void consume(JsonReader reader, JsonReader.NameTable names, Blackhole bh) throws IOException {
+		for (;;) {
+			JsonToken token = reader.peek();
+
+			switch (token) {
+			case BEGIN_OBJECT:
+				reader.beginObject();
+				break;
+			case END_OBJECT:
+				reader.endObject();
+				break;
+			case BEGIN_ARRAY:
+				reader.beginArray();
+				break;
+			case END_ARRAY:
+				reader.endArray();
+				break;
+			case NAME:
+				bh.consume(names != null ? reader.nextName(names) : reader.nextName());
+				break;
+			case STRING:
+				bh.consume(reader.nextString());
+				break;
+			case NUMBER:
+				bh.consume(reader.nextDouble());
+				break;
+			case BOOLEAN:
+				bh.consume(reader.nextBoolean());
+				break;
+			case NULL:
+				reader.nextNull();
+				break;
+			case END_DOCUMENT:
+				return;
+			}
+		}
+	}
+}
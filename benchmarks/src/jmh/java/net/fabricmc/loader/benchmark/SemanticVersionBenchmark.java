@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.fabricmc.loader.api.VersionParsingException;
+import net.fabricmc.loader.impl.util.version.SemanticVersionImpl;
+
+/**
+ * Parsing and comparing a fixed set of typical mod versions, bypassing the version pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SemanticVersionBenchmark {
+	private static final int COUNT = 512;
+	private static final String[] PRERELEASES = { "alpha", "alpha.1", "beta.2", "rc.1", "pre.10", "build.123", "1", "SNAPSHOT" };
+
+	private String[] strings;
+	private SemanticVersionImpl[] versions;
+
+	@Setup
+	public void setup() throws VersionParsingException {
+		Random random = new Random(4242);
+		strings = new String[COUNT];
+		versions = new SemanticVersionImpl[COUNT];
+
+		for (int i = 0; i < COUNT; i++) {
+			StringBuilder sb = new StringBuilder();
+			sb.append(random.nextInt(3)).append('.').append(random.nextInt(25)).append('.').append(random.nextInt(12));
+
+			if (random.nextInt(4) == 0) sb.append('-').append(PRERELEASES[random.nextInt(PRERELEASES.length)]);
+			if (random.nextInt(3) == 0) sb.append("+mc1.").append(16 + random.nextInt(5));
+
+			strings[i] = sb.toString();
+			versions[i] = new SemanticVersionImpl(strings[i], false);
+		}
+	}
+
+	@Benchmark
+	public void parse(Blackhole bh) throws VersionParsingException {
+		for (String s : strings) {
+			bh.consume(new SemanticVersionImpl(s, false));
+		}
+	}
+
+	@Benchmark
+	public int compare() {
+		int ret = 0;
+
+		for (int i = 0; i < COUNT; i++) {
+			SemanticVersionImpl a = versions[i];
+
+			for (int j = i & 7; j < COUNT; j += 8) {
+				ret += a.compareTo(versions[j]);
+			}
+		}
+
+		return ret;
+	}
+
+	@Benchmark
+	public int equality() {
+		int ret = 0;
+
+		for (int i = 0; i < COUNT; i++) {
+			SemanticVersionImpl a = versions[i];
+
+			for (int j = i & 7; j < COUNT; j += 8) {
+				if (a.equals(versions[j])) ret++;
+			}
+		}
+
+		return ret;
+	}
+}
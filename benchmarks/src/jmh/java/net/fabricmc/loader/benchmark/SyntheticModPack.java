@@ -0,0 +1,191 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Deterministic generator for synthetic mod packs, used by the resolution benchmarks.
+ *
+ * <p>Mods only depend on mods with a lower index and every requirement can be satisfied, so the packs always resolve
+ * successfully. About a fifth of the mod ids come with multiple candidate versions for the solver to choose from.
+ * Packs can optionally be split into clusters that don't refer to each other, like typical mods with their libraries.
+ *
+ * <p>Running {@link #main} writes the pack as jars to a directory to reproduce results with a real game instance:
+ * {@code gradlew :benchmarks:generateModPack -Ppack.size=1000 -Ppack.dir=run/mods}.
+ */
+public final class SyntheticModPack {
+	public static final long DEFAULT_SEED = 0x5eedL;
+
+	private static final String[] PREDICATES = { "*", ">=1.0.0", "^1.0.0", ">=1.0.0 <3", "1.x", "~1.0.0" };
+
+	/**
+	 * A single generated mod candidate.
+	 */
+	public static final class Mod {
+		public final String id;
+		public final String version;
+		public final String json;
+
+		Mod(String id, String version, String json) {
+			this.id = id;
+			this.version = version;
+			this.json = json;
+		}
+
+		public String getFileName() {
+			return id+"-"+version+".jar";
+		}
+	}
+
+	/**
+	 * Generate the fabric.mod.json contents of a pack.
+	 *
+	 * @param size number of distinct mod ids, the number of candidates is somewhat higher
+	 * @param seed random seed, the same seed and size always produce the same pack
+	 */
+	public static List<Mod> generate(int size, long seed) {
+		return generate(size, size, seed);
+	}
+
+	/**
+	 * Generate the fabric.mod.json contents of a pack consisting of independent clusters.
+	 *
+	 * @param size number of distinct mod ids, the number of candidates is somewhat higher
+	 * @param clusterSize number of consecutive mod ids that may refer to each other, size for a single cluster
+	 * @param seed random seed, the same seed and sizes always produce the same pack
+	 */
+	public static List<Mod> generate(int size, int clusterSize, long seed) {
+		Random random = new Random(seed);
+		List<Mod> ret = new ArrayList<>(size + size / 4);
+
+		for (int i = 0; i < size; i++) {
+			String id = getId(i);
+			int variants = random.nextInt(5) == 0 ? 2 + random.nextInt(2) : 1;
+			List<String> depends = new ArrayList<>();
+			List<String> breaks = new ArrayList<>();
+			List<String> suggests = new ArrayList<>();
+			int clusterStart = i - i % clusterSize;
+
+			if (i > clusterStart) {
+				// distinct targets, each id may only appear once per mod
+				Set<Integer> targets = new HashSet<>();
+				int depCount = random.nextInt(4);
+				int range = i - clusterStart;
+
+				for (int j = 0; j < depCount; j++) {
+					int target = clusterStart + random.nextInt(range);
+					if (targets.add(target)) depends.add(getEntry(getId(target), PREDICATES[random.nextInt(PREDICATES.length)]));
+				}
+
+				int target = clusterStart + random.nextInt(range);
+				if (random.nextInt(8) == 0 && targets.add(target)) breaks.add(getEntry(getId(target), "<0.1")); // never matches
+				target = clusterStart + random.nextInt(range);
+				if (random.nextInt(6) == 0 && targets.add(target)) suggests.add(getEntry(getId(target), ">=1.0.0"));
+			}
+
+			for (int v = 0; v < variants; v++) {
+				String version = "1."+v+"."+random.nextInt(10)+(random.nextInt(10) == 0 ? "+mc1.20.1" : "");
+				StringBuilder sb = new StringBuilder();
+				sb.append("{\n");
+				sb.append("\t\"schemaVersion\": 1,\n");
+				sb.append("\t\"id\": \"").append(id).append("\",\n");
+				sb.append("\t\"version\": \"").append(version).append("\",\n");
+				sb.append("\t\"name\": \"Synthetic Mod ").append(i).append("\",\n");
+				sb.append("\t\"description\": \"Generated for benchmarking mod resolution.\",\n");
+				sb.append("\t\"authors\": [\"FabricMC\"],\n");
+				sb.append("\t\"license\": \"Apache-2.0\",\n");
+				sb.append("\t\"environment\": \"*\",\n");
+				appendObject(sb, "depends", depends);
+				appendObject(sb, "breaks", breaks);
+				appendObject(sb, "suggests", suggests);
+				sb.append("\t\"custom\": {\n\t\t\"benchmark:index\": ").append(i).append("\n\t}\n");
+				sb.append("}\n");
+
+				ret.add(new Mod(id, version, sb.toString()));
+			}
+		}
+
+		Collections.shuffle(ret, random); // discovery order isn't sorted either
+
+		return ret;
+	}
+
+	private static String getId(int index) {
+		return "synthetic-"+index;
+	}
+
+	private static String getEntry(String id, String predicate) {
+		return "\""+id+"\": \""+predicate+"\"";
+	}
+
+	private static void appendObject(StringBuilder sb, String key, List<String> entries) {
+		if (entries.isEmpty()) return;
+
+		sb.append("\t\"").append(key).append("\": {\n");
+
+		for (int i = 0; i < entries.size(); i++) {
+			sb.append("\t\t").append(entries.get(i)).append(i + 1 < entries.size() ? ",\n" : "\n");
+		}
+
+		sb.append("\t},\n");
+	}
+
+	/**
+	 * Write a pack as mod jars containing only their fabric.mod.json.
+	 */
+	public static void write(List<Mod> mods, Path dir) throws IOException {
+		Files.createDirectories(dir);
+
+		for (Mod mod : mods) {
+			try (OutputStream os = Files.newOutputStream(dir.resolve(mod.getFileName()));
+					ZipOutputStream zos = new ZipOutputStream(os)) {
+				zos.putNextEntry(new ZipEntry("fabric.mod.json"));
+				zos.write(mod.json.getBytes(StandardCharsets.UTF_8));
+				zos.closeEntry();
+			}
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2 || args.length > 3) {
+			System.err.println("usage: SyntheticModPack <size> <output dir> [seed]");
+			System.exit(1);
+		}
+
+		int size = Integer.parseInt(args[0]);
+		Path dir = Paths.get(args[1]);
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_SEED;
+		List<Mod> mods = generate(size, seed);
+
+		write(mods, dir);
+		System.out.printf("wrote %d mod candidates for %d mod ids to %s%n", mods.size(), size, dir.toAbsolutePath());
+	}
+}
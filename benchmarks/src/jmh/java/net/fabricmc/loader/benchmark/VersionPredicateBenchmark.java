@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.fabricmc.loader.api.SemanticVersion;
+import net.fabricmc.loader.api.VersionParsingException;
+import net.fabricmc.loader.api.metadata.version.VersionPredicate;
+import net.fabricmc.loader.impl.util.version.SemanticVersionImpl;
+import net.fabricmc.loader.impl.util.version.VersionIntervalSet;
+import net.fabricmc.loader.impl.util.version.VersionPredicateParser;
+
+/**
+ * Matching versions against typical dependency predicates and combining their intervals as done by the resolver.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VersionPredicateBenchmark {
+	private static final String[] PREDICATES = { "*", ">=1.2.0", "^1.4.2", "~0.15.7", ">=1.0.0 <3", "1.x", "1.20.x", "<2.0.0-beta.3",
+			">=0.14.0 <0.16.0-", "=1.5.0+mc1.20.1" };
+	private static final int VERSION_COUNT = 256;
+
+	private VersionPredicate[] predicates;
+	private VersionIntervalSet[] intervals;
+	private SemanticVersion[] versions;
+
+	@Setup
+	public void setup() throws VersionParsingException {
+		predicates = new VersionPredicate[PREDICATES.length];
+		intervals = new VersionIntervalSet[PREDICATES.length];
+
+		for (int i = 0; i < PREDICATES.length; i++) {
+			predicates[i] = VersionPredicateParser.parse(PREDICATES[i]);
+			intervals[i] = VersionIntervalSet.of(predicates[i].getInterval());
+		}
+
+		Random random = new Random(4242);
+		versions = new SemanticVersion[VERSION_COUNT];
+
+		for (int i = 0; i < VERSION_COUNT; i++) {
+			String s = random.nextInt(3)+"."+random.nextInt(25)+"."+random.nextInt(12);
+			if (random.nextInt(6) == 0) s += "-beta."+random.nextInt(5);
+			versions[i] = new SemanticVersionImpl(s, false);
+		}
+	}
+
+	@Benchmark
+	public int test() {
+		int ret = 0;
+
+		for (VersionPredicate predicate : predicates) {
+			for (SemanticVersion version : versions) {
+				if (predicate.test(version)) ret++;
+			}
+		}
+
+		return ret;
+	}
+
+	@Benchmark
+	public int contains() {
+		int ret = 0;
+
+		for (VersionIntervalSet interval : intervals) {
+			for (SemanticVersion version : versions) {
+				if (interval.contains(version)) ret++;
+			}
+		}
+
+		return ret;
+	}
+
+	@Benchmark
+	public void intervalAlgebra(Blackhole bh) {
+		for (VersionIntervalSet a : intervals) {
+			for (VersionIntervalSet b : intervals) {
+				bh.consume(a.and(b));
+				bh.consume(a.or(b.not()));
+			}
+		}
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import net.fabricmc.loader.benchmark.SyntheticModPack;
+import net.fabricmc.loader.impl.metadata.DependencyOverrides;
+import net.fabricmc.loader.impl.metadata.LoaderModMetadata;
+import net.fabricmc.loader.impl.metadata.ModMetadataParser;
+import net.fabricmc.loader.impl.metadata.ParseMetadataException;
+import net.fabricmc.loader.impl.metadata.VersionOverrides;
+
+/**
+ * Priority sorting and SAT solving of synthetic mod packs with each solver backend, see {@link SyntheticModPack}.
+ *
+ * <p>This lives in the discovery package to reach the resolver internals directly, skipping the logging and result
+ * processing in {@link ModResolver}. The benchmark methods mustn't expose package-private types, the generated JMH code
+ * is in a different package.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ModResolutionBenchmark {
+	@Param({"100", "1000", "5000"})
+	public int size;
+
+	@Param({"0", "20"})
+	public int clusterSize; // 0 for a single cluster
+
+	@Param({CdclResolverBackend.NAME, Sat4jResolverBackend.NAME})
+	public String backend;
+
+	private List<ModCandidate> candidates;
+	private List<ModCandidate> sorted;
+	private Map<String, List<ModCandidate>> modsById;
+	private ResolverBackend resolverBackend;
+
+	@Setup
+	public void setup() throws ParseMetadataException, ModResolutionException {
+		candidates = createCandidates(SyntheticModPack.generate(size, clusterSize > 0 ? clusterSize : size, SyntheticModPack.DEFAULT_SEED));
+		resolverBackend = Sat4jResolverBackend.NAME.equals(backend) ? new Sat4jResolverBackend() : new CdclResolverBackend();
+
+		sorted = new ArrayList<>(candidates);
+		modsById = new LinkedHashMap<>();
+		ModPrioSorter.sort(sorted, modsById);
+
+		if (!solve0().success) throw new ModResolutionException("synthetic pack of size %d doesn't resolve", size);
+	}
+
+	/**
+	 * Turn a synthetic pack into plain mod candidates without touching the file system.
+	 */
+	static List<ModCandidate> createCandidates(List<SyntheticModPack.Mod> mods) throws ParseMetadataException {
+		VersionOverrides versionOverrides = new VersionOverrides();
+		DependencyOverrides depOverrides = new DependencyOverrides(Paths.get("missing"));
+		List<ModCandidate> ret = new ArrayList<>(mods.size());
+
+		for (SyntheticModPack.Mod mod : mods) {
+			Path path = Paths.get(mod.getFileName());
+			LoaderModMetadata metadata = ModMetadataParser.parseMetadata(new ByteArrayInputStream(mod.json.getBytes(StandardCharsets.UTF_8)),
+					path.toString(), Collections.emptyList(), versionOverrides, depOverrides, false);
+			ret.add(ModCandidate.createPlain(Collections.singletonList(path), metadata, false, Collections.<ModCandidate>emptyList()));
+		}
+
+		return ret;
+	}
+
+	@Benchmark
+	public Object sort() {
+		List<ModCandidate> mods = new ArrayList<>(candidates);
+		Map<String, List<ModCandidate>> ret = new LinkedHashMap<>();
+		ModPrioSorter.sort(mods, ret);
+
+		return ret;
+	}
+
+	@Benchmark
+	public Object solve() throws ModResolutionException {
+		return solve0();
+	}
+
+	private ModSolver.Result solve0() throws ModResolutionException {
+		return ModSolver.solve(sorted, modsById, new HashMap<>(sorted.size()), new ArrayList<>(sorted.size()), resolverBackend);
+	}
+}
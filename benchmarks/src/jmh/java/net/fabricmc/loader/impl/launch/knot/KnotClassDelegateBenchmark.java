@@ -0,0 +1,82 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.launch.knot;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.fabricmc.api.EnvType;
+import net.fabricmc.loader.impl.FabricLoaderImpl;
+
+/**
+ * Class byte loading through a Knot class loader that has the loader's own classes as its code source.
+ *
+ * <p>The transformers aren't initialized, so no game provider is required and the pre-mixin path measures the raw
+ * lookup plus the transformer dispatch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class KnotClassDelegateBenchmark {
+	private static final String[] CLASSES = {
+			"net.fabricmc.loader.impl.FabricLoaderImpl",
+			"net.fabricmc.loader.impl.discovery.ModDiscoverer",
+			"net.fabricmc.loader.impl.discovery.ModSolver",
+			"net.fabricmc.loader.impl.lib.gson.JsonReader",
+			"net.fabricmc.loader.impl.metadata.V1ModMetadataParser",
+			"net.fabricmc.loader.impl.util.version.SemanticVersionImpl",
+			"net.fabricmc.loader.impl.util.version.VersionPredicateParser",
+			"net.fabricmc.loader.impl.launch.knot.KnotClassDelegate"
+	};
+
+	private KnotClassDelegate<?> delegate;
+
+	@Setup
+	public void setup() throws URISyntaxException {
+		Path codeSource = Paths.get(FabricLoaderImpl.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+		KnotClassLoader classLoader = new KnotClassLoader(false, EnvType.CLIENT, null);
+
+		delegate = classLoader.getDelegate();
+		delegate.addCodeSource(codeSource);
+	}
+
+	@Benchmark
+	public void getRawClassBytes(Blackhole bh) throws IOException {
+		for (String name : CLASSES) {
+			bh.consume(delegate.getRawClassBytes(name));
+		}
+	}
+
+	@Benchmark
+	public void getPreMixinClassBytes(Blackhole bh) {
+		for (String name : CLASSES) {
+			bh.consume(delegate.getPreMixinClassBytes(name));
+		}
+	}
+}
@@ -53,6 +53,7 @@ import net.fabricmc.loader.impl.discovery.ModDiscoverer;
 import net.fabricmc.loader.impl.discovery.ModResolutionException;
 import net.fabricmc.loader.impl.discovery.ModResolver;
 import net.fabricmc.loader.impl.discovery.RuntimeModRemapper;
+import net.fabricmc.loader.impl.discovery.SharedModStore;
 import net.fabricmc.loader.impl.entrypoint.EntrypointStorage;
 import net.fabricmc.loader.impl.game.GameProvider;
 import net.fabricmc.loader.impl.launch.FabricLauncherBase;
@@ -67,6 +68,7 @@ import net.fabricmc.loader.impl.util.LoaderUtil;
 import net.fabricmc.loader.impl.util.SystemProperties;
 import net.fabricmc.loader.impl.util.log.Log;
 import net.fabricmc.loader.impl.util.log.LogCategory;
+import net.fabricmc.loader.impl.util.profiler.StartupProfiler;
 
 @SuppressWarnings("deprecation")
 public final class FabricLoaderImpl extends net.fabricmc.loader.FabricLoader {
@@ -80,7 +82,12 @@ public final class FabricLoaderImpl extends net.fabricmc.loader.FabricLoader {
 	public static final String CACHE_DIR_NAME = ".fabric"; // relative to game dir
 	private static final String PROCESSED_MODS_DIR_NAME = "processedMods"; // relative to cache dir
 	public static final String REMAPPED_JARS_DIR_NAME = "remappedJars"; // relative to cache dir
-	private static final String TMP_DIR_NAME = "tmp"; // relative to cache dir
+	public static final String TMP_DIR_NAME = "tmp"; // relative to cache dir
+	public static final String DISCOVERY_INDEX_FILE_NAME = "discoveryIndex.bin"; // relative to cache dir
+	public static final String MODS_DIR_JOURNAL_FILE_NAME = "modsDirJournal.bin"; // relative to cache dir
+	public static final String CLASS_PATH_INDEX_FILE_NAME = "classPathIndex.bin"; // relative to cache dir
+	private static final String RESOLUTION_LOCK_FILE_NAME = "resolution.lock"; // relative to cache dir
+	private static final String STARTUP_PROFILE_FILE_NAME = "startupProfile.json"; // relative to cache dir
 
 	protected final Map<String, ModContainerImpl> modMap = new HashMap<>();
 	private List<ModCandidate> modCandidates;
@@ -188,7 +195,9 @@ public final class FabricLoaderImpl extends net.fabricmc.loader.FabricLoader {
 		if (provider == null) throw new IllegalStateException("game provider not set");
 		if (frozen) throw new IllegalStateException("Frozen - cannot load additional mods!");
 
-		try {
+		StartupProfiler.setReportFile(gameDir.resolve(CACHE_DIR_NAME).resolve(STARTUP_PROFILE_FILE_NAME));
+
+		try (StartupProfiler.Span span = StartupProfiler.start("setup")) {
 			setup();
 		} catch (ModResolutionException exception) {
 			if (exception.getCause() == null) {
@@ -212,7 +221,10 @@ public final class FabricLoaderImpl extends net.fabricmc.loader.FabricLoader {
 		discoverer.addCandidateFinder(new ArgumentModCandidateFinder(remapRegularMods));
 
 		Map<String, Set<ModCandidate>> envDisabledMods = new HashMap<>();
-		modCandidates = discoverer.discoverMods(this, envDisabledMods);
+
+		try (StartupProfiler.Span span = StartupProfiler.start("discovery")) {
+			modCandidates = discoverer.discoverMods(this, envDisabledMods);
+		}
 
 		// dump version and dependency overrides info
 
@@ -226,7 +238,9 @@ public final class FabricLoaderImpl extends net.fabricmc.loader.FabricLoader {
 
 		// resolve mods
 
-		modCandidates = ModResolver.resolve(modCandidates, getEnvironmentType(), envDisabledMods);
+		Path lockFile = "false".equalsIgnoreCase(System.getProperty(SystemProperties.RESOLUTION_LOCK)) ? null : gameDir.resolve(CACHE_DIR_NAME).resolve(RESOLUTION_LOCK_FILE_NAME);
+		modCandidates = ModResolver.resolve(modCandidates, getEnvironmentType(), envDisabledMods, lockFile);
+		discoverer.releaseNestedJarData(modCandidates);
 
 		dumpModList(modCandidates);
 
@@ -239,7 +253,9 @@ public final class FabricLoaderImpl extends net.fabricmc.loader.FabricLoader {
 			if (System.getProperty(SystemProperties.REMAP_CLASSPATH_FILE) == null) {
 				Log.warn(LogCategory.MOD_REMAP, "Runtime mod remapping disabled due to no fabric.remapClasspathFile being specified. You may need to update loom.");
 			} else {
-				RuntimeModRemapper.remap(modCandidates, cacheDir.resolve(TMP_DIR_NAME), outputdir);
+				try (StartupProfiler.Span span = StartupProfiler.start("remap")) {
+					RuntimeModRemapper.remap(modCandidates, cacheDir.resolve(TMP_DIR_NAME), outputdir);
+				}
 			}
 		}
 
@@ -267,16 +283,41 @@ public final class FabricLoaderImpl extends net.fabricmc.loader.FabricLoader {
 
 		// add mods
 
-		for (ModCandidate mod : modCandidates) {
-			if (!mod.hasPath() && !mod.isBuiltin()) {
-				try {
-					mod.setPaths(Collections.singletonList(mod.copyToDir(outputdir, false)));
-				} catch (IOException e) {
-					throw new RuntimeException("Error extracting mod "+mod, e);
+		boolean loadNestedInPlace = Boolean.parseBoolean(System.getProperty(SystemProperties.LOAD_NESTED_JARS_IN_PLACE, "false"));
+		String sharedStoreDir = System.getProperty(SystemProperties.SHARED_MOD_STORE);
+		SharedModStore sharedStore = sharedStoreDir != null ? new SharedModStore(Paths.get(sharedStoreDir), gameDir) : null;
+
+		try (StartupProfiler.Span span = StartupProfiler.start("addMods")) {
+			for (ModCandidate mod : modCandidates) {
+				if (!mod.hasPath() && !mod.isBuiltin()) {
+					Path path = null;
+
+					if (loadNestedInPlace) {
+						try {
+							path = mod.getPathInParent();
+						} catch (IOException e) {
+							Log.warn(LogCategory.GENERAL, "Can't load nested mod %s from its parent, extracting nested mods instead: %s", mod, e);
+							loadNestedInPlace = false;
+						}
+					}
+
+					if (path == null) {
+						try {
+							path = sharedStore != null ? sharedStore.link(mod, outputdir) : mod.copyToDir(outputdir, false);
+						} catch (IOException e) {
+							throw new RuntimeException("Error extracting mod "+mod, e);
+						}
+					}
+
+					mod.setPaths(Collections.singletonList(path));
 				}
+
+				addMod(mod);
 			}
 
-			addMod(mod);
+			if (sharedStore != null) sharedStore.commit();
+
+			discoverer.releaseNestedJarData(Collections.emptyList());
 		}
 
 		modCandidates = null;
@@ -375,19 +416,22 @@ public final class FabricLoaderImpl extends net.fabricmc.loader.FabricLoader {
 		}
 
 		RuntimeException exception = null;
-		Collection<EntrypointContainer<T>> entrypoints = FabricLoaderImpl.INSTANCE.getEntrypointContainers(key, type);
 
-		Log.debug(LogCategory.ENTRYPOINT, "Iterating over entrypoint '%s'", key);
+		try (StartupProfiler.Span span = StartupProfiler.start("entrypoint", key)) {
+			Collection<EntrypointContainer<T>> entrypoints = FabricLoaderImpl.INSTANCE.getEntrypointContainers(key, type);
 
-		for (EntrypointContainer<T> container : entrypoints) {
-			try {
-				invoker.accept(container.getEntrypoint());
-			} catch (Throwable t) {
-				exception = ExceptionUtil.gatherExceptions(t,
-						exception,
-						exc -> new RuntimeException(String.format("Could not execute entrypoint stage '%s' due to errors, provided by '%s'!",
-								key, container.getProvider().getMetadata().getId()),
-								exc));
+			Log.debug(LogCategory.ENTRYPOINT, "Iterating over entrypoint '%s'", key);
+
+			for (EntrypointContainer<T> container : entrypoints) {
+				try (StartupProfiler.Span modSpan = StartupProfiler.start("invoke", container.getProvider().getMetadata().getId())) {
+					invoker.accept(container.getEntrypoint());
+				} catch (Throwable t) {
+					exception = ExceptionUtil.gatherExceptions(t,
+							exception,
+							exc -> new RuntimeException(String.format("Could not execute entrypoint stage '%s' due to errors, provided by '%s'!",
+									key, container.getProvider().getMetadata().getId()),
+									exc));
+				}
 			}
 		}
 
@@ -0,0 +1,355 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Built-in backend using {@link CdclSolver}, without any library.
+ *
+ * <p>Domain objects map to solver variables in the order of their first use, like with SAT4J's DependencyHelper, so
+ * solutions list their objects in the same order. At most one constraints are encoded pairwise, which suits the few
+ * candidates sharing a mod id.
+ *
+ * <p>The constraints are solved without their names. Only explaining a failure builds a second solver with a selector
+ * variable per named constraint, determines the selectors involved in the failure and shrinks them to a minimal set by
+ * dropping one after another.
+ */
+final class CdclResolverBackend implements ResolverBackend {
+	static final String NAME = "cdcl";
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public Problem createProblem() {
+		return new CdclProblem();
+	}
+
+	private static final class CdclProblem implements Problem {
+		private final CdclSolver solver = new CdclSolver();
+		private final Map<DomainObject, Integer> vars = new HashMap<>();
+		private final List<DomainObject> objects = new ArrayList<>(); // by var, null for solver internal vars
+		private final List<Constraint> constraints = new ArrayList<>();
+		private final Map<Integer, BigInteger> objective = new LinkedHashMap<>();
+		private int[] lastAssumptions = new int[0];
+		private int lastTimeout;
+
+		@Override
+		public void clause(Explanation name, DomainObject... objs) {
+			int[] lits = new int[objs.length];
+
+			for (int i = 0; i < objs.length; i++) {
+				lits[i] = getLit(objs[i]);
+			}
+
+			add(new Constraint(name, lits, false));
+		}
+
+		@Override
+		public void implication(Explanation name, DomainObject premise, DomainObject... conclusions) {
+			int[] lits = new int[conclusions.length + 1];
+			lits[0] = CdclSolver.negate(getLit(premise));
+
+			for (int i = 0; i < conclusions.length; i++) {
+				lits[i + 1] = getLit(conclusions[i]);
+			}
+
+			add(new Constraint(name, lits, false));
+		}
+
+		@Override
+		public void atMostOne(Explanation name, DomainObject... objs) {
+			int[] lits = new int[objs.length];
+
+			for (int i = 0; i < objs.length; i++) {
+				lits[i] = getLit(objs[i]);
+			}
+
+			add(new Constraint(name, lits, true));
+		}
+
+		@Override
+		public void setTrue(DomainObject obj, Explanation name) {
+			add(new Constraint(name, new int[] { getLit(obj) }, false));
+		}
+
+		@Override
+		public void setFalse(DomainObject obj, Explanation name) {
+			add(new Constraint(name, new int[] { CdclSolver.negate(getLit(obj)) }, false));
+		}
+
+		private void add(Constraint constraint) {
+			constraints.add(constraint);
+			constraint.addTo(solver, -1);
+		}
+
+		@Override
+		public void addToObjectiveFunction(DomainObject obj, BigInteger weight) {
+			objective.merge(getVar(obj), weight, BigInteger::add);
+		}
+
+		@Override
+		public boolean solve(Collection<DomainObject> assumptions, int timeout) throws TimeoutException {
+			int[] assumps = new int[assumptions.size()];
+			int i = 0;
+
+			for (DomainObject obj : assumptions) {
+				assumps[i++] = getLit(obj);
+			}
+
+			lastAssumptions = assumps;
+			lastTimeout = timeout;
+
+			// negative weights turn into weights for the negated var, leaving a constant that doesn't affect the optimum
+
+			List<Integer> objLits = new ArrayList<>(objective.size());
+			List<BigInteger> weights = new ArrayList<>(objective.size());
+
+			for (Map.Entry<Integer, BigInteger> entry : objective.entrySet()) {
+				BigInteger weight = entry.getValue();
+				if (weight.signum() == 0) continue;
+
+				objLits.add(CdclSolver.lit(entry.getKey(), weight.signum() < 0));
+				weights.add(weight.abs());
+			}
+
+			int[] lits = new int[objLits.size()];
+
+			for (i = 0; i < lits.length; i++) {
+				lits[i] = objLits.get(i);
+			}
+
+			CdclSolver.Result result = solver.minimize(assumps, lits, weights.toArray(new BigInteger[0]), getDeadline(timeout));
+
+			switch (result) {
+			case SATISFIABLE: return true;
+			case UNSATISFIABLE: return false;
+			default: throw new TimeoutException();
+			}
+		}
+
+		@Override
+		public boolean isOptimal() {
+			return solver.isOptimal();
+		}
+
+		@Override
+		public List<DomainObject> getSolution() {
+			boolean[] model = solver.getModel();
+			List<DomainObject> ret = new ArrayList<>();
+
+			for (int var = 0; var < objects.size(); var++) {
+				DomainObject obj = objects.get(var);
+				if (obj != null && model[var]) ret.add(obj);
+			}
+
+			return ret;
+		}
+
+		@Override
+		public Set<Explanation> why() throws TimeoutException {
+			long deadline = getDeadline(lastTimeout);
+			CdclSolver explainer = new CdclSolver();
+			int varCount = solver.getVarCount();
+
+			for (int i = 0; i < varCount; i++) {
+				explainer.newVar();
+			}
+
+			int[] selectors = new int[constraints.size()];
+
+			for (int i = 0; i < selectors.length; i++) {
+				selectors[i] = CdclSolver.lit(explainer.newVar(), false);
+				constraints.get(i).addTo(explainer, selectors[i]);
+			}
+
+			// collect the selectors involved in the failure, then drop those not needed for it
+
+			List<Integer> core = getCore(explainer, selectors, varCount, explain(explainer, selectors, null, deadline));
+			if (core == null) return new TreeSet<>(); // not failing
+
+			for (int i = 0; i < core.size(); ) {
+				List<Integer> candidate = new ArrayList<>(core);
+				candidate.remove(i);
+
+				List<Integer> reduced = getCore(explainer, selectors, varCount, explain(explainer, selectors, candidate, deadline));
+
+				if (reduced != null) { // still failing, the earlier entries are all required and stay in place
+					core = reduced;
+				} else {
+					i++;
+				}
+			}
+
+			Set<Explanation> ret = new TreeSet<>();
+
+			for (int index : core) {
+				ret.add(constraints.get(index).name);
+			}
+
+			return ret;
+		}
+
+		/**
+		 * Solve the explainer under the last assumptions with the constraints enabled by the given selectors.
+		 *
+		 * @param enabled indices of the constraints to enable or null for all
+		 */
+		private CdclSolver.Result explain(CdclSolver explainer, int[] selectors, List<Integer> enabled, long deadline) throws TimeoutException {
+			int count = enabled != null ? enabled.size() : selectors.length;
+			int[] assumps = new int[lastAssumptions.length + count];
+			System.arraycopy(lastAssumptions, 0, assumps, 0, lastAssumptions.length);
+
+			for (int i = 0; i < count; i++) {
+				assumps[lastAssumptions.length + i] = selectors[enabled != null ? enabled.get(i) : i];
+			}
+
+			CdclSolver.Result ret = explainer.solve(assumps, deadline);
+			if (ret == CdclSolver.Result.TIMEOUT) throw new TimeoutException();
+
+			return ret;
+		}
+
+		/**
+		 * Get the constraint indices of the selectors responsible for the explainer failing.
+		 *
+		 * @return ascending constraint indices or null if the explainer didn't fail
+		 */
+		private static List<Integer> getCore(CdclSolver explainer, int[] selectors, int firstSelectorVar, CdclSolver.Result result) {
+			if (result != CdclSolver.Result.UNSATISFIABLE) return null;
+
+			boolean[] involved = new boolean[selectors.length];
+
+			for (int lit : explainer.getCore()) {
+				int index = (lit >>> 1) - firstSelectorVar;
+				if (index >= 0) involved[index] = true;
+			}
+
+			List<Integer> ret = new ArrayList<>();
+
+			for (int i = 0; i < involved.length; i++) {
+				if (involved[i]) ret.add(i);
+			}
+
+			return ret;
+		}
+
+		@Override
+		public int getSolutionCount() {
+			return solver.getSolutionCount();
+		}
+
+		@Override
+		public long getConflicts() {
+			return solver.getConflicts();
+		}
+
+		@Override
+		public long getDecisions() {
+			return solver.getDecisions();
+		}
+
+		@Override
+		public void reset() {
+			vars.clear();
+			objects.clear();
+			constraints.clear();
+			objective.clear();
+		}
+
+		private int getLit(DomainObject obj) {
+			if (obj instanceof NegatedDomainObject) {
+				return CdclSolver.lit(getVar(((NegatedDomainObject) obj).obj), true);
+			} else {
+				return CdclSolver.lit(getVar(obj), false);
+			}
+		}
+
+		private int getVar(DomainObject obj) {
+			Integer ret = vars.get(obj);
+			if (ret != null) return ret;
+
+			int var = solver.newVar();
+			vars.put(obj, var);
+
+			while (objects.size() < var) {
+				objects.add(null);
+			}
+
+			objects.add(obj);
+
+			return var;
+		}
+
+		private static long getDeadline(int timeout) {
+			if (timeout <= 0) return 0;
+
+			long ret = System.nanoTime() + timeout * 1_000_000_000L;
+
+			return ret != 0 ? ret : 1;
+		}
+	}
+
+	private static final class Constraint {
+		final Explanation name;
+		final int[] lits;
+		final boolean atMostOne; // at most one lit true instead of at least one
+
+		Constraint(Explanation name, int[] lits, boolean atMostOne) {
+			this.name = name;
+			this.lits = lits;
+			this.atMostOne = atMostOne;
+		}
+
+		/**
+		 * Add the constraint's clauses to a solver.
+		 *
+		 * @param selector literal enabling the constraint, -1 for unconditional
+		 */
+		void addTo(CdclSolver solver, int selector) {
+			int extra = selector >= 0 ? 1 : 0;
+
+			if (!atMostOne) {
+				int[] clause = new int[lits.length + extra];
+				System.arraycopy(lits, 0, clause, 0, lits.length);
+				if (selector >= 0) clause[lits.length] = CdclSolver.negate(selector);
+				solver.addClause(clause);
+			} else {
+				for (int i = 0; i < lits.length; i++) {
+					for (int j = i + 1; j < lits.length; j++) {
+						if (selector >= 0) {
+							solver.addClause(CdclSolver.negate(lits[i]), CdclSolver.negate(lits[j]), CdclSolver.negate(selector));
+						} else {
+							solver.addClause(CdclSolver.negate(lits[i]), CdclSolver.negate(lits[j]));
+						}
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,1008 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Compact CDCL SAT solver with linear objective minimization, the engine of {@link CdclResolverBackend}.
+ *
+ * <p>The design follows MiniSat: two watched literals, first UIP clause learning, VSIDS branching with phase saving,
+ * Luby restarts and assumptions taken as the first decisions. Minimization is a linear search tightening an upper bound
+ * on the objective after every solution. The bound is guarded by an activation literal, so the clauses learned from it
+ * remain valid once it got dropped.
+ *
+ * <p>While minimizing, the objective variables get decided first, by decreasing weight and in their cheaper polarity.
+ * The weights of the mod selection problems are mostly distinct powers of two, which makes the first solution optimal
+ * or close to it and leaves little to do for the bound.
+ *
+ * <p>Variables are numbered from 0, literal {@code 2 * var} is the variable being true and {@code 2 * var + 1} its
+ * negation. Clauses may only be added between solve calls.
+ */
+final class CdclSolver {
+	enum Result {
+		SATISFIABLE,
+		UNSATISFIABLE,
+		TIMEOUT
+	}
+
+	private static final int RESTART_BASE = 100;
+	private static final double VAR_DECAY = 0.95;
+	private static final int MIN_LEARNT_LIMIT = 2000;
+
+	private int varCount;
+	private byte[] values = new byte[0]; // per var: 0 unassigned, 1 true, -1 false
+	private int[] levels = new int[0];
+	private Object[] reasons = new Object[0]; // per var: Clause, Bound or null for decisions and level 0 units
+	private int[] trailPositions = new int[0];
+	private boolean[] phases = new boolean[0]; // last assigned polarity
+	private boolean[] seen = new boolean[0];
+	private double[] activity = new double[0];
+	private ClauseList[] watches = new ClauseList[0]; // per literal, clauses with it as one of the first two literals
+	private int[] boundIndices = new int[0]; // per literal, index into the active bound or -1
+	private int[] staticRanks = new int[0]; // per var, index into staticLits or -1
+
+	private int[] trail = new int[0];
+	private int trailSize;
+	private int propagationHead;
+	private int[] trailLimits = new int[16];
+	private int decisionLevel;
+
+	private final List<Clause> learnts = new ArrayList<>();
+	private int clauseCount;
+	private int learntLimit;
+	private boolean ok = true;
+
+	private int[] heap = new int[0]; // binary max heap of vars by activity
+	private int heapSize;
+	private int[] heapIndices = new int[0]; // per var, position in heap or -1
+	private double varIncrement = 1;
+
+	private int[] staticLits = new int[0]; // decided first, in order
+	private int staticHead;
+
+	private Bound bound;
+
+	private boolean[] model;
+	private int[] core = new int[0];
+	private boolean optimal;
+	private int solutionCount;
+	private long conflicts;
+	private long decisions;
+
+	int newVar() {
+		int var = varCount++;
+
+		if (var == values.length) {
+			int cap = Math.max(16, var * 2);
+			values = Arrays.copyOf(values, cap);
+			levels = Arrays.copyOf(levels, cap);
+			reasons = Arrays.copyOf(reasons, cap);
+			trailPositions = Arrays.copyOf(trailPositions, cap);
+			phases = Arrays.copyOf(phases, cap);
+			seen = Arrays.copyOf(seen, cap);
+			activity = Arrays.copyOf(activity, cap);
+			watches = Arrays.copyOf(watches, cap * 2);
+			boundIndices = Arrays.copyOf(boundIndices, cap * 2);
+			staticRanks = Arrays.copyOf(staticRanks, cap);
+			trail = Arrays.copyOf(trail, cap);
+			heap = Arrays.copyOf(heap, cap);
+			heapIndices = Arrays.copyOf(heapIndices, cap);
+		}
+
+		watches[2 * var] = new ClauseList();
+		watches[2 * var + 1] = new ClauseList();
+		boundIndices[2 * var] = boundIndices[2 * var + 1] = -1;
+		staticRanks[var] = -1;
+		heapIndices[var] = -1;
+		heapInsert(var);
+
+		return var;
+	}
+
+	int getVarCount() {
+		return varCount;
+	}
+
+	static int lit(int var, boolean negated) {
+		return var << 1 | (negated ? 1 : 0);
+	}
+
+	static int negate(int lit) {
+		return lit ^ 1;
+	}
+
+	private static int var(int lit) {
+		return lit >>> 1;
+	}
+
+	private int value(int lit) {
+		int ret = values[lit >>> 1];
+
+		return (lit & 1) == 0 ? ret : -ret;
+	}
+
+	/**
+	 * Add a clause, dropping literals that are false without any decisions.
+	 *
+	 * @return false if the clause set became unsatisfiable
+	 */
+	boolean addClause(int... lits) {
+		assert decisionLevel == 0;
+		if (!ok) return false;
+
+		int[] clause = new int[lits.length];
+		int size = 0;
+
+		litLoop: for (int lit : lits) {
+			int value = value(lit);
+			if (value > 0) return true; // already satisfied
+			if (value < 0) continue;
+
+			for (int i = 0; i < size; i++) {
+				if (clause[i] == lit) continue litLoop; // duplicate
+				if (clause[i] == negate(lit)) return true; // tautology
+			}
+
+			clause[size++] = lit;
+		}
+
+		if (size == 0) {
+			ok = false;
+		} else if (size == 1) {
+			assign(clause[0], null);
+			ok = propagate() == null;
+		} else {
+			attach(new Clause(Arrays.copyOf(clause, size)));
+			clauseCount++;
+		}
+
+		return ok;
+	}
+
+	/**
+	 * Find any solution under the given assumptions.
+	 *
+	 * <p>Provides the solution through {@link #getModel} or the failed assumptions through {@link #getCore}.
+	 *
+	 * @param deadline {@link System#nanoTime} value to give up at, 0 for none
+	 */
+	Result solve(int[] assumptions, long deadline) {
+		model = null;
+		optimal = false;
+		solutionCount = 0;
+
+		Result ret = solve0(assumptions, deadline);
+
+		if (ret == Result.SATISFIABLE) {
+			model = copyModel();
+			optimal = true;
+			solutionCount = 1;
+		}
+
+		cancelUntil(0);
+
+		return ret;
+	}
+
+	/**
+	 * Find a solution minimizing the sum of the weights of the true objective literals.
+	 *
+	 * <p>If the deadline is reached after finding a solution, the best solution so far is kept, the result is
+	 * {@link Result#SATISFIABLE} and {@link #isOptimal} returns false.
+	 *
+	 * @param objLits objective literals, each at most once
+	 * @param weights positive objective weights for the literals
+	 * @param deadline {@link System#nanoTime} value to give up at, 0 for none
+	 */
+	Result minimize(int[] assumptions, int[] objLits, BigInteger[] weights, long deadline) {
+		if (objLits.length == 0) return solve(assumptions, deadline);
+
+		model = null;
+		optimal = false;
+		solutionCount = 0;
+
+		// the bound is only active while its activation literal is assumed true
+
+		int activator = lit(newVar(), false);
+		int[] assumps = new int[assumptions.length + 1];
+		assumps[0] = activator;
+		System.arraycopy(assumptions, 0, assumps, 1, assumptions.length);
+
+		Bound bound = new Bound(activator, objLits, weights);
+		this.bound = bound;
+		setStaticOrder(bound);
+
+		Result ret;
+
+		try {
+			for (;;) {
+				ret = solve0(assumps, deadline);
+				if (ret != Result.SATISFIABLE) break;
+
+				model = copyModel();
+				solutionCount++;
+
+				BigInteger cost = bound.getCost();
+				cancelUntil(0);
+
+				if (cost.signum() == 0) { // can't get any better
+					optimal = true;
+					break;
+				}
+
+				bound.setLimit(cost.subtract(BigInteger.ONE));
+			}
+
+			if (ret == Result.UNSATISFIABLE && model != null) { // no better solution
+				optimal = true;
+			} else if (ret == Result.UNSATISFIABLE) {
+				core = removeLit(core, activator);
+			}
+		} finally {
+			cancelUntil(0);
+
+			for (int lit : bound.lits) {
+				boundIndices[lit] = -1;
+			}
+
+			this.bound = null;
+			setStaticOrder(null);
+			addClause(negate(activator)); // retire the activator and with it all clauses learned from the bound
+		}
+
+		return model != null ? Result.SATISFIABLE : ret;
+	}
+
+	/**
+	 * Get the solution of the last solve or minimize call, indexed by var.
+	 */
+	boolean[] getModel() {
+		return model;
+	}
+
+	/**
+	 * Get the assumptions responsible for the last solve or minimize call being unsatisfiable.
+	 */
+	int[] getCore() {
+		return core;
+	}
+
+	boolean isOptimal() {
+		return optimal;
+	}
+
+	int getSolutionCount() {
+		return solutionCount;
+	}
+
+	long getConflicts() {
+		return conflicts;
+	}
+
+	long getDecisions() {
+		return decisions;
+	}
+
+	private Result solve0(int[] assumptions, long deadline) {
+		core = new int[0];
+		if (!ok) return Result.UNSATISFIABLE;
+
+		if (learntLimit == 0) learntLimit = Math.max(MIN_LEARNT_LIMIT, clauseCount / 3);
+
+		for (int restarts = 0; ; restarts++) {
+			Result ret = search(luby(restarts) * RESTART_BASE, assumptions, deadline);
+			if (ret != null) return ret;
+		}
+	}
+
+	/**
+	 * Search until finding a solution, proving unsatisfiability, timing out or exceeding the conflict budget.
+	 *
+	 * @return the result or null to restart
+	 */
+	private Result search(int conflictBudget, int[] assumptions, long deadline) {
+		int budget = conflictBudget;
+		int steps = 0;
+
+		for (;;) {
+			Object conflict = propagate();
+
+			if (conflict != null) {
+				conflicts++;
+				budget--;
+
+				if (decisionLevel == 0) {
+					ok = false;
+					return Result.UNSATISFIABLE;
+				}
+
+				learn(conflict);
+				varIncrement /= VAR_DECAY;
+
+				if (isExpired(deadline)) return Result.TIMEOUT;
+			} else {
+				if (budget <= 0) {
+					cancelUntil(0);
+					return null;
+				}
+
+				if ((++steps & 0xff) == 0 && isExpired(deadline)) return Result.TIMEOUT;
+				if (learnts.size() >= learntLimit + trailSize) reduceLearnts();
+
+				int next = -1;
+
+				while (decisionLevel < assumptions.length) {
+					int lit = assumptions[decisionLevel];
+					int value = value(lit);
+
+					if (value > 0) { // already satisfied, keep the levels aligned with the assumptions
+						newDecisionLevel();
+					} else if (value < 0) {
+						core = analyzeFinal(lit);
+						return Result.UNSATISFIABLE;
+					} else {
+						next = lit;
+						break;
+					}
+				}
+
+				if (next < 0) {
+					next = pickBranchLit();
+					if (next < 0) return Result.SATISFIABLE;
+					decisions++;
+				}
+
+				newDecisionLevel();
+				assign(next, null);
+			}
+		}
+	}
+
+	/**
+	 * Determine whether the search has to stop, either at the deadline or because the solving thread got interrupted.
+	 */
+	private static boolean isExpired(long deadline) {
+		return deadline != 0 && System.nanoTime() - deadline > 0
+				|| Thread.currentThread().isInterrupted();
+	}
+
+	private static int luby(int index) {
+		// 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, ...
+		int size = 1;
+		int seq = 0;
+
+		while (size < index + 1) {
+			seq++;
+			size = 2 * size + 1;
+		}
+
+		int x = index;
+
+		while (size - 1 != x) {
+			size = (size - 1) >> 1;
+			seq--;
+			x = x % size;
+		}
+
+		return 1 << seq;
+	}
+
+	private void newDecisionLevel() {
+		if (decisionLevel == trailLimits.length) trailLimits = Arrays.copyOf(trailLimits, decisionLevel * 2);
+		trailLimits[decisionLevel++] = trailSize;
+	}
+
+	private void assign(int lit, Object reason) {
+		int var = var(lit);
+		values[var] = (byte) ((lit & 1) == 0 ? 1 : -1);
+		levels[var] = decisionLevel;
+		reasons[var] = reason;
+		trailPositions[var] = trailSize;
+		trail[trailSize++] = lit;
+
+		if (bound != null && boundIndices[lit] >= 0) {
+			bound.slack = bound.slack.subtract(bound.weights[boundIndices[lit]]);
+		}
+	}
+
+	private void cancelUntil(int level) {
+		if (decisionLevel <= level) return;
+
+		for (int i = trailSize - 1; i >= trailLimits[level]; i--) {
+			int lit = trail[i];
+			int var = var(lit);
+
+			values[var] = 0;
+			reasons[var] = null;
+			phases[var] = (lit & 1) == 0;
+			if (heapIndices[var] < 0) heapInsert(var);
+			if (staticRanks[var] >= 0 && staticRanks[var] < staticHead) staticHead = staticRanks[var];
+
+			if (bound != null && boundIndices[lit] >= 0) {
+				bound.slack = bound.slack.add(bound.weights[boundIndices[lit]]);
+			}
+		}
+
+		trailSize = propagationHead = trailLimits[level];
+		decisionLevel = level;
+
+		if (bound != null) bound.onBacktrack();
+	}
+
+	private int pickBranchLit() {
+		while (staticHead < staticLits.length) {
+			int lit = staticLits[staticHead];
+			if (value(lit) == 0) return lit;
+			staticHead++;
+		}
+
+		while (heapSize > 0) {
+			int var = heapRemoveMax();
+			if (values[var] == 0) return lit(var, !phases[var]);
+		}
+
+		return -1;
+	}
+
+	private void setStaticOrder(Bound bound) {
+		for (int lit : staticLits) {
+			staticRanks[var(lit)] = -1;
+		}
+
+		if (bound == null) {
+			staticLits = new int[0];
+		} else {
+			staticLits = new int[bound.lits.length];
+
+			for (int i = 0; i < staticLits.length; i++) {
+				int lit = negate(bound.lits[i]); // cheaper polarity, the objective literal being false
+				staticLits[i] = lit;
+				staticRanks[var(lit)] = i;
+			}
+		}
+
+		staticHead = 0;
+	}
+
+	/**
+	 * Propagate all pending assignments.
+	 *
+	 * @return the conflicting constraint or null
+	 */
+	private Object propagate() {
+		while (propagationHead < trailSize) {
+			int lit = trail[propagationHead++];
+			int falseLit = negate(lit);
+			ClauseList list = watches[falseLit];
+			Clause[] clauses = list.clauses;
+			int size = list.size;
+			int keep = 0;
+			Clause conflict = null;
+
+			clauseLoop: for (int i = 0; i < size; i++) {
+				Clause clause = clauses[i];
+				if (clause.removed) continue;
+
+				int[] lits = clause.lits;
+
+				if (conflict != null) { // keep the remaining watches after a conflict
+					clauses[keep++] = clause;
+					continue;
+				}
+
+				if (lits[0] == falseLit) { // make lits[1] the false literal
+					lits[0] = lits[1];
+					lits[1] = falseLit;
+				}
+
+				if (value(lits[0]) > 0) {
+					clauses[keep++] = clause;
+					continue;
+				}
+
+				for (int k = 2; k < lits.length; k++) {
+					if (value(lits[k]) >= 0) { // move the watch
+						lits[1] = lits[k];
+						lits[k] = falseLit;
+						watches[lits[1]].add(clause);
+						continue clauseLoop;
+					}
+				}
+
+				clauses[keep++] = clause;
+
+				if (value(lits[0]) < 0) {
+					conflict = clause;
+				} else {
+					assign(lits[0], clause);
+				}
+			}
+
+			Arrays.fill(clauses, keep, size, null);
+			list.size = keep;
+
+			if (conflict != null) {
+				propagationHead = trailSize;
+				return conflict;
+			}
+
+			if (bound != null) {
+				Object ret = null;
+
+				if (lit == bound.activator) {
+					ret = bound.activate();
+				} else if (boundIndices[lit] >= 0 && value(bound.activator) > 0) {
+					ret = bound.propagate();
+				}
+
+				if (ret != null) {
+					propagationHead = trailSize;
+					return ret;
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Get the literals of a constraint as clause, the implied literal first if any.
+	 *
+	 * @param lit implied literal or -1 for a conflict
+	 */
+	private int[] explain(Object constraint, int lit) {
+		if (constraint instanceof Clause) {
+			return ((Clause) constraint).lits;
+		} else {
+			return ((Bound) constraint).explain(lit);
+		}
+	}
+
+	/**
+	 * Learn the first UIP clause from a conflict and backjump to assert it.
+	 */
+	private void learn(Object conflict) {
+		IntList out = new IntList();
+		out.add(-1); // placeholder for the asserting literal
+		int pathCount = 0;
+		int lit = -1;
+		int index = trailSize - 1;
+		int[] lits = explain(conflict, -1);
+
+		do {
+			for (int j = lit < 0 ? 0 : 1; j < lits.length; j++) {
+				int q = lits[j];
+				int var = var(q);
+
+				if (!seen[var] && levels[var] > 0) {
+					bumpVar(var);
+					seen[var] = true;
+
+					if (levels[var] >= decisionLevel) {
+						pathCount++;
+					} else {
+						out.add(q);
+					}
+				}
+			}
+
+			while (!seen[var(trail[index])]) index--;
+
+			lit = trail[index--];
+			seen[var(lit)] = false;
+			pathCount--;
+
+			if (pathCount > 0) lits = explain(reasons[var(lit)], lit);
+		} while (pathCount > 0);
+
+		out.data[0] = negate(lit);
+
+		// drop literals implied by the others through a clause
+
+		int[] collected = out.toArray();
+		int[] learnt = new int[collected.length];
+		int size = 0;
+
+		for (int i = 0; i < collected.length; i++) {
+			int q = collected[i];
+			Object reason = reasons[var(q)];
+
+			if (i > 0 && reason instanceof Clause && isImpliedByClause((Clause) reason)) continue;
+
+			learnt[size++] = q;
+		}
+
+		for (int i = 1; i < collected.length; i++) {
+			seen[var(collected[i])] = false;
+		}
+
+		learnt = Arrays.copyOf(learnt, size);
+
+		// backjump to the second highest level, which has to be watched
+
+		int backtrackLevel = 0;
+
+		for (int i = 1; i < learnt.length; i++) {
+			int level = levels[var(learnt[i])];
+
+			if (level > backtrackLevel) {
+				backtrackLevel = level;
+				int tmp = learnt[1];
+				learnt[1] = learnt[i];
+				learnt[i] = tmp;
+			}
+		}
+
+		cancelUntil(backtrackLevel);
+
+		if (learnt.length == 1) {
+			assign(learnt[0], null);
+		} else {
+			Clause clause = new Clause(learnt);
+			clause.lbd = computeLbd(learnt);
+			attach(clause);
+			learnts.add(clause);
+			assign(learnt[0], clause);
+		}
+	}
+
+	private boolean isImpliedByClause(Clause reason) {
+		int[] lits = reason.lits;
+
+		for (int k = 1; k < lits.length; k++) {
+			int var = var(lits[k]);
+			if (!seen[var] && levels[var] > 0) return false;
+		}
+
+		return true;
+	}
+
+	private int computeLbd(int[] lits) {
+		int ret = 0;
+
+		outer: for (int i = 0; i < lits.length; i++) {
+			int level = levels[var(lits[i])];
+
+			for (int j = 0; j < i; j++) {
+				if (levels[var(lits[j])] == level) continue outer;
+			}
+
+			ret++;
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Determine the assumptions responsible for an assumption being false.
+	 */
+	private int[] analyzeFinal(int lit) {
+		IntList ret = new IntList();
+		ret.add(lit);
+		if (decisionLevel == 0) return ret.toArray();
+
+		seen[var(lit)] = true;
+
+		for (int i = trailSize - 1; i >= trailLimits[0]; i--) {
+			int var = var(trail[i]);
+			if (!seen[var]) continue;
+
+			Object reason = reasons[var];
+
+			if (reason == null) { // decision, which is always an assumption here
+				ret.add(trail[i]);
+			} else {
+				int[] lits = explain(reason, trail[i]);
+
+				for (int j = 1; j < lits.length; j++) {
+					if (levels[var(lits[j])] > 0) seen[var(lits[j])] = true;
+				}
+			}
+
+			seen[var] = false;
+		}
+
+		seen[var(lit)] = false;
+
+		return ret.toArray();
+	}
+
+	private void attach(Clause clause) {
+		watches[clause.lits[0]].add(clause);
+		watches[clause.lits[1]].add(clause);
+	}
+
+	/**
+	 * Remove half of the learnt clauses, preferring the ones spanning many decision levels.
+	 */
+	private void reduceLearnts() {
+		learnts.sort(Comparator.comparingInt((Clause c) -> c.lbd).reversed().thenComparing(Comparator.comparingInt((Clause c) -> c.lits.length).reversed()));
+		int remove = learnts.size() / 2;
+		List<Clause> kept = new ArrayList<>(learnts.size() - remove);
+
+		for (Clause clause : learnts) {
+			if (remove > 0 && clause.lits.length > 2 && !isLocked(clause)) {
+				clause.removed = true; // the watches get dropped lazily
+				remove--;
+			} else {
+				kept.add(clause);
+			}
+		}
+
+		learnts.clear();
+		learnts.addAll(kept);
+		learntLimit += learntLimit / 10;
+	}
+
+	private boolean isLocked(Clause clause) {
+		int var = var(clause.lits[0]);
+
+		return reasons[var] == clause && value(clause.lits[0]) > 0;
+	}
+
+	private boolean[] copyModel() {
+		boolean[] ret = new boolean[varCount];
+
+		for (int var = 0; var < varCount; var++) {
+			ret[var] = values[var] > 0;
+		}
+
+		return ret;
+	}
+
+	private static int[] removeLit(int[] lits, int lit) {
+		IntList ret = new IntList();
+
+		for (int l : lits) {
+			if (l != lit) ret.add(l);
+		}
+
+		return ret.toArray();
+	}
+
+	private void bumpVar(int var) {
+		if ((activity[var] += varIncrement) > 1e100) {
+			for (int i = 0; i < varCount; i++) {
+				activity[i] *= 1e-100;
+			}
+
+			varIncrement *= 1e-100;
+		}
+
+		if (heapIndices[var] >= 0) heapUp(heapIndices[var]);
+	}
+
+	private void heapInsert(int var) {
+		heapIndices[var] = heapSize;
+		heap[heapSize++] = var;
+		heapUp(heapSize - 1);
+	}
+
+	private int heapRemoveMax() {
+		int ret = heap[0];
+		int last = heap[--heapSize];
+		heapIndices[ret] = -1;
+
+		if (heapSize > 0) {
+			heap[0] = last;
+			heapIndices[last] = 0;
+			heapDown(0);
+		}
+
+		return ret;
+	}
+
+	private void heapUp(int pos) {
+		int var = heap[pos];
+
+		while (pos > 0) {
+			int parent = (pos - 1) >> 1;
+			if (activity[heap[parent]] >= activity[var]) break;
+
+			heap[pos] = heap[parent];
+			heapIndices[heap[pos]] = pos;
+			pos = parent;
+		}
+
+		heap[pos] = var;
+		heapIndices[var] = pos;
+	}
+
+	private void heapDown(int pos) {
+		int var = heap[pos];
+
+		for (;;) {
+			int child = 2 * pos + 1;
+			if (child >= heapSize) break;
+			if (child + 1 < heapSize && activity[heap[child + 1]] > activity[heap[child]]) child++;
+			if (activity[heap[child]] <= activity[var]) break;
+
+			heap[pos] = heap[child];
+			heapIndices[heap[pos]] = pos;
+			pos = child;
+		}
+
+		heap[pos] = var;
+		heapIndices[var] = pos;
+	}
+
+	/**
+	 * Upper bound on the objective, sum of the weights of the true literals <= limit while the activator is true.
+	 *
+	 * <p>Literals whose weight exceeds the remaining slack get propagated to false. Explanations pick the heaviest true
+	 * literals, which keeps them short for power of two weights.
+	 */
+	private final class Bound {
+		final int activator;
+		final int[] lits; // by decreasing weight
+		final BigInteger[] weights;
+		BigInteger limit;
+		BigInteger slack; // limit minus the weights of the currently true literals
+		int head; // literals before were propagated already
+
+		Bound(int activator, int[] objLits, BigInteger[] objWeights) {
+			Integer[] order = new Integer[objLits.length];
+
+			for (int i = 0; i < order.length; i++) {
+				order[i] = i;
+			}
+
+			Arrays.sort(order, (a, b) -> objWeights[b].compareTo(objWeights[a])); // stable, ties stay in objective order
+
+			this.activator = activator;
+			this.lits = new int[objLits.length];
+			this.weights = new BigInteger[objLits.length];
+			BigInteger sum = BigInteger.ZERO;
+
+			for (int i = 0; i < order.length; i++) {
+				lits[i] = objLits[order[i]];
+				weights[i] = objWeights[order[i]];
+				boundIndices[lits[i]] = i;
+				sum = sum.add(weights[i]);
+			}
+
+			// start without restriction, the level 0 assignments may already count
+
+			limit = sum;
+			slack = sum;
+
+			for (int i = 0; i < lits.length; i++) {
+				if (value(lits[i]) > 0) slack = slack.subtract(weights[i]);
+			}
+		}
+
+		BigInteger getCost() {
+			return limit.subtract(slack);
+		}
+
+		void setLimit(BigInteger limit) {
+			slack = slack.add(limit.subtract(this.limit));
+			this.limit = limit;
+		}
+
+		Object activate() {
+			head = 0;
+
+			return propagate();
+		}
+
+		Object propagate() {
+			if (slack.signum() < 0) return this;
+
+			while (head < lits.length && weights[head].compareTo(slack) > 0) {
+				int lit = lits[head++];
+				if (value(lit) == 0) assign(negate(lit), this);
+			}
+
+			return null;
+		}
+
+		void onBacktrack() {
+			if (value(activator) <= 0) return;
+
+			// all literals heavier than the restored slack got handled at or before the current level
+
+			int low = 0;
+			int high = lits.length;
+
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+
+				if (weights[mid].compareTo(slack) > 0) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+
+			head = low;
+		}
+
+		/**
+		 * @param lit implied literal or -1 for a conflict
+		 */
+		int[] explain(int lit) {
+			IntList ret = new IntList();
+			int maxPos;
+			BigInteger needed; // the true literals' weights have to exceed this
+
+			if (lit >= 0) {
+				ret.add(lit);
+				maxPos = trailPositions[var(lit)];
+				needed = limit.subtract(weights[boundIndices[negate(lit)]]);
+			} else {
+				maxPos = trailSize;
+				needed = limit;
+			}
+
+			ret.add(negate(activator));
+			BigInteger sum = BigInteger.ZERO;
+
+			for (int i = 0; i < lits.length && sum.compareTo(needed) <= 0; i++) {
+				int l = lits[i];
+
+				if (value(l) > 0 && trailPositions[var(l)] < maxPos) {
+					ret.add(negate(l));
+					sum = sum.add(weights[i]);
+				}
+			}
+
+			assert sum.compareTo(needed) > 0;
+
+			return ret.toArray();
+		}
+	}
+
+	private static final class Clause {
+		final int[] lits;
+		int lbd; // only for learnt clauses
+		boolean removed;
+
+		Clause(int[] lits) {
+			this.lits = lits;
+		}
+	}
+
+	private static final class ClauseList {
+		Clause[] clauses = new Clause[4];
+		int size;
+
+		void add(Clause clause) {
+			if (size == clauses.length) clauses = Arrays.copyOf(clauses, size * 2);
+			clauses[size++] = clause;
+		}
+	}
+
+	private static final class IntList {
+		int[] data = new int[8];
+		int size;
+
+		void add(int value) {
+			if (size == data.length) data = Arrays.copyOf(data, size * 2);
+			data[size++] = value;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(data, size);
+		}
+	}
+}
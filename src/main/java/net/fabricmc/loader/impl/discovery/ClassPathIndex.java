@@ -0,0 +1,224 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Index of the launcher class path roots, recording which of them contain a {@code fabric.mod.json}.
+ *
+ * <p>The roots are probed in one parallel pass instead of resolving the resource through the class loader, which checks
+ * every root sequentially. The results for jar roots are cached across launches keyed by path, size and modification
+ * time, directory roots are always probed since a single file check is as cheap as validating a cache entry.
+ */
+final class ClassPathIndex {
+	private static final int MAGIC = 0x46435049; // FCPI
+	private static final int FORMAT_VERSION = 1;
+	private static final String MOD_JSON = "fabric.mod.json";
+
+	private final Map<Path, Boolean> roots; // class path order, root -> has fabric.mod.json
+
+	private ClassPathIndex(Map<Path, Boolean> roots) {
+		this.roots = roots;
+	}
+
+	/**
+	 * Index the supplied class path roots, which are expected to be normalized existing paths.
+	 *
+	 * @param cacheFile file caching the results for jars, may be null
+	 */
+	static ClassPathIndex create(List<Path> classPath, Path cacheFile) {
+		long startTime = System.nanoTime();
+		Map<String, JarEntry> cache = cacheFile != null ? readCache(cacheFile) : Collections.emptyMap();
+		Map<String, JarEntry> newCache = new ConcurrentHashMap<>();
+		boolean[] hasModJson = new boolean[classPath.size()];
+
+		IntStream.range(0, classPath.size()).parallel().forEach(i -> {
+			hasModJson[i] = probe(classPath.get(i), cache, newCache);
+		});
+
+		Map<Path, Boolean> roots = new LinkedHashMap<>(classPath.size() * 2);
+
+		for (int i = 0; i < hasModJson.length; i++) {
+			roots.putIfAbsent(classPath.get(i), hasModJson[i]);
+		}
+
+		if (cacheFile != null && !newCache.equals(cache)) {
+			writeCache(cacheFile, newCache);
+		}
+
+		Log.debug(LogCategory.DISCOVERY, "Indexed %d class path roots in %.1f ms", roots.size(), (System.nanoTime() - startTime) * 1e-6);
+
+		return new ClassPathIndex(roots);
+	}
+
+	private static boolean probe(Path root, Map<String, JarEntry> cache, Map<String, JarEntry> newCache) {
+		try {
+			BasicFileAttributes attrs = Files.readAttributes(root, BasicFileAttributes.class);
+
+			if (attrs.isDirectory()) {
+				return Files.exists(root.resolve(MOD_JSON));
+			}
+
+			String key = root.toString();
+			long lastModified = attrs.lastModifiedTime().toMillis();
+			JarEntry entry = cache.get(key);
+
+			if (entry == null || entry.size != attrs.size() || entry.lastModified != lastModified) {
+				boolean hasModJson;
+
+				try (ZipFile zf = new ZipFile(root.toFile())) {
+					hasModJson = zf.getEntry(MOD_JSON) != null;
+				} catch (ZipException e) {
+					hasModJson = false; // not a jar
+				}
+
+				entry = new JarEntry(attrs.size(), lastModified, hasModJson);
+			}
+
+			newCache.put(key, entry);
+
+			return entry.hasModJson;
+		} catch (IOException e) {
+			Log.debug(LogCategory.DISCOVERY, "Error indexing class path root %s", root, e);
+			return false;
+		}
+	}
+
+	/**
+	 * Get all roots containing a {@code fabric.mod.json}, in class path order.
+	 */
+	List<Path> getModRoots() {
+		List<Path> ret = new ArrayList<>();
+
+		for (Map.Entry<Path, Boolean> entry : roots.entrySet()) {
+			if (entry.getValue()) ret.add(entry.getKey());
+		}
+
+		return ret;
+	}
+
+	Set<Path> getRoots() {
+		return roots.keySet();
+	}
+
+	private static Map<String, JarEntry> readCache(Path file) {
+		if (!Files.exists(file)) return Collections.emptyMap();
+
+		try (DataInputStream is = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (is.readInt() != MAGIC || is.readInt() != FORMAT_VERSION) {
+				Log.debug(LogCategory.DISCOVERY, "Discarding incompatible class path index %s", file);
+				return Collections.emptyMap();
+			}
+
+			int count = is.readInt();
+			Map<String, JarEntry> ret = new HashMap<>(count * 2);
+
+			for (int i = 0; i < count; i++) {
+				ret.put(is.readUTF(), new JarEntry(is.readLong(), is.readLong(), is.readBoolean()));
+			}
+
+			return ret;
+		} catch (IOException e) {
+			Log.debug(LogCategory.DISCOVERY, "Error reading class path index %s, ignoring", file, e);
+			return Collections.emptyMap();
+		}
+	}
+
+	private static void writeCache(Path file, Map<String, JarEntry> cache) {
+		Path tmpFile = null;
+
+		try {
+			Files.createDirectories(file.toAbsolutePath().getParent());
+			tmpFile = Files.createTempFile(file.toAbsolutePath().getParent(), "classPathIndex", ".tmp");
+
+			try (DataOutputStream os = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+				os.writeInt(MAGIC);
+				os.writeInt(FORMAT_VERSION);
+				os.writeInt(cache.size());
+
+				for (Map.Entry<String, JarEntry> entry : cache.entrySet()) {
+					os.writeUTF(entry.getKey());
+					os.writeLong(entry.getValue().size);
+					os.writeLong(entry.getValue().lastModified);
+					os.writeBoolean(entry.getValue().hasModJson);
+				}
+			}
+
+			Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			tmpFile = null;
+		} catch (IOException e) {
+			Log.warn(LogCategory.DISCOVERY, "Error writing class path index %s", file, e);
+		} finally {
+			if (tmpFile != null) {
+				try {
+					Files.deleteIfExists(tmpFile);
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	private static final class JarEntry {
+		final long size;
+		final long lastModified;
+		final boolean hasModJson;
+
+		JarEntry(long size, long lastModified, boolean hasModJson) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.hasModJson = hasModJson;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof JarEntry)) return false;
+
+			JarEntry o = (JarEntry) obj;
+
+			return size == o.size && lastModified == o.lastModified && hasModJson == o.hasModJson;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(size) * 31 + Long.hashCode(lastModified);
+		}
+	}
+}
@@ -32,6 +32,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import net.fabricmc.loader.impl.FabricLoaderImpl;
 import net.fabricmc.loader.impl.launch.FabricLauncherBase;
 import net.fabricmc.loader.impl.util.LoaderUtil;
 import net.fabricmc.loader.impl.util.SystemProperties;
@@ -44,7 +45,28 @@ public class ClasspathModCandidateFinder implements ModCandidateFinder {
 	@Override
 	public void findCandidates(ModCandidateConsumer out) {
 		if (FabricLauncherBase.getLauncher().isDevelopment()) {
-			Map<Path, List<Path>> pathGroups = getPathGroups();
+			ClassPathIndex index = null;
+
+			if (Boolean.parseBoolean(System.getProperty(SystemProperties.CLASS_PATH_INDEX, "false"))) {
+				Path cacheFile = FabricLoaderImpl.INSTANCE.getGameDir().resolve(FabricLoaderImpl.CACHE_DIR_NAME).resolve(FabricLoaderImpl.CLASS_PATH_INDEX_FILE_NAME);
+				index = ClassPathIndex.create(FabricLauncherBase.getLauncher().getClassPath(), cacheFile);
+			}
+
+			Map<Path, List<Path>> pathGroups = getPathGroups(index);
+
+			if (index != null) {
+				for (Path path : index.getModRoots()) {
+					List<Path> paths = pathGroups.get(path);
+
+					if (paths == null) {
+						out.accept(path, false);
+					} else {
+						out.accept(paths, false);
+					}
+				}
+
+				return;
+			}
 
 			// Search for URLs which point to 'fabric.mod.json' entries, to be considered as mods.
 			try {
@@ -82,12 +104,14 @@ public class ClasspathModCandidateFinder implements ModCandidateFinder {
 	 * Parse fabric.classPathGroups system property into a path group lookup map.
 	 *
 	 * <p>This transforms {@code a:b::c:d:e} into {@code a=[a,b],b=[a,b],c=[c,d,e],d=[c,d,e],e=[c,d,e]}
+	 *
+	 * @param index class path index to look up entries without accessing the file system, may be null
 	 */
-	private static Map<Path, List<Path>> getPathGroups() {
+	private static Map<Path, List<Path>> getPathGroups(ClassPathIndex index) {
 		String prop = System.getProperty(SystemProperties.PATH_GROUPS);
 		if (prop == null) return Collections.emptyMap();
 
-		Set<Path> cp = new HashSet<>(FabricLauncherBase.getLauncher().getClassPath());
+		Set<Path> cp = index != null ? index.getRoots() : new HashSet<>(FabricLauncherBase.getLauncher().getClassPath());
 		Map<Path, List<Path>> ret = new HashMap<>();
 
 		for (String group : prop.split(File.pathSeparator+File.pathSeparator)) {
@@ -98,6 +122,15 @@ public class ClasspathModCandidateFinder implements ModCandidateFinder {
 
 				Path resolvedPath = Paths.get(path);
 
+				if (index != null) { // indexed roots are known to exist and are already normalized, only symlinks need resolving
+					Path normalizedPath = resolvedPath.toAbsolutePath().normalize();
+
+					if (cp.contains(normalizedPath)) {
+						paths.add(normalizedPath);
+						continue;
+					}
+				}
+
 				if (!Files.exists(resolvedPath)) {
 					Log.debug(LogCategory.DISCOVERY, "Skipping missing class path group entry %s", path);
 					continue;
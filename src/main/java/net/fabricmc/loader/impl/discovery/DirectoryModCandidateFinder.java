@@ -23,18 +23,38 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.List;
+import java.util.function.Consumer;
 
+import net.fabricmc.loader.impl.FabricLoaderImpl;
+import net.fabricmc.loader.impl.util.SystemProperties;
 import net.fabricmc.loader.impl.util.log.Log;
 import net.fabricmc.loader.impl.util.log.LogCategory;
 
 public class DirectoryModCandidateFinder implements ModCandidateFinder {
 	private final Path path;
 	private final boolean requiresRemap;
+	private final ModsDirJournal journal;
 
 	public DirectoryModCandidateFinder(Path path, boolean requiresRemap) {
 		this.path = path;
 		this.requiresRemap = requiresRemap;
+
+		if (Boolean.parseBoolean(System.getProperty(SystemProperties.WATCH_MODS_DIR, "false"))) {
+			Path journalFile = FabricLoaderImpl.INSTANCE.getGameDir().resolve(FabricLoaderImpl.CACHE_DIR_NAME).resolve(FabricLoaderImpl.MODS_DIR_JOURNAL_FILE_NAME);
+			this.journal = ModsDirJournal.load(journalFile, path);
+		} else {
+			this.journal = null;
+		}
+	}
+
+	@Override
+	public Collection<Path> getModifiedPaths() {
+		return journal != null ? journal.getModifiedFiles() : Collections.emptyList();
 	}
 
 	@Override
@@ -51,12 +71,33 @@ public class DirectoryModCandidateFinder implements ModCandidateFinder {
 			throw new RuntimeException(path + " is not a directory!");
 		}
 
+		if (journal != null) {
+			List<Path> files = journal.beginScan();
+
+			if (files != null) {
+				Log.debug(LogCategory.DISCOVERY, "Mods dir %s is unchanged, using %d mod files from the journal", path, files.size());
+			} else {
+				files = new ArrayList<>();
+				listFiles(files::add);
+			}
+
+			for (Path file : files) {
+				out.accept(file, requiresRemap);
+			}
+
+			journal.endScan(files);
+		} else {
+			listFiles(file -> out.accept(file, requiresRemap));
+		}
+	}
+
+	private void listFiles(Consumer<Path> out) {
 		try {
 			Files.walkFileTree(this.path, EnumSet.of(FileVisitOption.FOLLOW_LINKS), 1, new SimpleFileVisitor<Path>() {
 				@Override
 				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
 					if (isValidFile(file)) {
-						out.accept(file, requiresRemap);
+						out.accept(file);
 					}
 
 					return FileVisitResult.CONTINUE;
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.fabricmc.loader.impl.util.SystemProperties;
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Heap budget for nested jar data buffered from discovery until the nested mods are extracted.
+ *
+ * <p>Nested jars that aren't a plain slice of a memory mapped parent are held on the heap. With a budget in place, their
+ * buffers are held strongly instead of through soft references until explicitly released, and any buffer that would
+ * exceed the budget is written to a temporary file and memory mapped instead. The file is deleted right away when
+ * possible, the mapping stays valid until the buffer is no longer referenced.
+ */
+final class DiscoveryMemoryBudget {
+	private final long limit;
+	private final Path tmpDir;
+	private final AtomicLong heapBytes = new AtomicLong();
+	private final AtomicLong peakHeapBytes = new AtomicLong();
+	private final AtomicLong spilledBytes = new AtomicLong();
+	private final Map<ModCandidate, Long> heldMods = Collections.synchronizedMap(new IdentityHashMap<>()); // mod -> held heap bytes
+	private volatile boolean spillFailed;
+
+	/**
+	 * Create the budget configured through {@link SystemProperties#DISCOVERY_MEMORY_BUDGET}.
+	 *
+	 * @return the budget or null if none is configured
+	 */
+	static DiscoveryMemoryBudget create(Path tmpDir) {
+		String value = System.getProperty(SystemProperties.DISCOVERY_MEMORY_BUDGET);
+		if (value == null) return null;
+
+		long limit;
+
+		try {
+			limit = parseSize(value);
+		} catch (NumberFormatException e) {
+			Log.warn(LogCategory.DISCOVERY, "Invalid discovery memory budget %s, expected a size like 64m", value);
+			return null;
+		}
+
+		return new DiscoveryMemoryBudget(limit, tmpDir);
+	}
+
+	static long parseSize(String value) {
+		value = value.trim().toLowerCase(Locale.ENGLISH);
+		int shift = 0;
+
+		if (!value.isEmpty()) {
+			switch (value.charAt(value.length() - 1)) {
+			case 'k': shift = 10; break;
+			case 'm': shift = 20; break;
+			case 'g': shift = 30; break;
+			}
+		}
+
+		if (shift != 0) value = value.substring(0, value.length() - 1);
+
+		long ret = Long.parseLong(value);
+		if (ret < 0) throw new NumberFormatException("negative size");
+
+		return ret << shift;
+	}
+
+	private DiscoveryMemoryBudget(long limit, Path tmpDir) {
+		this.limit = limit;
+		this.tmpDir = tmpDir;
+	}
+
+	/**
+	 * Account for a nested jar's data, spilling it to disk if it doesn't fit the budget.
+	 *
+	 * @return the data to use in place of the supplied buffer
+	 */
+	ByteBuffer hold(ByteBuffer data, String name) {
+		if (data.isDirect()) return data; // mapped or otherwise off-heap already
+
+		long size = getHeapSize(data);
+
+		for (;;) {
+			long current = heapBytes.get();
+			if (current + size > limit) break;
+
+			if (heapBytes.compareAndSet(current, current + size)) {
+				updatePeak(current + size);
+				return data;
+			}
+		}
+
+		if (!spillFailed) {
+			try {
+				ByteBuffer ret = spill(data);
+				spilledBytes.addAndGet(data.remaining());
+
+				return ret;
+			} catch (IOException e) {
+				Log.warn(LogCategory.DISCOVERY, "Can't spill nested jar %s to %s, exceeding the discovery memory budget instead", name, tmpDir, e);
+				spillFailed = true;
+			}
+		}
+
+		updatePeak(heapBytes.addAndGet(size));
+
+		return data;
+	}
+
+	/**
+	 * Stop accounting for data that won't be retained.
+	 */
+	void free(ByteBuffer data) {
+		if (!data.isDirect()) heapBytes.addAndGet(-getHeapSize(data));
+	}
+
+	private ByteBuffer spill(ByteBuffer data) throws IOException {
+		Files.createDirectories(tmpDir);
+		Path file = Files.createTempFile(tmpDir, "nestedJar", ".tmp");
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE)) {
+			ByteBuffer src = data.duplicate();
+
+			while (src.hasRemaining()) {
+				channel.write(src);
+			}
+
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, data.remaining());
+		} finally {
+			try {
+				Files.deleteIfExists(file); // no-op if deleted on close already
+			} catch (IOException e) {
+				// still mapped on Windows, DELETE_ON_CLOSE removes it once unmapped
+			}
+		}
+	}
+
+	private void updatePeak(long value) {
+		long peak;
+
+		while ((peak = peakHeapBytes.get()) < value && !peakHeapBytes.compareAndSet(peak, value)) {
+			// retry
+		}
+	}
+
+	/**
+	 * Keep a mod's data referenced strongly until released.
+	 */
+	void setData(ModCandidate mod, ByteBuffer data) {
+		mod.setData(data, true);
+		if (!data.isDirect()) heldMods.put(mod, getHeapSize(data));
+	}
+
+	/**
+	 * Release the data of all held mods except the supplied ones.
+	 */
+	void release(Collection<ModCandidate> retainedMods) {
+		Set<ModCandidate> retained = Collections.newSetFromMap(new IdentityHashMap<>(retainedMods.size() * 2));
+		retained.addAll(retainedMods);
+
+		synchronized (heldMods) {
+			for (Iterator<Map.Entry<ModCandidate, Long>> it = heldMods.entrySet().iterator(); it.hasNext(); ) {
+				Map.Entry<ModCandidate, Long> entry = it.next();
+				ModCandidate mod = entry.getKey();
+
+				if (!retained.contains(mod)) {
+					mod.clearCachedData();
+					heapBytes.addAndGet(-entry.getValue());
+					it.remove();
+				}
+			}
+		}
+	}
+
+	void logUsage() {
+		Log.debug(LogCategory.DISCOVERY, "Nested jar buffers: peak %.1f MiB on heap (budget %.1f MiB), %.1f MiB spilled to disk",
+				peakHeapBytes.get() / 1048576., limit / 1048576., spilledBytes.get() / 1048576.);
+	}
+
+	private static long getHeapSize(ByteBuffer data) {
+		return data.hasArray() ? data.array().length : data.capacity();
+	}
+}
@@ -16,13 +16,16 @@
 
 package net.fabricmc.loader.impl.discovery;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.lang.ref.SoftReference;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -31,7 +34,6 @@ import java.util.List;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
-import java.util.zip.ZipInputStream;
 
 import net.fabricmc.loader.api.Version;
 import net.fabricmc.loader.api.metadata.ModDependency;
@@ -40,6 +42,7 @@ import net.fabricmc.loader.impl.metadata.AbstractModMetadata;
 import net.fabricmc.loader.impl.metadata.DependencyOverrides;
 import net.fabricmc.loader.impl.metadata.LoaderModMetadata;
 import net.fabricmc.loader.impl.metadata.VersionOverrides;
+import net.fabricmc.loader.impl.util.FileSystemUtil;
 
 public final class ModCandidate implements DomainObject.Mod {
 	static final Comparator<ModCandidate> ID_VERSION_COMPARATOR = new Comparator<ModCandidate>() {
@@ -50,32 +53,35 @@ public final class ModCandidate implements DomainObject.Mod {
 			return cmp != 0 ? cmp : a.getVersion().compareTo(b.getVersion());
 		}
 	};
+	private static final String DIGEST_ALGORITHM = "SHA-256";
 
 	private final List<Path> originPaths;
 	private List<Path> paths;
 	private final String localPath;
 	private final long hash;
+	private final byte[] digest;
 	private final LoaderModMetadata metadata;
 	private final boolean requiresRemap;
 	private final Collection<ModCandidate> nestedMods;
 	private final Collection<ModCandidate> parentMods;
 	private int minNestLevel;
 	private SoftReference<ByteBuffer> dataRef;
+	private ByteBuffer heldData; // strongly referenced data under a discovery memory budget
 
 	static ModCandidate createBuiltin(BuiltinMod mod, VersionOverrides versionOverrides, DependencyOverrides depOverrides) {
 		LoaderModMetadata metadata = new BuiltinMetadataWrapper(mod.metadata);
 		versionOverrides.apply(metadata);
 		depOverrides.apply(metadata);
 
-		return new ModCandidate(mod.paths, null, -1, metadata, false, Collections.emptyList());
+		return new ModCandidate(mod.paths, null, -1, null, metadata, false, Collections.emptyList());
 	}
 
 	static ModCandidate createPlain(List<Path> paths, LoaderModMetadata metadata, boolean requiresRemap, Collection<ModCandidate> nestedMods) {
-		return new ModCandidate(paths, null, -1, metadata, requiresRemap, nestedMods);
+		return new ModCandidate(paths, null, -1, null, metadata, requiresRemap, nestedMods);
 	}
 
-	static ModCandidate createNested(String localPath, long hash, LoaderModMetadata metadata, boolean requiresRemap, Collection<ModCandidate> nestedMods) {
-		return new ModCandidate(null, localPath, hash, metadata, requiresRemap, nestedMods);
+	static ModCandidate createNested(String localPath, long hash, byte[] digest, LoaderModMetadata metadata, boolean requiresRemap, Collection<ModCandidate> nestedMods) {
+		return new ModCandidate(null, localPath, hash, digest, metadata, requiresRemap, nestedMods);
 	}
 
 	static long hash(ZipEntry entry) {
@@ -84,16 +90,34 @@ public final class ModCandidate implements DomainObject.Mod {
 		return entry.getCrc() << 32 | entry.getSize();
 	}
 
-	private static long getSize(long hash) {
+	static long getSize(long hash) {
 		return hash & 0xffffffffL;
 	}
 
-	private ModCandidate(List<Path> paths, String localPath, long hash, LoaderModMetadata metadata, boolean requiresRemap, Collection<ModCandidate> nestedMods) {
+	/**
+	 * Compute the SHA-256 digest of a jar's content, used to reliably identify identical nested jars.
+	 */
+	static byte[] computeDigest(ByteBuffer data) {
+		MessageDigest digest;
+
+		try {
+			digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+
+		digest.update(data.duplicate());
+
+		return digest.digest();
+	}
+
+	private ModCandidate(List<Path> paths, String localPath, long hash, byte[] digest, LoaderModMetadata metadata, boolean requiresRemap, Collection<ModCandidate> nestedMods) {
 		this.originPaths = paths;
 		this.paths = paths;
 		this.localPath = localPath;
 		this.metadata = metadata;
 		this.hash = hash;
+		this.digest = digest;
 		this.requiresRemap = requiresRemap;
 		this.nestedMods = nestedMods;
 		this.parentMods = paths == null ? new ArrayList<>() : Collections.emptyList();
@@ -131,6 +155,17 @@ public final class ModCandidate implements DomainObject.Mod {
 		}
 	}
 
+	long getHash() {
+		return hash;
+	}
+
+	/**
+	 * Get the SHA-256 digest of a nested mod's jar, null for mods that aren't nested.
+	 */
+	byte[] getDigest() {
+		return digest;
+	}
+
 	public LoaderModMetadata getMetadata() {
 		return metadata;
 	}
@@ -209,11 +244,30 @@ public final class ModCandidate implements DomainObject.Mod {
 	}
 
 	void setData(ByteBuffer data) {
+		setData(data, false);
+	}
+
+	/**
+	 * Cache the mod's jar data.
+	 *
+	 * @param hold whether to keep the data until {@link #clearCachedData} instead of letting the GC reclaim it
+	 */
+	void setData(ByteBuffer data, boolean hold) {
 		this.dataRef = new SoftReference<>(data);
+		this.heldData = hold ? data : null;
 	}
 
 	void clearCachedData() {
 		this.dataRef = null;
+		this.heldData = null;
+	}
+
+	private ByteBuffer getCachedData() {
+		if (heldData != null) return heldData;
+
+		SoftReference<ByteBuffer> dataRef = this.dataRef;
+
+		return dataRef != null ? dataRef.get() : null;
 	}
 
 	public Path copyToDir(Path outputDir, boolean temp) throws IOException {
@@ -245,11 +299,44 @@ public final class ModCandidate implements DomainObject.Mod {
 		return ret;
 	}
 
+	/**
+	 * Locate this nested mod's jar within its parent mod, allowing it to be used without extracting it.
+	 *
+	 * <p>The returned path is inside the parent's jar file system unless the parent is a directory. Parents without a
+	 * path get resolved the same way first.
+	 *
+	 * @throws IOException if the jar or a jar file system for it isn't available, e.g. on Java 8
+	 */
+	public Path getPathInParent() throws IOException {
+		if (paths != null) throw new IllegalStateException("mod "+this+" already has a path");
+
+		ModCandidate parent = getBestSourcingParent();
+		if (!parent.hasPath()) parent.setPaths(Collections.singletonList(parent.getPathInParent()));
+		if (parent.paths.size() != 1) throw new UnsupportedOperationException("multiple parent paths for "+this);
+
+		Path parentPath = parent.paths.get(0);
+		Path ret;
+
+		if (Files.isDirectory(parentPath)) {
+			ret = parentPath.resolve(localPath);
+		} else {
+			ret = FileSystemUtil.getJarFileSystem(parentPath, false).get().getPath(localPath);
+		}
+
+		if (!Files.isRegularFile(ret)) throw new IOException(String.format("can't find nested mod %s in its parent mod %s", this, parent));
+
+		if (ret.getFileSystem() != FileSystems.getDefault()) {
+			FileSystemUtil.getJarFileSystem(ret, false); // ensure the nested jar can be opened
+		}
+
+		return ret;
+	}
+
 	String getDefaultFileName() {
 		String ret = String.format("%s-%s-%s.jar",
 				getId(),
 				FILE_NAME_SANITIZING_PATTERN.matcher(getVersion().getFriendlyString()).replaceAll("_"),
-				Long.toHexString(mixHash(hash)));
+				Long.toHexString(digest != null ? ByteBuffer.wrap(digest).getLong() : mixHash(hash)));
 
 		if (ret.length() > 64) {
 			ret = ret.substring(0, 32).concat(ret.substring(ret.length() - 32));
@@ -271,15 +358,11 @@ public final class ModCandidate implements DomainObject.Mod {
 	private static final Pattern FILE_NAME_SANITIZING_PATTERN = Pattern.compile("[^\\w\\.\\-\\+]+");
 
 	private void copyToFile(Path out) throws IOException {
-		SoftReference<ByteBuffer> dataRef = this.dataRef;
+		ByteBuffer data = getCachedData();
 
-		if (dataRef != null) {
-			ByteBuffer data = dataRef.get();
-
-			if (data != null) {
-				Files.copy(new ByteArrayInputStream(data.array(), data.arrayOffset() + data.position(), data.arrayOffset() + data.limit()), out, StandardCopyOption.REPLACE_EXISTING);
-				return;
-			}
+		if (data != null) {
+			writeData(data, out);
+			return;
 		}
 
 		if (paths != null) {
@@ -302,32 +385,26 @@ public final class ModCandidate implements DomainObject.Mod {
 				Files.copy(zf.getInputStream(entry), out);
 			}
 		} else {
-			ByteBuffer data = parent.getData();
+			data = ZipBufferReader.readEntry(parent.getData(), localPath);
+			if (data == null) throw new IOException(String.format("can't find nested mod %s in its parent mod %s", this, parent));
 
-			try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(data.array(), data.arrayOffset() + data.position(), data.arrayOffset() + data.limit()))) {
-				ZipEntry entry = null;
-
-				while ((entry = zis.getNextEntry()) != null) {
-					if (entry.getName().equals(localPath)) {
-						Files.copy(zis, out);
-						return;
-					}
-				}
-			}
-
-			throw new IOException(String.format("can't find nested mod %s in its parent mod %s", this, parent));
+			writeData(data, out);
 		}
 	}
 
-	private ByteBuffer getData() throws IOException {
-		SoftReference<ByteBuffer> dataRef = this.dataRef;
+	static void writeData(ByteBuffer data, Path out) throws IOException {
+		data = data.duplicate(); // works for heap and mapped buffers alike without touching the shared buffer's position
 
-		if (dataRef != null) {
-			ByteBuffer ret = dataRef.get();
-			if (ret != null) return ret;
+		try (FileChannel channel = FileChannel.open(out, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (data.hasRemaining()) {
+				channel.write(data);
+			}
 		}
+	}
 
-		ByteBuffer ret;
+	ByteBuffer getData() throws IOException {
+		ByteBuffer ret = getCachedData();
+		if (ret != null) return ret;
 
 		if (paths != null) {
 			if (paths.size() != 1) throw new UnsupportedOperationException("multiple paths for "+this);
@@ -346,19 +423,7 @@ public final class ModCandidate implements DomainObject.Mod {
 					ret = ModDiscoverer.readMod(zf.getInputStream(entry));
 				}
 			} else {
-				ByteBuffer data = parent.getData();
-				ret = null;
-
-				try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(data.array(), data.arrayOffset() + data.position(), data.arrayOffset() + data.limit()))) {
-					ZipEntry entry = null;
-
-					while ((entry = zis.getNextEntry()) != null) {
-						if (entry.getName().equals(localPath)) {
-							ret = ModDiscoverer.readMod(zis);
-							break;
-						}
-					}
-				}
+				ret = ZipBufferReader.readEntry(parent.getData(), localPath);
 
 				if (ret == null) throw new IOException(String.format("can't find nested mod %s in its parent mods %s", this, parent));
 			}
@@ -378,7 +443,7 @@ public final class ModCandidate implements DomainObject.Mod {
 			if (parent.minNestLevel >= minNestLevel) continue;
 
 			if (parent.paths != null && parent.paths.size() == 1
-					|| parent.dataRef != null && parent.dataRef.get() != null) {
+					|| parent.getCachedData() != null) {
 				return parent;
 			}
 
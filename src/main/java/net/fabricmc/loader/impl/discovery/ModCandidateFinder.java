@@ -17,6 +17,7 @@
 package net.fabricmc.loader.impl.discovery;
 
 import java.nio.file.Path;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -24,6 +25,14 @@ import java.util.List;
 interface ModCandidateFinder {
 	void findCandidates(ModCandidateConsumer out);
 
+	/**
+	 * Get paths whose content is known to have changed since the last launch, even if their size and modification time
+	 * didn't. Previous scan results for them won't be reused.
+	 */
+	default Collection<Path> getModifiedPaths() {
+		return Collections.emptyList();
+	}
+
 	interface ModCandidateConsumer {
 		default void accept(Path path, boolean requiresRemap) {
 			accept(Collections.singletonList(path), requiresRemap);
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.fabricmc.loader.api.metadata.ModDependency;
+
+final class ModComponentSplitter {
+	/**
+	 * Split the solver input into independent components.
+	 *
+	 * <p>Two mod ids end up in the same component if any constraint of the regular solve may refer to both, which is the
+	 * case for ids shared through provides, dependencies with candidates and nested mods without a selected parent.
+	 * Dependencies on preselected mods only constrain the depending mod and don't connect anything.
+	 *
+	 * <p>The objective function is a sum of per-mod weights, so solving every component on its own with the global
+	 * priorities yields the same optimum as solving everything at once.
+	 *
+	 * @param allModsSorted mods to split, sorted by priority
+	 * @param modsById mods grouped by id as used by the solver
+	 * @param selectedMods preselected mods
+	 * @return components ordered by their highest priority mod, each containing the mods in priority order
+	 */
+	static List<Component> split(List<ModCandidate> allModsSorted, Map<String, List<ModCandidate>> modsById, Map<String, ModCandidate> selectedMods) {
+		Map<String, String> parents = new HashMap<>(modsById.size()); // union-find forest over mod ids
+
+		for (Map.Entry<String, List<ModCandidate>> entry : modsById.entrySet()) {
+			for (ModCandidate mod : entry.getValue()) {
+				union(entry.getKey(), mod.getId(), parents);
+			}
+		}
+
+		for (ModCandidate mod : allModsSorted) {
+			for (ModDependency dep : mod.getDependencies()) {
+				switch (dep.getKind()) {
+				case DEPENDS:
+				case RECOMMENDS:
+				case BREAKS:
+					if (!selectedMods.containsKey(dep.getModId()) && modsById.containsKey(dep.getModId())) {
+						union(mod.getId(), dep.getModId(), parents);
+					}
+
+					break;
+				default:
+					// no constraint
+				}
+			}
+
+			if (!mod.isRoot() && !ModResolver.isAnyParentSelected(mod, selectedMods)) {
+				for (ModCandidate parent : mod.getParentMods()) {
+					union(mod.getId(), parent.getId(), parents);
+				}
+			}
+		}
+
+		// gather components, linked to keep them in priority order
+
+		Map<String, Component> components = new LinkedHashMap<>();
+
+		for (ModCandidate mod : allModsSorted) {
+			components.computeIfAbsent(find(mod.getId(), parents), ignore -> new Component()).mods.add(mod);
+		}
+
+		for (Map.Entry<String, List<ModCandidate>> entry : modsById.entrySet()) {
+			components.get(find(entry.getKey(), parents)).modsById.put(entry.getKey(), entry.getValue());
+		}
+
+		return new ArrayList<>(components.values());
+	}
+
+	private static String find(String id, Map<String, String> parents) {
+		String root = id;
+		String parent;
+
+		while ((parent = parents.get(root)) != null) {
+			root = parent;
+		}
+
+		// path compression
+
+		while (!id.equals(root)) {
+			String next = parents.put(id, root);
+			id = next;
+		}
+
+		return root;
+	}
+
+	private static void union(String a, String b, Map<String, String> parents) {
+		String rootA = find(a, parents);
+		String rootB = find(b, parents);
+
+		if (!rootA.equals(rootB)) parents.put(rootB, rootA);
+	}
+
+	static final class Component {
+		final List<ModCandidate> mods = new ArrayList<>();
+		final Map<String, List<ModCandidate>> modsById = new LinkedHashMap<>();
+	}
+}
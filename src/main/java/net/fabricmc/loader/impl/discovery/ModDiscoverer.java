@@ -16,6 +16,7 @@
 
 package net.fabricmc.loader.impl.discovery;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
@@ -27,6 +28,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
@@ -36,13 +38,14 @@ import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
 import java.util.concurrent.RecursiveTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
@@ -65,14 +68,26 @@ import net.fabricmc.loader.impl.util.LoaderUtil;
 import net.fabricmc.loader.impl.util.SystemProperties;
 import net.fabricmc.loader.impl.util.log.Log;
 import net.fabricmc.loader.impl.util.log.LogCategory;
+import net.fabricmc.loader.impl.util.log.LogLevel;
+import net.fabricmc.loader.impl.util.profiler.StartupProfiler;
+import net.fabricmc.loader.impl.util.version.VersionParser;
+import net.fabricmc.loader.impl.util.version.VersionPredicateParser;
 
 public final class ModDiscoverer {
 	private final VersionOverrides versionOverrides;
 	private final DependencyOverrides depOverrides;
 	private final List<ModCandidateFinder> candidateFinders = new ArrayList<>();
 	private final EnvType envType = FabricLoaderImpl.INSTANCE.getEnvironmentType();
-	private final Map<Long, ModScanTask> jijDedupMap = new ConcurrentHashMap<>(); // avoids reading the same jar twice
+	private final Map<ByteBuffer, ModScanTask> jijDedupMap = new ConcurrentHashMap<>(); // content digest -> task, avoids reading the same jar twice
+	private final Map<ByteBuffer, ModScanTask> jijRawDedupMap = new ConcurrentHashMap<>(); // compressed data digest -> task, avoids inflating the same jar twice
 	private final List<NestedModInitData> nestedModInitDatas = Collections.synchronizedList(new ArrayList<>()); // breaks potential cycles from deduplication
+	private ModScanExecutor executor;
+	private StartupProfiler.Span discoverySpan;
+	private final List<ModScanTask> startedTasks = Collections.synchronizedList(new ArrayList<>());
+	private ModScanIndex scanIndex;
+	private DiscoveryMemoryBudget memoryBudget;
+	private final Map<LoaderModMetadata, ScannedMetadata> scannedMetadata = Collections.synchronizedMap(new IdentityHashMap<>()); // metadata sources for the scan index
+	private final Map<Path, ScannedJar> scannedJars = new ConcurrentHashMap<>(); // fully scanned mod jars to add to the scan index
 
 	public ModDiscoverer(VersionOverrides versionOverrides, DependencyOverrides depOverrides) {
 		this.versionOverrides = versionOverrides;
@@ -85,16 +100,21 @@ public final class ModDiscoverer {
 
 	public List<ModCandidate> discoverMods(FabricLoaderImpl loader, Map<String, Set<ModCandidate>> envDisabledModsOut) throws ModResolutionException {
 		long startTime = System.nanoTime();
-		ForkJoinPool pool = new ForkJoinPool();
+		scanIndex = loadScanIndex(loader);
+		memoryBudget = DiscoveryMemoryBudget.create(loader.getGameDir().resolve(FabricLoaderImpl.CACHE_DIR_NAME).resolve(FabricLoaderImpl.TMP_DIR_NAME));
+		ModScanExecutor executor = this.executor = ModScanExecutor.create();
+		discoverySpan = StartupProfiler.current();
 		Set<Path> processedPaths = new HashSet<>(); // suppresses duplicate paths
-		List<Future<ModCandidate>> futures = new ArrayList<>();
+		List<ModScanTask> futures = new ArrayList<>();
 
 		ModCandidateConsumer taskSubmitter = (paths, requiresRemap) -> {
 			if (paths.size() == 1) {
 				Path path = LoaderUtil.normalizeExistingPath(paths.get(0));
 
 				if (processedPaths.add(path)) {
-					futures.add(pool.submit(new ModScanTask(Collections.singletonList(path), requiresRemap)));
+					ModScanTask task = new ModScanTask(Collections.singletonList(path), requiresRemap);
+					futures.add(task);
+					executor.submit(task);
 				}
 			} else {
 				List<Path> normalizedPaths = new ArrayList<>(paths.size());
@@ -105,12 +125,20 @@ public final class ModDiscoverer {
 
 				if (!processedPaths.containsAll(normalizedPaths)) {
 					processedPaths.addAll(normalizedPaths);
-					futures.add(pool.submit(new ModScanTask(normalizedPaths, requiresRemap)));
+					ModScanTask task = new ModScanTask(normalizedPaths, requiresRemap);
+					futures.add(task);
+					executor.submit(task);
 				}
 			}
 		};
 
 		for (ModCandidateFinder finder : candidateFinders) {
+			if (scanIndex != null) {
+				for (Path path : finder.getModifiedPaths()) {
+					scanIndex.invalidate(LoaderUtil.normalizeExistingPath(path));
+				}
+			}
+
 			finder.findCandidates(taskSubmitter);
 		}
 
@@ -131,9 +159,7 @@ public final class ModDiscoverer {
 		if (timeout <= 0) timeout = Integer.MAX_VALUE;
 
 		try {
-			pool.shutdown();
-
-			pool.awaitTermination(timeout, TimeUnit.SECONDS);
+			executor.awaitCompletion(timeout, TimeUnit.SECONDS);
 
 			for (Future<ModCandidate> future : futures) {
 				if (!future.isDone()) {
@@ -164,8 +190,8 @@ public final class ModDiscoverer {
 			}
 		} catch (TimeoutException e) {
 			throw new FormattedException("Mod discovery took too long!",
-					"Analyzing the mod folder contents took longer than %d seconds. This may be caused by unusually slow hardware, pathological antivirus interference or other issues. The timeout can be changed with the system property %s (-D%<s=<desired timeout in seconds>).",
-					timeout, SystemProperties.DEBUG_DISCOVERY_TIMEOUT);
+					"Analyzing the mod folder contents took longer than %d seconds, still analyzing: %s. This may be caused by unusually slow hardware, pathological antivirus interference or other issues. The timeout can be changed with the system property %s (-D%<s=<desired timeout in seconds>).",
+					timeout, getUnfinishedScans(), SystemProperties.DEBUG_DISCOVERY_TIMEOUT);
 		} catch (InterruptedException e) {
 			throw new FormattedException("Mod discovery interrupted!", e);
 		}
@@ -174,6 +200,10 @@ public final class ModDiscoverer {
 			throw exception;
 		}
 
+		if (scanIndex != null) {
+			updateScanIndex();
+		}
+
 		// get optional set of disabled mod ids
 		Set<String> disabledModIds = findDisabledModIds();
 
@@ -204,11 +234,96 @@ public final class ModDiscoverer {
 
 		long endTime = System.nanoTime();
 
-		Log.debug(LogCategory.DISCOVERY, "Mod discovery time: %.1f ms", (endTime - startTime) * 1e-6);
+		Log.debug(LogCategory.DISCOVERY, "Mod discovery time: %.1f ms using %s executor", (endTime - startTime) * 1e-6, executor.getName());
+
+		if (Log.shouldLog(LogLevel.DEBUG, LogCategory.DISCOVERY)) {
+			List<ModScanTask> tasks = new ArrayList<>(startedTasks);
+			tasks.sort(Comparator.comparingLong(ModScanTask::getDuration).reversed());
+
+			for (ModScanTask task : tasks) {
+				Log.debug(LogCategory.DISCOVERY, "Scanned %s in %.1f ms", task.describe(), task.getDuration() * 1e-6);
+			}
+
+			Log.debug(LogCategory.DISCOVERY, "Parse caches: %s, %s", VersionParser.getCacheStats(), VersionPredicateParser.getCacheStats());
+		}
+
+		if (memoryBudget != null) memoryBudget.logUsage();
+
+		startedTasks.clear();
+		jijDedupMap.clear(); // drop the tasks and their data, the mods keep whatever they need
+		jijRawDedupMap.clear();
+		nestedModInitDatas.clear();
+		this.executor = null;
+		discoverySpan = null;
 
 		return new ArrayList<>(ret);
 	}
 
+	/**
+	 * Release the nested jar data held for all but the supplied mods under a discovery memory budget.
+	 *
+	 * <p>The data is otherwise retained until the nested mods are extracted, this should be called with the resolved
+	 * mods after resolution and with no mods after extraction.
+	 */
+	public void releaseNestedJarData(Collection<ModCandidate> retainedMods) {
+		if (memoryBudget != null) memoryBudget.release(retainedMods);
+	}
+
+	private ModScanIndex loadScanIndex(FabricLoaderImpl loader) {
+		String mode = System.getProperty(SystemProperties.DISCOVERY_INDEX);
+		if ("false".equalsIgnoreCase(mode)) return null;
+
+		Path file = loader.getGameDir().resolve(FabricLoaderImpl.CACHE_DIR_NAME).resolve(FabricLoaderImpl.DISCOVERY_INDEX_FILE_NAME);
+
+		return ModScanIndex.load(file, envType, loader.isDevelopmentEnvironment(), "validate".equalsIgnoreCase(mode));
+	}
+
+	private void updateScanIndex() {
+		for (Map.Entry<Path, ScannedJar> entry : scannedJars.entrySet()) {
+			ModScanIndex.Node node = createScanIndexNode(entry.getValue().mod, true, Collections.newSetFromMap(new IdentityHashMap<>()));
+			if (node != null) scanIndex.put(entry.getKey(), entry.getValue().stamp, node);
+		}
+
+		scanIndex.save();
+		scannedJars.clear();
+		scannedMetadata.clear();
+	}
+
+	private ModScanIndex.Node createScanIndexNode(ModCandidate mod, boolean isRoot, Set<ModCandidate> parents) {
+		ScannedMetadata metadata = scannedMetadata.get(mod.getMetadata());
+		if (metadata == null || !parents.add(mod)) return null; // unknown source or nesting cycle from deduplication, don't index
+
+		List<ModScanIndex.Node> nestedMods = new ArrayList<>(mod.getNestedMods().size());
+
+		for (ModCandidate child : mod.getNestedMods()) {
+			ModScanIndex.Node node = createScanIndexNode(child, false, parents);
+			if (node == null) return null;
+
+			nestedMods.add(node);
+		}
+
+		parents.remove(mod);
+
+		if (!isRoot && mod.getDigest() == null) return null;
+
+		return new ModScanIndex.Node(isRoot ? null : mod.getLocalPath(), isRoot ? -1 : mod.getHash(), isRoot ? null : mod.getDigest(), metadata.source, metadata.binary, nestedMods);
+	}
+
+	private String getUnfinishedScans() {
+		List<String> ret = new ArrayList<>();
+		long time = System.nanoTime();
+
+		synchronized (startedTasks) {
+			for (ModScanTask task : startedTasks) {
+				if (!task.isDone()) {
+					ret.add(String.format("%s (%d s)", task.describe(), TimeUnit.NANOSECONDS.toSeconds(time - task.startTime)));
+				}
+			}
+		}
+
+		return ret.isEmpty() ? "<none started>" : String.join(", ", ret);
+	}
+
 	// retrieve set of disabled mod ids from system property
 	private static Set<String> findDisabledModIds() {
 		String modIdList = System.getProperty(SystemProperties.DISABLE_MOD_IDS);
@@ -238,30 +353,56 @@ public final class ModDiscoverer {
 	final class ModScanTask extends RecursiveTask<ModCandidate> {
 		private final List<Path> paths;
 		private final String localPath;
-		private final RewindableInputStream is;
+		private final ByteBuffer data;
 		private final long hash;
+		private final byte[] digest;
 		private final boolean requiresRemap;
 		private final List<String> parentPaths;
+		private volatile long startTime;
+		private volatile long endTime;
 
 		ModScanTask(List<Path> paths, boolean requiresRemap) {
-			this(paths, null, null, -1, requiresRemap, Collections.emptyList());
+			this(paths, null, null, -1, null, requiresRemap, Collections.emptyList());
 		}
 
-		private ModScanTask(List<Path> paths, String localPath, RewindableInputStream is, long hash,
+		private ModScanTask(List<Path> paths, String localPath, ByteBuffer data, long hash, byte[] digest,
 				boolean requiresRemap, List<String> parentPaths) {
 			this.paths = paths;
 			this.localPath = localPath != null ? localPath : paths.get(0).toString();
-			this.is = is;
+			this.data = data;
 			this.hash = hash;
+			this.digest = digest;
 			this.requiresRemap = requiresRemap;
 			this.parentPaths = parentPaths;
 		}
 
 		@Override
 		protected ModCandidate compute() {
-			if (is != null) { // nested jar
+			startTime = System.nanoTime();
+			startedTasks.add(this);
+
+			try (StartupProfiler.Span span = discoverySpan.child("scan", describe())) {
+				ModCandidate ret = compute0();
+				if (ret == null && data != null && memoryBudget != null) memoryBudget.free(data); // not retained by any mod
+
+				return ret;
+			} finally {
+				endTime = System.nanoTime();
+			}
+		}
+
+		long getDuration() {
+			return endTime - startTime;
+		}
+
+		String describe() {
+			return parentPaths.isEmpty() ? localPath : String.format("%s in %s", localPath, parentPaths);
+		}
+
+		private ModCandidate compute0() {
+			if (data != null) { // nested jar
 				try {
-					return computeJarStream();
+					return computeJarBuffer();
 				} catch (ParseMetadataException e) { // already contains all context
 					throw ExceptionUtil.wrap(e);
 				} catch (Throwable t) {
@@ -306,6 +447,42 @@ public final class ModDiscoverer {
 		}
 
 		private ModCandidate computeJarFile(Path path) throws IOException, ParseMetadataException {
+			ModScanIndex.Stamp stamp = null;
+
+			if (scanIndex != null) {
+				ModScanIndex.Node node = null;
+
+				try {
+					ModScanIndex.Lookup lookup = scanIndex.get(path);
+					node = lookup.node;
+					stamp = lookup.stamp; // from before scanning, so a concurrent replacement leaves the entry stale
+				} catch (IOException e) {
+					Log.debug(LogCategory.DISCOVERY, "Can't index %s", path, e);
+				}
+
+				if (node != null) {
+					if (!node.isMod()) return null;
+
+					LoaderModMetadata metadata = parseMetadata(node, localPath);
+
+					return ModCandidate.createPlain(paths, metadata, requiresRemap, computeIndexedNestedMods(metadata, node));
+				}
+			}
+
+			ModCandidate ret = computeJarFile0(path);
+
+			if (stamp != null) {
+				if (ret != null) {
+					scannedJars.put(path, new ScannedJar(ret, stamp));
+				} else {
+					scanIndex.put(path, stamp, ModScanIndex.Node.NO_MOD);
+				}
+			}
+
+			return ret;
+		}
+
+		private ModCandidate computeJarFile0(Path path) throws IOException, ParseMetadataException {
 			try (ZipFile zf = new ZipFile(path.toFile())) {
 				ZipEntry entry = zf.getEntry("fabric.mod.json");
 				if (entry == null) return null;
@@ -325,36 +502,48 @@ public final class ModDiscoverer {
 				if (metadata.getJars().isEmpty()) {
 					nestedModTasks = Collections.emptyList();
 				} else {
-					Set<NestedJarEntry> nestedJarPaths = new HashSet<>(metadata.getJars());
+					Set<String> nestedJarPaths = getNestedJarPaths(metadata);
+					ZipBufferReader reader;
 
-					nestedModTasks = computeNestedMods(new ZipEntrySource() {
-						@Override
-						public ZipEntry getNextEntry() throws IOException {
-							while (jarIt.hasNext()) {
-								NestedJarEntry jar = jarIt.next();
-								ZipEntry ret = zf.getEntry(jar.getFile());
+					try {
+						reader = new ZipBufferReader(ZipBufferReader.map(path));
+					} catch (ZipException e) {
+						Log.debug(LogCategory.DISCOVERY, "Can't read %s directly (%s), falling back to streaming its nested jars", path, e.getMessage());
+						reader = null;
+					}
 
-								if (isValidNestedJarEntry(ret)) {
-									currentEntry = ret;
-									jarIt.remove();
-									return ret;
+					if (reader != null) {
+						nestedModTasks = computeNestedMods(reader, nestedJarPaths);
+					} else {
+						nestedModTasks = computeNestedMods(new ZipEntrySource() {
+							@Override
+							public ZipEntry getNextEntry() throws IOException {
+								while (jarIt.hasNext()) {
+									String jar = jarIt.next();
+									ZipEntry ret = zf.getEntry(jar);
+
+									if (isValidNestedJarEntry(ret)) {
+										currentEntry = ret;
+										jarIt.remove();
+										return ret;
+									}
 								}
-							}
 
-							currentEntry = null;
-							return null;
-						}
+								currentEntry = null;
+								return null;
+							}
 
-						@Override
-						public RewindableInputStream getInputStream() throws IOException {
-							try (InputStream is = zf.getInputStream(currentEntry)) {
-								return new RewindableInputStream(is);
+							@Override
+							public ByteBuffer getData() throws IOException {
+								try (InputStream is = zf.getInputStream(currentEntry)) {
+									return readMod(is);
+								}
 							}
-						}
 
-						private final Iterator<NestedJarEntry> jarIt = nestedJarPaths.iterator();
-						private ZipEntry currentEntry;
-					});
+							private final Iterator<String> jarIt = nestedJarPaths.iterator();
+							private ZipEntry currentEntry;
+						});
+					}
 
 					if (!nestedJarPaths.isEmpty() && FabricLoaderImpl.INSTANCE.isDevelopmentEnvironment()) {
 						Log.warn(LogCategory.METADATA, "Mod %s %s references missing nested jars: %s", metadata.getId(), metadata.getVersion(), nestedJarPaths);
@@ -374,11 +563,46 @@ public final class ModDiscoverer {
 			}
 		}
 
+		private ModCandidate computeJarBuffer() throws IOException, ParseMetadataException {
+			ZipBufferReader reader;
+
+			try {
+				reader = new ZipBufferReader(data);
+			} catch (ZipException e) {
+				Log.debug(LogCategory.DISCOVERY, "Can't read nested jar %s from %s directly (%s), falling back to streaming", localPath, parentPaths, e.getMessage());
+				return computeJarStream();
+			}
+
+			ZipBufferReader.Entry entry = reader.getEntry("fabric.mod.json");
+			if (entry == null) return null;
+
+			LoaderModMetadata metadata;
+
+			try (InputStream is = new ZipBufferReader.ByteBufferInputStream(reader.getData(entry))) {
+				metadata = parseMetadata(is, localPath);
+			}
+
+			List<ModScanTask> nestedModTasks;
+
+			if (!metadata.loadsInEnvironment(envType) || metadata.getJars().isEmpty()) {
+				nestedModTasks = Collections.emptyList();
+			} else {
+				Set<String> nestedJarPaths = getNestedJarPaths(metadata);
+				nestedModTasks = computeNestedMods(reader, nestedJarPaths);
+
+				if (!nestedJarPaths.isEmpty() && FabricLoaderImpl.INSTANCE.isDevelopmentEnvironment()) {
+					Log.warn(LogCategory.METADATA, "Mod %s %s references missing nested jars: %s", metadata.getId(), metadata.getVersion(), nestedJarPaths);
+				}
+			}
+
+			return createNestedCandidate(metadata, nestedModTasks);
+		}
+
 		private ModCandidate computeJarStream() throws IOException, ParseMetadataException {
 			LoaderModMetadata metadata = null;
 			ZipEntry entry;
 
-			try (ZipInputStream zis = new ZipInputStream(is)) {
+			try (ZipInputStream zis = new ZipInputStream(new ZipBufferReader.ByteBufferInputStream(data))) {
 				while ((entry = zis.getNextEntry()) != null) {
 					if (entry.getName().equals("fabric.mod.json")) {
 						metadata = parseMetadata(zis, localPath);
@@ -390,24 +614,17 @@ public final class ModDiscoverer {
 			if (metadata == null) return null;
 
 			if (!metadata.loadsInEnvironment(envType)) {
-				return ModCandidate.createNested(localPath, hash, metadata, requiresRemap, Collections.emptyList());
+				return createNestedCandidate(metadata, Collections.emptyList());
 			}
 
-			Collection<NestedJarEntry> nestedJars = metadata.getJars();
 			List<ModScanTask> nestedModTasks;
 
-			if (nestedJars.isEmpty()) {
+			if (metadata.getJars().isEmpty()) {
 				nestedModTasks = Collections.emptyList();
 			} else {
-				Set<String> nestedJarPaths = new HashSet<>(nestedJars.size());
-
-				for (NestedJarEntry nestedJar : nestedJars) {
-					nestedJarPaths.add(nestedJar.getFile());
-				}
+				Set<String> nestedJarPaths = getNestedJarPaths(metadata);
 
-				is.rewind();
-
-				try (ZipInputStream zis = new ZipInputStream(is)) {
+				try (ZipInputStream zis = new ZipInputStream(new ZipBufferReader.ByteBufferInputStream(data))) {
 					nestedModTasks = computeNestedMods(new ZipEntrySource() {
 						@Override
 						public ZipEntry getNextEntry() throws IOException {
@@ -417,7 +634,7 @@ public final class ModDiscoverer {
 
 							while ((ret = zis.getNextEntry()) != null) {
 								if (isValidNestedJarEntry(ret) && nestedJarPaths.remove(ret.getName())) {
-									is = new RewindableInputStream(zis); // reads the entry, which completes the ZipEntry with any trailing header data
+									data = readMod(zis); // reads the entry, which completes the ZipEntry with any trailing header data
 									return ret;
 								}
 							}
@@ -426,11 +643,11 @@ public final class ModDiscoverer {
 						}
 
 						@Override
-						public RewindableInputStream getInputStream() throws IOException {
-							return is;
+						public ByteBuffer getData() throws IOException {
+							return data;
 						}
 
-						private RewindableInputStream is;
+						private ByteBuffer data;
 					});
 				}
 
@@ -439,6 +656,10 @@ public final class ModDiscoverer {
 				}
 			}
 
+			return createNestedCandidate(metadata, nestedModTasks);
+		}
+
+		private ModCandidate createNestedCandidate(LoaderModMetadata metadata, List<ModScanTask> nestedModTasks) {
 			List<ModCandidate> nestedMods;
 
 			if (nestedModTasks.isEmpty()) {
@@ -448,12 +669,50 @@ public final class ModDiscoverer {
 				nestedModInitDatas.add(new NestedModInitData(nestedModTasks, nestedMods));
 			}
 
-			ModCandidate ret = ModCandidate.createNested(localPath, hash, metadata, requiresRemap, nestedMods);
-			ret.setData(is.getBuffer());
+			ModCandidate ret = ModCandidate.createNested(localPath, hash, digest, metadata, requiresRemap, nestedMods);
+
+			if (memoryBudget != null) {
+				memoryBudget.setData(ret, data);
+			} else {
+				ret.setData(data);
+			}
 
 			return ret;
 		}
 
+		private List<ModScanTask> computeNestedMods(ZipBufferReader reader, Set<String> nestedJarPaths) throws IOException {
+			return computeNestedMods(new ZipEntrySource() {
+				@Override
+				public ZipEntry getNextEntry() throws IOException {
+					while (jarIt.hasNext()) {
+						ZipBufferReader.Entry entry = reader.getEntry(jarIt.next());
+
+						if (entry != null && !entry.isDirectory() && entry.name.endsWith(".jar")) {
+							currentEntry = entry;
+							jarIt.remove();
+							return entry.toZipEntry();
+						}
+					}
+
+					currentEntry = null;
+					return null;
+				}
+
+				@Override
+				public ByteBuffer getData() throws IOException {
+					return reader.getData(currentEntry); // slice of the parent data if stored
+				}
+
+				@Override
+				public ByteBuffer getCompressedData() throws IOException {
+					return currentEntry.method != ZipEntry.STORED ? reader.getRawData(currentEntry) : null;
+				}
+
+				private final Iterator<String> jarIt = nestedJarPaths.iterator();
+				private ZipBufferReader.Entry currentEntry;
+			});
+		}
+
 		private List<ModScanTask> computeNestedMods(ZipEntrySource entrySource) throws IOException {
 			List<String> parentPaths = new ArrayList<>(this.parentPaths.size() + 1);
 			parentPaths.addAll(this.parentPaths);
@@ -464,20 +723,34 @@ public final class ModDiscoverer {
 			ZipEntry entry;
 
 			while ((entry = entrySource.getNextEntry()) != null) {
-				long hash = ModCandidate.hash(entry);
-				ModScanTask task = jijDedupMap.get(hash);
+				// identical compressed data always inflates to identical content, check it first to skip inflating duplicates
+				ByteBuffer compressedData = entrySource.getCompressedData();
+				ByteBuffer rawKey = compressedData != null ? ByteBuffer.wrap(ModCandidate.computeDigest(compressedData)) : null;
+				ModScanTask task = rawKey != null ? jijRawDedupMap.get(rawKey) : null;
 
 				if (task == null) {
-					task = new ModScanTask(null, entry.getName(), entrySource.getInputStream(), hash, requiresRemap, parentPaths);
-					ModScanTask prev = jijDedupMap.putIfAbsent(hash, task);
-
-					if (prev != null) {
-						task = prev;
-					} else if (localTask == null) { // don't fork first task, leave it for this thread
-						localTask = task;
-					} else {
-						task.fork();
+					ByteBuffer data = entrySource.getData();
+					byte[] digest = ModCandidate.computeDigest(data);
+					ByteBuffer key = ByteBuffer.wrap(digest); // ByteBuffer equality compares the content
+					task = jijDedupMap.get(key);
+
+					if (task == null) {
+						if (memoryBudget != null) data = memoryBudget.hold(data, entry.getName());
+
+						task = new ModScanTask(null, entry.getName(), data, ModCandidate.hash(entry), digest, requiresRemap, parentPaths);
+						ModScanTask prev = jijDedupMap.putIfAbsent(key, task);
+
+						if (prev != null) {
+							if (memoryBudget != null) memoryBudget.free(data);
+							task = prev;
+						} else if (localTask == null) { // don't fork first task, leave it for this thread
+							localTask = task;
+						} else {
+							executor.fork(task);
+						}
 					}
+
+					if (rawKey != null) jijRawDedupMap.putIfAbsent(rawKey, task);
 				}
 
 				tasks.add(task);
@@ -490,60 +763,112 @@ public final class ModDiscoverer {
 			return tasks;
 		}
 
-		private LoaderModMetadata parseMetadata(InputStream is, String localPath) throws ParseMetadataException {
-			return ModMetadataParser.parseMetadata(is, localPath, parentPaths, versionOverrides, depOverrides, FabricLoaderImpl.INSTANCE.isDevelopmentEnvironment());
-		}
-	}
+		/**
+		 * Create the nested mods of a mod from its scan index node, reusing already known nested mod scans as usual.
+		 */
+		private List<ModCandidate> computeIndexedNestedMods(LoaderModMetadata metadata, ModScanIndex.Node node) {
+			if (node.nestedMods.isEmpty() || !metadata.loadsInEnvironment(envType)) return Collections.emptyList();
 
-	private static boolean isValidNestedJarEntry(ZipEntry entry) {
-		return entry != null && !entry.isDirectory() && entry.getName().endsWith(".jar");
-	}
+			List<String> parentPaths = new ArrayList<>(this.parentPaths.size() + 1);
+			parentPaths.addAll(this.parentPaths);
+			parentPaths.add(localPath);
 
-	private interface ZipEntrySource {
-		ZipEntry getNextEntry() throws IOException;
-		RewindableInputStream getInputStream() throws IOException;
-	}
+			List<ModScanTask> tasks = new ArrayList<>(node.nestedMods.size());
 
-	private static final class RewindableInputStream extends InputStream {
-		private final ByteBuffer buffer;
-		private int pos;
+			for (ModScanIndex.Node child : node.nestedMods) {
+				ByteBuffer key = ByteBuffer.wrap(child.digest);
+				ModScanTask task = jijDedupMap.get(key);
 
-		RewindableInputStream(InputStream parent) throws IOException { // no parent.close()
-			buffer = readMod(parent);
+				if (task == null) {
+					task = new ModScanTask(null, child.localPath, null, child.hash, child.digest, requiresRemap, parentPaths);
+					ModScanTask prev = jijDedupMap.putIfAbsent(key, task);
 
-			assert buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0;
-		}
+					if (prev != null) {
+						task = prev;
+					} else {
+						task.computeIndexed(child);
+					}
+				}
+
+				tasks.add(task);
+			}
+
+			List<ModCandidate> ret = new ArrayList<>();
+			nestedModInitDatas.add(new NestedModInitData(tasks, ret));
 
-		public ByteBuffer getBuffer() {
-			return buffer;
+			return ret;
 		}
 
-		public void rewind() {
-			pos = 0;
+		private void computeIndexed(ModScanIndex.Node node) {
+			try {
+				LoaderModMetadata metadata = parseMetadata(node, localPath);
+
+				complete(ModCandidate.createNested(localPath, hash, digest, metadata, requiresRemap, computeIndexedNestedMods(metadata, node)));
+			} catch (ParseMetadataException e) { // already contains all context
+				completeExceptionally(e);
+			} catch (Throwable t) {
+				completeExceptionally(new RuntimeException(String.format("Error analyzing indexed nested jar %s from %s: %s", localPath, parentPaths, t), t));
+			}
 		}
 
-		@Override
-		public int read() throws IOException {
-			if (pos >= buffer.limit()) {
-				return -1;
-			} else {
-				return buffer.get(pos++) & 0xff;
+		private LoaderModMetadata parseMetadata(InputStream is, String localPath) throws ParseMetadataException, IOException {
+			if (scanIndex != null) { // retain the raw data for the scan index
+				ByteBuffer data = readMod(is);
+
+				return parseMetadata(Arrays.copyOf(data.array(), data.limit()), localPath);
 			}
+
+			return ModMetadataParser.parseMetadata(is, localPath, parentPaths, versionOverrides, depOverrides, FabricLoaderImpl.INSTANCE.isDevelopmentEnvironment());
 		}
 
-		@Override
-		public int read(byte[] b, int off, int len) throws IOException {
-			int rem = buffer.limit() - pos;
+		private LoaderModMetadata parseMetadata(byte[] data, String localPath) throws ParseMetadataException {
+			AtomicReference<byte[]> binary = new AtomicReference<>();
+			LoaderModMetadata ret = ModMetadataParser.parseMetadata(new ByteArrayInputStream(data), localPath, parentPaths, versionOverrides, depOverrides, FabricLoaderImpl.INSTANCE.isDevelopmentEnvironment(), binary::set);
+			scannedMetadata.put(ret, new ScannedMetadata(data, binary.get()));
 
-			if (rem <= 0) {
-				return -1;
-			} else {
-				len = Math.min(len, rem);
-				System.arraycopy(buffer.array(), pos, b, off, len);
-				pos += len;
+			return ret;
+		}
+
+		private LoaderModMetadata parseMetadata(ModScanIndex.Node node, String localPath) throws ParseMetadataException {
+			if (node.binaryMetadata != null) {
+				try {
+					LoaderModMetadata ret = ModMetadataParser.parseBinaryMetadata(node.binaryMetadata, localPath, parentPaths, versionOverrides, depOverrides, FabricLoaderImpl.INSTANCE.isDevelopmentEnvironment());
+					scannedMetadata.put(ret, new ScannedMetadata(node.metadata, node.binaryMetadata));
 
-				return len;
+					return ret;
+				} catch (IOException e) {
+					Log.debug(LogCategory.DISCOVERY, "Can't read indexed binary metadata for %s, parsing fabric.mod.json instead: %s", localPath, e);
+				}
 			}
+
+			return parseMetadata(node.metadata, localPath);
+		}
+	}
+
+	private static Set<String> getNestedJarPaths(LoaderModMetadata metadata) {
+		Collection<NestedJarEntry> nestedJars = metadata.getJars();
+		Set<String> ret = new HashSet<>(nestedJars.size());
+
+		for (NestedJarEntry nestedJar : nestedJars) {
+			ret.add(nestedJar.getFile());
+		}
+
+		return ret;
+	}
+
+	private static boolean isValidNestedJarEntry(ZipEntry entry) {
+		return entry != null && !entry.isDirectory() && entry.getName().endsWith(".jar");
+	}
+
+	private interface ZipEntrySource {
+		ZipEntry getNextEntry() throws IOException;
+		ByteBuffer getData() throws IOException;
+
+		/**
+		 * Get the current entry's compressed data if it is compressed and directly available.
+		 */
+		default ByteBuffer getCompressedData() throws IOException {
+			return null;
 		}
 	}
 
@@ -583,4 +908,24 @@ public final class ModDiscoverer {
 			this.target = target;
 		}
 	}
+
+	private static final class ScannedJar {
+		final ModCandidate mod;
+		final ModScanIndex.Stamp stamp; // state of the jar before it was scanned
+
+		ScannedJar(ModCandidate mod, ModScanIndex.Stamp stamp) {
+			this.mod = mod;
+			this.stamp = stamp;
+		}
+	}
+
+	private static final class ScannedMetadata {
+		final byte[] source; // raw fabric.mod.json
+		final byte[] binary; // null if not supported for the metadata
+
+		ScannedMetadata(byte[] source, byte[] binary) {
+			this.source = source;
+			this.binary = binary;
+		}
+	}
 }
@@ -16,6 +16,7 @@
 
 package net.fabricmc.loader.impl.discovery;
 
+import java.nio.file.Path;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -28,9 +29,6 @@ import java.util.Queue;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-import org.sat4j.specs.ContradictionException;
-import org.sat4j.specs.TimeoutException;
-
 import net.fabricmc.api.EnvType;
 import net.fabricmc.loader.api.metadata.ModDependency;
 import net.fabricmc.loader.api.metadata.ModDependency.Kind;
@@ -38,11 +36,25 @@ import net.fabricmc.loader.impl.discovery.ModSolver.InactiveReason;
 import net.fabricmc.loader.impl.metadata.ModDependencyImpl;
 import net.fabricmc.loader.impl.util.log.Log;
 import net.fabricmc.loader.impl.util.log.LogCategory;
+import net.fabricmc.loader.impl.util.profiler.StartupProfiler;
 
 public class ModResolver {
 	public static List<ModCandidate> resolve(Collection<ModCandidate> candidates, EnvType envType, Map<String, Set<ModCandidate>> envDisabledMods) throws ModResolutionException {
+		return resolve(candidates, envType, envDisabledMods, null);
+	}
+
+	/**
+	 * Resolve the mods to load.
+	 *
+	 * @param lockFile resolution lock file to skip solving for unchanged candidates, null to always solve
+	 */
+	public static List<ModCandidate> resolve(Collection<ModCandidate> candidates, EnvType envType, Map<String, Set<ModCandidate>> envDisabledMods, Path lockFile) throws ModResolutionException {
 		long startTime = System.nanoTime();
-		List<ModCandidate> result = findCompatibleSet(candidates, envType, envDisabledMods);
+		List<ModCandidate> result;
+
+		try (StartupProfiler.Span span = StartupProfiler.start("resolution")) {
+			result = findCompatibleSet(candidates, envType, envDisabledMods, lockFile);
+		}
 
 		long endTime = System.nanoTime();
 		Log.debug(LogCategory.RESOLUTION, "Mod resolution time: %.1f ms", (endTime - startTime) * 1e-6);
@@ -50,7 +62,7 @@ public class ModResolver {
 		return result;
 	}
 
-	private static List<ModCandidate> findCompatibleSet(Collection<ModCandidate> candidates, EnvType envType, Map<String, Set<ModCandidate>> envDisabledMods) throws ModResolutionException {
+	private static List<ModCandidate> findCompatibleSet(Collection<ModCandidate> candidates, EnvType envType, Map<String, Set<ModCandidate>> envDisabledMods, Path lockFile) throws ModResolutionException {
 		// sort all mods by priority and group by id
 
 		List<ModCandidate> allModsSorted = new ArrayList<>(candidates);
@@ -81,6 +93,10 @@ public class ModResolver {
 			}
 		}
 
+		// retain the final candidates for the resolution lock, preselection removes some of them
+
+		List<ModCandidate> lockCandidates = lockFile != null ? new ArrayList<>(allModsSorted) : null;
+
 		// preselect mods, check for builtin mod collisions
 
 		List<ModCandidate> preselectedMods = new ArrayList<>();
@@ -112,15 +128,30 @@ public class ModResolver {
 			preselectMod(mod, allModsSorted, modsById, selectedMods, uniqueSelectedMods);
 		}
 
-		// solve
+		// select the first candidate per id if that is trivially optimal, restore the locked selection if the candidates
+		// didn't change, solve otherwise
 
 		ModSolver.Result result;
 
-		try {
-			result = ModSolver.solve(allModsSorted, modsById,
-					selectedMods, uniqueSelectedMods);
-		} catch (ContradictionException | TimeoutException e) {
-			throw new ModResolutionException("Solving failed", e);
+		if (selectGreedily(modsById, selectedMods, uniqueSelectedMods)) {
+			Log.debug(LogCategory.RESOLUTION, "Selected %d mods without solving", uniqueSelectedMods.size());
+			result = ModSolver.Result.createSuccess();
+		} else {
+			// fingerprinting the candidates is only worth it if they'd have to be solved otherwise
+
+			ResolutionLock lock = lockFile != null ? ResolutionLock.create(lockFile, lockCandidates, envType, envDisabledMods) : null;
+			List<ModCandidate> lockedMods = lock != null ? lock.load() : null;
+
+			if (lockedMods != null
+					&& restoreSelection(lockedMods, allModsSorted, modsById, selectedMods, uniqueSelectedMods)) {
+				Log.debug(LogCategory.RESOLUTION, "Restored %d mods from resolution lock", uniqueSelectedMods.size());
+				result = ModSolver.Result.createSuccess();
+			} else {
+				result = ModSolver.solve(allModsSorted, modsById,
+						selectedMods, uniqueSelectedMods);
+
+				if (result.success && lock != null) lock.save(uniqueSelectedMods);
+			}
 		}
 
 		if (!result.success) {
@@ -132,7 +163,8 @@ public class ModResolver {
 			if (result.fix == null) {
 				Log.info(LogCategory.RESOLUTION, "No fix?");
 			} else {
-				Log.info(LogCategory.RESOLUTION, "Fix: add %s, remove %s, replace [%s]%n",
+				Log.info(LogCategory.RESOLUTION, "Fix%s: add %s, remove %s, replace [%s]%n",
+						result.fix.optimal ? "" : " (not proven optimal)",
 						result.fix.modsToAdd,
 						result.fix.modsToRemove,
 						result.fix.modReplacements.entrySet().stream().map(e -> String.format("%s -> %s", e.getValue(), e.getKey())).collect(Collectors.joining(", ")));
@@ -196,6 +228,182 @@ public class ModResolver {
 		return uniqueSelectedMods;
 	}
 
+	/**
+	 * Gather the resolution warnings for resolved mods, as logged by {@link #resolve}.
+	 *
+	 * @return the warnings or null if there are none
+	 */
+	public static String gatherWarnings(List<ModCandidate> mods, EnvType envType, Map<String, Set<ModCandidate>> envDisabledMods) {
+		Map<String, ModCandidate> selectedMods = new HashMap<>(mods.size());
+
+		for (ModCandidate mod : mods) {
+			selectedMods.put(mod.getId(), mod);
+
+			for (String provided : mod.getProvides()) {
+				selectedMods.put(provided, mod);
+			}
+		}
+
+		return ResultAnalyzer.gatherWarnings(mods, selectedMods, envDisabledMods, envType);
+	}
+
+	/**
+	 * Select the highest priority candidate of every mod id if that is the solver's optimum.
+	 *
+	 * <p>The solver maximizes the loaded mods and prefers higher priority candidates within an id. Selecting the first
+	 * candidate of every id reaches the best possible value for each id, so it is the unique optimum if it satisfies all
+	 * hard constraints and recommendations. This is a linear pass with lookups only, sparing the consistent mod sets
+	 * from building the SAT problem and loading the solver at all.
+	 *
+	 * <p>Candidates sharing ids through provides or with optional load conditions weigh into the objective differently
+	 * and are left to the solver.
+	 *
+	 * @return true if the selection was applied, false leaves the preselected mods unchanged
+	 */
+	static boolean selectGreedily(Map<String, List<ModCandidate>> modsById,
+			Map<String, ModCandidate> selectedMods, List<ModCandidate> uniqueSelectedMods) {
+		Map<String, ModCandidate> newSelectedMods = new HashMap<>(selectedMods);
+		List<ModCandidate> newUniqueSelectedMods = new ArrayList<>(uniqueSelectedMods);
+
+		try {
+			for (Map.Entry<String, List<ModCandidate>> entry : modsById.entrySet()) {
+				for (ModCandidate mod : entry.getValue()) {
+					if (!mod.getId().equals(entry.getKey()) // provided id
+							|| mod.getLoadCondition().ordinal() >= ModLoadCondition.IF_RECOMMENDED.ordinal()) { // optional
+						return false;
+					}
+				}
+
+				selectMod(entry.getValue().get(0), newSelectedMods, newUniqueSelectedMods);
+			}
+		} catch (ModResolutionException e) {
+			return false;
+		}
+
+		for (ModCandidate mod : newUniqueSelectedMods) {
+			boolean preselected = selectedMods.get(mod.getId()) == mod;
+
+			// nested mods need a selected parent
+
+			if (!preselected && !mod.isRoot() && !isAnyParentSelected(mod, newSelectedMods)) return false;
+
+			// hard deps and recommendations, preselected mods are only checked against the other mods like the solver does
+
+			for (ModDependency dep : mod.getDependencies()) {
+				switch (dep.getKind()) {
+				case DEPENDS:
+				case BREAKS:
+				case RECOMMENDS:
+					break;
+				default:
+					continue;
+				}
+
+				if (selectedMods.containsKey(dep.getModId())) { // dep on preselected mod
+					if (preselected || dep.getKind().isSoft()) continue;
+				} else if (dep.getKind() != Kind.BREAKS && !hasMatch(dep, modsById)) { // no candidates to satisfy the dep with
+					if (preselected || dep.getKind().isSoft()) continue;
+
+					return false;
+				}
+
+				ModCandidate selectedMod = newSelectedMods.get(dep.getModId());
+				boolean matches = selectedMod != null && dep.matches(selectedMod.getVersion());
+
+				if (matches != dep.getKind().isPositive()) return false;
+			}
+		}
+
+		selectedMods.putAll(newSelectedMods);
+		uniqueSelectedMods.clear();
+		uniqueSelectedMods.addAll(newUniqueSelectedMods);
+
+		return true;
+	}
+
+	/**
+	 * Apply a selection restored from the resolution lock after checking it against the hard constraints the solver uses.
+	 *
+	 * <p>This is a linear pass over the candidates and their dependencies, the lock already ensured that the candidates
+	 * are the same as when the selection was solved for.
+	 *
+	 * @return true if the selection was applied, false leaves the preselected mods unchanged
+	 */
+	private static boolean restoreSelection(List<ModCandidate> lockedMods, List<ModCandidate> allModsSorted, Map<String, List<ModCandidate>> modsById,
+			Map<String, ModCandidate> selectedMods, List<ModCandidate> uniqueSelectedMods) {
+		Map<String, ModCandidate> newSelectedMods = new HashMap<>(selectedMods);
+		List<ModCandidate> newUniqueSelectedMods = new ArrayList<>(uniqueSelectedMods);
+
+		try {
+			for (ModCandidate mod : lockedMods) {
+				if (selectedMods.get(mod.getId()) == mod) continue; // preselected
+
+				selectMod(mod, newSelectedMods, newUniqueSelectedMods);
+			}
+		} catch (ModResolutionException e) {
+			Log.debug(LogCategory.RESOLUTION, "Discarding resolution lock: %s", e.getMessage());
+			return false;
+		}
+
+		// root mods have to be present, nested mods need a selected parent
+
+		for (ModCandidate mod : allModsSorted) {
+			if (mod.isRoot()) {
+				if (mod.getLoadCondition() == ModLoadCondition.ALWAYS && !newSelectedMods.containsKey(mod.getId())) {
+					Log.debug(LogCategory.RESOLUTION, "Discarding resolution lock: %s isn't loaded", mod);
+					return false;
+				}
+			} else if (newSelectedMods.get(mod.getId()) == mod && !isAnyParentSelected(mod, newSelectedMods)) {
+				Log.debug(LogCategory.RESOLUTION, "Discarding resolution lock: no parent of %s is loaded", mod);
+				return false;
+			}
+		}
+
+		// hard dependencies of all selected mods, preselected mods are only checked against other mods like the solver does
+
+		for (ModCandidate mod : newUniqueSelectedMods) {
+			boolean preselected = selectedMods.get(mod.getId()) == mod;
+
+			for (ModDependency dep : mod.getDependencies()) {
+				if (dep.getKind() != Kind.DEPENDS && dep.getKind() != Kind.BREAKS) continue;
+				if (preselected && (selectedMods.containsKey(dep.getModId()) || !hasMatch(dep, modsById))) continue;
+
+				ModCandidate selectedMod = newSelectedMods.get(dep.getModId());
+				boolean matches = selectedMod != null && dep.matches(selectedMod.getVersion());
+
+				if (matches != dep.getKind().isPositive()) {
+					Log.debug(LogCategory.RESOLUTION, "Discarding resolution lock: %s isn't satisfied for %s", dep, mod);
+					return false;
+				}
+			}
+		}
+
+		selectedMods.putAll(newSelectedMods);
+		uniqueSelectedMods.clear();
+		uniqueSelectedMods.addAll(newUniqueSelectedMods);
+
+		return true;
+	}
+
+	static boolean isAnyParentSelected(ModCandidate mod, Map<String, ModCandidate> selectedMods) {
+		for (ModCandidate parentMod : mod.getParentMods()) {
+			if (selectedMods.get(parentMod.getId()) == parentMod) return true;
+		}
+
+		return false;
+	}
+
+	static boolean hasMatch(ModDependency dep, Map<String, List<ModCandidate>> modsById) {
+		List<ModCandidate> mods = modsById.get(dep.getModId());
+		if (mods == null) return false;
+
+		for (ModCandidate mod : mods) {
+			if (dep.matches(mod.getVersion())) return true;
+		}
+
+		return false;
+	}
+
 	static void preselectMod(ModCandidate mod, List<ModCandidate> allModsSorted, Map<String, List<ModCandidate>> modsById,
 			Map<String, ModCandidate> selectedMods, List<ModCandidate> uniqueSelectedMods) throws ModResolutionException {
 		selectMod(mod, selectedMods, uniqueSelectedMods);
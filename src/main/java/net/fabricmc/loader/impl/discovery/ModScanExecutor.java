@@ -0,0 +1,198 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import net.fabricmc.loader.impl.util.SystemProperties;
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Strategy for running the mod scan tasks of a discovery run.
+ *
+ * <p>Nested jar scans are started through {@link #fork} from within other scan tasks. All scans have completed once
+ * {@link #awaitCompletion} returned true, after which the executor can't be used anymore.
+ */
+abstract class ModScanExecutor {
+	static ModScanExecutor create() {
+		String mode = System.getProperty(SystemProperties.DISCOVERY_EXECUTOR, "parallel").toLowerCase(Locale.ENGLISH);
+		int parallelism = Integer.getInteger(SystemProperties.DISCOVERY_PARALLELISM, Runtime.getRuntime().availableProcessors());
+
+		switch (mode) {
+		case "parallel":
+			break;
+		case "sequential":
+			return new Sequential();
+		case "virtual": {
+			ExecutorService executor = createVirtualThreadExecutor();
+			if (executor != null) return new ThreadPerTask(executor);
+
+			Log.warn(LogCategory.DISCOVERY, "Virtual threads are unavailable (requires Java 21+), using parallel mod discovery instead");
+			break;
+		}
+		default:
+			Log.warn(LogCategory.DISCOVERY, "Unknown mod discovery executor %s, using parallel mod discovery instead", mode);
+		}
+
+		return parallelism <= 1 ? new Sequential() : new Parallel(parallelism);
+	}
+
+	private static ExecutorService createVirtualThreadExecutor() {
+		try {
+			return (ExecutorService) java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Start scanning a root path.
+	 */
+	abstract void submit(ForkJoinTask<?> task);
+
+	/**
+	 * Start scanning a nested jar from within a running scan task.
+	 */
+	abstract void fork(ForkJoinTask<?> task);
+
+	/**
+	 * Wait for all submitted and forked scans to complete.
+	 *
+	 * @return false if the timeout elapsed first
+	 */
+	abstract boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException;
+
+	abstract String getName();
+
+	/**
+	 * Fork/join pool with limited parallelism, the default.
+	 */
+	private static final class Parallel extends ModScanExecutor {
+		private final ForkJoinPool pool;
+
+		Parallel(int parallelism) {
+			this.pool = new ForkJoinPool(parallelism);
+		}
+
+		@Override
+		void submit(ForkJoinTask<?> task) {
+			pool.execute(task);
+		}
+
+		@Override
+		void fork(ForkJoinTask<?> task) {
+			task.fork();
+		}
+
+		@Override
+		boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+			pool.shutdown();
+
+			return pool.awaitTermination(timeout, unit);
+		}
+
+		@Override
+		String getName() {
+			return "parallel ("+pool.getParallelism()+" threads)";
+		}
+	}
+
+	/**
+	 * Runs every scan immediately in the calling thread, avoiding any thread overhead on small machines.
+	 */
+	private static final class Sequential extends ModScanExecutor {
+		@Override
+		void submit(ForkJoinTask<?> task) {
+			task.quietlyInvoke();
+		}
+
+		@Override
+		void fork(ForkJoinTask<?> task) {
+			task.quietlyInvoke();
+		}
+
+		@Override
+		boolean awaitCompletion(long timeout, TimeUnit unit) {
+			return true;
+		}
+
+		@Override
+		String getName() {
+			return "sequential";
+		}
+	}
+
+	/**
+	 * Runs every scan in its own thread from an executor, intended for virtual threads to overlap blocking reads.
+	 */
+	private static final class ThreadPerTask extends ModScanExecutor {
+		private final ExecutorService executor;
+		private final Phaser phaser = new Phaser(1); // registered party per running task + the awaiting thread
+
+		ThreadPerTask(ExecutorService executor) {
+			this.executor = executor;
+		}
+
+		@Override
+		void submit(ForkJoinTask<?> task) {
+			phaser.register();
+
+			try {
+				executor.execute(() -> {
+					try {
+						task.quietlyInvoke();
+					} finally {
+						phaser.arriveAndDeregister();
+					}
+				});
+			} catch (Throwable t) {
+				phaser.arriveAndDeregister();
+				throw t;
+			}
+		}
+
+		@Override
+		void fork(ForkJoinTask<?> task) {
+			submit(task);
+		}
+
+		@Override
+		boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+			try {
+				phaser.awaitAdvanceInterruptibly(phaser.arrive(), timeout, unit);
+
+				return true;
+			} catch (TimeoutException e) {
+				return false;
+			} finally {
+				executor.shutdown();
+			}
+		}
+
+		@Override
+		String getName() {
+			return "virtual threads";
+		}
+	}
+}
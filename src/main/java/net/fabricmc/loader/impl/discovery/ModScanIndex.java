@@ -0,0 +1,380 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.fabricmc.api.EnvType;
+import net.fabricmc.loader.impl.FabricLoaderImpl;
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Persistent index of previous mod jar scan results.
+ *
+ * <p>Each entry is keyed by the jar's path and validated against its size and modification time, optionally also its
+ * content digest. It stores the raw {@code fabric.mod.json} contents of the jar and all of its (recursively) nested
+ * mods, which allows skipping opening the jar and buffering its nested jars if it didn't change.
+ *
+ * <p>The metadata is stored in its source form and, where supported, additionally in the binary form generated by
+ * {@link net.fabricmc.loader.impl.metadata.ModMetadataParser}. Both represent the metadata before applying any
+ * overrides, so version and dependency overrides keep applying as usual. The binary form is decoded without any JSON
+ * parsing, the source form stays authoritative and is parsed instead if the binary form is missing or unreadable.
+ */
+final class ModScanIndex {
+	private static final int MAGIC = 0x464d5349; // FMSI
+	private static final int FORMAT_VERSION = 3;
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+	private static final byte[] NO_DIGEST = new byte[0];
+
+	private final Path file;
+	private final EnvType envType;
+	private final boolean isDevelopment;
+	private final boolean validateDigest;
+	private final Map<String, Entry> loadedEntries;
+	private final Map<String, Entry> usedEntries = new ConcurrentHashMap<>();
+	private volatile boolean dirty;
+
+	private ModScanIndex(Path file, EnvType envType, boolean isDevelopment, boolean validateDigest, Map<String, Entry> loadedEntries) {
+		this.file = file;
+		this.envType = envType;
+		this.isDevelopment = isDevelopment;
+		this.validateDigest = validateDigest;
+		this.loadedEntries = loadedEntries;
+	}
+
+	static ModScanIndex load(Path file, EnvType envType, boolean isDevelopment, boolean validateDigest) {
+		Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+		if (Files.exists(file)) {
+			try (DataInputStream is = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+				if (is.readInt() == MAGIC
+						&& is.readInt() == FORMAT_VERSION
+						&& is.readUTF().equals(FabricLoaderImpl.VERSION)
+						&& is.readUTF().equals(envType.name())
+						&& is.readBoolean() == isDevelopment) {
+					int count = is.readInt();
+
+					for (int i = 0; i < count; i++) {
+						Entry entry = Entry.read(is);
+						entries.put(entry.path, entry);
+					}
+				} else {
+					Log.debug(LogCategory.DISCOVERY, "Discarding incompatible mod scan index %s", file);
+				}
+			} catch (IOException e) {
+				Log.debug(LogCategory.DISCOVERY, "Error reading mod scan index %s, ignoring", file, e);
+				entries.clear();
+			}
+		}
+
+		return new ModScanIndex(file, envType, isDevelopment, validateDigest, entries);
+	}
+
+	/**
+	 * Retrieve the scan result for a jar if it is still up-to-date.
+	 *
+	 * <p>The jar gets stamped only once, the returned stamp is to be passed to {@link #put} if the jar has to be scanned.
+	 *
+	 * @return the stored root node, null if there is no valid entry, and the jar's current stamp
+	 */
+	Lookup get(Path path) throws IOException {
+		Stamp stamp = stamp(path);
+		String key = path.toString();
+		Entry entry = loadedEntries.get(key);
+		if (entry == null) return new Lookup(null, stamp);
+
+		if (!entry.matches(stamp)) {
+			Log.debug(LogCategory.DISCOVERY, "Mod scan index entry for %s is stale", path);
+			dirty = true;
+
+			return new Lookup(null, stamp);
+		}
+
+		usedEntries.put(key, entry);
+
+		return new Lookup(entry.root, stamp);
+	}
+
+	/**
+	 * Discard the stored scan result for a jar.
+	 */
+	void invalidate(Path path) {
+		if (loadedEntries.remove(path.toString()) != null) {
+			Log.debug(LogCategory.DISCOVERY, "Mod scan index entry for %s was invalidated", path);
+			dirty = true;
+		}
+	}
+
+	/**
+	 * Capture the state of a jar to validate index entries against.
+	 *
+	 * <p>This should be called before scanning the jar and passed to {@link #put} with the scan result, so a jar
+	 * replaced during the scan doesn't get indexed with its new state. The content digest is only computed if the index
+	 * validates it.
+	 */
+	Stamp stamp(Path path) throws IOException {
+		BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+
+		return new Stamp(attrs.size(), attrs.lastModifiedTime().toMillis(), validateDigest ? computeDigest(path) : NO_DIGEST);
+	}
+
+	void put(Path path, Stamp stamp, Node root) {
+		String key = path.toString();
+
+		usedEntries.put(key, new Entry(key, stamp.size, stamp.lastModified, stamp.digest, root));
+		dirty = true;
+	}
+
+	/**
+	 * Write all entries used or created since loading, dropping any entries for jars that weren't encountered.
+	 */
+	void save() {
+		if (!dirty && usedEntries.size() == loadedEntries.size()) return;
+
+		Path tmpFile = null;
+
+		try {
+			Files.createDirectories(file.toAbsolutePath().getParent());
+			tmpFile = Files.createTempFile(file.toAbsolutePath().getParent(), "discoveryIndex", ".tmp");
+
+			try (DataOutputStream os = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+				os.writeInt(MAGIC);
+				os.writeInt(FORMAT_VERSION);
+				os.writeUTF(FabricLoaderImpl.VERSION);
+				os.writeUTF(envType.name());
+				os.writeBoolean(isDevelopment);
+				os.writeInt(usedEntries.size());
+
+				for (Entry entry : usedEntries.values()) {
+					entry.write(os);
+				}
+			}
+
+			Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			tmpFile = null;
+		} catch (IOException e) {
+			Log.warn(LogCategory.DISCOVERY, "Error writing mod scan index %s", file, e);
+		} finally {
+			if (tmpFile != null) {
+				try {
+					Files.deleteIfExists(tmpFile);
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	static byte[] computeDigest(Path path) throws IOException {
+		MessageDigest digest;
+
+		try {
+			digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+
+		byte[] buffer = new byte[8192];
+		int len;
+
+		try (InputStream is = Files.newInputStream(path)) {
+			while ((len = is.read(buffer)) >= 0) {
+				digest.update(buffer, 0, len);
+			}
+		}
+
+		return digest.digest();
+	}
+
+	private static final class Entry {
+		final String path;
+		final long size;
+		final long lastModified;
+		final byte[] digest;
+		final Node root;
+
+		Entry(String path, long size, long lastModified, byte[] digest, Node root) {
+			this.path = path;
+			this.size = size;
+			this.lastModified = lastModified;
+			this.digest = digest;
+			this.root = root;
+		}
+
+		static Entry read(DataInputStream is) throws IOException {
+			String path = is.readUTF();
+			long size = is.readLong();
+			long lastModified = is.readLong();
+			byte[] digest = new byte[is.readUnsignedByte()];
+			is.readFully(digest);
+			Node root = is.readBoolean() ? Node.read(is) : null;
+
+			return new Entry(path, size, lastModified, digest, root);
+		}
+
+		boolean matches(Stamp stamp) {
+			return stamp.size == size
+					&& stamp.lastModified == lastModified
+					&& (stamp.digest == NO_DIGEST || Arrays.equals(stamp.digest, digest));
+		}
+
+		void write(DataOutputStream os) throws IOException {
+			os.writeUTF(path);
+			os.writeLong(size);
+			os.writeLong(lastModified);
+			os.writeByte(digest.length);
+			os.write(digest);
+			os.writeBoolean(root != null);
+			if (root != null) root.write(os);
+		}
+	}
+
+	/**
+	 * Result of {@link ModScanIndex#get}, the stored scan result if it is up-to-date and the jar's current stamp.
+	 */
+	static final class Lookup {
+		final Node node; // null if there is no valid entry
+		final Stamp stamp; // state of the jar before scanning it
+
+		Lookup(Node node, Stamp stamp) {
+			this.node = node;
+			this.stamp = stamp;
+		}
+	}
+
+	/**
+	 * Size, modification time and, if validated, content digest of a jar at some point in time.
+	 */
+	static final class Stamp {
+		final long size;
+		final long lastModified;
+		final byte[] digest; // NO_DIGEST if not validated
+
+		Stamp(long size, long lastModified, byte[] digest) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.digest = digest;
+		}
+	}
+
+	/**
+	 * Scan result for a single mod, recursively containing its nested mods.
+	 *
+	 * <p>A root node without metadata marks a jar that is not a mod.
+	 */
+	static final class Node {
+		static final Node NO_MOD = new Node(null, -1, null, null, null, Collections.emptyList());
+
+		final String localPath; // null for root mods
+		final long hash;
+		final byte[] digest; // null for root mods
+		final byte[] metadata; // raw fabric.mod.json
+		final byte[] binaryMetadata; // null if not supported for the metadata
+		final List<Node> nestedMods;
+
+		Node(String localPath, long hash, byte[] digest, byte[] metadata, byte[] binaryMetadata, List<Node> nestedMods) {
+			this.localPath = localPath;
+			this.hash = hash;
+			this.digest = digest;
+			this.metadata = metadata;
+			this.binaryMetadata = binaryMetadata;
+			this.nestedMods = nestedMods;
+		}
+
+		boolean isMod() {
+			return metadata != null;
+		}
+
+		static Node read(DataInputStream is) throws IOException {
+			if (!is.readBoolean()) return NO_MOD;
+
+			String localPath = is.readBoolean() ? is.readUTF() : null;
+			long hash = is.readLong();
+			byte[] digest = null;
+
+			if (localPath != null) {
+				digest = new byte[is.readUnsignedByte()];
+				is.readFully(digest);
+			}
+
+			byte[] metadata = new byte[is.readInt()];
+			is.readFully(metadata);
+			byte[] binaryMetadata = null;
+
+			if (is.readBoolean()) {
+				binaryMetadata = new byte[is.readInt()];
+				is.readFully(binaryMetadata);
+			}
+
+			int count = is.readInt();
+			List<Node> nestedMods = count == 0 ? Collections.emptyList() : new ArrayList<>(count);
+
+			for (int i = 0; i < count; i++) {
+				nestedMods.add(read(is));
+			}
+
+			return new Node(localPath, hash, digest, metadata, binaryMetadata, nestedMods);
+		}
+
+		void write(DataOutputStream os) throws IOException {
+			os.writeBoolean(isMod());
+			if (!isMod()) return;
+
+			os.writeBoolean(localPath != null);
+			if (localPath != null) os.writeUTF(localPath);
+			os.writeLong(hash);
+
+			if (localPath != null) {
+				os.writeByte(digest.length);
+				os.write(digest);
+			}
+
+			os.writeInt(metadata.length);
+			os.write(metadata);
+			os.writeBoolean(binaryMetadata != null);
+
+			if (binaryMetadata != null) {
+				os.writeInt(binaryMetadata.length);
+				os.write(binaryMetadata);
+			}
+
+			os.writeInt(nestedMods.size());
+
+			for (Node node : nestedMods) {
+				node.write(os);
+			}
+		}
+	}
+}
@@ -26,19 +26,18 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
-import org.sat4j.pb.IPBSolver;
-import org.sat4j.pb.SolverFactory;
-import org.sat4j.pb.tools.DependencyHelper;
-import org.sat4j.pb.tools.INegator;
-import org.sat4j.pb.tools.WeightedObject;
-import org.sat4j.specs.ContradictionException;
-import org.sat4j.specs.TimeoutException;
-
 import net.fabricmc.loader.api.SemanticVersion;
 import net.fabricmc.loader.api.Version;
 import net.fabricmc.loader.api.metadata.ModDependency;
@@ -48,84 +47,122 @@ import net.fabricmc.loader.impl.discovery.Explanation.ErrorKind;
 import net.fabricmc.loader.impl.util.SystemProperties;
 import net.fabricmc.loader.impl.util.log.Log;
 import net.fabricmc.loader.impl.util.log.LogCategory;
+import net.fabricmc.loader.impl.util.profiler.StartupProfiler;
 import net.fabricmc.loader.impl.util.version.SemanticVersionImpl;
 import net.fabricmc.loader.impl.util.version.VersionPredicateParser;
 
 final class ModSolver {
 	static Result solve(List<ModCandidate> allModsSorted, Map<String, List<ModCandidate>> modsById,
-			Map<String, ModCandidate> selectedMods, List<ModCandidate> uniqueSelectedMods) throws ContradictionException, TimeoutException, ModResolutionException {
-		// build priority index
-
-		Map<ModCandidate, Integer> priorities = new IdentityHashMap<>(allModsSorted.size());
+			Map<String, ModCandidate> selectedMods, List<ModCandidate> uniqueSelectedMods) throws ModResolutionException {
+		return solve(allModsSorted, modsById, selectedMods, uniqueSelectedMods, getBackend());
+	}
 
-		for (int i = 0; i < allModsSorted.size(); i++) {
-			priorities.put(allModsSorted.get(i), i);
+	static Result solve(List<ModCandidate> allModsSorted, Map<String, List<ModCandidate>> modsById,
+			Map<String, ModCandidate> selectedMods, List<ModCandidate> uniqueSelectedMods,
+			ResolverBackend backend) throws ModResolutionException {
+		try {
+			return solve0(allModsSorted, modsById, selectedMods, uniqueSelectedMods, backend);
+		} catch (ResolverBackend.TimeoutException e) {
+			throw new ModResolutionException("Solving failed", e);
 		}
+	}
 
-		// create and configure solver
+	/**
+	 * Get the solver backend selected through {@link SystemProperties#DEBUG_RESOLUTION_BACKEND}.
+	 */
+	static ResolverBackend getBackend() {
+		String name = System.getProperty(SystemProperties.DEBUG_RESOLUTION_BACKEND, DEFAULT_BACKEND);
 
-		solverPrepTime = System.nanoTime();
+		switch (name) {
+		case CdclResolverBackend.NAME: return new CdclResolverBackend();
+		case Sat4jResolverBackend.NAME: return new Sat4jResolverBackend();
+		default: throw new IllegalArgumentException("unknown resolution backend: "+name);
+		}
+	}
 
-		IPBSolver solver = SolverFactory.newDefaultOptimizer();
+	private static final String DEFAULT_BACKEND = Sat4jResolverBackend.NAME;
 
-		int timeout = Integer.getInteger(SystemProperties.DEBUG_RESOLUTION_TIMEOUT, 60);
-		if (timeout > 0) solver.setTimeout(timeout); // in seconds
+	private static Result solve0(List<ModCandidate> allModsSorted, Map<String, List<ModCandidate>> modsById,
+			Map<String, ModCandidate> selectedMods, List<ModCandidate> uniqueSelectedMods,
+			ResolverBackend backend) throws ResolverBackend.TimeoutException, ModResolutionException {
+		// build priority index
 
-		DependencyHelper<DomainObject, Explanation> dependencyHelper = createDepHelper(solver);
+		Map<ModCandidate, Integer> priorities = new IdentityHashMap<>(allModsSorted.size());
 
-		setupSolver(allModsSorted, modsById,
-				priorities, selectedMods, uniqueSelectedMods,
-				false, null, false,
-				dependencyHelper);
+		for (int i = 0; i < allModsSorted.size(); i++) {
+			priorities.put(allModsSorted.get(i), i);
+		}
 
-		// solve
+		// solve the regular problem, split into independent components unless disabled
 
-		solveTime = System.nanoTime();
+		solverPrepTime = System.nanoTime();
 
-		boolean hasSolution = dependencyHelper.hasASolution();
+		long deadline = getDeadline(getResolutionTimeout());
+		Set<Explanation> reason;
 
-		// check solution
+		if (System.getProperty(SystemProperties.DEBUG_DISABLE_RESOLUTION_SPLIT) == null) {
+			List<ModComponentSplitter.Component> components = ModComponentSplitter.split(allModsSorted, modsById, selectedMods);
 
-		solutionFetchTime = System.nanoTime();
+			solveTime = System.nanoTime();
 
-		if (hasSolution) {
-			Collection<DomainObject> solution = dependencyHelper.getASolution();
+			try (StartupProfiler.Span span = StartupProfiler.start("solve")) {
+				reason = solveComponents(components,
+						priorities, selectedMods, uniqueSelectedMods,
+						deadline, backend);
+			}
+		} else {
+			solveTime = System.nanoTime();
 
-			solutionAnalyzeTime = System.nanoTime();
+			Solution solution;
 
-			for (DomainObject obj : solution) {
-				if (obj instanceof ModCandidate) {
-					ModResolver.selectMod((ModCandidate) obj, selectedMods, uniqueSelectedMods);
-				} else {
-					assert obj instanceof OptionalDepVar;
-				}
+			try (StartupProfiler.Span span = StartupProfiler.start("solve")) {
+				solution = solveRegular(allModsSorted, modsById,
+						priorities, selectedMods, uniqueSelectedMods,
+						deadline, backend);
 			}
 
-			dependencyHelper.reset();
+			reason = solution.reason;
+			if (reason == null) applySolution(solution, selectedMods, uniqueSelectedMods);
+		}
+
+		solutionFetchTime = solutionAnalyzeTime = System.nanoTime();
 
+		if (reason == null) {
 			return Result.createSuccess();
 		} else { // no solution
-			Set<Explanation> reason = dependencyHelper.why();
+			// set up the relaxed problem once for all mods, failure analysis and fix computation solve it incrementally under different assumptions
+
+			ResolverBackend.Problem problem = backend.createProblem();
+			Relaxation relaxation = new Relaxation();
+
+			setupSolver(allModsSorted, modsById,
+					priorities, selectedMods, uniqueSelectedMods,
+					relaxation, problem);
 
 			// gather all failed deps
 
 			Set<ModDependency> failedDeps = Collections.newSetFromMap(new IdentityHashMap<>());
 			List<Explanation> failedExplanations = new ArrayList<>();
 
-			computeFailureCausesOptional(allModsSorted, modsById,
-					priorities, selectedMods, uniqueSelectedMods,
-					reason, dependencyHelper,
-					failedDeps, failedExplanations);
+			try (StartupProfiler.Span span = StartupProfiler.start("failureAnalysis")) {
+				computeFailureCausesOptional(selectedMods,
+						relaxation, problem,
+						failedDeps, failedExplanations);
+			}
 
 			// find best solution with mod addition/removal
 
 			fixSetupTime = System.nanoTime();
 
-			Fix fix = computeFix(uniqueSelectedMods, allModsSorted, modsById,
-					priorities, selectedMods,
-					failedDeps, dependencyHelper);
+			Fix fix;
+
+			try (StartupProfiler.Span span = StartupProfiler.start("fixComputation")) {
+				fix = computeFix(allModsSorted, modsById,
+						priorities, selectedMods,
+						failedDeps, relaxation, problem);
+			}
 
-			dependencyHelper.reset();
+			problem.reset();
 
 			return Result.createFailure(reason, failedExplanations, fix);
 		}
@@ -137,6 +174,194 @@ final class ModSolver {
 	static long solutionAnalyzeTime;
 	static long fixSetupTime;
 
+	/**
+	 * Solve independent components of the regular problem, concurrently if there are multiple non-trivial ones.
+	 *
+	 * <p>All components share the deadline of the regular solve. The selection is only applied if all components could
+	 * be solved.
+	 *
+	 * @param deadline {@link System#nanoTime} value to give up at, 0 for none
+	 * @return null on success, the reason for the first component without solution otherwise
+	 */
+	private static Set<Explanation> solveComponents(List<ModComponentSplitter.Component> components,
+			Map<ModCandidate, Integer> priorities, Map<String, ModCandidate> selectedMods, List<ModCandidate> uniqueSelectedMods,
+			long deadline, ResolverBackend backend) throws ResolverBackend.TimeoutException, ModResolutionException {
+		Solution[] solutions = new Solution[components.size()];
+		List<Integer> pending = new ArrayList<>();
+		int maxSize = 0;
+
+		for (int i = 0; i < components.size(); i++) {
+			ModComponentSplitter.Component component = components.get(i);
+
+			if (isTriviallySelected(component, selectedMods, uniqueSelectedMods)) {
+				solutions[i] = new Solution(component.mods, null);
+			} else {
+				pending.add(i);
+				maxSize = Math.max(maxSize, component.mods.size());
+			}
+		}
+
+		Log.debug(LogCategory.RESOLUTION, "Solving %d of %d independent mod components, the largest has %d candidates",
+				pending.size(), components.size(), maxSize);
+
+		// solve the first pending component in the calling thread and the others in a dedicated pool, long solves mustn't
+		// starve other users of the common pool
+
+		ExecutorService executor = pending.size() > 1 ? createSolverExecutor(pending.size() - 1) : null;
+		List<Future<Solution>> futures = new ArrayList<>(Math.max(0, pending.size() - 1));
+
+		try {
+			for (int i = 1; i < pending.size(); i++) {
+				ModComponentSplitter.Component component = components.get(pending.get(i));
+
+				futures.add(executor.submit(() -> solveRegular(component.mods, component.modsById,
+						priorities, selectedMods, uniqueSelectedMods,
+						deadline, backend)));
+			}
+
+			if (!pending.isEmpty()) {
+				ModComponentSplitter.Component component = components.get(pending.get(0));
+				solutions[pending.get(0)] = solveRegular(component.mods, component.modsById,
+						priorities, selectedMods, uniqueSelectedMods,
+						deadline, backend);
+			}
+
+			for (int i = 1; i < pending.size(); i++) {
+				solutions[pending.get(i)] = futures.get(i - 1).get();
+			}
+		} catch (InterruptedException e) {
+			throw new ModResolutionException("Solving interrupted", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+
+			if (cause instanceof ModResolutionException) throw (ModResolutionException) cause;
+			if (cause instanceof ResolverBackend.TimeoutException) throw (ResolverBackend.TimeoutException) cause;
+			if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+			if (cause instanceof Error) throw (Error) cause;
+
+			throw new ModResolutionException("Solving failed", cause);
+		} finally {
+			// stops queued solves and interrupts running ones after a failure, a no-op otherwise
+			if (executor != null) executor.shutdownNow();
+		}
+
+		for (Solution solution : solutions) {
+			if (solution.reason != null) return solution.reason;
+		}
+
+		for (Solution solution : solutions) {
+			applySolution(solution, selectedMods, uniqueSelectedMods);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Create a thread pool for solving components, bounded by the available processors including the calling thread.
+	 */
+	private static ExecutorService createSolverExecutor(int tasks) {
+		int threads = Math.max(1, Math.min(tasks, Runtime.getRuntime().availableProcessors() - 1));
+
+		return Executors.newFixedThreadPool(threads, task -> {
+			Thread ret = new Thread(task, "Fabric Mod Solver");
+			ret.setDaemon(true);
+
+			return ret;
+		});
+	}
+
+	/**
+	 * Determine whether a component consists of a single mod that has to be loaded and can be loaded.
+	 *
+	 * <p>This mirrors the regular solver constraints for such a mod: it is forced by itself, all its hard dependencies
+	 * refer to preselected mods and no preselected mod breaks it.
+	 */
+	private static boolean isTriviallySelected(ModComponentSplitter.Component component, Map<String, ModCandidate> selectedMods, List<ModCandidate> uniqueSelectedMods) {
+		if (component.mods.size() != 1) return false;
+
+		ModCandidate mod = component.mods.get(0);
+
+		if (mod.getLoadCondition() != ModLoadCondition.ALWAYS
+				|| !mod.isRoot() && !ModResolver.isAnyParentSelected(mod, selectedMods)) {
+			return false;
+		}
+
+		for (ModDependency dep : mod.getDependencies()) {
+			if (dep.getKind() != ModDependency.Kind.DEPENDS && dep.getKind() != ModDependency.Kind.BREAKS) continue;
+
+			ModCandidate selectedMod = selectedMods.get(dep.getModId());
+
+			if (selectedMod != null) {
+				if (dep.matches(selectedMod.getVersion()) != dep.getKind().isPositive()) return false;
+			} else if (dep.getKind() == ModDependency.Kind.DEPENDS || ModResolver.hasMatch(dep, component.modsById)) { // no candidate or self dep
+				return false;
+			}
+		}
+
+		for (ModCandidate selectedMod : uniqueSelectedMods) {
+			for (ModDependency dep : selectedMod.getDependencies()) {
+				if (dep.getKind() == ModDependency.Kind.BREAKS
+						&& !selectedMods.containsKey(dep.getModId())
+						&& ModResolver.hasMatch(dep, component.modsById)) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Solve the regular problem, without any relaxation, for the given mods.
+	 *
+	 * @param deadline {@link System#nanoTime} value to give up at, 0 for none
+	 */
+	private static Solution solveRegular(List<ModCandidate> allModsSorted, Map<String, List<ModCandidate>> modsById,
+			Map<ModCandidate, Integer> priorities, Map<String, ModCandidate> selectedMods, List<ModCandidate> uniqueSelectedMods,
+			long deadline, ResolverBackend backend) throws ResolverBackend.TimeoutException, ModResolutionException {
+		ResolverBackend.Problem problem = backend.createProblem();
+
+		setupSolver(allModsSorted, modsById,
+				priorities, selectedMods, uniqueSelectedMods,
+				null, problem);
+
+		try {
+			if (!problem.solve(Collections.emptyList(), getRemainingTimeout(deadline))) {
+				return new Solution(null, problem.why());
+			}
+
+			List<ModCandidate> mods = new ArrayList<>();
+
+			for (DomainObject obj : problem.getSolution()) {
+				if (obj instanceof ModCandidate) {
+					mods.add((ModCandidate) obj);
+				} else {
+					assert obj instanceof OptionalDepVar;
+				}
+			}
+
+			return new Solution(mods, null);
+		} finally {
+			problem.reset();
+		}
+	}
+
+	private static void applySolution(Solution solution, Map<String, ModCandidate> selectedMods, List<ModCandidate> uniqueSelectedMods) throws ModResolutionException {
+		for (ModCandidate mod : solution.mods) {
+			ModResolver.selectMod(mod, selectedMods, uniqueSelectedMods);
+		}
+	}
+
+	private static final class Solution {
+		final List<ModCandidate> mods; // null without solution
+		final Set<Explanation> reason; // null with solution
+
+		Solution(List<ModCandidate> mods, Set<Explanation> reason) {
+			this.mods = mods;
+			this.reason = reason;
+		}
+	}
+
 	static class Result {
 		final boolean success;
 		final Collection<Explanation> immediateReason;
@@ -159,20 +384,22 @@ final class ModSolver {
 		}
 	}
 
-	private static void computeFailureCausesOptional(List<ModCandidate> allModsSorted, Map<String, List<ModCandidate>> modsById,
-			Map<ModCandidate, Integer> priorities, Map<String, ModCandidate> selectedMods, List<ModCandidate> uniqueSelectedMods,
-			Set<Explanation> reason, DependencyHelper<DomainObject, Explanation> dependencyHelper,
-			Set<ModDependency> failedDeps, List<Explanation> failedExplanations) throws ContradictionException, TimeoutException {
-		dependencyHelper.reset();
-		dependencyHelper = createDepHelper(dependencyHelper.getSolver()); // dependencyHelper.reset doesn't fully reset the dep helper
-
-		setupSolver(allModsSorted, modsById,
-				priorities, selectedMods, uniqueSelectedMods,
-				true, null, false,
-				dependencyHelper);
+	private static void computeFailureCausesOptional(Map<String, ModCandidate> selectedMods,
+			Relaxation relaxation, ResolverBackend.Problem problem,
+			Set<ModDependency> failedDeps, List<Explanation> failedExplanations) {
+		boolean hasSolution;
+
+		try {
+			hasSolution = solveBudgeted("failure analysis", relaxation.getFailureAssumptions(),
+					getResolutionTimeout(),
+					problem);
+		} catch (ResolverBackend.TimeoutException e) {
+			Log.warn(LogCategory.RESOLUTION, "Failure analysis timed out, the failure causes are unknown");
+			return;
+		}
 
-		if (dependencyHelper.hasASolution()) {
-			Collection<DomainObject> solution = dependencyHelper.getASolution();
+		if (hasSolution) {
+			Collection<DomainObject> solution = problem.getSolution();
 			Set<ModDependency> disabledDeps = new HashSet<>(); // DisableDepVar uses equality semantics, not identity
 
 			for (DomainObject obj : solution) {
@@ -190,6 +417,7 @@ final class ModSolver {
 				if (!(obj instanceof ModCandidate)) continue;
 
 				ModCandidate mod = (ModCandidate) obj;
+				if (selectedMods.get(mod.getId()) == mod) continue; // preselected, only kept through the assumptions
 
 				for (ModDependency dep : mod.getDependencies()) {
 					if (disabledDeps.contains(dep)) {
@@ -203,9 +431,9 @@ final class ModSolver {
 		}
 	}
 
-	private static Fix computeFix(List<ModCandidate> uniqueSelectedMods, List<ModCandidate> allModsSorted, Map<String, List<ModCandidate>> modsById,
+	private static Fix computeFix(List<ModCandidate> allModsSorted, Map<String, List<ModCandidate>> modsById,
 			Map<ModCandidate, Integer> priorities, Map<String, ModCandidate> selectedMods,
-			Set<ModDependency> failedDeps, DependencyHelper<DomainObject, Explanation> dependencyHelper) throws ContradictionException, TimeoutException {
+			Set<ModDependency> failedDeps, Relaxation relaxation, ResolverBackend.Problem problem) throws ModResolutionException {
 		// group positive deps by mod id
 		Map<String, Set<Collection<VersionPredicate>>> depsById = new HashMap<>();
 
@@ -302,19 +530,37 @@ final class ModSolver {
 
 		fixSolveTime = System.nanoTime();
 
-		dependencyHelper.reset();
-		dependencyHelper = createDepHelper(dependencyHelper.getSolver()); // dependencyHelper.reset doesn't fully reset the dep helper
+		addInstallableMods(modsById, priorities, selectedMods,
+				installableMods, relaxation,
+				problem);
 
-		setupSolver(allModsSorted, modsById,
-				priorities, selectedMods, uniqueSelectedMods,
-				false, installableMods, true,
-				dependencyHelper);
+		boolean hasSolution;
+
+		try {
+			hasSolution = solveBudgeted("fix computation", relaxation.getFixAssumptions(),
+					Integer.getInteger(SystemProperties.DEBUG_RESOLUTION_FIX_TIMEOUT, 10),
+					problem);
+		} catch (ResolverBackend.TimeoutException e) {
+			Log.warn(LogCategory.RESOLUTION, "Unable to find a solution to fix the mod set within the time limit");
+			return null;
+		}
 
-		if (!dependencyHelper.hasASolution()) {
-			Log.warn(LogCategory.RESOLUTION, "Unable to find a solution to fix the mod set, reason: %s", dependencyHelper.why());
+		if (!hasSolution) {
+			Object reason;
+
+			try {
+				reason = problem.why();
+			} catch (ResolverBackend.TimeoutException e) {
+				reason = "unknown (timed out)";
+			}
+
+			Log.warn(LogCategory.RESOLUTION, "Unable to find a solution to fix the mod set, reason: %s", reason);
 			return null;
 		}
 
+		boolean optimal = problem.isOptimal();
+		if (!optimal) Log.warn(LogCategory.RESOLUTION, "Fix computation ran out of time, using the best solution found so far");
+
 		Map<String, ModCandidate> activeMods = new HashMap<>();
 		Map<ModCandidate, InactiveReason> inactiveMods = new IdentityHashMap<>(allModsSorted.size());
 		List<AddModVar> modsToAdd = new ArrayList<>();
@@ -325,7 +571,7 @@ final class ModSolver {
 			inactiveMods.put(mod, InactiveReason.UNKNOWN);
 		}
 
-		for (DomainObject obj : dependencyHelper.getASolution()) {
+		for (DomainObject obj : problem.getSolution()) {
 			if (obj instanceof ModCandidate) {
 				ModCandidate mod = (ModCandidate) obj;
 
@@ -374,6 +620,8 @@ final class ModSolver {
 				}
 
 				assert found;
+			} else if (obj instanceof InstallVar) {
+				// implied by the AddModVars
 			} else { // unexpected domainobj kind
 				assert false : obj;
 			}
@@ -443,11 +691,56 @@ final class ModSolver {
 
 		// TODO: test if the solution is actually valid?
 
-		return new Fix(modsToAdd, modsToRemove, modReplacements, activeMods, inactiveMods);
+		return new Fix(modsToAdd, modsToRemove, modReplacements, activeMods, inactiveMods, optimal);
 	}
 
 	static long fixSolveTime;
 
+	/**
+	 * Optimize the relaxed problem under the given assumptions within a time budget.
+	 *
+	 * <p>The budget covers the whole optimization including all improving solutions. If it runs out after finding a
+	 * solution, the best one found so far is kept and {@link ResolverBackend.Problem#isOptimal()} returns false. The
+	 * search progress is logged and recorded as counters of the current profiler span.
+	 *
+	 * @param timeout time budget in seconds, <= 0 for no limit
+	 * @return whether a solution was found
+	 * @throws ResolverBackend.TimeoutException if the budget ran out before finding any solution
+	 */
+	private static boolean solveBudgeted(String phase, Collection<DomainObject> assumptions, int timeout,
+			ResolverBackend.Problem problem) throws ResolverBackend.TimeoutException {
+		long startTime = System.nanoTime();
+		long startConflicts = problem.getConflicts(); // cumulative over all runs with the same problem
+		long startDecisions = problem.getDecisions();
+		String outcome = "timed out";
+
+		try {
+			boolean ret = problem.solve(assumptions, timeout);
+
+			if (!ret) {
+				outcome = "no solution";
+			} else if (problem.isOptimal()) {
+				outcome = "optimal";
+			} else {
+				outcome = "best so far";
+			}
+
+			return ret;
+		} finally {
+			int solutions = problem.getSolutionCount();
+			long conflicts = problem.getConflicts() - startConflicts;
+			long decisions = problem.getDecisions() - startDecisions;
+
+			Log.debug(LogCategory.RESOLUTION, "Solved %s in %.1f ms: %s, %d improving solutions, %d conflicts, %d decisions",
+					phase, (System.nanoTime() - startTime) * 1e-6, outcome, solutions, conflicts, decisions);
+
+			StartupProfiler.Span span = StartupProfiler.current();
+			span.setCounter("solutions", solutions);
+			span.setCounter("conflicts", conflicts);
+			span.setCounter("decisions", decisions);
+		}
+	}
+
 	private static Version deriveVersion(VersionInterval interval) {
 		if (!interval.isSemantic()) {
 			return interval.getMin() != null ? interval.getMin() : interval.getMax();
@@ -533,14 +826,16 @@ final class ModSolver {
 		final Map<AddModVar, List<ModCandidate>> modReplacements;
 		final Map<String, ModCandidate> activeMods;
 		final Map<ModCandidate, InactiveReason> inactiveMods;
+		final boolean optimal; // false if the time limit was reached before proving the fix to be the simplest
 
 		Fix(Collection<AddModVar> modsToAdd, Collection<ModCandidate> modsToRemove, Map<AddModVar, List<ModCandidate>> modReplacements,
-				Map<String, ModCandidate> activeMods, Map<ModCandidate, InactiveReason> inactiveMods) {
+				Map<String, ModCandidate> activeMods, Map<ModCandidate, InactiveReason> inactiveMods, boolean optimal) {
 			this.modsToAdd = modsToAdd;
 			this.modsToRemove = modsToRemove;
 			this.modReplacements = modReplacements;
 			this.activeMods = activeMods;
 			this.inactiveMods = inactiveMods;
+			this.optimal = optimal;
 		}
 	}
 
@@ -563,77 +858,67 @@ final class ModSolver {
 
 	private static void setupSolver(List<ModCandidate> allModsSorted, Map<String, List<ModCandidate>> modsById,
 			Map<ModCandidate, Integer> priorities, Map<String, ModCandidate> selectedMods, List<ModCandidate> uniqueSelectedMods,
-			boolean depDisableSim, Map<String, List<AddModVar>> installableMods, boolean removalSim,
-			DependencyHelper<DomainObject, Explanation> dependencyHelper) throws ContradictionException {
+			Relaxation relaxation, ResolverBackend.Problem problem) throws ModResolutionException {
 		Map<String, DomainObject> dummies = new HashMap<>();
-		Map<ModDependency, Map.Entry<DomainObject, Integer>> disabledDeps = depDisableSim ? new HashMap<>() : null;
-		List<WeightedObject<DomainObject>> weightedObjects = new ArrayList<>();
+		Map<DomainObject, BigInteger> objective = new LinkedHashMap<>();
 
 		generatePreselectConstraints(uniqueSelectedMods, modsById,
 				priorities, selectedMods,
-				depDisableSim, installableMods, removalSim,
-				dummies, disabledDeps,
-				dependencyHelper, weightedObjects);
+				relaxation, dummies,
+				problem, objective);
 
 		generateMainConstraints(allModsSorted, modsById,
 				priorities, selectedMods,
-				depDisableSim, installableMods, removalSim,
-				dummies, disabledDeps,
-				dependencyHelper, weightedObjects);
+				relaxation, dummies,
+				problem, objective);
 
-		if (depDisableSim) {
-			applyDisableDepVarWeights(disabledDeps, priorities.size(), weightedObjects);
+		if (relaxation != null) {
+			applyDisableDepVarWeights(relaxation.disabledDeps, priorities.size(), objective);
 		}
 
-		@SuppressWarnings("unchecked")
-		WeightedObject<DomainObject>[] weights = weightedObjects.toArray(new WeightedObject[0]);
-		dependencyHelper.setObjectiveFunction(weights);
-		//dependencyHelper.addWeightedCriterion(weightedObjects);
+		for (Map.Entry<DomainObject, BigInteger> entry : objective.entrySet()) {
+			problem.addToObjectiveFunction(entry.getKey(), entry.getValue());
+		}
 	}
 
 	private static void generatePreselectConstraints(List<ModCandidate> uniqueSelectedMods, Map<String, List<ModCandidate>> modsById,
 			Map<ModCandidate, Integer> priorities, Map<String, ModCandidate> selectedMods,
-			boolean depDisableSim, Map<String, List<AddModVar>> installableMods, boolean removalSim,
-			Map<String, DomainObject> dummyMods, Map<ModDependency, Map.Entry<DomainObject, Integer>> disabledDeps,
-			DependencyHelper<DomainObject, Explanation> dependencyHelper, List<WeightedObject<DomainObject>> weightedObjects) throws ContradictionException {
-		boolean enableOptional = !depDisableSim && installableMods == null && !removalSim; // whether to enable optional mods (regular solve only, not for failure handling)
+			Relaxation relaxation, Map<String, DomainObject> dummyMods,
+			ResolverBackend.Problem problem, Map<DomainObject, BigInteger> objective) throws ModResolutionException {
+		boolean enableOptional = relaxation == null; // whether to enable optional mods (regular solve only, not for failure handling)
 		List<DomainObject> suitableMods = new ArrayList<>();
 
 		for (ModCandidate mod : uniqueSelectedMods) {
-			// add constraints for dependencies (skips deps that are already preselected outside depDisableSim)
+			// add constraints for dependencies (skips deps that are already preselected)
 
 			for (ModDependency dep : mod.getDependencies()) {
 				if (!enableOptional && dep.getKind().isSoft()) continue;
 				if (selectedMods.containsKey(dep.getModId())) continue;
 
-				List<? extends DomainObject.Mod> availableMods = modsById.get(dep.getModId());
+				List<ModCandidate> availableMods = modsById.get(dep.getModId());
 
 				if (availableMods != null) {
-					for (DomainObject.Mod m : availableMods) {
+					for (ModCandidate m : availableMods) {
 						if (dep.matches(m.getVersion())) suitableMods.add(m);
 					}
 				}
 
-				if (installableMods != null) {
-					availableMods = installableMods.get(dep.getModId());
-
-					if (availableMods != null) {
-						for (DomainObject.Mod m : availableMods) {
-							if (dep.matches(m.getVersion())) suitableMods.add(m);
-						}
-					}
-				}
-
-				if (suitableMods.isEmpty() && !depDisableSim) continue;
+				if (suitableMods.isEmpty() && relaxation == null) continue;
 
 				switch (dep.getKind()) {
-				case DEPENDS:
-					if (depDisableSim) {
-						suitableMods.add(getCreateDisableDepVar(dep, disabledDeps));
+				case DEPENDS: {
+					Explanation explanation = new Explanation(ErrorKind.PRESELECT_HARD_DEP, mod, dep);
+
+					if (relaxation != null) {
+						// the dep may only be dropped for the fix if nothing could satisfy it, like in the regular solve
+						InstallVar installVar = relaxation.createInstallVar(dep.getModId(), dep, suitableMods.isEmpty(), explanation);
+						suitableMods.add(getCreateDisableDepVar(dep, relaxation.disabledDeps));
+						suitableMods.add(installVar);
 					}
 
-					dependencyHelper.clause(new Explanation(ErrorKind.PRESELECT_HARD_DEP, mod, dep), suitableMods.toArray(new DomainObject[0]));
+					problem.clause(explanation, suitableMods.toArray(new DomainObject[0]));
 					break;
+				}
 				case RECOMMENDS:
 					// this will prioritize greedy over non-greedy loaded mods, regardless of modPrioComparator due to the objective weights
 
@@ -641,21 +926,31 @@ final class ModSolver {
 					suitableMods.removeIf(m -> ((ModCandidate) m).getLoadCondition().ordinal() > ModLoadCondition.IF_RECOMMENDED.ordinal());
 
 					if (!suitableMods.isEmpty()) {
-						suitableMods.add(getCreateDummy(dep.getModId(), OptionalDepVar::new, dummyMods, priorities.size(), weightedObjects));
-						dependencyHelper.clause(new Explanation(ErrorKind.PRESELECT_SOFT_DEP, mod, dep), suitableMods.toArray(new DomainObject[0]));
+						suitableMods.add(getCreateDummy(dep.getModId(), OptionalDepVar::new, dummyMods, priorities.size(), objective));
+						problem.clause(new Explanation(ErrorKind.PRESELECT_SOFT_DEP, mod, dep), suitableMods.toArray(new DomainObject[0]));
 					}
 
 					break;
-				case BREAKS:
-					if (depDisableSim) {
-						dependencyHelper.setTrue(getCreateDisableDepVar(dep, disabledDeps), new Explanation(ErrorKind.PRESELECT_NEG_HARD_DEP, mod, dep));
+				case BREAKS: {
+					Explanation explanation = new Explanation(ErrorKind.PRESELECT_NEG_HARD_DEP, mod, dep);
+
+					if (relaxation != null) {
+						// always disabled for the failure analysis, held by the matches for the fix
+						DomainObject var = getCreateDisableDepVar(dep, relaxation.disabledDeps);
+						relaxation.forcedDisabledDeps.add(var);
+						relaxation.negDeps.add(explanation);
+
+						for (DomainObject match : suitableMods) {
+							problem.implication(explanation, match, var);
+						}
 					} else {
 						for (DomainObject match : suitableMods) {
-							dependencyHelper.setFalse(match, new Explanation(ErrorKind.PRESELECT_NEG_HARD_DEP, mod, dep));
+							problem.setFalse(match, explanation);
 						}
 					}
 
 					break;
+				}
 				case CONFLICTS:
 					// TODO: soft negative dep?
 					break;
@@ -666,31 +961,22 @@ final class ModSolver {
 				suitableMods.clear();
 			}
 
-			if (removalSim) {
-				int prio = priorities.size() + 10;
-
-				if (installableMods != null) {
-					prio += installableMods.getOrDefault(mod.getId(), Collections.emptyList()).size();
+			if (relaxation != null) {
+				// preselected mods are only kept through the failure analysis assumptions, the fix may remove or replace them
 
-					List<AddModVar> installable = installableMods.get(mod.getId());
-					if (installable != null) suitableMods.addAll(installable);
-				}
-
-				suitableMods.add(getCreateDummy(mod.getId(), RemoveModVar::new, dummyMods, prio, weightedObjects));
-				suitableMods.add(mod);
+				Explanation explanation = new Explanation(ErrorKind.PRESELECT_FORCELOAD, mod.getId());
+				relaxation.keptMods.add(mod);
 
-				dependencyHelper.clause(new Explanation(ErrorKind.PRESELECT_FORCELOAD, mod.getId()), suitableMods.toArray(new DomainObject[0]));
-				suitableMods.clear();
+				problem.clause(explanation, mod, relaxation.createRemoveVar(mod.getId()), relaxation.createInstallVar(mod.getId(), null, false, explanation));
 			}
 		}
 	}
 
 	private static void generateMainConstraints(List<ModCandidate> allModsSorted, Map<String, List<ModCandidate>> modsById,
 			Map<ModCandidate, Integer> priorities, Map<String, ModCandidate> selectedMods,
-			boolean depDisableSim, Map<String, List<AddModVar>> installableMods, boolean removalSim,
-			Map<String, DomainObject> dummyMods, Map<ModDependency, Map.Entry<DomainObject, Integer>> disabledDeps,
-			DependencyHelper<DomainObject, Explanation> dependencyHelper, List<WeightedObject<DomainObject>> weightedObjects) throws ContradictionException {
-		boolean enableOptional = !depDisableSim && installableMods == null && !removalSim; // whether to enable optional mods (regular solve only, not for failure handling)
+			Relaxation relaxation, Map<String, DomainObject> dummyMods,
+			ResolverBackend.Problem problem, Map<DomainObject, BigInteger> objective) throws ModResolutionException {
+		boolean enableOptional = relaxation == null; // whether to enable optional mods (regular solve only, not for failure handling)
 		List<DomainObject> suitableMods = new ArrayList<>();
 
 		for (ModCandidate mod : allModsSorted) {
@@ -700,55 +986,55 @@ final class ModSolver {
 				if (!enableOptional && dep.getKind().isSoft()) continue;
 
 				ModCandidate selectedMod = selectedMods.get(dep.getModId());
+				boolean incompatible = false;
 
 				if (selectedMod != null) { // dep is already selected = present
-					if (!removalSim) {
-						if (!dep.getKind().isSoft() // .. and is a hard dep
-								&& dep.matches(selectedMod.getVersion()) != dep.getKind().isPositive()) { // ..but isn't suitable (DEPENDS without match or BREAKS with match)
-							if (depDisableSim) {
-								dependencyHelper.setTrue(getCreateDisableDepVar(dep, disabledDeps), new Explanation(ErrorKind.HARD_DEP, mod, dep));
-							} else {
-								dependencyHelper.setFalse(mod, new Explanation(ErrorKind.HARD_DEP_INCOMPATIBLE_PRESELECTED, mod, dep));
-							}
+					if (!dep.getKind().isSoft() // .. and is a hard dep
+							&& dep.matches(selectedMod.getVersion()) != dep.getKind().isPositive()) { // ..but isn't suitable (DEPENDS without match or BREAKS with match)
+						if (relaxation == null) {
+							problem.setFalse(mod, new Explanation(ErrorKind.HARD_DEP_INCOMPATIBLE_PRESELECTED, mod, dep));
+						} else {
+							incompatible = true;
 						}
+					}
 
+					if (relaxation == null) {
 						continue;
-					} else if (dep.matches(selectedMod.getVersion())) {
+					} else if (dep.matches(selectedMod.getVersion())) { // the fix may remove preselected mods, so they need to be part of the constraint
 						suitableMods.add(selectedMod);
 					}
 				}
 
-				List<? extends DomainObject.Mod> availableMods = modsById.get(dep.getModId());
+				List<ModCandidate> availableMods = modsById.get(dep.getModId());
 
 				if (availableMods != null) {
-					for (DomainObject.Mod m : availableMods) {
+					for (ModCandidate m : availableMods) {
 						if (dep.matches(m.getVersion())) suitableMods.add(m);
 					}
 				}
 
-				if (installableMods != null) {
-					availableMods = installableMods.get(dep.getModId());
-
-					if (availableMods != null) {
-						for (DomainObject.Mod m : availableMods) {
-							if (dep.matches(m.getVersion())) suitableMods.add(m);
+				switch (dep.getKind()) {
+				case DEPENDS: { // strong dep
+					Explanation explanation = new Explanation(ErrorKind.HARD_DEP, mod, dep);
+
+					if (relaxation != null) {
+						if (selectedMod == null || incompatible) {
+							DomainObject var = getCreateDisableDepVar(dep, relaxation.disabledDeps);
+							if (incompatible) relaxation.forcedDisabledDeps.add(var);
+							suitableMods.add(var);
 						}
-					}
-				}
 
-				switch (dep.getKind()) {
-				case DEPENDS: // strong dep
-					if (depDisableSim) {
-						suitableMods.add(getCreateDisableDepVar(dep, disabledDeps));
+						suitableMods.add(relaxation.createInstallVar(dep.getModId(), dep, false, explanation));
 					}
 
 					if (suitableMods.isEmpty()) {
-						dependencyHelper.setFalse(mod, new Explanation(ErrorKind.HARD_DEP_NO_CANDIDATE, mod, dep));
+						problem.setFalse(mod, new Explanation(ErrorKind.HARD_DEP_NO_CANDIDATE, mod, dep));
 					} else {
-						dependencyHelper.implication(mod).implies(suitableMods.toArray(new DomainObject[0])).named(new Explanation(ErrorKind.HARD_DEP, mod, dep));
+						problem.implication(explanation, mod, suitableMods.toArray(new DomainObject[0]));
 					}
 
 					break;
+				}
 				case RECOMMENDS: // soft dep
 					// this will prioritize greedy over non-greedy loaded mods, regardless of modPrioComparator due to the objective weights
 
@@ -756,27 +1042,33 @@ final class ModSolver {
 					suitableMods.removeIf(m -> ((ModCandidate) m).getLoadCondition().ordinal() > ModLoadCondition.IF_RECOMMENDED.ordinal());
 
 					if (!suitableMods.isEmpty()) {
-						suitableMods.add(getCreateDummy(dep.getModId(), OptionalDepVar::new, dummyMods, priorities.size(), weightedObjects));
-						dependencyHelper.implication(mod).implies(suitableMods.toArray(new DomainObject[0])).named(new Explanation(ErrorKind.SOFT_DEP, mod, dep));
+						suitableMods.add(getCreateDummy(dep.getModId(), OptionalDepVar::new, dummyMods, priorities.size(), objective));
+						problem.implication(new Explanation(ErrorKind.SOFT_DEP, mod, dep), mod, suitableMods.toArray(new DomainObject[0]));
 					}
 
 					break;
-				case BREAKS: // strong negative dep
-					if (!suitableMods.isEmpty()) {
-						if (depDisableSim) {
-							DomainObject var = getCreateDisableDepVar(dep, disabledDeps);
+				case BREAKS: { // strong negative dep
+					Explanation explanation = new Explanation(ErrorKind.NEG_HARD_DEP, mod, dep);
+
+					if (relaxation != null) {
+						relaxation.negDeps.add(explanation);
+
+						if (!suitableMods.isEmpty()) {
+							DomainObject var = getCreateDisableDepVar(dep, relaxation.disabledDeps);
+							if (incompatible) relaxation.forcedDisabledDeps.add(var);
 
 							for (DomainObject match : suitableMods) {
-								dependencyHelper.implication(mod).implies(new NegatedDomainObject(match), var).named(new Explanation(ErrorKind.NEG_HARD_DEP, mod, dep));
-							}
-						} else {
-							for (DomainObject match : suitableMods) {
-								dependencyHelper.implication(mod).impliesNot(match).named(new Explanation(ErrorKind.NEG_HARD_DEP, mod, dep));
+								problem.implication(explanation, mod, new NegatedDomainObject(match), var);
 							}
 						}
+					} else {
+						for (DomainObject match : suitableMods) {
+							problem.implication(explanation, mod, new NegatedDomainObject(match));
+						}
 					}
 
 					break;
+				}
 				case CONFLICTS:
 					// TODO: soft negative dep?
 					break;
@@ -797,19 +1089,19 @@ final class ModSolver {
 					Explanation explanation = new Explanation(ErrorKind.NESTED_FORCELOAD, mod.getParentMods().iterator().next(), mod.getId()); // FIXME: this applies to all parents
 					DomainObject[] siblings = modsById.get(mod.getId()).toArray(new DomainObject[0]);
 
-					if (isAnyParentSelected(mod, selectedMods)) {
-						dependencyHelper.clause(explanation, siblings);
+					if (ModResolver.isAnyParentSelected(mod, selectedMods)) {
+						problem.clause(explanation, siblings);
 					} else {
 						for (ModCandidate parent : mod.getParentMods()) {
-							dependencyHelper.implication(parent).implies(siblings).named(explanation);
+							problem.implication(explanation, parent, siblings);
 						}
 					}
 				}
 
 				// require parent to be selected with the nested mod
 
-				if (!isAnyParentSelected(mod, selectedMods)) {
-					dependencyHelper.implication(mod).implies(mod.getParentMods().toArray(new DomainObject[0])).named(new Explanation(ErrorKind.NESTED_REQ_PARENT, mod));
+				if (!ModResolver.isAnyParentSelected(mod, selectedMods)) {
+					problem.implication(new Explanation(ErrorKind.NESTED_REQ_PARENT, mod), mod, mod.getParentMods().toArray(new DomainObject[0]));
 				}
 			}
 
@@ -822,10 +1114,10 @@ final class ModSolver {
 				if (mod.getLoadCondition().ordinal() >= ModLoadCondition.IF_RECOMMENDED.ordinal()) { // non-greedy (optional)
 					weight = TWO.pow(prio + 1);
 				} else { // greedy
-					weight = TWO.pow(allModsSorted.size() - prio).negate();
+					weight = TWO.pow(priorities.size() - prio).negate(); // global mod count, the weights have to be independent of the component being solved
 				}
 
-				weightedObjects.add(WeightedObject.newWO(mod, weight));
+				objective.put(mod, weight);
 			}
 		}
 
@@ -838,9 +1130,9 @@ final class ModSolver {
 
 			// force-load root mod
 
-			if (variants.size() == 1 && !removalSim) { // trivial case, others are handled by multi-variant impl
+			if (variants.size() == 1 && relaxation == null) { // trivial case, others are handled by multi-variant impl
 				if (firstMod.isRoot() && firstMod.getLoadCondition() == ModLoadCondition.ALWAYS) {
-					dependencyHelper.setTrue(firstMod, new Explanation(ErrorKind.ROOT_FORCELOAD_SINGLE, firstMod));
+					problem.setTrue(firstMod, new Explanation(ErrorKind.ROOT_FORCELOAD_SINGLE, firstMod));
 				}
 			} else { // complex case, potentially multiple variants
 				boolean isRequired = false;
@@ -853,96 +1145,157 @@ final class ModSolver {
 				}
 
 				if (isRequired) {
-					if (removalSim) {
-						int prio = priorities.size() + 10;
-						if (installableMods != null) prio += installableMods.getOrDefault(id, Collections.emptyList()).size();
-
-						suitableMods.add(getCreateDummy(id, RemoveModVar::new, dummyMods, prio, weightedObjects));
-					}
+					Explanation explanation = new Explanation(ErrorKind.ROOT_FORCELOAD, id);
 
-					if (installableMods != null) {
-						List<AddModVar> installable = installableMods.get(id);
-						if (installable != null) suitableMods.addAll(installable);
+					if (relaxation != null) {
+						suitableMods.add(relaxation.createRemoveVar(id));
+						suitableMods.add(relaxation.createInstallVar(id, null, false, explanation));
 					}
 
 					suitableMods.addAll(variants);
 
-					dependencyHelper.clause(new Explanation(ErrorKind.ROOT_FORCELOAD, id), suitableMods.toArray(new DomainObject[0]));
+					problem.clause(explanation, suitableMods.toArray(new DomainObject[0]));
 					suitableMods.clear();
 				}
 			}
 
-			// single mod per id constraint
+			// single mod per id constraint (extended with the mods to add by addInstallableMods)
 
-			suitableMods.addAll(variants);
+			if (variants.size() > 1 // multiple options
+					|| enableOptional && firstMod.getLoadCondition() == ModLoadCondition.IF_POSSIBLE) { // optional greedy loading
+				problem.atMostOne(new Explanation(ErrorKind.UNIQUE_ID, id), variants.toArray(new DomainObject[0]));
+			}
+		}
+	}
+
+	/**
+	 * Add the mods to install to the relaxed problem for the fix computation.
+	 *
+	 * <p>This binds the install variables created by the relaxed setup to the suitable mods and adds the related negative
+	 * dependency, unique id and objective function entries.
+	 */
+	private static void addInstallableMods(Map<String, List<ModCandidate>> modsById,
+			Map<ModCandidate, Integer> priorities, Map<String, ModCandidate> selectedMods,
+			Map<String, List<AddModVar>> installableMods, Relaxation relaxation,
+			ResolverBackend.Problem problem) throws ModResolutionException {
+		List<DomainObject> suitableMods = new ArrayList<>();
 
-			if (installableMods != null) {
-				List<AddModVar> installable = installableMods.get(id);
+		// constraints that may be satisfied by installing a mod
 
-				if (installable != null && !installable.isEmpty()) {
-					suitableMods.addAll(installable);
+		for (InstallVar var : relaxation.installVars) {
+			List<AddModVar> installable = installableMods.get(var.getId());
 
-					ModCandidate mod = selectedMods.get(id);
-					if (mod != null) suitableMods.add(mod);
+			if (installable != null) {
+				for (AddModVar mod : installable) {
+					if (var.dep == null || var.dep.matches(mod.getVersion())) suitableMods.add(mod);
 				}
 			}
 
-			if (suitableMods.size() > 1 // multiple options
-					|| enableOptional && firstMod.getLoadCondition() == ModLoadCondition.IF_POSSIBLE) { // optional greedy loading
-				dependencyHelper.atMost(1, suitableMods.toArray(new DomainObject[0])).named(new Explanation(ErrorKind.UNIQUE_ID, id));
+			if (!suitableMods.isEmpty()) {
+				problem.implication(var.explanation, var, suitableMods.toArray(new DomainObject[0]));
+			} else if (!var.optional) {
+				problem.setFalse(var, var.explanation);
 			}
 
 			suitableMods.clear();
 		}
 
-		// add weights and missing unique id constraints for installable mods
+		// negative deps
 
-		if (installableMods != null) {
-			for (List<AddModVar> variants : installableMods.values()) {
-				String id = variants.get(0).getId();
-				boolean isReplacement = modsById.containsKey(id);
+		for (Explanation explanation : relaxation.negDeps) {
+			List<AddModVar> installable = installableMods.get(explanation.dep.getModId());
+			if (installable == null) continue;
 
-				if (!isReplacement) { // no single mod per id constraint created yet
-					suitableMods.addAll(variants);
+			for (AddModVar mod : installable) {
+				if (!explanation.dep.matches(mod.getVersion())) continue;
+
+				if (explanation.error == ErrorKind.PRESELECT_NEG_HARD_DEP) {
+					problem.setFalse(mod, explanation);
+				} else {
+					problem.implication(explanation, explanation.mod, new NegatedDomainObject(mod));
+				}
+			}
+		}
 
-					ModCandidate selectedMod = selectedMods.get(id);
-					if (selectedMod != null) suitableMods.add(selectedMod);
+		// removal weights, removing is more expensive than replacing
 
-					if (suitableMods.size() > 1) {
-						dependencyHelper.atMost(1, suitableMods.toArray(new DomainObject[0])).named(new Explanation(ErrorKind.UNIQUE_ID, id));
-					}
+		for (RemoveModVar var : relaxation.removeVars) {
+			int prio = priorities.size() + 10 + installableMods.getOrDefault(var.getId(), Collections.emptyList()).size();
+			problem.addToObjectiveFunction(var, TWO.pow(prio + 2));
+		}
 
-					suitableMods.clear();
-				}
+		// single mod per id constraints and weights for installable mods
 
-				for (int i = 0; i < variants.size(); i++) {
-					AddModVar mod = variants.get(i);
-					int weight = priorities.size() + 4 + i;
-					if (isReplacement) weight += 3;
-					if (mod.hadOnlyOutboundDepFailures) weight++;
+		for (List<AddModVar> variants : installableMods.values()) {
+			String id = variants.get(0).getId();
+			List<ModCandidate> mods = modsById.get(id);
+			boolean isReplacement = mods != null;
 
-					weightedObjects.add(WeightedObject.newWO(mod, TWO.pow(weight)));
-				}
+			suitableMods.addAll(variants);
+			if (isReplacement) suitableMods.addAll(mods);
+
+			ModCandidate selectedMod = selectedMods.get(id);
+			if (selectedMod != null) suitableMods.add(selectedMod);
+
+			if (suitableMods.size() > 1) {
+				problem.atMostOne(new Explanation(ErrorKind.UNIQUE_ID, id), suitableMods.toArray(new DomainObject[0]));
+			}
+
+			suitableMods.clear();
+
+			for (int i = 0; i < variants.size(); i++) {
+				AddModVar mod = variants.get(i);
+				int weight = priorities.size() + 4 + i;
+				if (isReplacement) weight += 3;
+				if (mod.hadOnlyOutboundDepFailures) weight++;
+
+				problem.addToObjectiveFunction(mod, TWO.pow(weight));
 			}
 		}
 	}
 
 	private static final BigInteger TWO = BigInteger.valueOf(2);
 
-	private static DependencyHelper<DomainObject, Explanation> createDepHelper(IPBSolver solver) {
-		DependencyHelper<DomainObject, Explanation> ret = new DependencyHelper<>(solver); // new LexicoHelper<>(solver)
-		ret.setNegator(negator);
+	/**
+	 * Get the time budget for a regular solve or the failure analysis in seconds, <= 0 for no limit.
+	 */
+	private static int getResolutionTimeout() {
+		return Integer.getInteger(SystemProperties.DEBUG_RESOLUTION_TIMEOUT, 60);
+	}
 
-		return ret;
+	/**
+	 * Get the {@link System#nanoTime} value to give up at for a time budget in seconds, 0 for none.
+	 */
+	private static long getDeadline(int timeout) {
+		if (timeout <= 0) return 0;
+
+		long ret = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeout);
+
+		return ret != 0 ? ret : 1;
+	}
+
+	/**
+	 * Get the time left until a deadline as a time budget in seconds, rounded up.
+	 *
+	 * @param deadline {@link System#nanoTime} value to give up at, 0 for none
+	 * @throws ResolverBackend.TimeoutException if the deadline has already passed
+	 */
+	private static int getRemainingTimeout(long deadline) throws ResolverBackend.TimeoutException {
+		if (deadline == 0) return 0;
+
+		long remaining = deadline - System.nanoTime();
+		if (remaining <= 0) throw new ResolverBackend.TimeoutException();
+
+		return (int) Math.min(Integer.MAX_VALUE, (remaining + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
 	}
 
-	private static DomainObject getCreateDummy(String id, Function<String, DomainObject> supplier, Map<String, DomainObject> duplicateMap, int modCount, List<WeightedObject<DomainObject>> weightedObjects) {
+	private static DomainObject getCreateDummy(String id, Function<String, DomainObject> supplier, Map<String, DomainObject> duplicateMap, int modCount, Map<DomainObject, BigInteger> objective) {
 		DomainObject ret = duplicateMap.get(id);
 		if (ret != null) return ret;
 
 		ret = supplier.apply(id);
 		int weight = modCount + 2;
-		weightedObjects.add(WeightedObject.newWO(ret, TWO.pow(weight)));
+		objective.put(ret, TWO.pow(weight));
 
 		return ret;
 	}
@@ -954,12 +1307,95 @@ final class ModSolver {
 		return entry.getKey();
 	}
 
-	private static void applyDisableDepVarWeights(Map<ModDependency, Map.Entry<DomainObject, Integer>> map, int modCount, List<WeightedObject<DomainObject>> weightedObjects) {
+	private static void applyDisableDepVarWeights(Map<ModDependency, Map.Entry<DomainObject, Integer>> map, int modCount, Map<DomainObject, BigInteger> objective) {
 		BigInteger baseWeight = TWO.pow(modCount + 3);
 
 		for (Map.Entry<DomainObject, Integer> entry : map.values()) {
 			int count = entry.getValue();
-			weightedObjects.add(WeightedObject.newWO(entry.getKey(), count > 1 ? baseWeight.multiply(BigInteger.valueOf(count)) : baseWeight));
+			objective.put(entry.getKey(), count > 1 ? baseWeight.multiply(BigInteger.valueOf(count)) : baseWeight);
+		}
+	}
+
+	/**
+	 * Relaxation state shared by the failure analysis and the fix computation.
+	 *
+	 * <p>Both solve the same constraints, which get generated only once. The failure analysis keeps the preselected mods
+	 * and may disable deps, the fix computation may add or remove mods instead. The variables of the respective other
+	 * mode are fixed through assumptions, so the second solve reuses the solver state of the first.
+	 */
+	private static final class Relaxation {
+		final Map<ModDependency, Map.Entry<DomainObject, Integer>> disabledDeps = new LinkedHashMap<>();
+		final Set<DomainObject> forcedDisabledDeps = new LinkedHashSet<>();
+		final List<ModCandidate> keptMods = new ArrayList<>();
+		final List<InstallVar> installVars = new ArrayList<>();
+		final List<RemoveModVar> removeVars = new ArrayList<>();
+		final List<Explanation> negDeps = new ArrayList<>();
+
+		InstallVar createInstallVar(String id, ModDependency dep, boolean optional, Explanation explanation) {
+			InstallVar ret = new InstallVar(id, dep, optional, explanation);
+			installVars.add(ret);
+
+			return ret;
+		}
+
+		RemoveModVar createRemoveVar(String id) {
+			RemoveModVar ret = new RemoveModVar(id);
+			removeVars.add(ret);
+
+			return ret;
+		}
+
+		List<DomainObject> getFailureAssumptions() {
+			List<DomainObject> ret = new ArrayList<>(keptMods.size() + forcedDisabledDeps.size() + installVars.size() + removeVars.size());
+			ret.addAll(keptMods);
+			ret.addAll(forcedDisabledDeps);
+
+			for (InstallVar var : installVars) {
+				ret.add(new NegatedDomainObject(var));
+			}
+
+			for (RemoveModVar var : removeVars) {
+				ret.add(new NegatedDomainObject(var));
+			}
+
+			return ret;
+		}
+
+		List<DomainObject> getFixAssumptions() {
+			List<DomainObject> ret = new ArrayList<>(disabledDeps.size());
+
+			for (Map.Entry<DomainObject, Integer> entry : disabledDeps.values()) {
+				ret.add(new NegatedDomainObject(entry.getKey()));
+			}
+
+			return ret;
+		}
+	}
+
+	/**
+	 * Relaxation for a constraint that may be satisfied by installing a mod, bound to the mods to add by addInstallableMods.
+	 */
+	private static final class InstallVar implements DomainObject {
+		private final String id;
+		final ModDependency dep; // null for any version
+		final boolean optional; // whether the constraint is dropped if there is no suitable mod to add
+		final Explanation explanation;
+
+		InstallVar(String id, ModDependency dep, boolean optional, Explanation explanation) {
+			this.id = id;
+			this.dep = dep;
+			this.optional = optional;
+			this.explanation = explanation;
+		}
+
+		@Override
+		public String getId() {
+			return id;
+		}
+
+		@Override
+		public String toString() {
+			return "install:"+getId();
 		}
 	}
 
@@ -1053,44 +1489,6 @@ final class ModSolver {
 		}
 	}
 
-	private static final class NegatedDomainObject implements DomainObject {
-		private final DomainObject obj;
-
-		NegatedDomainObject(DomainObject obj) {
-			this.obj = obj;
-		}
-
-		@Override
-		public String getId() {
-			return obj.getId();
-		}
-
-		@Override
-		public String toString() {
-			return "!"+obj;
-		}
-	}
-
-	private static final INegator negator = new INegator() {
-		@Override
-		public Object unNegate(Object thing) {
-			return ((NegatedDomainObject) thing).obj;
-		}
-
-		@Override
-		public boolean isNegated(Object thing) {
-			return thing instanceof NegatedDomainObject;
-		}
-	};
-
-	static boolean isAnyParentSelected(ModCandidate mod, Map<String, ModCandidate> selectedMods) {
-		for (ModCandidate parentMod : mod.getParentMods()) {
-			if (selectedMods.get(parentMod.getId()) == parentMod) return true;
-		}
-
-		return false;
-	}
-
 	static boolean hasAllDepsSatisfied(ModCandidate mod, Map<String, ModCandidate> mods) {
 		for (ModDependency dep : mod.getDependencies()) {
 			if (dep.getKind() == ModDependency.Kind.DEPENDS) {
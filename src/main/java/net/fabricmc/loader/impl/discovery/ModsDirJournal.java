@@ -0,0 +1,268 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Persistent change journal for a mods directory.
+ *
+ * <p>The journal stores the mod files found by the last scan together with the directory's modification time, which
+ * allows the next launch to skip listing the directory if no files were added, removed or renamed since. While the game
+ * runs, a {@link WatchService} records further changes to the directory: structural changes invalidate the stored
+ * listing, content changes mark the affected files as modified so their previous scan results aren't reused even if
+ * their size and modification time are unchanged.
+ *
+ * <p>Changes made while no game is running are only detected through the modification times, the per-jar checks of
+ * {@link ModScanIndex} cover those for the individual files.
+ */
+final class ModsDirJournal {
+	private static final int MAGIC = 0x464d444a; // FMDJ
+	private static final int FORMAT_VERSION = 1;
+	private static final long MTIME_GRANULARITY_MS = 2000; // coarsest common file system timestamp resolution (FAT)
+
+	private final Path file;
+	private final Path modsDir;
+	private final long prevDirModified;
+	private final long prevListingTime;
+	private final List<String> prevListing; // null if unknown or invalidated by the watcher
+	private final Set<String> prevModified;
+
+	private long dirModified;
+	private long listingTime;
+	private List<String> listing;
+	private boolean listingChanged;
+	private final Set<String> modified = new HashSet<>();
+
+	private ModsDirJournal(Path file, Path modsDir, long prevDirModified, long prevListingTime, List<String> prevListing, Set<String> prevModified) {
+		this.file = file;
+		this.modsDir = modsDir;
+		this.prevDirModified = prevDirModified;
+		this.prevListingTime = prevListingTime;
+		this.prevListing = prevListing;
+		this.prevModified = prevModified;
+	}
+
+	static ModsDirJournal load(Path file, Path modsDir) {
+		modsDir = modsDir.toAbsolutePath().normalize();
+
+		if (Files.exists(file)) {
+			try (DataInputStream is = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+				if (is.readInt() == MAGIC
+						&& is.readInt() == FORMAT_VERSION
+						&& is.readUTF().equals(modsDir.toString())) {
+					long dirModified = is.readLong();
+					long listingTime = is.readLong();
+					boolean listingValid = is.readBoolean();
+					List<String> listing = readNames(is, new ArrayList<>());
+					Set<String> modified = readNames(is, new HashSet<>());
+
+					return new ModsDirJournal(file, modsDir, dirModified, listingTime, listingValid ? listing : null, modified);
+				} else {
+					Log.debug(LogCategory.DISCOVERY, "Discarding incompatible mods dir journal %s", file);
+				}
+			} catch (IOException e) {
+				Log.debug(LogCategory.DISCOVERY, "Error reading mods dir journal %s, ignoring", file, e);
+			}
+		}
+
+		return new ModsDirJournal(file, modsDir, -1, -1, null, Collections.emptySet());
+	}
+
+	private static <T extends Collection<String>> T readNames(DataInputStream is, T out) throws IOException {
+		int count = is.readInt();
+
+		for (int i = 0; i < count; i++) {
+			out.add(is.readUTF());
+		}
+
+		return out;
+	}
+
+	/**
+	 * Get the files whose content changed while the directory was watched since the last scan.
+	 */
+	List<Path> getModifiedFiles() {
+		List<Path> ret = new ArrayList<>(prevModified.size());
+
+		for (String name : prevModified) {
+			Path path = modsDir.resolve(name);
+			if (Files.exists(path)) ret.add(path);
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Start watching the directory and record its current state, to be called before listing it.
+	 *
+	 * @return the mod files from the last scan if the directory didn't change structurally since, null otherwise
+	 */
+	List<Path> beginScan() {
+		startWatching();
+
+		listingTime = System.currentTimeMillis();
+
+		try {
+			dirModified = Files.getLastModifiedTime(modsDir).toMillis();
+		} catch (IOException e) {
+			dirModified = -1;
+		}
+
+		if (prevListing == null
+				|| dirModified < 0
+				|| dirModified != prevDirModified
+				|| prevDirModified + MTIME_GRANULARITY_MS >= prevListingTime) { // changes within the timestamp resolution may be missed
+			return null;
+		}
+
+		List<Path> ret = new ArrayList<>(prevListing.size());
+
+		for (String name : prevListing) {
+			ret.add(modsDir.resolve(name));
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Record the mod files found by the current scan for the next launch.
+	 */
+	synchronized void endScan(List<Path> files) {
+		List<String> names = new ArrayList<>(files.size());
+
+		for (Path path : files) {
+			names.add(path.getFileName().toString());
+		}
+
+		listing = names;
+		save();
+	}
+
+	private void startWatching() {
+		WatchService watchService;
+
+		try {
+			watchService = modsDir.getFileSystem().newWatchService();
+			modsDir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+		} catch (IOException | UnsupportedOperationException e) {
+			Log.debug(LogCategory.DISCOVERY, "Can't watch mods dir %s: %s", modsDir, e);
+			return;
+		}
+
+		Thread thread = new Thread(() -> watch(watchService), "Fabric Mods Dir Watcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private void watch(WatchService watchService) {
+		try {
+			for (;;) {
+				WatchKey key = watchService.take();
+
+				synchronized (this) {
+					for (WatchEvent<?> event : key.pollEvents()) {
+						if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+							listingChanged = true;
+							if (listing != null) modified.addAll(listing);
+							continue;
+						}
+
+						String name = ((Path) event.context()).getFileName().toString();
+						if (!name.endsWith(".jar") || name.startsWith(".")) continue;
+
+						if (event.kind() != StandardWatchEventKinds.ENTRY_MODIFY) {
+							listingChanged = true;
+						}
+
+						if (event.kind() != StandardWatchEventKinds.ENTRY_DELETE) {
+							modified.add(name);
+						}
+					}
+
+					if (listing != null) save();
+				}
+
+				if (!key.reset()) break; // directory is gone
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// stopped
+		}
+	}
+
+	private synchronized void save() {
+		Path tmpFile = null;
+
+		try {
+			Files.createDirectories(file.toAbsolutePath().getParent());
+			tmpFile = Files.createTempFile(file.toAbsolutePath().getParent(), "modsDirJournal", ".tmp");
+
+			try (DataOutputStream os = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+				os.writeInt(MAGIC);
+				os.writeInt(FORMAT_VERSION);
+				os.writeUTF(modsDir.toString());
+				os.writeLong(dirModified);
+				os.writeLong(listingTime);
+				os.writeBoolean(!listingChanged);
+				writeNames(listing, os);
+				writeNames(modified, os);
+			}
+
+			Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			tmpFile = null;
+		} catch (IOException e) {
+			Log.warn(LogCategory.DISCOVERY, "Error writing mods dir journal %s", file, e);
+		} finally {
+			if (tmpFile != null) {
+				try {
+					Files.deleteIfExists(tmpFile);
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	private static void writeNames(Collection<String> names, DataOutputStream os) throws IOException {
+		os.writeInt(names.size());
+
+		for (String name : names) {
+			os.writeUTF(name);
+		}
+	}
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import net.fabricmc.api.EnvType;
+import net.fabricmc.loader.api.metadata.ModDependency;
+import net.fabricmc.loader.api.metadata.version.VersionPredicate;
+import net.fabricmc.loader.impl.FabricLoaderImpl;
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Persistent record of the last successful mod resolution.
+ *
+ * <p>The lock stores a fingerprint for every mod candidate together with whether it was selected. A fingerprint covers
+ * everything the solver considers: id, version, provided ids, dependencies after overrides, origin, nested jar digest
+ * and the parent mods it is nested in. If the next launch produces exactly the same fingerprints for the same
+ * environment, the previous selection is the solver's answer again and can be restored without solving.
+ *
+ * <p>{@link ModResolver} still verifies a restored selection against the current candidates and falls back to solving
+ * if anything doesn't check out.
+ */
+final class ResolutionLock {
+	private static final int MAGIC = 0x46524c4b; // FRLK
+	private static final int FORMAT_VERSION = 1;
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+
+	private final Path file;
+	private final String environment;
+	private final Map<String, ModCandidate> candidates;
+	private final Map<String, byte[]> fingerprints;
+
+	private ResolutionLock(Path file, String environment, Map<String, ModCandidate> candidates, Map<String, byte[]> fingerprints) {
+		this.file = file;
+		this.environment = environment;
+		this.candidates = candidates;
+		this.fingerprints = fingerprints;
+	}
+
+	/**
+	 * Fingerprint the current mod candidates.
+	 *
+	 * @return the lock for the candidates, null if they can't be identified unambiguously
+	 */
+	static ResolutionLock create(Path file, Collection<ModCandidate> mods, EnvType envType, Map<String, Set<ModCandidate>> envDisabledMods) {
+		Map<ModCandidate, String> keys = new IdentityHashMap<>(mods.size());
+		Map<String, ModCandidate> candidates = new HashMap<>(mods.size());
+
+		for (ModCandidate mod : mods) {
+			String key = mod.getId()+" "+mod.getVersion().getFriendlyString()+" "+mod.getLocalPath();
+
+			if (candidates.put(key, mod) != null) {
+				Log.debug(LogCategory.RESOLUTION, "Not using resolution lock, ambiguous mod candidate %s", key);
+				return null;
+			}
+
+			keys.put(mod, key);
+		}
+
+		MessageDigest digest;
+
+		try {
+			digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+
+		Map<String, byte[]> fingerprints = new HashMap<>(mods.size());
+		StringBuilder sb = new StringBuilder();
+
+		for (ModCandidate mod : mods) {
+			sb.setLength(0);
+			sb.append(keys.get(mod));
+			sb.append('\n').append(mod.getMetadata().getSchemaVersion());
+			sb.append('\n').append(mod.isBuiltin());
+			sb.append('\n').append(new TreeSet<>(mod.getProvides()));
+
+			for (ModDependency dep : mod.getDependencies()) {
+				Set<String> predicates = new TreeSet<>();
+
+				for (VersionPredicate predicate : dep.getVersionRequirements()) {
+					predicates.add(predicate.toString());
+				}
+
+				sb.append('\n').append(dep.getKind().getKey()).append(' ').append(dep.getModId()).append(' ').append(predicates);
+			}
+
+			Set<String> parents = new TreeSet<>();
+
+			for (ModCandidate parent : mod.getParentMods()) {
+				String key = keys.get(parent);
+				parents.add(key != null ? key : "?"+parent.getLocalPath());
+			}
+
+			sb.append('\n').append(mod.isRoot()).append(' ').append(parents);
+
+			digest.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+			if (mod.getDigest() != null) digest.update(mod.getDigest());
+			fingerprints.put(keys.get(mod), digest.digest());
+		}
+
+		Set<String> disabledIds = new TreeSet<>(envDisabledMods.keySet());
+		String environment = FabricLoaderImpl.VERSION+" "+envType.name()+" "+disabledIds;
+
+		return new ResolutionLock(file, environment, candidates, fingerprints);
+	}
+
+	/**
+	 * Load the selection stored for the same candidates.
+	 *
+	 * @return the previously selected candidates or null if the lock is missing or doesn't match
+	 */
+	List<ModCandidate> load() {
+		if (!Files.exists(file)) return null;
+
+		try (DataInputStream is = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (is.readInt() != MAGIC
+					|| is.readInt() != FORMAT_VERSION
+					|| !is.readUTF().equals(environment)) {
+				Log.debug(LogCategory.RESOLUTION, "Resolution lock %s is for a different environment", file);
+				return null;
+			}
+
+			int count = is.readInt();
+
+			if (count != fingerprints.size()) {
+				Log.debug(LogCategory.RESOLUTION, "Resolution lock %s is for %d instead of %d mod candidates", file, count, fingerprints.size());
+				return null;
+			}
+
+			List<ModCandidate> ret = new ArrayList<>();
+			byte[] fingerprint = new byte[32];
+
+			for (int i = 0; i < count; i++) {
+				String key = is.readUTF();
+				is.readFully(fingerprint);
+				boolean selected = is.readBoolean();
+
+				if (!Arrays.equals(fingerprint, fingerprints.get(key))) {
+					Log.debug(LogCategory.RESOLUTION, "Resolution lock %s doesn't match mod candidate %s", file, key);
+					return null;
+				}
+
+				if (selected) ret.add(candidates.get(key));
+			}
+
+			return ret;
+		} catch (IOException e) {
+			Log.debug(LogCategory.RESOLUTION, "Error reading resolution lock %s, ignoring", file, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Store the selection found by the solver.
+	 */
+	void save(Collection<ModCandidate> selectedMods) {
+		Set<ModCandidate> selected = Collections.newSetFromMap(new IdentityHashMap<>(selectedMods.size()));
+		selected.addAll(selectedMods);
+		Path tmpFile = null;
+
+		try {
+			Files.createDirectories(file.toAbsolutePath().getParent());
+			tmpFile = Files.createTempFile(file.toAbsolutePath().getParent(), "resolutionLock", ".tmp");
+
+			try (DataOutputStream os = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+				os.writeInt(MAGIC);
+				os.writeInt(FORMAT_VERSION);
+				os.writeUTF(environment);
+				os.writeInt(fingerprints.size());
+
+				for (Map.Entry<String, ModCandidate> entry : candidates.entrySet()) {
+					os.writeUTF(entry.getKey());
+					os.write(fingerprints.get(entry.getKey()));
+					os.writeBoolean(selected.contains(entry.getValue()));
+				}
+			}
+
+			Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			tmpFile = null;
+		} catch (IOException e) {
+			Log.warn(LogCategory.RESOLUTION, "Error writing resolution lock %s", file, e);
+		} finally {
+			if (tmpFile != null) {
+				try {
+					Files.deleteIfExists(tmpFile);
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+	}
+}
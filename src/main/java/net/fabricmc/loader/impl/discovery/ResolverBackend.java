@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Solver backend for the constraint problems built by {@link ModSolver}.
+ *
+ * <p>A problem consists of named boolean constraints over domain objects and a linear objective function to minimize.
+ * Domain objects wrapped in {@link NegatedDomainObject} stand for their negation. The constraint names are used to
+ * explain why a problem has no solution.
+ *
+ * <p>Problems are confined to the thread using them, but multiple problems may be solved concurrently.
+ */
+interface ResolverBackend {
+	String getName();
+
+	Problem createProblem();
+
+	interface Problem {
+		/**
+		 * Require at least one of the objects to be true.
+		 */
+		void clause(Explanation name, DomainObject... objs) throws ModResolutionException;
+
+		/**
+		 * Require at least one of the conclusions to be true if the premise is true.
+		 */
+		void implication(Explanation name, DomainObject premise, DomainObject... conclusions) throws ModResolutionException;
+
+		/**
+		 * Require at most one of the objects to be true.
+		 */
+		void atMostOne(Explanation name, DomainObject... objs) throws ModResolutionException;
+
+		void setTrue(DomainObject obj, Explanation name) throws ModResolutionException;
+
+		void setFalse(DomainObject obj, Explanation name) throws ModResolutionException;
+
+		/**
+		 * Add a term to the objective function, weights for the same object add up.
+		 */
+		void addToObjectiveFunction(DomainObject obj, BigInteger weight);
+
+		/**
+		 * Find a solution minimizing the objective function under the given assumptions.
+		 *
+		 * <p>Constraints may be added between calls, the problem is solved incrementally. If the time limit is reached
+		 * after finding a solution, the best solution so far is kept and {@link #isOptimal()} returns false.
+		 *
+		 * @param timeout time limit in seconds, <= 0 for no limit
+		 * @return whether there is a solution
+		 * @throws TimeoutException if the time limit was reached before finding any solution
+		 */
+		boolean solve(Collection<DomainObject> assumptions, int timeout) throws TimeoutException;
+
+		/**
+		 * Determine whether the solution of the last {@link #solve} call is proven to be optimal.
+		 */
+		boolean isOptimal();
+
+		/**
+		 * Get the objects being true in the solution of the last successful {@link #solve} call.
+		 */
+		List<DomainObject> getSolution();
+
+		/**
+		 * Get the names of a minimal set of constraints without solution under the assumptions of the last failed
+		 * {@link #solve} call.
+		 */
+		Set<Explanation> why() throws TimeoutException;
+
+		/**
+		 * Get the number of solutions found by the last {@link #solve} call, each one improving on the previous one.
+		 */
+		int getSolutionCount();
+
+		/**
+		 * Get the number of conflicts encountered so far, cumulative over all {@link #solve} calls.
+		 */
+		long getConflicts();
+
+		/**
+		 * Get the number of decisions made so far, cumulative over all {@link #solve} calls.
+		 */
+		long getDecisions();
+
+		/**
+		 * Release the problem's resources, it mustn't be used afterwards.
+		 */
+		void reset();
+	}
+
+	@SuppressWarnings("serial")
+	final class TimeoutException extends Exception {
+		TimeoutException() {
+			super("Solving timed out");
+		}
+	}
+}
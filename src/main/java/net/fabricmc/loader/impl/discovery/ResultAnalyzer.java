@@ -56,7 +56,7 @@ final class ResultAnalyzer {
 			boolean suggestFix = true;
 
 			if (result.fix != null) {
-				pw.printf("\n%s", Localization.format("resolution.solutionHeader"));
+				pw.printf("\n%s", Localization.format(result.fix.optimal ? "resolution.solutionHeader" : "resolution.solutionHeader.incomplete"));
 
 				formatFix(result.fix, result, selectedMods, modsById, envDisabledMods, envType, pw);
 
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.sat4j.pb.OptToPBSATAdapter;
+import org.sat4j.pb.PseudoOptDecorator;
+import org.sat4j.pb.SolverFactory;
+import org.sat4j.pb.tools.DependencyHelper;
+import org.sat4j.pb.tools.INegator;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.IVecInt;
+import org.sat4j.tools.SolutionFoundListener;
+
+/**
+ * Backend using SAT4J's pseudo-boolean optimizer through its {@link DependencyHelper}.
+ */
+final class Sat4jResolverBackend implements ResolverBackend {
+	static final String NAME = "sat4j";
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public Problem createProblem() {
+		return new Sat4jProblem();
+	}
+
+	/**
+	 * Problem built through a {@link DependencyHelper}.
+	 *
+	 * <p>SAT4J's optimizer keeps the bound from its last optimization as a constraint, which would restrict later solves
+	 * with other assumptions or objective terms. Every solve after the first one thus starts over with a fresh optimizer
+	 * and the recorded constraints.
+	 */
+	private static final class Sat4jProblem implements Problem, SolutionFoundListener {
+		private final List<Operation> operations = new ArrayList<>();
+		private OptToPBSATAdapter solver;
+		private DependencyHelper<DomainObject, Explanation> dependencyHelper;
+		private boolean solved;
+		private long retiredConflicts;
+		private long retiredDecisions;
+		private int solutions;
+
+		Sat4jProblem() {
+			createSolver();
+		}
+
+		private void createSolver() {
+			solver = new OptToPBSATAdapter(new PseudoOptDecorator(SolverFactory.newDefault())); // same as SolverFactory.newDefaultOptimizer()
+			dependencyHelper = new DependencyHelper<>(solver); // new LexicoHelper<>(solver)
+			dependencyHelper.setNegator(negator);
+		}
+
+		@Override
+		public void clause(Explanation name, DomainObject... objs) throws ModResolutionException {
+			add(helper -> helper.clause(name, objs));
+		}
+
+		@Override
+		public void implication(Explanation name, DomainObject premise, DomainObject... conclusions) throws ModResolutionException {
+			add(helper -> helper.implication(premise).implies(conclusions).named(name));
+		}
+
+		@Override
+		public void atMostOne(Explanation name, DomainObject... objs) throws ModResolutionException {
+			add(helper -> helper.atMost(1, objs).named(name));
+		}
+
+		@Override
+		public void setTrue(DomainObject obj, Explanation name) throws ModResolutionException {
+			add(helper -> helper.setTrue(obj, name));
+		}
+
+		@Override
+		public void setFalse(DomainObject obj, Explanation name) throws ModResolutionException {
+			add(helper -> helper.setFalse(obj, name));
+		}
+
+		@Override
+		public void addToObjectiveFunction(DomainObject obj, BigInteger weight) {
+			Operation operation = helper -> helper.addToObjectiveFunction(obj, weight);
+			operations.add(operation);
+			apply(operation);
+		}
+
+		private void add(Operation operation) throws ModResolutionException {
+			operations.add(operation);
+
+			try {
+				operation.apply(dependencyHelper);
+			} catch (ContradictionException e) {
+				throw new ModResolutionException("Solving failed", e);
+			}
+		}
+
+		private void apply(Operation operation) {
+			try {
+				operation.apply(dependencyHelper);
+			} catch (ContradictionException e) { // already applied successfully before
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		public boolean solve(Collection<DomainObject> assumptions, int timeout) throws TimeoutException {
+			// the optimization loop runs under a single timer, SAT4J keeps the best model if it expires after finding one
+			if (solved) { // drop the bound left by the previous optimization
+				retiredConflicts += getStat("conflicts");
+				retiredDecisions += getStat("decisions");
+				dependencyHelper.reset();
+				createSolver();
+
+				for (Operation operation : operations) {
+					apply(operation);
+				}
+			}
+
+			solved = true;
+			solver.setTimeoutMs(timeout > 0 ? timeout * 1000L : Integer.MAX_VALUE);
+			solver.setSolutionFoundListener(this);
+			solutions = 0;
+
+			try {
+				return dependencyHelper.hasASolution(assumptions);
+			} catch (org.sat4j.specs.TimeoutException e) {
+				throw new TimeoutException();
+			} finally {
+				solver.setSolutionFoundListener(SolutionFoundListener.VOID);
+			}
+		}
+
+		@Override
+		public boolean isOptimal() {
+			return solver.isOptimal();
+		}
+
+		@Override
+		public List<DomainObject> getSolution() {
+			return new ArrayList<>(dependencyHelper.getASolution());
+		}
+
+		@Override
+		public Set<Explanation> why() throws TimeoutException {
+			try {
+				return dependencyHelper.why();
+			} catch (org.sat4j.specs.TimeoutException e) {
+				throw new TimeoutException();
+			}
+		}
+
+		@Override
+		public int getSolutionCount() {
+			return solutions;
+		}
+
+		@Override
+		public long getConflicts() {
+			return retiredConflicts + getStat("conflicts");
+		}
+
+		@Override
+		public long getDecisions() {
+			return retiredDecisions + getStat("decisions");
+		}
+
+		private long getStat(String key) {
+			Map<String, Number> stats = solver.getStat();
+			Number ret = stats.get(key);
+
+			return ret != null ? ret.longValue() : 0;
+		}
+
+		@Override
+		public void reset() {
+			operations.clear();
+			dependencyHelper.reset();
+		}
+
+		@Override
+		public void onSolutionFound(int[] solution) {
+			solutions++;
+		}
+
+		@Override
+		public void onSolutionFound(IVecInt solution) {
+			solutions++;
+		}
+
+		@Override
+		public void onUnsatTermination() { }
+	}
+
+	/**
+	 * Constraint or objective term recorded for applying it to a fresh optimizer.
+	 */
+	@FunctionalInterface
+	private interface Operation {
+		void apply(DependencyHelper<DomainObject, Explanation> helper) throws ContradictionException;
+	}
+
+	private static final INegator negator = new INegator() {
+		@Override
+		public Object unNegate(Object thing) {
+			return ((NegatedDomainObject) thing).obj;
+		}
+
+		@Override
+		public boolean isNegated(Object thing) {
+			return thing instanceof NegatedDomainObject;
+		}
+	};
+}
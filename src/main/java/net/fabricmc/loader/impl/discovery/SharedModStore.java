@@ -0,0 +1,345 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Content addressed store for extracted nested mods, shared between multiple game instances.
+ *
+ * <p>Nested mod jars are stored once per SHA-256 digest of their content and hard linked into each instance's
+ * processed mods dir, falling back to copying if the store is on another file system. Each instance records the blobs
+ * it uses in its own reference file, blobs no longer referenced by any instance are garbage collected. Blobs are
+ * verified against their digest when they are reused with a different size or modification time than recorded in the
+ * reference file and replaced if they were modified.
+ *
+ * <p>Blobs and reference files are written to temporary files first and atomically moved into place, so concurrent
+ * launchers either see a complete file or none. Garbage collection and reference updates are serialized through a lock
+ * file, blobs are additionally only collected after a grace period since their last use to not race with launchers
+ * that are about to reference them.
+ */
+public final class SharedModStore {
+	private static final String BLOB_DIR_NAME = "blobs";
+	private static final String REFS_DIR_NAME = "refs";
+	private static final String LOCK_FILE_NAME = "store.lock";
+	private static final String BLOB_EXTENSION = ".jar";
+	private static final long GC_GRACE_PERIOD_MS = TimeUnit.HOURS.toMillis(1);
+
+	private final Path storeDir;
+	private final Path gameDir;
+	private final Path refsFile;
+	private final Map<String, Ref> previousRefs; // instance file name -> blob, from the last launch
+	private final Map<String, Ref> refs = new ConcurrentHashMap<>(); // instance file name -> blob
+
+	public SharedModStore(Path storeDir, Path gameDir) {
+		this.storeDir = storeDir.toAbsolutePath().normalize();
+		this.gameDir = gameDir.toAbsolutePath().normalize();
+		this.refsFile = this.storeDir.resolve(REFS_DIR_NAME).resolve(toHex(digest(this.gameDir.toString().getBytes(StandardCharsets.UTF_8))).substring(0, 16)+".txt");
+		this.previousRefs = readRefs(refsFile, null);
+	}
+
+	/**
+	 * Provide a nested mod's jar in the output dir, sourcing it from the store.
+	 *
+	 * @return the path of the mod's jar within the output dir
+	 */
+	public Path link(ModCandidate mod, Path outputDir) throws IOException {
+		Path ret = outputDir.resolve(mod.getDefaultFileName());
+		String fileName = ret.getFileName().toString();
+		Ref ref = previousRefs.get(fileName);
+
+		if (ref != null
+				&& (mod.getDigest() == null || ref.digest.equals(toHex(mod.getDigest())))
+				&& Files.exists(ret) && Files.size(ret) == ModCandidate.getSize(mod.getHash())) { // unchanged since the last launch
+			Path blob = getBlobPath(ref.digest);
+
+			// the blob is still referenced by this instance's reference file, so it doesn't need protection from gc
+
+			if (ref.matches(blob)) {
+				refs.put(fileName, ref);
+
+				return ret;
+			} else if (isIntact(blob, ref.digest)) {
+				refs.put(fileName, new Ref(ref.digest, blob));
+
+				return ret;
+			}
+		}
+
+		ByteBuffer data = null;
+		String digest;
+
+		if (mod.getDigest() != null) {
+			digest = toHex(mod.getDigest());
+		} else {
+			data = mod.getData();
+			digest = toHex(ModCandidate.computeDigest(data));
+		}
+
+		Path blob = getBlobPath(digest);
+
+		if (isIntact(blob, digest)) {
+			Files.setLastModifiedTime(blob, FileTime.fromMillis(System.currentTimeMillis())); // protect from concurrent gc
+		} else {
+			Files.createDirectories(blob.getParent());
+			Path tmp = Files.createTempFile(blob.getParent(), digest, ".tmp");
+
+			try {
+				ModCandidate.writeData(data != null ? data : mod.getData(), tmp);
+				Files.move(tmp, blob, StandardCopyOption.ATOMIC_MOVE);
+			} catch (FileAlreadyExistsException e) {
+				// written concurrently by another launcher, same content
+			} finally {
+				Files.deleteIfExists(tmp);
+			}
+		}
+
+		Files.createDirectories(outputDir);
+		Path tmp = outputDir.resolve(fileName+".tmp");
+		Files.deleteIfExists(tmp);
+
+		try {
+			try {
+				Files.createLink(tmp, blob);
+			} catch (IOException | UnsupportedOperationException e) { // different file store or no hard link support
+				Log.debug(LogCategory.GENERAL, "Can't hard link %s into %s, copying instead: %s", blob, outputDir, e);
+				Files.copy(blob, tmp);
+			}
+
+			Files.move(tmp, ret, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+
+		refs.put(fileName, new Ref(digest, blob));
+
+		return ret;
+	}
+
+	/**
+	 * Check whether a blob exists with the expected content, removing it if it doesn't.
+	 *
+	 * <p>Instance files are usually hard links to their blob, so anything rewriting a mod jar in an instance's processed
+	 * mods dir in place also modifies the blob for every other instance without changing its size.
+	 */
+	private static boolean isIntact(Path blob, String digest) throws IOException {
+		if (!Files.exists(blob)) return false;
+		if (toHex(ModScanIndex.computeDigest(blob)).equals(digest)) return true;
+
+		Log.warn(LogCategory.GENERAL, "Shared mod store blob %s was modified, replacing it", blob);
+		Files.deleteIfExists(blob); // instances still linking the old file get relinked on their next launch
+
+		return false;
+	}
+
+	/**
+	 * Record this instance's used blobs and remove blobs that aren't used by any instance anymore.
+	 */
+	public void commit() {
+		try {
+			Files.createDirectories(refsFile.getParent());
+
+			try (FileChannel channel = FileChannel.open(storeDir.resolve(LOCK_FILE_NAME), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+					FileLock lock = channel.lock()) {
+				writeRefs();
+				collectGarbage();
+			}
+		} catch (IOException e) {
+			Log.warn(LogCategory.GENERAL, "Error updating shared mod store %s", storeDir, e);
+		}
+	}
+
+	private void writeRefs() throws IOException {
+		if (refs.equals(previousRefs)) return;
+
+		Path tmp = Files.createTempFile(refsFile.getParent(), "refs", ".tmp");
+
+		try {
+			try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+				writer.write(gameDir.toString());
+				writer.newLine();
+
+				for (Map.Entry<String, Ref> entry : refs.entrySet()) {
+					Ref ref = entry.getValue();
+
+					writer.write(String.format("%s %d %d %s", ref.digest, ref.size, ref.modificationTime, entry.getKey()));
+					writer.newLine();
+				}
+			}
+
+			Files.move(tmp, refsFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	private void collectGarbage() throws IOException {
+		Set<String> usedDigests = new HashSet<>();
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(refsFile.getParent(), "*.txt")) {
+			for (Path file : stream) {
+				Map<String, Ref> instanceRefs = readRefs(file, usedDigests);
+
+				if (instanceRefs == null) { // instance is gone
+					Log.debug(LogCategory.GENERAL, "Removing shared mod store references for deleted instance %s", file);
+					Files.deleteIfExists(file);
+				}
+			}
+		}
+
+		Path blobDir = storeDir.resolve(BLOB_DIR_NAME);
+		if (!Files.isDirectory(blobDir)) return;
+
+		long minTime = System.currentTimeMillis() - GC_GRACE_PERIOD_MS;
+		int removed = 0;
+
+		try (DirectoryStream<Path> prefixDirs = Files.newDirectoryStream(blobDir)) {
+			for (Path prefixDir : prefixDirs) {
+				if (!Files.isDirectory(prefixDir)) continue;
+
+				try (DirectoryStream<Path> blobs = Files.newDirectoryStream(prefixDir)) {
+					for (Path blob : blobs) {
+						String name = blob.getFileName().toString();
+						if (!name.endsWith(BLOB_EXTENSION)) continue; // in-flight temp file
+
+						String digest = name.substring(0, name.length() - BLOB_EXTENSION.length());
+
+						if (!usedDigests.contains(digest) && Files.getLastModifiedTime(blob).toMillis() < minTime) {
+							Files.deleteIfExists(blob);
+							removed++;
+						}
+					}
+				}
+			}
+		}
+
+		if (removed > 0) Log.debug(LogCategory.GENERAL, "Removed %d unused blobs from shared mod store %s", removed, storeDir);
+	}
+
+	/**
+	 * Read an instance's reference file.
+	 *
+	 * @param digestsOut collection receiving all referenced digests, may be null
+	 * @return file name to blob map, empty if the file doesn't exist and null if the instance no longer exists
+	 */
+	private static Map<String, Ref> readRefs(Path file, Set<String> digestsOut) {
+		Map<String, Ref> ret = new HashMap<>();
+		if (!Files.exists(file)) return ret;
+
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String instanceDir = reader.readLine();
+			if (digestsOut != null && (instanceDir == null || !Files.isDirectory(file.getFileSystem().getPath(instanceDir)))) return null;
+
+			String line;
+
+			while ((line = reader.readLine()) != null) {
+				String[] parts = line.split(" ", 4); // digest, size, modification time, instance file name
+				if (parts.length != 4) continue;
+
+				ret.put(parts[3], new Ref(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2])));
+				if (digestsOut != null) digestsOut.add(parts[0]);
+			}
+		} catch (IOException | NumberFormatException e) {
+			Log.warn(LogCategory.GENERAL, "Error reading shared mod store references %s", file, e);
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Blob referenced by an instance file, with the blob's size and modification time when it was last verified.
+	 */
+	private static final class Ref {
+		final String digest;
+		final long size;
+		final long modificationTime;
+
+		Ref(String digest, Path blob) throws IOException {
+			this(digest, Files.size(blob), Files.getLastModifiedTime(blob).toMillis());
+		}
+
+		Ref(String digest, long size, long modificationTime) {
+			this.digest = digest;
+			this.size = size;
+			this.modificationTime = modificationTime;
+		}
+
+		/**
+		 * Determine whether the blob is unchanged since it was last verified, without hashing its content.
+		 */
+		boolean matches(Path blob) throws IOException {
+			if (!Files.exists(blob)) return false;
+
+			return Files.size(blob) == size && Files.getLastModifiedTime(blob).toMillis() == modificationTime;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Ref)) return false;
+
+			Ref o = (Ref) obj;
+
+			return digest.equals(o.digest) && size == o.size && modificationTime == o.modificationTime;
+		}
+
+		@Override
+		public int hashCode() {
+			return digest.hashCode() ^ Long.hashCode(size) ^ Long.hashCode(modificationTime);
+		}
+	}
+
+	private Path getBlobPath(String digest) {
+		return storeDir.resolve(BLOB_DIR_NAME).resolve(digest.substring(0, 2)).resolve(digest+BLOB_EXTENSION);
+	}
+
+	private static byte[] digest(byte[] data) {
+		return ModCandidate.computeDigest(ByteBuffer.wrap(data));
+	}
+
+	private static String toHex(byte[] data) {
+		StringBuilder ret = new StringBuilder(data.length * 2);
+
+		for (byte b : data) {
+			ret.append(Character.forDigit((b >>> 4) & 0xf, 16));
+			ret.append(Character.forDigit(b & 0xf, 16));
+		}
+
+		return ret.toString();
+	}
+}
@@ -0,0 +1,363 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Minimal zip reader operating directly on a buffer holding the whole archive, typically a memory mapped jar or a
+ * nested jar within one.
+ *
+ * <p>Entries are located through the central directory, STORED entry data is returned as a slice of the archive buffer
+ * without copying, DEFLATED entry data is inflated into an exactly sized heap buffer and checked against its CRC. Zip64
+ * and encrypted archives are rejected with a {@link ZipException}, callers are expected to fall back to the regular zip
+ * streams for those.
+ */
+final class ZipBufferReader {
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	private static final int END_HEADER_SIGNATURE = 0x06054b50;
+	private static final int ZIP64_END_LOCATOR_SIGNATURE = 0x07064b50;
+	private static final int LOCAL_HEADER_SIZE = 30;
+	private static final int CENTRAL_HEADER_SIZE = 46;
+	private static final int END_HEADER_SIZE = 22;
+	private static final int ZIP64_END_LOCATOR_SIZE = 20;
+	private static final int MAX_COMMENT_SIZE = 0xffff;
+
+	private final ByteBuffer buffer;
+	private final int centralDirStart;
+	private final int centralDirEnd;
+	private final int entryCount;
+	private final int offsetShift; // archive start within the buffer, non-zero for prefixed archives
+
+	/**
+	 * Memory map a file for reading.
+	 */
+	static ByteBuffer map(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) throw new ZipException("file too large to map: "+path);
+
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		}
+	}
+
+	/**
+	 * Read the data of a single entry from an archive in a buffer, falling back to a zip stream for archives that
+	 * can't be processed directly.
+	 *
+	 * @return the entry data or null if there is no entry with the supplied name
+	 */
+	static ByteBuffer readEntry(ByteBuffer archive, String name) throws IOException {
+		ZipBufferReader reader;
+
+		try {
+			reader = new ZipBufferReader(archive);
+		} catch (ZipException e) {
+			try (ZipInputStream zis = new ZipInputStream(new ByteBufferInputStream(archive))) {
+				ZipEntry entry;
+
+				while ((entry = zis.getNextEntry()) != null) {
+					if (entry.getName().equals(name)) {
+						return ModDiscoverer.readMod(zis);
+					}
+				}
+			}
+
+			return null;
+		}
+
+		Entry entry = reader.getEntry(name);
+
+		return entry != null ? reader.getData(entry) : null;
+	}
+
+	ZipBufferReader(ByteBuffer archive) throws ZipException {
+		ByteBuffer buffer = archive.slice().order(ByteOrder.LITTLE_ENDIAN);
+		int end = findEndHeader(buffer);
+
+		if (end >= ZIP64_END_LOCATOR_SIZE && buffer.getInt(end - ZIP64_END_LOCATOR_SIZE) == ZIP64_END_LOCATOR_SIGNATURE) {
+			throw new ZipException("zip64 archive");
+		}
+
+		int entryCount = Short.toUnsignedInt(buffer.getShort(end + 10));
+		long centralDirSize = Integer.toUnsignedLong(buffer.getInt(end + 12));
+		long centralDirOffset = Integer.toUnsignedLong(buffer.getInt(end + 16));
+
+		if (entryCount == 0xffff || centralDirSize == 0xffffffffL || centralDirOffset == 0xffffffffL) {
+			throw new ZipException("zip64 archive");
+		}
+
+		if (centralDirSize > end) throw new ZipException("invalid central directory size");
+
+		this.buffer = buffer;
+		this.centralDirStart = end - (int) centralDirSize;
+		this.centralDirEnd = end;
+		this.entryCount = entryCount;
+		this.offsetShift = centralDirStart - (int) centralDirOffset;
+
+		if (offsetShift < 0) throw new ZipException("invalid central directory offset");
+	}
+
+	private static int findEndHeader(ByteBuffer buffer) throws ZipException {
+		int min = Math.max(0, buffer.limit() - END_HEADER_SIZE - MAX_COMMENT_SIZE);
+
+		for (int pos = buffer.limit() - END_HEADER_SIZE; pos >= min; pos--) {
+			if (buffer.getInt(pos) == END_HEADER_SIGNATURE
+					&& pos + END_HEADER_SIZE + Short.toUnsignedInt(buffer.getShort(pos + 20)) == buffer.limit()) {
+				return pos;
+			}
+		}
+
+		throw new ZipException("no end of central directory record");
+	}
+
+	/**
+	 * Find an entry by its exact name.
+	 *
+	 * <p>This is a linear scan through the central directory that compares the raw name bytes, it doesn't allocate for
+	 * non-matching entries.
+	 */
+	Entry getEntry(String name) throws ZipException {
+		byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+		int pos = centralDirStart;
+
+		for (int i = 0; i < entryCount; i++) {
+			if (pos + CENTRAL_HEADER_SIZE > centralDirEnd || buffer.getInt(pos) != CENTRAL_HEADER_SIGNATURE) {
+				throw new ZipException("invalid central directory header");
+			}
+
+			int nameLen = Short.toUnsignedInt(buffer.getShort(pos + 28));
+			int extraLen = Short.toUnsignedInt(buffer.getShort(pos + 30));
+			int commentLen = Short.toUnsignedInt(buffer.getShort(pos + 32));
+
+			if (nameLen == nameBytes.length && nameEquals(pos + CENTRAL_HEADER_SIZE, nameBytes)) {
+				return readEntry(pos, name);
+			}
+
+			pos += CENTRAL_HEADER_SIZE + nameLen + extraLen + commentLen;
+		}
+
+		return null;
+	}
+
+	private boolean nameEquals(int pos, byte[] name) {
+		for (int i = 0; i < name.length; i++) {
+			if (buffer.get(pos + i) != name[i]) return false;
+		}
+
+		return true;
+	}
+
+	private Entry readEntry(int pos, String name) throws ZipException {
+		int flags = Short.toUnsignedInt(buffer.getShort(pos + 8));
+		if ((flags & 1) != 0) throw new ZipException("encrypted entry "+name);
+
+		int method = Short.toUnsignedInt(buffer.getShort(pos + 10));
+		long crc = Integer.toUnsignedLong(buffer.getInt(pos + 16));
+		long compressedSize = Integer.toUnsignedLong(buffer.getInt(pos + 20));
+		long size = Integer.toUnsignedLong(buffer.getInt(pos + 24));
+		long localHeaderOffset = Integer.toUnsignedLong(buffer.getInt(pos + 42));
+
+		if (compressedSize == 0xffffffffL || size == 0xffffffffL || localHeaderOffset == 0xffffffffL) {
+			throw new ZipException("zip64 entry "+name);
+		}
+
+		return new Entry(name, method, crc, compressedSize, size, localHeaderOffset);
+	}
+
+	/**
+	 * Retrieve an entry's uncompressed data.
+	 *
+	 * <p>The returned buffer is a slice of the archive buffer for STORED entries and a new heap buffer otherwise.
+	 */
+	ByteBuffer getData(Entry entry) throws IOException {
+		ByteBuffer data = getRawData(entry);
+
+		switch (entry.method) {
+		case ZipEntry.STORED:
+			if (entry.compressedSize != entry.size) throw new ZipException("stored entry size mismatch for "+entry.name);
+			return data;
+		case ZipEntry.DEFLATED:
+			return inflate(data, entry);
+		default:
+			throw new ZipException("unsupported compression method "+entry.method+" for "+entry.name);
+		}
+	}
+
+	/**
+	 * Retrieve an entry's data as stored in the archive, without decompressing it.
+	 *
+	 * <p>The returned buffer is always a slice of the archive buffer.
+	 */
+	ByteBuffer getRawData(Entry entry) throws IOException {
+		long start = offsetShift + entry.localHeaderOffset;
+
+		if (start + LOCAL_HEADER_SIZE > centralDirStart || buffer.getInt((int) start) != LOCAL_HEADER_SIGNATURE) {
+			throw new ZipException("invalid local header for "+entry.name);
+		}
+
+		long dataStart = start + LOCAL_HEADER_SIZE
+				+ Short.toUnsignedInt(buffer.getShort((int) start + 26))
+				+ Short.toUnsignedInt(buffer.getShort((int) start + 28));
+
+		if (dataStart + entry.compressedSize > centralDirStart) {
+			throw new ZipException("truncated entry "+entry.name);
+		}
+
+		ByteBuffer data = buffer.duplicate();
+		data.limit((int) (dataStart + entry.compressedSize));
+		data.position((int) dataStart);
+
+		return data.slice();
+	}
+
+	private static ByteBuffer inflate(ByteBuffer input, Entry entry) throws ZipException {
+		if (entry.size > Integer.MAX_VALUE - 8) throw new ZipException("entry too large: "+entry.name);
+
+		byte[] ret = new byte[(int) entry.size];
+		Inflater inflater = new Inflater(true);
+
+		try {
+			byte[] chunk = input.hasArray() ? null : new byte[Math.min(input.remaining(), 16384)];
+			int offset = 0;
+
+			while (offset < ret.length) {
+				if (inflater.needsInput()) {
+					if (!input.hasRemaining()) break;
+
+					if (chunk == null) {
+						inflater.setInput(input.array(), input.arrayOffset() + input.position(), input.remaining());
+						input.position(input.limit());
+					} else {
+						int len = Math.min(chunk.length, input.remaining());
+						input.get(chunk, 0, len);
+						inflater.setInput(chunk, 0, len);
+					}
+				}
+
+				int len = inflater.inflate(ret, offset, ret.length - offset);
+
+				if (len == 0 && (inflater.finished() || inflater.needsDictionary())) {
+					break;
+				}
+
+				offset += len;
+			}
+
+			if (offset != ret.length) throw new ZipException("size mismatch for "+entry.name);
+
+			CRC32 crc = new CRC32();
+			crc.update(ret);
+			if (crc.getValue() != entry.crc) throw new ZipException("crc mismatch for "+entry.name);
+		} catch (DataFormatException e) {
+			throw new ZipException("invalid deflate data for "+entry.name+": "+e.getMessage());
+		} finally {
+			inflater.end();
+		}
+
+		return ByteBuffer.wrap(ret);
+	}
+
+	static final class Entry {
+		final String name;
+		final int method;
+		final long crc;
+		final long compressedSize;
+		final long size;
+		final long localHeaderOffset;
+
+		Entry(String name, int method, long crc, long compressedSize, long size, long localHeaderOffset) {
+			this.name = name;
+			this.method = method;
+			this.crc = crc;
+			this.compressedSize = compressedSize;
+			this.size = size;
+			this.localHeaderOffset = localHeaderOffset;
+		}
+
+		boolean isDirectory() {
+			return name.endsWith("/");
+		}
+
+		/**
+		 * Create a {@link ZipEntry} with the name, method, sizes and crc of this entry.
+		 */
+		ZipEntry toZipEntry() {
+			ZipEntry ret = new ZipEntry(name);
+			ret.setMethod(method);
+			ret.setCrc(crc);
+			ret.setCompressedSize(compressedSize);
+			ret.setSize(size);
+
+			return ret;
+		}
+	}
+
+	/**
+	 * Input stream reading a buffer's remaining content without modifying the buffer.
+	 */
+	static final class ByteBufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer.duplicate();
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) return 0;
+			if (!buffer.hasRemaining()) return -1;
+
+			len = Math.min(len, buffer.remaining());
+			buffer.get(b, off, len);
+
+			return len;
+		}
+
+		@Override
+		public long skip(long n) {
+			int len = (int) Math.max(0, Math.min(n, buffer.remaining()));
+			buffer.position(buffer.position() + len);
+
+			return len;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+}
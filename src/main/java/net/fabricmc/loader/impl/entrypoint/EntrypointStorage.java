@@ -32,6 +32,7 @@ import net.fabricmc.loader.impl.launch.FabricLauncherBase;
 import net.fabricmc.loader.impl.metadata.EntrypointMetadata;
 import net.fabricmc.loader.impl.util.log.Log;
 import net.fabricmc.loader.impl.util.log.LogCategory;
+import net.fabricmc.loader.impl.util.profiler.StartupProfiler;
 
 public final class EntrypointStorage {
 	interface Entry {
@@ -67,8 +68,10 @@ public final class EntrypointStorage {
 		@Override
 		public synchronized <T> T getOrCreate(Class<T> type) throws Exception {
 			if (object == null) {
-				net.fabricmc.loader.language.LanguageAdapter adapter = (net.fabricmc.loader.language.LanguageAdapter) Class.forName(languageAdapter, true, FabricLauncherBase.getLauncher().getTargetClassLoader()).getConstructor().newInstance();
-				object = adapter.createInstance(value, options);
+				try (StartupProfiler.Span span = StartupProfiler.start("entrypointInstantiation", toString())) {
+					net.fabricmc.loader.language.LanguageAdapter adapter = (net.fabricmc.loader.language.LanguageAdapter) Class.forName(languageAdapter, true, FabricLauncherBase.getLauncher().getTargetClassLoader()).getConstructor().newInstance();
+					object = adapter.createInstance(value, options);
+				}
 			}
 
 			if (object == null || !type.isAssignableFrom(object.getClass())) {
@@ -114,7 +117,10 @@ public final class EntrypointStorage {
 			T ret = (T) instanceMap.get(type);
 
 			if (ret == null) {
-				ret = adapter.create(mod, value, type);
+				try (StartupProfiler.Span span = StartupProfiler.start("entrypointInstantiation", toString())) {
+					ret = adapter.create(mod, value, type);
+				}
+
 				assert ret != null;
 				T prev = (T) instanceMap.putIfAbsent(type, ret);
 				if (prev != null) ret = prev;
@@ -47,6 +47,7 @@ import net.fabricmc.loader.impl.util.UrlUtil;
 import net.fabricmc.loader.impl.util.log.Log;
 import net.fabricmc.loader.impl.util.log.LogCategory;
 import net.fabricmc.loader.impl.util.mappings.TinyRemapperMappingsHelper;
+import net.fabricmc.loader.impl.util.profiler.StartupProfiler;
 import net.fabricmc.mappingio.tree.MappingTree;
 import net.fabricmc.tinyremapper.InputTag;
 import net.fabricmc.tinyremapper.NonClassCopyMode;
@@ -237,7 +238,7 @@ public final class GameProviderHelper {
 			emittedInfo = true;
 		}
 
-		try {
+		try (StartupProfiler.Span span = StartupProfiler.start("deobfuscate", gameId+" "+gameVersion)) {
 			Files.createDirectories(deobfJarDir);
 			deobfuscate0(inputFiles, outputFiles, tmpFiles, mappingConfig.getMappings(), targetNamespace, launcher);
 		} catch (IOException e) {
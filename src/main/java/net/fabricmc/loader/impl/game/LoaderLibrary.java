@@ -24,8 +24,6 @@ import org.objectweb.asm.commons.Remapper;
 import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.analysis.Analyzer;
 import org.objectweb.asm.util.CheckClassAdapter;
-import org.sat4j.pb.SolverFactory;
-import org.sat4j.specs.ContradictionException;
 import org.spongepowered.asm.launch.MixinBootstrap;
 
 import net.fabricmc.accesswidener.AccessWidener;
@@ -46,8 +44,8 @@ enum LoaderLibrary {
 	ASM_COMMONS(Remapper.class),
 	ASM_TREE(ClassNode.class),
 	ASM_UTIL(CheckClassAdapter.class),
-	SAT4J_CORE(ContradictionException.class),
-	SAT4J_PB(SolverFactory.class),
+	SAT4J_CORE("org/sat4j/specs/ContradictionException.class"), // located by name, the solver classes are only loaded if needed
+	SAT4J_PB("org/sat4j/pb/SolverFactory.class"),
 	SERVER_LAUNCH("fabric-server-launch.properties", EnvType.SERVER), // installer generated jar to run setup loader's class path
 	SERVER_LAUNCHER("net/fabricmc/installer/ServerLauncher.class", EnvType.SERVER), // installer based launch-through method
 	JUNIT_API("org/junit/jupiter/api/Test.class", null),
@@ -79,6 +77,10 @@ enum LoaderLibrary {
 		this.junitRunOnly = false;
 	}
 
+	LoaderLibrary(String file) {
+		this(getCodeSource(file));
+	}
+
 	LoaderLibrary(String file, EnvType env) {
 		this(file, env, false);
 	}
@@ -100,6 +102,17 @@ enum LoaderLibrary {
 		this(path, null, loggerLibrary);
 	}
 
+	private static Path getCodeSource(String file) {
+		URL url = LoaderLibrary.class.getClassLoader().getResource(file);
+		if (url == null) return null;
+
+		try {
+			return UrlUtil.getCodeSource(url, file);
+		} catch (UrlConversionException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	boolean isApplicable(EnvType env, boolean junitRun) {
 		return (this.env == null || this.env == env)
 				&& (!junitRunOnly || junitRun);
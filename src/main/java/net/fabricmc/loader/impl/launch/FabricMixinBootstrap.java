@@ -43,6 +43,7 @@ import net.fabricmc.loader.impl.launch.knot.MixinServiceKnotBootstrap;
 import net.fabricmc.loader.impl.util.log.Log;
 import net.fabricmc.loader.impl.util.log.LogCategory;
 import net.fabricmc.loader.impl.util.mappings.MixinIntermediaryDevRemapper;
+import net.fabricmc.loader.impl.util.profiler.StartupProfiler;
 import net.fabricmc.mappingio.tree.MappingTree;
 
 public final class FabricMixinBootstrap {
@@ -55,6 +56,14 @@ public final class FabricMixinBootstrap {
 			throw new RuntimeException("FabricMixinBootstrap has already been initialized!");
 		}
 
+		try (StartupProfiler.Span span = StartupProfiler.start("mixinBootstrap")) {
+			init0(side, loader);
+		}
+
+		initialized = true;
+	}
+
+	private static void init0(EnvType side, FabricLoaderImpl loader) {
 		System.setProperty("mixin.bootstrapService", MixinServiceKnotBootstrap.class.getName());
 		System.setProperty("mixin.service", MixinServiceKnot.class.getName());
 
@@ -90,7 +99,7 @@ public final class FabricMixinBootstrap {
 				ModContainerImpl prev = configToModMap.putIfAbsent(config, mod);
 				if (prev != null) throw new RuntimeException(String.format("Non-unique Mixin config name %s used by the mods %s and %s", config, prev.getMetadata().getId(), mod.getMetadata().getId()));
 
-				try {
+				try (StartupProfiler.Span configSpan = StartupProfiler.start("mixinConfig", config)) {
 					Mixins.addConfiguration(config);
 				} catch (Throwable t) {
 					throw new RuntimeException(String.format("Error creating Mixin config %s for mod %s", config, mod.getMetadata().getId()), t);
@@ -109,8 +118,6 @@ public final class FabricMixinBootstrap {
 		} catch (NoSuchMethodException e) {
 			Log.info(LogCategory.MIXIN, "Detected old Mixin version without config decoration support");
 		}
-
-		initialized = true;
 	}
 
 	private static final class MixinConfigDecorator {
@@ -25,6 +25,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.CodeSource;
@@ -372,6 +373,10 @@ final class KnotClassDelegate<T extends ClassLoader & ClassLoaderAccess> impleme
 			try {
 				if (Files.isDirectory(path)) {
 					manifest = ManifestUtil.readManifest(path);
+				} else if (path.getFileSystem() != FileSystems.getDefault()) { // nested jar, not accessible through jar urls
+					try (FileSystemUtil.FileSystemDelegate jarFs = FileSystemUtil.getJarFileSystem(path, false)) {
+						manifest = ManifestUtil.readManifest(jarFs.get().getRootDirectories().iterator().next());
+					}
 				} else {
 					URLConnection connection = new URL("jar:" + path.toUri().toString() + "!/").openConnection();
 
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.launch.resolve;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.fabricmc.api.EnvType;
+import net.fabricmc.loader.impl.discovery.ModCandidate;
+import net.fabricmc.loader.impl.lib.gson.JsonReader;
+import net.fabricmc.loader.impl.lib.gson.JsonToken;
+import net.fabricmc.loader.impl.util.FileSystemUtil;
+
+/**
+ * Checks the Mixin configs of resolved mods without bootstrapping Mixin.
+ *
+ * <p>Each config has to be unique, present in its mod and valid JSON with a package, and every mixin it lists for the
+ * environment needs a class file in the mod. This covers the common packaging mistakes, it doesn't validate the mixins
+ * themselves.
+ */
+final class MixinConfigChecker {
+	private final EnvType envType;
+	private final Path tmpDir;
+	private final Map<String, String> configToMod = new HashMap<>();
+	private final List<String> errors = new ArrayList<>();
+	private int configCount;
+	private int mixinCount;
+
+	MixinConfigChecker(EnvType envType, Path tmpDir) {
+		this.envType = envType;
+		this.tmpDir = tmpDir;
+	}
+
+	void check(ModCandidate mod) {
+		if (mod.isBuiltin() || mod.getMetadata().getMixinConfigs(envType).isEmpty()) return;
+
+		Path tmpFile = null;
+
+		try {
+			List<Path> paths;
+
+			if (mod.hasPath()) {
+				paths = mod.getPaths();
+			} else {
+				tmpFile = mod.copyToDir(tmpDir, true);
+				paths = Collections.singletonList(tmpFile);
+			}
+
+			for (String config : mod.getMetadata().getMixinConfigs(envType)) {
+				String prev = configToMod.putIfAbsent(config, mod.getId());
+
+				if (prev != null) {
+					errors.add(String.format("Non-unique Mixin config name %s used by the mods %s and %s", config, prev, mod.getId()));
+				} else {
+					checkConfig(mod, config, paths);
+				}
+			}
+		} catch (IOException e) {
+			errors.add(String.format("Error reading mod %s: %s", mod.getId(), e));
+		} finally {
+			if (tmpFile != null) {
+				try {
+					Files.deleteIfExists(tmpFile);
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	private void checkConfig(ModCandidate mod, String config, List<Path> paths) throws IOException {
+		configCount++;
+
+		for (Path path : paths) {
+			if (Files.isDirectory(path)) {
+				if (checkConfig(mod, config, path)) return;
+			} else {
+				try (FileSystemUtil.FileSystemDelegate jarFs = FileSystemUtil.getJarFileSystem(path, false)) {
+					if (checkConfig(mod, config, jarFs.get().getRootDirectories().iterator().next())) return;
+				}
+			}
+		}
+
+		errors.add(String.format("Mixin config %s of mod %s is missing", config, mod.getId()));
+	}
+
+	private boolean checkConfig(ModCandidate mod, String config, Path root) throws IOException {
+		Path file = root.resolve(config);
+		if (!Files.isRegularFile(file)) return false;
+
+		String pkg = null;
+		List<String> mixins = new ArrayList<>();
+
+		try (JsonReader reader = new JsonReader(new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8))) {
+			reader.beginObject();
+
+			while (reader.hasNext()) {
+				String key = reader.nextName();
+
+				switch (key) {
+				case "package":
+					pkg = reader.nextString();
+					break;
+				case "mixins":
+					readMixins(reader, mixins);
+					break;
+				case "client":
+					if (envType == EnvType.CLIENT) {
+						readMixins(reader, mixins);
+					} else {
+						reader.skipValue();
+					}
+
+					break;
+				case "server":
+					if (envType == EnvType.SERVER) {
+						readMixins(reader, mixins);
+					} else {
+						reader.skipValue();
+					}
+
+					break;
+				default:
+					reader.skipValue();
+				}
+			}
+
+			reader.endObject();
+		} catch (IOException | IllegalStateException e) {
+			errors.add(String.format("Invalid Mixin config %s of mod %s: %s", config, mod.getId(), e.getMessage()));
+			return true;
+		}
+
+		if (pkg == null) {
+			if (!mixins.isEmpty()) errors.add(String.format("Mixin config %s of mod %s lists mixins without a package", config, mod.getId()));
+			return true;
+		}
+
+		String pkgPath = pkg.replace('.', '/');
+
+		for (String mixin : mixins) {
+			mixinCount++;
+
+			if (!Files.isRegularFile(root.resolve(pkgPath+"/"+mixin.replace('.', '/')+".class"))) {
+				errors.add(String.format("Mixin %s.%s from config %s of mod %s is missing", pkg, mixin, config, mod.getId()));
+			}
+		}
+
+		return true;
+	}
+
+	private static void readMixins(JsonReader reader, List<String> out) throws IOException {
+		if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+			reader.skipValue();
+			return;
+		}
+
+		reader.beginArray();
+
+		while (reader.hasNext()) {
+			if (reader.peek() == JsonToken.STRING) {
+				out.add(reader.nextString());
+			} else {
+				reader.skipValue();
+			}
+		}
+
+		reader.endArray();
+	}
+
+	List<String> getErrors() {
+		return errors;
+	}
+
+	int getConfigCount() {
+		return configCount;
+	}
+
+	int getMixinCount() {
+		return mixinCount;
+	}
+}
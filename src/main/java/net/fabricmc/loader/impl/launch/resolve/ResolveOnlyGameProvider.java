@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.launch.resolve;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import net.fabricmc.loader.impl.game.GameProvider;
+import net.fabricmc.loader.impl.game.patch.GameTransformer;
+import net.fabricmc.loader.impl.launch.FabricLauncher;
+import net.fabricmc.loader.impl.metadata.BuiltinModMetadata;
+import net.fabricmc.loader.impl.util.Arguments;
+
+/**
+ * Stand-in game provider for {@link ResolveOnlyLauncher}, supplying only the game's builtin mod.
+ *
+ * <p>The game itself is never located or launched, its version is taken as given.
+ */
+final class ResolveOnlyGameProvider implements GameProvider {
+	private final String gameId;
+	private final String gameVersion;
+	private final List<Path> gameJars;
+	private final Path launchDir;
+	private final Arguments arguments = new Arguments();
+
+	ResolveOnlyGameProvider(String gameId, String gameVersion, List<Path> gameJars, Path launchDir) {
+		this.gameId = gameId;
+		this.gameVersion = gameVersion;
+		this.gameJars = gameJars;
+		this.launchDir = launchDir;
+	}
+
+	@Override
+	public String getGameId() {
+		return gameId;
+	}
+
+	@Override
+	public String getGameName() {
+		return gameId;
+	}
+
+	@Override
+	public String getRawGameVersion() {
+		return gameVersion;
+	}
+
+	@Override
+	public String getNormalizedGameVersion() {
+		return gameVersion;
+	}
+
+	@Override
+	public Collection<BuiltinMod> getBuiltinMods() {
+		return Collections.singletonList(new BuiltinMod(gameJars, new BuiltinModMetadata.Builder(gameId, gameVersion).build()));
+	}
+
+	@Override
+	public String getEntrypoint() {
+		return null;
+	}
+
+	@Override
+	public Path getLaunchDirectory() {
+		return launchDir;
+	}
+
+	@Override
+	public boolean isObfuscated() {
+		return false;
+	}
+
+	@Override
+	public boolean requiresUrlClassLoader() {
+		return false;
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return true;
+	}
+
+	@Override
+	public boolean locateGame(FabricLauncher launcher, String[] args) {
+		return true;
+	}
+
+	@Override
+	public void initialize(FabricLauncher launcher) { }
+
+	@Override
+	public GameTransformer getEntrypointTransformer() {
+		return new GameTransformer();
+	}
+
+	@Override
+	public void unlockClassPath(FabricLauncher launcher) {
+		// the class path is never locked, see ResolveOnlyLauncher.setValidParentClassPath
+	}
+
+	@Override
+	public void launch(ClassLoader loader) {
+		// unreachable: ResolveOnlyLauncher stops after resolution and never hands control to the game
+		throw new UnsupportedOperationException("resolve only");
+	}
+
+	@Override
+	public Arguments getArguments() {
+		return arguments;
+	}
+
+	@Override
+	public String[] getLaunchArguments(boolean sanitize) {
+		return new String[0];
+	}
+
+	@Override
+	public boolean canOpenErrorGui() {
+		return false;
+	}
+
+	@Override
+	public boolean hasAwtSupport() {
+		return false;
+	}
+}
@@ -0,0 +1,457 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.launch.resolve;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import net.fabricmc.api.EnvType;
+import net.fabricmc.loader.impl.FabricLoaderImpl;
+import net.fabricmc.loader.impl.discovery.ArgumentModCandidateFinder;
+import net.fabricmc.loader.impl.discovery.ClasspathModCandidateFinder;
+import net.fabricmc.loader.impl.discovery.DirectoryModCandidateFinder;
+import net.fabricmc.loader.impl.discovery.ModCandidate;
+import net.fabricmc.loader.impl.discovery.ModDiscoverer;
+import net.fabricmc.loader.impl.discovery.ModResolutionException;
+import net.fabricmc.loader.impl.discovery.ModResolver;
+import net.fabricmc.loader.impl.discovery.RuntimeModRemapper;
+import net.fabricmc.loader.impl.launch.FabricLauncherBase;
+import net.fabricmc.loader.impl.metadata.DependencyOverrides;
+import net.fabricmc.loader.impl.metadata.VersionOverrides;
+import net.fabricmc.loader.impl.util.Arguments;
+import net.fabricmc.loader.impl.util.SystemProperties;
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Headless entry point that only discovers and resolves mods, for validating mod sets without launching the game.
+ *
+ * <p>Usage: {@code java -cp <fabric-loader and its libraries> net.fabricmc.loader.impl.launch.resolve.ResolveOnlyLauncher
+ * --gameVersion <version> [--gameId minecraft] [--gameJar <paths>] [--gameDir .] [--modsDir <gameDir>/mods]
+ * [--side server|client] [--output <file>] [--mixins] [--remap]}
+ *
+ * <p>The game version has to be given in its normalized form as used for dependency matching. {@code --mixins} checks
+ * the resolved mods' Mixin configs, {@code --remap} additionally runs the runtime mod remapping into a temporary
+ * directory (development environment only).
+ *
+ * <p>A JSON report with the resolved mods, errors, warnings and timings is written to the output file or stdout, all
+ * logging goes to stderr. The exit code is 0 on success, 1 if any errors were found and 2 for invalid arguments or
+ * unexpected failures.
+ */
+public final class ResolveOnlyLauncher extends FabricLauncherBase {
+	private static final boolean IS_DEVELOPMENT = Boolean.parseBoolean(System.getProperty(SystemProperties.DEVELOPMENT, "false"));
+
+	private final EnvType envType;
+	private final List<Path> classPath = new ArrayList<>();
+
+	private final List<String> errors = new ArrayList<>();
+	private final List<String> warnings = new ArrayList<>();
+	private final Map<String, Double> timings = new HashMap<>();
+	private List<ModCandidate> mods = Collections.emptyList();
+	private MixinConfigChecker mixinChecker;
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+
+		PrintStream out = System.out;
+		System.setOut(System.err); // keep stdout for the report
+
+		System.exit(run(args, out));
+	}
+
+	static int run(String[] args, PrintStream out) {
+		Arguments arguments = new Arguments();
+		arguments.parse(args);
+
+		String gameVersion = arguments.get("gameVersion");
+		String side = arguments.getOrDefault("side", "server");
+		EnvType envType;
+
+		switch (side.toLowerCase(Locale.ROOT)) {
+		case "client":
+			envType = EnvType.CLIENT;
+			break;
+		case "server":
+			envType = EnvType.SERVER;
+			break;
+		default:
+			envType = null;
+		}
+
+		if (gameVersion == null || gameVersion.isEmpty() || envType == null) {
+			System.err.println("usage: ResolveOnlyLauncher --gameVersion <version> [--gameId minecraft] [--gameJar <paths>] [--gameDir .] "
+					+ "[--modsDir <gameDir>/mods] [--side server|client] [--output <file>] [--mixins] [--remap]");
+			return 2;
+		}
+
+		Path gameDir = Paths.get(arguments.getOrDefault("gameDir", ".")).toAbsolutePath().normalize();
+		Path modsDir = arguments.containsKey("modsDir") ? Paths.get(arguments.get("modsDir")) : gameDir.resolve("mods");
+		List<Path> gameJars = new ArrayList<>();
+
+		if (arguments.containsKey("gameJar")) {
+			for (String path : arguments.get("gameJar").split(File.pathSeparator)) {
+				if (!path.isEmpty()) gameJars.add(Paths.get(path).toAbsolutePath().normalize());
+			}
+		}
+
+		String gameId = arguments.getOrDefault("gameId", "minecraft");
+		ResolveOnlyLauncher launcher = new ResolveOnlyLauncher(envType);
+		int ret;
+
+		try {
+			launcher.resolve(new ResolveOnlyGameProvider(gameId, gameVersion, gameJars, gameDir),
+					modsDir, hasFlag(arguments, "mixins"), hasFlag(arguments, "remap"));
+			ret = launcher.errors.isEmpty() ? 0 : 1;
+		} catch (Throwable t) {
+			Log.error(LogCategory.GENERAL, "Mod resolution failed unexpectedly", t);
+			launcher.errors.add(getStackTrace(t));
+			ret = 2;
+		}
+
+		String report = launcher.createReport(gameId, gameVersion);
+
+		try {
+			if (arguments.containsKey("output")) {
+				Path file = Paths.get(arguments.get("output"));
+				if (file.toAbsolutePath().getParent() != null) Files.createDirectories(file.toAbsolutePath().getParent());
+				Files.write(file, report.getBytes(StandardCharsets.UTF_8));
+			} else {
+				out.print(report);
+				out.flush();
+			}
+		} catch (IOException e) {
+			Log.error(LogCategory.GENERAL, "Error writing report", e);
+			return 2;
+		}
+
+		return ret;
+	}
+
+	private static boolean hasFlag(Arguments arguments, String name) {
+		return arguments.containsKey(name) && !"false".equalsIgnoreCase(arguments.get(name))
+				|| arguments.getExtraArgs().contains("--"+name); // trailing flag without value
+	}
+
+	private ResolveOnlyLauncher(EnvType envType) {
+		this.envType = envType;
+
+		for (String cpEntry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+			if (cpEntry.isEmpty() || cpEntry.equals("*") || cpEntry.endsWith(File.separator + "*")) continue;
+
+			Path path = Paths.get(cpEntry);
+			if (Files.exists(path)) classPath.add(path.toAbsolutePath().normalize());
+		}
+	}
+
+	private void resolve(ResolveOnlyGameProvider provider, Path modsDir, boolean checkMixins, boolean remap) throws IOException {
+		Log.finishBuiltinConfig();
+		Log.info(LogCategory.GAME_PROVIDER, "Resolving mods for %s %s with Fabric Loader %s", provider.getGameName(), provider.getRawGameVersion(), FabricLoaderImpl.VERSION);
+
+		long startTime = System.nanoTime();
+		FabricLoaderImpl loader = FabricLoaderImpl.INSTANCE;
+		loader.setGameProvider(provider);
+
+		// discover mods
+
+		ModDiscoverer discoverer = new ModDiscoverer(new VersionOverrides(), new DependencyOverrides(provider.getLaunchDirectory().resolve("config")));
+		discoverer.addCandidateFinder(new ClasspathModCandidateFinder());
+		discoverer.addCandidateFinder(new DirectoryModCandidateFinder(modsDir, IS_DEVELOPMENT));
+		discoverer.addCandidateFinder(new ArgumentModCandidateFinder(IS_DEVELOPMENT));
+
+		Map<String, Set<ModCandidate>> envDisabledMods = new HashMap<>();
+		List<ModCandidate> candidates;
+
+		try {
+			candidates = discoverer.discoverMods(loader, envDisabledMods);
+		} catch (ModResolutionException e) {
+			errors.add(e.getMessage());
+			return;
+		} finally {
+			timings.put("discovery", getElapsedMs(startTime));
+		}
+
+		// resolve mods
+
+		long time = System.nanoTime();
+
+		try {
+			mods = ModResolver.resolve(candidates, envType, envDisabledMods);
+		} catch (ModResolutionException e) {
+			errors.add(e.getMessage());
+			return;
+		} finally {
+			timings.put("resolution", getElapsedMs(time));
+		}
+
+		String resolutionWarnings = ModResolver.gatherWarnings(mods, envType, envDisabledMods);
+		if (resolutionWarnings != null) warnings.add(resolutionWarnings);
+
+		Path tmpDir = null;
+
+		try {
+			if (checkMixins || remap) tmpDir = Files.createTempDirectory("fabric-resolve");
+
+			// check mixin configs, before remapping replaces the mod paths
+
+			if (checkMixins) {
+				time = System.nanoTime();
+				mixinChecker = new MixinConfigChecker(envType, tmpDir);
+
+				for (ModCandidate mod : mods) {
+					mixinChecker.check(mod);
+				}
+
+				errors.addAll(mixinChecker.getErrors());
+				timings.put("mixins", getElapsedMs(time));
+			}
+
+			// runtime mod remapping dry run
+
+			if (remap) {
+				time = System.nanoTime();
+
+				if (!IS_DEVELOPMENT || System.getProperty(SystemProperties.REMAP_CLASSPATH_FILE) == null) {
+					warnings.add("Runtime mod remapping skipped, it requires a development environment and "+SystemProperties.REMAP_CLASSPATH_FILE);
+				} else {
+					try {
+						RuntimeModRemapper.remap(mods, tmpDir.resolve("tmp"), tmpDir.resolve("remapped"));
+					} catch (RuntimeException e) {
+						errors.add(getStackTrace(e));
+					}
+				}
+
+				timings.put("remap", getElapsedMs(time));
+			}
+		} finally {
+			discoverer.releaseNestedJarData(Collections.emptyList());
+			if (tmpDir != null) deleteTree(tmpDir);
+		}
+
+		timings.put("total", getElapsedMs(startTime));
+	}
+
+	private static double getElapsedMs(long startTime) {
+		return (System.nanoTime() - startTime) * 1e-6;
+	}
+
+	private static String getStackTrace(Throwable t) {
+		StringWriter sw = new StringWriter();
+		t.printStackTrace(new PrintWriter(sw));
+
+		return sw.toString();
+	}
+
+	private static void deleteTree(Path dir) {
+		try (Stream<Path> stream = Files.walk(dir)) {
+			for (Path path : stream.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+				Files.deleteIfExists(path);
+			}
+		} catch (IOException e) {
+			Log.warn(LogCategory.GENERAL, "Error deleting temporary directory %s", dir, e);
+		}
+	}
+
+	private String createReport(String gameId, String gameVersion) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\n\t\"loaderVersion\": ");
+		appendString(FabricLoaderImpl.VERSION, sb);
+		sb.append(",\n\t\"gameId\": ");
+		appendString(gameId, sb);
+		sb.append(",\n\t\"gameVersion\": ");
+		appendString(gameVersion, sb);
+		sb.append(",\n\t\"environment\": ");
+		appendString(envType.name().toLowerCase(Locale.ROOT), sb);
+		sb.append(",\n\t\"success\": ").append(errors.isEmpty());
+		sb.append(",\n\t\"mods\": [");
+
+		List<ModCandidate> sortedMods = new ArrayList<>(mods);
+		sortedMods.sort(Comparator.comparing(ModCandidate::getId));
+
+		for (int i = 0; i < sortedMods.size(); i++) {
+			ModCandidate mod = sortedMods.get(i);
+
+			sb.append(i == 0 ? "\n\t\t{\"id\": " : ",\n\t\t{\"id\": ");
+			appendString(mod.getId(), sb);
+			sb.append(", \"version\": ");
+			appendString(mod.getVersion().getFriendlyString(), sb);
+			sb.append(", \"origin\": ");
+			appendString(mod.isBuiltin() ? "builtin" : mod.getLocalPath(), sb);
+
+			if (!mod.getParentMods().isEmpty()) {
+				sb.append(", \"parents\": ");
+				appendStrings(mod.getParentMods().stream().map(ModCandidate::getId).sorted().collect(Collectors.toList()), sb);
+			}
+
+			sb.append('}');
+		}
+
+		sb.append(sortedMods.isEmpty() ? "]" : "\n\t]");
+		sb.append(",\n\t\"errors\": ");
+		appendStrings(errors, sb);
+		sb.append(",\n\t\"warnings\": ");
+		appendStrings(warnings, sb);
+
+		if (mixinChecker != null) {
+			sb.append(",\n\t\"mixins\": {\"configs\": ").append(mixinChecker.getConfigCount());
+			sb.append(", \"mixins\": ").append(mixinChecker.getMixinCount()).append('}');
+		}
+
+		sb.append(",\n\t\"timings\": {");
+		boolean first = true;
+
+		for (String phase : new String[] { "discovery", "resolution", "mixins", "remap", "total" }) {
+			Double value = timings.get(phase);
+			if (value == null) continue;
+
+			sb.append(first ? "" : ", ");
+			appendString(phase+"Ms", sb);
+			sb.append(String.format(Locale.ROOT, ": %.3f", value));
+			first = false;
+		}
+
+		sb.append("}\n}\n");
+
+		return sb.toString();
+	}
+
+	private static void appendStrings(Collection<String> strings, StringBuilder sb) {
+		sb.append('[');
+		boolean first = true;
+
+		for (String str : strings) {
+			if (!first) sb.append(", ");
+			appendString(str, sb);
+			first = false;
+		}
+
+		sb.append(']');
+	}
+
+	private static void appendString(String str, StringBuilder sb) {
+		sb.append('"');
+
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+
+			switch (c) {
+			case '"': sb.append("\\\""); break;
+			case '\\': sb.append("\\\\"); break;
+			case '\n': sb.append("\\n"); break;
+			case '\r': sb.append("\\r"); break;
+			case '\t': sb.append("\\t"); break;
+			default:
+				if (c < 0x20) {
+					sb.append(String.format("\\u%04x", (int) c));
+				} else {
+					sb.append(c);
+				}
+			}
+		}
+
+		sb.append('"');
+	}
+
+	@Override
+	public void addToClassPath(Path path, String... allowedPrefixes) {
+		if (!classPath.contains(path)) classPath.add(path);
+	}
+
+	@Override
+	public void setAllowedPrefixes(Path path, String... prefixes) {
+		// nothing is ever loaded from the class path, so there is nothing to restrict
+	}
+
+	@Override
+	public void setValidParentClassPath(Collection<Path> paths) {
+		// nothing is ever loaded from the class path, so there is nothing to restrict
+	}
+
+	@Override
+	public EnvType getEnvironmentType() {
+		return envType;
+	}
+
+	@Override
+	public boolean isClassLoaded(String name) {
+		return false;
+	}
+
+	@Override
+	public Class<?> loadIntoTarget(String name) throws ClassNotFoundException {
+		return getTargetClassLoader().loadClass(name);
+	}
+
+	@Override
+	public InputStream getResourceAsStream(String name) {
+		return getTargetClassLoader().getResourceAsStream(name);
+	}
+
+	@Override
+	public ClassLoader getTargetClassLoader() {
+		return ResolveOnlyLauncher.class.getClassLoader();
+	}
+
+	@Override
+	public byte[] getClassByteArray(String name, boolean runTransformers) throws IOException {
+		return null; // no game classes are provided, same as a class that can't be found
+	}
+
+	@Override
+	public Manifest getManifest(Path originPath) {
+		return null;
+	}
+
+	@Override
+	public boolean isDevelopment() {
+		return IS_DEVELOPMENT;
+	}
+
+	@Override
+	public String getEntrypoint() {
+		return null;
+	}
+
+	@Override
+	public String getTargetNamespace() {
+		return getMappingConfiguration().getTargetNamespace();
+	}
+
+	@Override
+	public List<Path> getClassPath() {
+		return classPath;
+	}
+}
@@ -14,7 +14,7 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  *
- * This file has been modified by the Fabric project (repackage, minor changes).
+ * This file has been modified by the Fabric project (repackage, minor changes, byte input mode).
  */
 
 package net.fabricmc.loader.impl.lib.gson;
@@ -23,6 +23,9 @@ import java.io.Closeable;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 
 /**
@@ -223,7 +226,7 @@ public class JsonReader implements Closeable {
 	private static final int NUMBER_CHAR_EXP_SIGN = 6;
 	private static final int NUMBER_CHAR_EXP_DIGIT = 7;
 
-	/** The input JSON. */
+	/** The input JSON, null if all data was supplied upfront as bytes. */
 	private final Reader in;
 
 	/** True to accept non-spec compliant JSON */
@@ -238,6 +241,8 @@ public class JsonReader implements Closeable {
 	private char[] buffer = new char[8192]; // Fabric - increase buffer size, remove final for resizing
 	private int pos = 0;
 	private int limit = 0;
+	private int dataStart = 0; // Fabric - position after the byte order mark, for rewinding
+	private int valueStart = 0; // Fabric - position of the last peeked value's first character, for nextRawValue
 
 	private int lineNumber = 0;
 	private int lineStart = 0;
@@ -293,6 +298,75 @@ public class JsonReader implements Closeable {
 		this.in = in;
 	}
 
+	/**
+	 * Fabric - Creates a new instance that reads UTF-8 encoded JSON from the
+	 * remaining bytes of {@code in}.
+	 *
+	 * <p>The data is decoded in a single pass without going through a
+	 * {@link Reader} and its charset decoder, ASCII is widened directly. All
+	 * of it stays buffered, so rewinding is always possible and only resets
+	 * the position.
+	 */
+	public JsonReader(ByteBuffer in) {
+		this.in = null;
+
+		int len = in.remaining();
+		int start = in.position();
+		char[] buffer = len <= this.buffer.length ? this.buffer : new char[len];
+		int i = 0;
+
+		if (in.hasArray()) {
+			byte[] array = in.array();
+			int offset = in.arrayOffset() + start;
+
+			for (; i < len; i++) {
+				byte b = array[offset + i];
+				if (b < 0) break;
+				buffer[i] = (char) b;
+			}
+		} else {
+			for (; i < len; i++) {
+				byte b = in.get(start + i);
+				if (b < 0) break;
+				buffer[i] = (char) b;
+			}
+		}
+
+		if (i < len) { // non-ASCII content, decode the remainder (malformed input is replaced like InputStreamReader does)
+			ByteBuffer remaining = in.duplicate();
+			remaining.position(start + i);
+			CharBuffer chars = StandardCharsets.UTF_8.decode(remaining);
+			len = i + chars.remaining();
+			if (buffer.length < len) buffer = Arrays.copyOf(buffer, len);
+			chars.get(buffer, i, chars.remaining());
+		}
+
+		this.buffer = buffer;
+		limit = len;
+
+		// consume an optional byte order mark (BOM) if it exists
+		if (limit > 0 && buffer[0] == '\ufeff') {
+			pos = lineStart = dataStart = 1;
+		}
+	}
+
+	/**
+	 * Fabric - Creates a new instance that reads JSON from {@code in}, which
+	 * stays fully buffered like with {@link #JsonReader(ByteBuffer)}.
+	 */
+	public JsonReader(String in) {
+		this.in = null;
+
+		int len = in.length();
+		if (len > buffer.length) buffer = new char[len];
+		in.getChars(0, len, buffer, 0);
+		limit = len;
+
+		if (limit > 0 && buffer[0] == '\ufeff') {
+			pos = lineStart = dataStart = 1;
+		}
+	}
+
 	/**
 	 * Configure this parser to be liberal in what it accepts. By default,
 	 * this parser is strict and only accepts JSON as specified by <a
@@ -547,6 +621,7 @@ public class JsonReader implements Closeable {
 		}
 
 		int c = nextNonWhitespace(true);
+		valueStart = pos - 1; // Fabric
 		switch (c) {
 		case ']':
 			if (peekStack == JsonScope.EMPTY_ARRAY) {
@@ -793,6 +868,39 @@ public class JsonReader implements Closeable {
 		return result;
 	}
 
+	/**
+	 * Fabric - Returns the next token, a {@link JsonToken#NAME property name},
+	 * and consumes it. Names contained in {@code names} are matched directly
+	 * in the buffer and returned as the table's instance without allocating,
+	 * other names are read like {@link #nextName()}.
+	 *
+	 * @throws IOException if the next token in the stream is not a property
+	 *     name.
+	 */
+	public String nextName(NameTable names) throws IOException {
+		int p = peeked;
+		if (p == PEEKED_NONE) {
+			p = doPeek();
+		}
+		if (p == PEEKED_DOUBLE_QUOTED_NAME) {
+			char[] buffer = this.buffer;
+			for (int i = pos, l = Math.min(limit, pos + names.maxLength + 1); i < l; i++) {
+				char c = buffer[i];
+				if (c == '"') {
+					String result = names.find(buffer, pos, i - pos);
+					if (result == null) break;
+					pos = i + 1;
+					peeked = PEEKED_NONE;
+					pathNames[stackSize - 1] = result;
+					return result;
+				} else if (c == '\\') {
+					break;
+				}
+			}
+		}
+		return nextName();
+	}
+
 	/**
 	 * Returns the {@link JsonToken#STRING string} value of the next token,
 	 * consuming it. If the next token is a number, this method will return its
@@ -1216,7 +1324,62 @@ public class JsonReader implements Closeable {
 		peeked = PEEKED_NONE;
 		stack[0] = JsonScope.CLOSED;
 		stackSize = 1;
-		in.close();
+		if (in != null) in.close();
+	}
+
+	/**
+	 * Fabric - Returns whether all input is buffered upfront, which is the
+	 * case when reading from bytes or a string.
+	 */
+	public boolean isFullyBuffered() {
+		return in == null;
+	}
+
+	/**
+	 * Fabric - Returns the JSON source text of the next value and skips it,
+	 * objects and arrays are returned including all nested elements. The
+	 * value is validated like {@link #skipValue} does.
+	 *
+	 * @throws IllegalStateException if the input isn't {@link #isFullyBuffered
+	 *     fully buffered} or the next token isn't a value.
+	 */
+	public String nextRawValue() throws IOException {
+		int start = beginRawValue();
+		skipValue();
+
+		return endRawValue(start);
+	}
+
+	/**
+	 * Fabric - Returns the start of the next value's source text, for reading
+	 * the value with the regular methods and retrieving its source text with
+	 * {@link #endRawValue} afterwards.
+	 *
+	 * @throws IllegalStateException if the input isn't {@link #isFullyBuffered
+	 *     fully buffered} or the next token isn't a value.
+	 */
+	public int beginRawValue() throws IOException {
+		if (in != null) throw new IllegalStateException("Raw values require fully buffered input");
+
+		int p = peeked;
+		if (p == PEEKED_NONE) {
+			p = doPeek();
+		}
+
+		if (p == PEEKED_END_ARRAY || p == PEEKED_END_OBJECT || p == PEEKED_EOF || p == PEEKED_BUFFERED
+				|| p == PEEKED_SINGLE_QUOTED_NAME || p == PEEKED_DOUBLE_QUOTED_NAME || p == PEEKED_UNQUOTED_NAME) {
+			throw new IllegalStateException("Expected a value but was " + peek() + locationString());
+		}
+
+		return valueStart;
+	}
+
+	/**
+	 * Fabric - Returns the JSON source text from {@code start}, as returned by
+	 * {@link #beginRawValue}, up to the end of the last consumed token.
+	 */
+	public String endRawValue(int start) {
+		return new String(buffer, start, pos - start);
 	}
 
 	/**
@@ -1276,6 +1439,8 @@ public class JsonReader implements Closeable {
 	 * false.
 	 */
 	private boolean fillBuffer(int minimum) throws IOException {
+		if (in == null) return limit - pos >= minimum; // Fabric - everything is buffered already in byte input mode
+
 		char[] buffer = this.buffer;
 
 		if (!rewindEnabled) { // Fabric - preserve data for rewinding by expanding the buffer instead of compacting 
@@ -1300,6 +1465,7 @@ public class JsonReader implements Closeable {
 			if (lineNumber == 0 && lineStart == 0 && limit > 0 && buffer[0] == '\ufeff') {
 				pos++;
 				lineStart++;
+				dataStart = 1;
 				minimum++;
 			}
 
@@ -1605,19 +1771,69 @@ public class JsonReader implements Closeable {
 	private boolean rewindEnabled;
 
 	public void rewind() {
-		if (!rewindEnabled) throw new IllegalStateException("rewind disabled");
+		if (!rewindEnabled && in != null) throw new IllegalStateException("rewind disabled");
 
-		pos = 0;
+		pos = dataStart;
 		lineNumber = 0;
-		lineStart = 0;
+		lineStart = dataStart;
 		peeked = PEEKED_NONE;
 		stackSize = 1;
 		stack[0] = JsonScope.EMPTY_DOCUMENT;
 	}
 
 	public void setRewindEnabled(boolean value) {
-		if (value && (pos > 0 || lineNumber > 0)) throw new IllegalStateException("already read some data");
+		if (value && in != null && (pos > dataStart || lineNumber > 0)) throw new IllegalStateException("already read some data");
 
 		rewindEnabled = value;
 	}
+
+	/**
+	 * Fabric - Set of known property names for {@link JsonReader#nextName(NameTable)}.
+	 */
+	public static final class NameTable {
+		private final String[][] byLength;
+		final int maxLength;
+
+		public NameTable(String... names) {
+			int maxLength = 0;
+
+			for (String name : names) {
+				maxLength = Math.max(maxLength, name.length());
+			}
+
+			String[][] byLength = new String[maxLength + 1][];
+
+			for (String name : names) {
+				String[] prev = byLength[name.length()];
+
+				if (prev == null) {
+					byLength[name.length()] = new String[] { name };
+				} else {
+					byLength[name.length()] = Arrays.copyOf(prev, prev.length + 1);
+					byLength[name.length()][prev.length] = name;
+				}
+			}
+
+			this.byLength = byLength;
+			this.maxLength = maxLength;
+		}
+
+		String find(char[] buffer, int start, int len) {
+			if (len > maxLength) return null;
+
+			String[] candidates = byLength[len];
+			if (candidates == null) return null;
+
+			candidates:
+			for (String name : candidates) {
+				for (int i = 0; i < len; i++) {
+					if (name.charAt(i) != buffer[start + i]) continue candidates;
+				}
+
+				return name;
+			}
+
+			return null;
+		}
+	}
 }
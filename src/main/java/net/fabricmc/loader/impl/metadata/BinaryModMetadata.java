@@ -0,0 +1,404 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.metadata;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import net.fabricmc.loader.api.Version;
+import net.fabricmc.loader.api.VersionParsingException;
+import net.fabricmc.loader.api.metadata.CustomValue;
+import net.fabricmc.loader.api.metadata.ModDependency;
+import net.fabricmc.loader.api.metadata.ModEnvironment;
+import net.fabricmc.loader.api.metadata.Person;
+import net.fabricmc.loader.impl.util.Interner;
+import net.fabricmc.loader.impl.util.version.VersionParser;
+
+/**
+ * Compact binary encoding of parsed mod metadata.
+ *
+ * <p>The encoding captures the metadata exactly as read from {@code fabric.mod.json}, before any overrides, and is
+ * decoded directly into the metadata objects without tokenizing JSON. It is only meant for caching alongside the JSON,
+ * which stays authoritative: a decoder that doesn't recognize the format version rejects the data and the JSON has to
+ * be parsed instead.
+ *
+ * <p>Only schema version 1 metadata is supported, {@link #write} returns null for anything else.
+ */
+final class BinaryModMetadata {
+	private static final int MAGIC = 0x464d4d42; // FMMB
+	static final int FORMAT_VERSION = 2;
+
+	private static final int ICON_NONE = 0;
+	private static final int ICON_SINGLE = 1;
+	private static final int ICON_MAP = 2;
+
+	/**
+	 * Encode metadata.
+	 *
+	 * @return the encoded metadata or null if the metadata type is not supported
+	 */
+	static byte[] write(LoaderModMetadata metadata) {
+		if (!(metadata instanceof V1ModMetadata)) return null;
+
+		V1ModMetadata meta = (V1ModMetadata) metadata;
+
+		for (ModDependency dep : meta.getDependencies()) {
+			if (!(dep instanceof ModDependencyImpl)) return null;
+		}
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(512);
+
+		try (DataOutputStream os = new DataOutputStream(bos)) {
+			os.writeInt(MAGIC);
+			os.writeByte(FORMAT_VERSION);
+			os.writeByte(meta.getSchemaVersion());
+
+			writeString(meta.getId(), os);
+			writeString(meta.getVersion().getFriendlyString(), os);
+			writeStrings(meta.getProvides(), os);
+			os.writeByte(meta.getEnvironment().ordinal());
+
+			Collection<String> entrypointKeys = meta.getEntrypointKeys();
+			os.writeInt(entrypointKeys.size());
+
+			for (String key : entrypointKeys) {
+				writeString(key, os);
+				List<EntrypointMetadata> entrypoints = meta.getEntrypoints(key);
+				os.writeInt(entrypoints.size());
+
+				for (EntrypointMetadata entrypoint : entrypoints) {
+					writeString(entrypoint.getAdapter(), os);
+					writeString(entrypoint.getValue(), os);
+				}
+			}
+
+			os.writeInt(meta.getJars().size());
+
+			for (NestedJarEntry jar : meta.getJars()) {
+				writeString(jar.getFile(), os);
+			}
+
+			os.writeInt(meta.getMixins().size());
+
+			for (V1ModMetadata.MixinEntry mixin : meta.getMixins()) {
+				writeString(mixin.getConfig(), os);
+				os.writeByte(mixin.getEnvironment().ordinal());
+			}
+
+			writeNullableString(meta.getAccessWidener(), os);
+
+			os.writeInt(meta.getDependencies().size());
+
+			for (ModDependency dep : meta.getDependencies()) {
+				os.writeByte(dep.getKind().ordinal());
+				writeString(dep.getModId(), os);
+				writeStrings(((ModDependencyImpl) dep).getMatcherStrings(), os);
+			}
+
+			os.writeBoolean(meta.hasRequires());
+
+			writeNullableString(meta.getRawName(), os);
+			writeString(meta.getDescription(), os);
+			writePersons(meta.getAuthors(), os);
+			writePersons(meta.getContributors(), os);
+			writeStringMap(meta.getContact().asMap(), os);
+			writeStrings(meta.getLicense(), os);
+			writeIcon(meta.getIcon(), os);
+			writeStringMap(meta.getLanguageAdapterDefinitions(), os);
+
+			os.writeInt(meta.getCustomValues().size());
+
+			for (Map.Entry<String, CustomValue> entry : meta.getCustomValues().entrySet()) {
+				writeString(entry.getKey(), os);
+				CustomValueImpl.writeCustomValue(entry.getValue(), os);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // can't happen for a byte array
+		}
+
+		return bos.toByteArray();
+	}
+
+	/**
+	 * Decode metadata previously encoded by {@link #write}.
+	 *
+	 * @throws IOException if the data is malformed or uses an unsupported format version
+	 */
+	static LoaderModMetadata read(byte[] data) throws IOException {
+		DataInputStream is = new DataInputStream(new ByteArrayInputStream(data));
+
+		if (is.readInt() != MAGIC || is.readUnsignedByte() != FORMAT_VERSION) {
+			throw new IOException("unsupported binary mod metadata format");
+		}
+
+		int schemaVersion = is.readUnsignedByte();
+		if (schemaVersion != 1) throw new IOException("unsupported binary mod metadata schema version "+schemaVersion);
+
+		String id = Interner.intern(readString(is));
+		Version version;
+
+		try {
+			version = VersionParser.parse(readString(is), false);
+		} catch (VersionParsingException e) {
+			throw new IOException("invalid version", e);
+		}
+
+		List<String> provides = readInternedStrings(is);
+		ModEnvironment environment = readEnum(ModEnvironment.values(), is);
+
+		int count = readCount(is);
+		Map<String, List<EntrypointMetadata>> entrypoints = new HashMap<>();
+
+		for (int i = 0; i < count; i++) {
+			String key = readString(is);
+			int entrypointCount = readCount(is);
+			List<EntrypointMetadata> list = new ArrayList<>(entrypointCount);
+
+			for (int j = 0; j < entrypointCount; j++) {
+				list.add(new V1ModMetadata.EntrypointMetadataImpl(Interner.intern(readString(is)), readString(is)));
+			}
+
+			entrypoints.put(key, list);
+		}
+
+		count = readCount(is);
+		List<NestedJarEntry> jars = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			jars.add(new V1ModMetadata.JarEntry(readString(is)));
+		}
+
+		count = readCount(is);
+		List<V1ModMetadata.MixinEntry> mixins = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			mixins.add(new V1ModMetadata.MixinEntry(readString(is), readEnum(ModEnvironment.values(), is)));
+		}
+
+		String accessWidener = readNullableString(is);
+
+		count = readCount(is);
+		List<ModDependency> dependencies = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			ModDependency.Kind kind = readEnum(ModDependency.Kind.values(), is);
+			String modId = readString(is);
+
+			try {
+				dependencies.add(new ModDependencyImpl(kind, modId, readStrings(is)));
+			} catch (VersionParsingException e) {
+				throw new IOException("invalid dependency version range", e);
+			}
+		}
+
+		boolean hasRequires = is.readBoolean();
+		String name = readNullableString(is);
+		String description = readString(is);
+		List<Person> authors = readPersons(is);
+		List<Person> contributors = readPersons(is);
+		Map<String, String> contactMap = readStringMap(is);
+		List<String> license = readInternedStrings(is);
+		V1ModMetadata.IconEntry icon = readIcon(is);
+		Map<String, String> languageAdapters = readStringMap(is);
+
+		count = readCount(is);
+		Map<String, CustomValue> customValues = new HashMap<>();
+
+		for (int i = 0; i < count; i++) {
+			customValues.put(readString(is), CustomValueImpl.readCustomValue(is));
+		}
+
+		if (is.available() != 0) throw new IOException("trailing data in binary mod metadata");
+
+		return new V1ModMetadata(id, version, provides,
+				environment, entrypoints, jars, mixins, accessWidener,
+				dependencies, hasRequires,
+				name, description, authors, contributors, contactMap.isEmpty() ? null : ContactInformationImpl.of(contactMap), license, icon, languageAdapters, customValues);
+	}
+
+	private static void writePersons(Collection<Person> persons, DataOutput os) throws IOException {
+		os.writeInt(persons.size());
+
+		for (Person person : persons) {
+			writeString(person.getName(), os);
+			os.writeBoolean(person instanceof ContactInfoBackedPerson);
+			if (person instanceof ContactInfoBackedPerson) writeStringMap(person.getContact().asMap(), os);
+		}
+	}
+
+	private static List<Person> readPersons(DataInputStream is) throws IOException {
+		int count = readCount(is);
+		List<Person> ret = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			String name = Interner.intern(readString(is));
+
+			if (is.readBoolean()) {
+				ret.add(new ContactInfoBackedPerson(name, ContactInformationImpl.of(readStringMap(is))));
+			} else {
+				ret.add(new SimplePerson(name));
+			}
+		}
+
+		return ret;
+	}
+
+	private static void writeIcon(V1ModMetadata.IconEntry icon, DataOutput os) throws IOException {
+		if (icon instanceof V1ModMetadata.Single) {
+			os.writeByte(ICON_SINGLE);
+			writeString(((V1ModMetadata.Single) icon).getIcon(), os);
+		} else if (icon instanceof V1ModMetadata.MapEntry) {
+			SortedMap<Integer, String> icons = ((V1ModMetadata.MapEntry) icon).getIcons();
+			os.writeByte(ICON_MAP);
+			os.writeInt(icons.size());
+
+			for (Map.Entry<Integer, String> entry : icons.entrySet()) {
+				os.writeInt(entry.getKey());
+				writeString(entry.getValue(), os);
+			}
+		} else {
+			os.writeByte(ICON_NONE);
+		}
+	}
+
+	private static V1ModMetadata.IconEntry readIcon(DataInputStream is) throws IOException {
+		int type = is.readUnsignedByte();
+
+		switch (type) {
+		case ICON_NONE:
+			return null;
+		case ICON_SINGLE:
+			return new V1ModMetadata.Single(readString(is));
+		case ICON_MAP: {
+			int count = readCount(is);
+			SortedMap<Integer, String> icons = new TreeMap<>();
+
+			for (int i = 0; i < count; i++) {
+				icons.put(is.readInt(), readString(is));
+			}
+
+			return new V1ModMetadata.MapEntry(icons);
+		}
+		default:
+			throw new IOException("invalid icon type "+type);
+		}
+	}
+
+	private static void writeStringMap(Map<String, String> map, DataOutput os) throws IOException {
+		os.writeInt(map.size());
+
+		for (Map.Entry<String, String> entry : map.entrySet()) {
+			writeString(entry.getKey(), os);
+			writeString(entry.getValue(), os);
+		}
+	}
+
+	private static Map<String, String> readStringMap(DataInputStream is) throws IOException {
+		int count = readCount(is);
+		Map<String, String> ret = new HashMap<>();
+
+		for (int i = 0; i < count; i++) {
+			ret.put(readString(is), readString(is));
+		}
+
+		return ret;
+	}
+
+	private static void writeStrings(Collection<String> strings, DataOutput os) throws IOException {
+		os.writeInt(strings.size());
+
+		for (String s : strings) {
+			writeString(s, os);
+		}
+	}
+
+	private static List<String> readStrings(DataInputStream is) throws IOException {
+		int count = readCount(is);
+		List<String> ret = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			ret.add(readString(is));
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Read an element or byte count, rejecting values that can't fit the remaining data to not allocate arbitrary
+	 * amounts of memory for malformed input.
+	 */
+	static int readCount(DataInputStream is) throws IOException {
+		int ret = is.readInt();
+		if (ret < 0 || ret > is.available()) throw new IOException("invalid count "+ret);
+
+		return ret;
+	}
+
+	private static List<String> readInternedStrings(DataInputStream is) throws IOException {
+		List<String> ret = readStrings(is);
+		ret.replaceAll(Interner::intern);
+
+		return ret;
+	}
+
+	private static <T extends Enum<T>> T readEnum(T[] values, DataInputStream is) throws IOException {
+		int ordinal = is.readUnsignedByte();
+		if (ordinal >= values.length) throw new IOException("invalid enum ordinal "+ordinal);
+
+		return values[ordinal];
+	}
+
+	private static void writeNullableString(String s, DataOutput os) throws IOException {
+		os.writeBoolean(s != null);
+		if (s != null) writeString(s, os);
+	}
+
+	private static String readNullableString(DataInputStream is) throws IOException {
+		return is.readBoolean() ? readString(is) : null;
+	}
+
+	// not using writeUTF to avoid its 64k limit, descriptions and custom values may be longer
+
+	static void writeString(String s, DataOutput os) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		os.writeInt(bytes.length);
+		os.write(bytes);
+	}
+
+	static String readString(DataInputStream is) throws IOException {
+		byte[] bytes = new byte[readCount(is)];
+		is.readFully(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private BinaryModMetadata() {
+	}
+}
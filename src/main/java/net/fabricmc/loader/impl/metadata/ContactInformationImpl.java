@@ -21,10 +21,22 @@ import java.util.Map;
 import java.util.Optional;
 
 import net.fabricmc.loader.api.metadata.ContactInformation;
+import net.fabricmc.loader.impl.util.Interner;
 
 public class ContactInformationImpl implements ContactInformation {
+	private static final Interner<Map<String, String>, ContactInformationImpl> POOL = new Interner<>();
+
 	private final Map<String, String> map;
 
+	/**
+	 * Get a shared instance for the contact information, the map must not be modified afterwards.
+	 */
+	static ContactInformationImpl of(Map<String, String> map) {
+		ContactInformationImpl ret = POOL.get(map);
+
+		return ret != null ? ret : POOL.intern(map, new ContactInformationImpl(map));
+	}
+
 	public ContactInformationImpl(Map<String, String> map) {
 		this.map = Collections.unmodifiableMap(map);
 	}
@@ -16,6 +16,8 @@
 
 package net.fabricmc.loader.impl.metadata;
 
+import java.io.DataInputStream;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -28,11 +30,15 @@ import java.util.Objects;
 
 import net.fabricmc.loader.api.metadata.CustomValue;
 import net.fabricmc.loader.impl.lib.gson.JsonReader;
+import net.fabricmc.loader.impl.lib.gson.JsonToken;
+import net.fabricmc.loader.impl.util.Interner;
 
 abstract class CustomValueImpl implements CustomValue {
 	static final CustomValue BOOLEAN_TRUE = new BooleanImpl(true);
 	static final CustomValue BOOLEAN_FALSE = new BooleanImpl(false);
 	static final CustomValue NULL = new NullImpl();
+	// binary type tag for an unparsed object or array stored as JSON text, beyond the CvType ordinals
+	private static final int RAW_TYPE = 0xff;
 
 	public static CustomValue readCustomValue(JsonReader reader) throws IOException, ParseMetadataException {
 		switch (reader.peek()) {
@@ -43,7 +49,7 @@ abstract class CustomValueImpl implements CustomValue {
 			final Map<String, CustomValue> values = new LinkedHashMap<>();
 
 			while (reader.hasNext()) {
-				values.put(reader.nextName(), readCustomValue(reader));
+				values.put(Interner.intern(reader.nextName()), readCustomValue(reader));
 			}
 
 			reader.endObject();
@@ -80,6 +86,171 @@ abstract class CustomValueImpl implements CustomValue {
 		}
 	}
 
+	/**
+	 * Read a custom value, deferring parsing the entries of objects and arrays until they are accessed if the reader
+	 * allows it.
+	 *
+	 * <p>Their JSON text is still fully validated with the same reads {@link #readCustomValue(JsonReader)} uses, so
+	 * invalid values fail here and not when accessed later.
+	 */
+	static CustomValue readLazyCustomValue(JsonReader reader) throws IOException, ParseMetadataException {
+		return readLazyCustomValue(reader, true);
+	}
+
+	private static CustomValue readLazyCustomValue(JsonReader reader, boolean validate) throws IOException, ParseMetadataException {
+		JsonToken token = reader.peek();
+
+		if ((token == JsonToken.BEGIN_OBJECT || token == JsonToken.BEGIN_ARRAY) && reader.isFullyBuffered()) {
+			String raw;
+
+			if (validate) {
+				int start = reader.beginRawValue();
+				skipCustomValue(reader);
+				raw = reader.endRawValue(start);
+			} else { // nested in an already validated value
+				raw = reader.nextRawValue();
+			}
+
+			return token == JsonToken.BEGIN_OBJECT ? new ObjectImpl(raw) : new ArrayImpl(raw);
+		} else {
+			return readCustomValue(reader);
+		}
+	}
+
+	/**
+	 * Consume a custom value the same way {@link #readCustomValue(JsonReader)} does, without building it.
+	 */
+	private static void skipCustomValue(JsonReader reader) throws IOException, ParseMetadataException {
+		switch (reader.peek()) {
+		case BEGIN_OBJECT:
+			reader.beginObject();
+
+			while (reader.hasNext()) {
+				reader.nextName();
+				skipCustomValue(reader);
+			}
+
+			reader.endObject();
+			break;
+		case BEGIN_ARRAY:
+			reader.beginArray();
+
+			while (reader.hasNext()) {
+				skipCustomValue(reader);
+			}
+
+			reader.endArray();
+			break;
+		case STRING:
+			reader.nextString();
+			break;
+		case NUMBER:
+			reader.nextDouble();
+			break;
+		case BOOLEAN:
+			reader.nextBoolean();
+			break;
+		case NULL:
+			reader.nextNull();
+			break;
+		default:
+			throw new ParseMetadataException(Objects.toString(reader.nextName()), reader);
+		}
+	}
+
+	static void writeCustomValue(CustomValue value, DataOutput os) throws IOException {
+		String raw;
+
+		if (value instanceof ObjectImpl) {
+			raw = ((ObjectImpl) value).getRaw();
+		} else if (value instanceof ArrayImpl) {
+			raw = ((ArrayImpl) value).getRaw();
+		} else {
+			raw = null;
+		}
+
+		if (raw != null) {
+			os.writeByte(RAW_TYPE);
+			BinaryModMetadata.writeString(raw, os);
+			return;
+		}
+
+		CvType type = value.getType();
+		os.writeByte(type.ordinal());
+
+		switch (type) {
+		case OBJECT: {
+			CvObject obj = value.getAsObject();
+			os.writeInt(obj.size());
+
+			for (Entry<String, CustomValue> entry : obj) {
+				BinaryModMetadata.writeString(entry.getKey(), os);
+				writeCustomValue(entry.getValue(), os);
+			}
+
+			break;
+		}
+		case ARRAY: {
+			CvArray array = value.getAsArray();
+			os.writeInt(array.size());
+
+			for (CustomValue entry : array) {
+				writeCustomValue(entry, os);
+			}
+
+			break;
+		}
+		case STRING:
+			BinaryModMetadata.writeString(value.getAsString(), os);
+			break;
+		case NUMBER:
+			os.writeDouble(value.getAsNumber().doubleValue());
+			break;
+		case BOOLEAN:
+			os.writeBoolean(value.getAsBoolean());
+			break;
+		case NULL:
+			break;
+		}
+	}
+
+	static CustomValue readCustomValue(DataInputStream is) throws IOException {
+		int type = is.readUnsignedByte();
+		if (type == RAW_TYPE) return readRawCustomValue(BinaryModMetadata.readString(is));
+		if (type >= CvType.values().length) throw new IOException("invalid custom value type "+type);
+
+		switch (CvType.values()[type]) {
+		case OBJECT: {
+			int count = BinaryModMetadata.readCount(is);
+			Map<String, CustomValue> values = new LinkedHashMap<>(count);
+
+			for (int i = 0; i < count; i++) {
+				values.put(Interner.intern(BinaryModMetadata.readString(is)), readCustomValue(is));
+			}
+
+			return new ObjectImpl(values);
+		}
+		case ARRAY: {
+			int count = BinaryModMetadata.readCount(is);
+			List<CustomValue> entries = new ArrayList<>(count);
+
+			for (int i = 0; i < count; i++) {
+				entries.add(readCustomValue(is));
+			}
+
+			return new ArrayImpl(entries);
+		}
+		case STRING:
+			return new StringImpl(BinaryModMetadata.readString(is));
+		case NUMBER:
+			return new NumberImpl(is.readDouble());
+		case BOOLEAN:
+			return is.readBoolean() ? BOOLEAN_TRUE : BOOLEAN_FALSE;
+		default:
+			return NULL;
+		}
+	}
+
 	@Override
 	public final CvObject getAsObject() {
 		if (this instanceof ObjectImpl) {
@@ -125,13 +296,90 @@ abstract class CustomValueImpl implements CustomValue {
 		}
 	}
 
+	/**
+	 * Create an object or array from its JSON text, as stored by {@link #writeCustomValue}.
+	 */
+	private static CustomValue readRawCustomValue(String raw) throws IOException {
+		// validated before it was stored, only check what it is so the entries stay deferred
+		if (raw.startsWith("{")) {
+			return new ObjectImpl(raw);
+		} else if (raw.startsWith("[")) {
+			return new ArrayImpl(raw);
+		} else {
+			throw new IOException("invalid raw custom value");
+		}
+	}
+
+	/**
+	 * Parse the entries of an object stored as validated JSON text, nested objects and arrays are deferred again.
+	 */
+	private static Map<String, CustomValue> parseRawObject(String raw) {
+		try (JsonReader reader = new JsonReader(raw)) {
+			reader.beginObject();
+
+			// To preserve insertion order
+			Map<String, CustomValue> values = new LinkedHashMap<>();
+
+			while (reader.hasNext()) {
+				values.put(Interner.intern(reader.nextName()), readLazyCustomValue(reader, false));
+			}
+
+			reader.endObject();
+
+			return values;
+		} catch (IOException | ParseMetadataException e) {
+			// unreachable, the text passed skipCustomValue before it was deferred
+			throw new IllegalStateException("invalid deferred custom value", e);
+		}
+	}
+
+	/**
+	 * Parse the entries of an array stored as validated JSON text, nested objects and arrays are deferred again.
+	 */
+	private static List<CustomValue> parseRawArray(String raw) {
+		try (JsonReader reader = new JsonReader(raw)) {
+			reader.beginArray();
+
+			List<CustomValue> entries = new ArrayList<>();
+
+			while (reader.hasNext()) {
+				entries.add(readLazyCustomValue(reader, false));
+			}
+
+			reader.endArray();
+
+			return entries;
+		} catch (IOException | ParseMetadataException e) {
+			// unreachable, the text passed skipCustomValue before it was deferred
+			throw new IllegalStateException("invalid deferred custom value", e);
+		}
+	}
+
 	private static final class ObjectImpl extends CustomValueImpl implements CvObject {
-		private final Map<String, CustomValue> entries;
+		private String raw; // JSON text until the entries are parsed
+		private Map<String, CustomValue> entries;
 
 		ObjectImpl(Map<String, CustomValue> entries) {
 			this.entries = Collections.unmodifiableMap(entries);
 		}
 
+		ObjectImpl(String raw) {
+			this.raw = raw;
+		}
+
+		synchronized String getRaw() {
+			return raw;
+		}
+
+		private synchronized Map<String, CustomValue> getEntries() {
+			if (entries == null) {
+				entries = Collections.unmodifiableMap(parseRawObject(raw));
+				raw = null;
+			}
+
+			return entries;
+		}
+
 		@Override
 		public CvType getType() {
 			return CvType.OBJECT;
@@ -139,32 +387,50 @@ abstract class CustomValueImpl implements CustomValue {
 
 		@Override
 		public int size() {
-			return entries.size();
+			return getEntries().size();
 		}
 
 		@Override
 		public boolean containsKey(String key) {
-			return entries.containsKey(key);
+			return getEntries().containsKey(key);
 		}
 
 		@Override
 		public CustomValue get(String key) {
-			return entries.get(key);
+			return getEntries().get(key);
 		}
 
 		@Override
 		public Iterator<Entry<String, CustomValue>> iterator() {
-			return entries.entrySet().iterator();
+			return getEntries().entrySet().iterator();
 		}
 	}
 
 	private static final class ArrayImpl extends CustomValueImpl implements CvArray {
-		private final List<CustomValue> entries;
+		private String raw; // JSON text until the entries are parsed
+		private List<CustomValue> entries;
 
 		ArrayImpl(List<CustomValue> entries) {
 			this.entries = Collections.unmodifiableList(entries);
 		}
 
+		ArrayImpl(String raw) {
+			this.raw = raw;
+		}
+
+		synchronized String getRaw() {
+			return raw;
+		}
+
+		private synchronized List<CustomValue> getEntries() {
+			if (entries == null) {
+				entries = Collections.unmodifiableList(parseRawArray(raw));
+				raw = null;
+			}
+
+			return entries;
+		}
+
 		@Override
 		public CvType getType() {
 			return CvType.ARRAY;
@@ -172,17 +438,17 @@ abstract class CustomValueImpl implements CustomValue {
 
 		@Override
 		public int size() {
-			return entries.size();
+			return getEntries().size();
 		}
 
 		@Override
 		public CustomValue get(int index) {
-			return entries.get(index);
+			return getEntries().get(index);
 		}
 
 		@Override
 		public Iterator<CustomValue> iterator() {
-			return entries.iterator();
+			return getEntries().iterator();
 		}
 	}
 
@@ -25,18 +25,29 @@ import net.fabricmc.loader.api.VersionParsingException;
 import net.fabricmc.loader.api.metadata.ModDependency;
 import net.fabricmc.loader.api.metadata.version.VersionInterval;
 import net.fabricmc.loader.api.metadata.version.VersionPredicate;
+import net.fabricmc.loader.impl.util.Interner;
+import net.fabricmc.loader.impl.util.version.VersionIntervalSet;
+import net.fabricmc.loader.impl.util.version.VersionPredicateParser;
 
 public final class ModDependencyImpl implements ModDependency {
+	// the dependency itself is mutable, but its version requirements are shared between all equally declared ones
+	private static final Interner<List<String>, List<String>> MATCHERS = new Interner<>();
+	private static final Interner<List<String>, Collection<VersionPredicate>> RANGES = new Interner<>();
+
 	private Kind kind;
 	private final String modId;
 	private final List<String> matcherStringList;
 	private final Collection<VersionPredicate> ranges;
+	private List<VersionInterval> intervals; // lazily computed, immutable
 
 	public ModDependencyImpl(Kind kind, String modId, List<String> matcherStringList) throws VersionParsingException {
 		this.kind = kind;
-		this.modId = modId;
-		this.matcherStringList = matcherStringList;
-		this.ranges = VersionPredicate.parse(this.matcherStringList);
+		this.modId = Interner.intern(modId);
+		this.matcherStringList = MATCHERS.intern(matcherStringList, Collections.unmodifiableList(matcherStringList));
+
+		Collection<VersionPredicate> ranges = RANGES.get(this.matcherStringList);
+		if (ranges == null) ranges = RANGES.intern(this.matcherStringList, Collections.unmodifiableSet(VersionPredicateParser.parse(this.matcherStringList)));
+		this.ranges = ranges;
 	}
 
 	@Override
@@ -53,6 +64,10 @@ public final class ModDependencyImpl implements ModDependency {
 		return this.modId;
 	}
 
+	List<String> getMatcherStrings() {
+		return this.matcherStringList;
+	}
+
 	@Override
 	public boolean matches(Version version) {
 		for (VersionPredicate predicate : ranges) {
@@ -64,6 +79,7 @@ public final class ModDependencyImpl implements ModDependency {
 
 	@Override
 	public boolean equals(Object obj) {
+		if (obj == this) return true;
 		if (!(obj instanceof ModDependency)) return false;
 
 		ModDependency o = (ModDependency) obj;
@@ -105,12 +121,18 @@ public final class ModDependencyImpl implements ModDependency {
 
 	@Override
 	public List<VersionInterval> getVersionIntervals() {
-		List<VersionInterval> ret = Collections.emptyList();
+		List<VersionInterval> ret = intervals;
+		if (ret != null) return ret;
+
+		ret = Collections.emptyList();
 
 		for (VersionPredicate predicate : ranges) {
 			ret = VersionInterval.or(ret, predicate.getInterval());
 		}
 
+		if (!(ret instanceof VersionIntervalSet)) ret = Collections.unmodifiableList(ret); // shared, keep the immutable set as-is
+		intervals = ret;
+
 		return ret;
 	}
 }
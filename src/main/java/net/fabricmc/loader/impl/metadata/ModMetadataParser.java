@@ -18,11 +18,12 @@ package net.fabricmc.loader.impl.metadata;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import net.fabricmc.loader.impl.lib.gson.JsonReader;
 import net.fabricmc.loader.impl.lib.gson.JsonToken;
@@ -40,15 +41,45 @@ public final class ModMetadataParser {
 	// For all intents and purposes of replicating the logic of Gson's fromJson before we have migrated to JsonReader, duplicate keys will replace previous entries.
 	public static LoaderModMetadata parseMetadata(InputStream is, String modPath, List<String> modParentPaths,
 			VersionOverrides versionOverrides, DependencyOverrides depOverrides, boolean isDevelopment) throws ParseMetadataException {
+		return parseMetadata(is, modPath, modParentPaths, versionOverrides, depOverrides, isDevelopment, null);
+	}
+
+	/**
+	 * Parse metadata from {@code fabric.mod.json}, additionally generating its binary form for caching.
+	 *
+	 * @param binaryOut receives the binary form of the metadata before applying overrides, or null if it has none; may
+	 *                  be null to skip generating it
+	 */
+	public static LoaderModMetadata parseMetadata(InputStream is, String modPath, List<String> modParentPaths,
+			VersionOverrides versionOverrides, DependencyOverrides depOverrides, boolean isDevelopment,
+			/* @Nullable */ Consumer<byte[]> binaryOut) throws ParseMetadataException {
 		try {
 			LoaderModMetadata ret = readModMetadata(is, isDevelopment);
+			if (binaryOut != null) binaryOut.accept(BinaryModMetadata.write(ret));
 
-			versionOverrides.apply(ret);
-			depOverrides.apply(ret);
+			return finishMetadata(ret, versionOverrides, depOverrides, isDevelopment);
+		} catch (ParseMetadataException e) {
+			e.setModPaths(modPath, modParentPaths);
+			throw e;
+		} catch (Throwable t) {
+			ParseMetadataException e = new ParseMetadataException(t);
+			e.setModPaths(modPath, modParentPaths);
+			throw e;
+		}
+	}
 
-			MetadataVerifier.verify(ret, isDevelopment);
+	/**
+	 * Read metadata from the binary form generated by {@link #parseMetadata(InputStream, String, List, VersionOverrides,
+	 * DependencyOverrides, boolean, Consumer)}, skipping JSON parsing.
+	 *
+	 * @throws IOException if the binary data can't be decoded, {@code fabric.mod.json} has to be parsed instead
+	 */
+	public static LoaderModMetadata parseBinaryMetadata(byte[] data, String modPath, List<String> modParentPaths,
+			VersionOverrides versionOverrides, DependencyOverrides depOverrides, boolean isDevelopment) throws ParseMetadataException, IOException {
+		LoaderModMetadata ret = BinaryModMetadata.read(data);
 
-			return ret;
+		try {
+			return finishMetadata(ret, versionOverrides, depOverrides, isDevelopment);
 		} catch (ParseMetadataException e) {
 			e.setModPaths(modPath, modParentPaths);
 			throw e;
@@ -59,6 +90,15 @@ public final class ModMetadataParser {
 		}
 	}
 
+	private static LoaderModMetadata finishMetadata(LoaderModMetadata ret, VersionOverrides versionOverrides, DependencyOverrides depOverrides, boolean isDevelopment) throws ParseMetadataException {
+		versionOverrides.apply(ret);
+		depOverrides.apply(ret);
+
+		MetadataVerifier.verify(ret, isDevelopment);
+
+		return ret;
+	}
+
 	private static LoaderModMetadata readModMetadata(InputStream is, boolean isDevelopment) throws IOException, ParseMetadataException {
 		// So some context:
 		// Per the json specification, ordering of fields is not typically enforced.
@@ -76,7 +116,7 @@ public final class ModMetadataParser {
 		// Re-read the JSON file.
 		int schemaVersion = 0;
 
-		try (JsonReader reader = new JsonReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+		try (JsonReader reader = new JsonReader(readFully(is))) {
 			reader.setRewindEnabled(true);
 
 			if (reader.peek() != JsonToken.BEGIN_OBJECT) {
@@ -89,7 +129,7 @@ public final class ModMetadataParser {
 
 			while (reader.hasNext()) {
 				// Try to read the schemaVersion
-				String key = reader.nextName();
+				String key = reader.nextName(V1ModMetadataParser.ROOT_NAMES);
 
 				if (key.equals("schemaVersion")) {
 					if (reader.peek() != JsonToken.NUMBER) {
@@ -135,6 +175,19 @@ public final class ModMetadataParser {
 		}
 	}
 
+	private static ByteBuffer readFully(InputStream is) throws IOException {
+		byte[] buffer = new byte[Math.max(is.available() + 1, 4096)];
+		int offset = 0;
+		int len;
+
+		while ((len = is.read(buffer, offset, buffer.length - offset)) >= 0) {
+			offset += len;
+			if (offset == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+
+		return ByteBuffer.wrap(buffer, 0, offset);
+	}
+
 	private static LoaderModMetadata readModMetadata(JsonReader reader, int schemaVersion) throws IOException, ParseMetadataException {
 		switch (schemaVersion) {
 		case 1:
@@ -34,6 +34,7 @@ import net.fabricmc.loader.api.metadata.ModEnvironment;
 import net.fabricmc.loader.api.metadata.Person;
 import net.fabricmc.loader.impl.lib.gson.JsonReader;
 import net.fabricmc.loader.impl.lib.gson.JsonToken;
+import net.fabricmc.loader.impl.util.Interner;
 import net.fabricmc.loader.impl.util.version.VersionParser;
 
 final class V0ModMetadataParser {
@@ -84,7 +85,7 @@ final class V0ModMetadataParser {
 					throw new ParseMetadataException("Mod id must be a non-empty string with a length of 3-64 characters.", reader);
 				}
 
-				id = reader.nextString();
+				id = Interner.intern(reader.nextString());
 				break;
 			case "version":
 				if (reader.peek() != JsonToken.STRING) {
@@ -275,7 +276,7 @@ final class V0ModMetadataParser {
 			throw new ParseMetadataException("Expected links to be an object or string", reader);
 		}
 
-		return new ContactInformationImpl(contactInfo);
+		return ContactInformationImpl.of(contactInfo);
 	}
 
 	private static V0ModMetadata.Mixins readMixins(List<ParseWarning> warnings, JsonReader reader) throws IOException, ParseMetadataException {
@@ -419,7 +420,7 @@ final class V0ModMetadataParser {
 
 			name = String.join(" ", parts);
 
-			return new ContactInfoBackedPerson(name, new ContactInformationImpl(contactMap));
+			return new ContactInfoBackedPerson(name, ContactInformationImpl.of(contactMap));
 		case BEGIN_OBJECT:
 			reader.beginObject();
 
@@ -455,7 +456,7 @@ final class V0ModMetadataParser {
 			}
 
 			reader.endObject();
-			return new ContactInfoBackedPerson(name, new ContactInformationImpl(contactMap));
+			return new ContactInfoBackedPerson(name, ContactInformationImpl.of(contactMap));
 		default:
 			throw new ParseMetadataException("Expected person to be a string or object", reader);
 		}
@@ -273,6 +273,23 @@ final class V1ModMetadata extends AbstractModMetadata implements LoaderModMetada
 		return this.entrypoints.keySet();
 	}
 
+	/* @Nullable */
+	String getRawName() {
+		return this.name;
+	}
+
+	Collection<MixinEntry> getMixins() {
+		return this.mixins;
+	}
+
+	IconEntry getIcon() {
+		return this.icon;
+	}
+
+	boolean hasRequires() {
+		return this.hasRequires;
+	}
+
 	@Override
 	public void emitFormatWarnings() {
 		if (hasRequires) {
@@ -321,6 +338,14 @@ final class V1ModMetadata extends AbstractModMetadata implements LoaderModMetada
 			this.config = config;
 			this.environment = environment;
 		}
+
+		String getConfig() {
+			return this.config;
+		}
+
+		ModEnvironment getEnvironment() {
+			return this.environment;
+		}
 	}
 
 	interface IconEntry {
@@ -334,6 +359,10 @@ final class V1ModMetadata extends AbstractModMetadata implements LoaderModMetada
 			this.icon = icon;
 		}
 
+		String getIcon() {
+			return this.icon;
+		}
+
 		@Override
 		public Optional<String> getIconPath(int size) {
 			return Optional.of(this.icon);
@@ -347,6 +376,10 @@ final class V1ModMetadata extends AbstractModMetadata implements LoaderModMetada
 			this.icons = icons;
 		}
 
+		SortedMap<Integer, String> getIcons() {
+			return this.icons;
+		}
+
 		@Override
 		public Optional<String> getIconPath(int size) {
 			int iconValue = -1;
@@ -35,9 +35,17 @@ import net.fabricmc.loader.api.metadata.ModEnvironment;
 import net.fabricmc.loader.api.metadata.Person;
 import net.fabricmc.loader.impl.lib.gson.JsonReader;
 import net.fabricmc.loader.impl.lib.gson.JsonToken;
+import net.fabricmc.loader.impl.util.Interner;
 import net.fabricmc.loader.impl.util.version.VersionParser;
 
 final class V1ModMetadataParser {
+	/**
+	 * Root keys, matched without allocating them.
+	 */
+	static final JsonReader.NameTable ROOT_NAMES = new JsonReader.NameTable("schemaVersion", "id", "version", "provides", "environment",
+			"entrypoints", "jars", "mixins", "accessWidener", "depends", "recommends", "suggests", "conflicts", "breaks", "requires",
+			"name", "description", "authors", "contributors", "contact", "license", "icon", "languageAdapters", "custom", "$schema");
+
 	/**
 	 * Reads a {@code fabric.mod.json} file of schema version {@code 1}.
 	 *
@@ -85,7 +93,7 @@ final class V1ModMetadataParser {
 		Map<String, CustomValue> customValues = new HashMap<>();
 
 		while (reader.hasNext()) {
-			final String key = reader.nextName();
+			final String key = reader.nextName(ROOT_NAMES);
 
 			// Work our way from required to entirely optional
 			switch (key) {
@@ -107,7 +115,7 @@ final class V1ModMetadataParser {
 					throw new ParseMetadataException("Mod id must be a non-empty string with a length of 3-64 characters.", reader);
 				}
 
-				id = reader.nextString();
+				id = Interner.intern(reader.nextString());
 				break;
 			case "version":
 				if (reader.peek() != JsonToken.STRING) {
@@ -240,7 +248,7 @@ final class V1ModMetadataParser {
 				throw new ParseMetadataException("Provided id must be a string", reader);
 			}
 
-			provides.add(reader.nextString());
+			provides.add(Interner.intern(reader.nextString()));
 		}
 
 		reader.endArray();
@@ -295,7 +303,7 @@ final class V1ModMetadataParser {
 						final String entryKey = reader.nextName();
 						switch (entryKey) {
 						case "adapter":
-							adapter = reader.nextString();
+							adapter = Interner.intern(reader.nextString());
 							break;
 						case "value":
 							value = reader.nextString();
@@ -486,7 +494,7 @@ final class V1ModMetadataParser {
 			switch (reader.peek()) {
 			case STRING:
 				// Just a name
-				people.add(new SimplePerson(reader.nextString()));
+				people.add(new SimplePerson(Interner.intern(reader.nextString())));
 				break;
 			case BEGIN_OBJECT:
 				// Map-backed impl
@@ -504,7 +512,7 @@ final class V1ModMetadataParser {
 							throw new ParseMetadataException("Name of person in dependency container must be a string", reader);
 						}
 
-						personName = reader.nextString();
+						personName = Interner.intern(reader.nextString());
 						break;
 						// Effectively optional
 					case "contact":
@@ -559,13 +567,13 @@ final class V1ModMetadataParser {
 		reader.endObject();
 
 		// Map is wrapped as unmodifiable in the contact info impl
-		return new ContactInformationImpl(map);
+		return ContactInformationImpl.of(map);
 	}
 
 	private static void readLicense(JsonReader reader, List<String> license) throws IOException, ParseMetadataException {
 		switch (reader.peek()) {
 		case STRING:
-			license.add(reader.nextString());
+			license.add(Interner.intern(reader.nextString()));
 			break;
 		case BEGIN_ARRAY:
 			reader.beginArray();
@@ -575,7 +583,7 @@ final class V1ModMetadataParser {
 					throw new ParseMetadataException("List of licenses must only contain strings", reader);
 				}
 
-				license.add(reader.nextString());
+				license.add(Interner.intern(reader.nextString()));
 			}
 
 			reader.endArray();
@@ -656,7 +664,7 @@ final class V1ModMetadataParser {
 		reader.beginObject();
 
 		while (reader.hasNext()) {
-			customValues.put(reader.nextName(), CustomValueImpl.readCustomValue(reader));
+			customValues.put(reader.nextName(), CustomValueImpl.readLazyCustomValue(reader));
 		}
 
 		reader.endObject();
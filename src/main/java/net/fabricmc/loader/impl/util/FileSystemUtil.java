@@ -24,8 +24,10 @@ import java.nio.file.FileSystemAlreadyExistsException;
 import java.nio.file.FileSystemNotFoundException;
 import java.nio.file.FileSystems;
 import java.nio.file.Path;
+import java.nio.file.ProviderNotFoundException;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.ZipError;
 
 public final class FileSystemUtil {
@@ -54,11 +56,44 @@ public final class FileSystemUtil {
 
 	private static final Map<String, String> jfsArgsCreate = Collections.singletonMap("create", "true");
 	private static final Map<String, String> jfsArgsEmpty = Collections.emptyMap();
+	private static final Map<Path, FileSystem> nestedFileSystems = new ConcurrentHashMap<>();
 
 	public static FileSystemDelegate getJarFileSystem(Path path, boolean create) throws IOException {
+		if (path.getFileSystem() != FileSystems.getDefault()) {
+			return getNestedJarFileSystem(path);
+		}
+
 		return getJarFileSystem(path.toUri(), create);
 	}
 
+	/**
+	 * Obtain the file system for a jar within another file system, e.g. a jar nested in another jar.
+	 *
+	 * <p>These can't be looked up by URI, so they are cached here and never owned by the caller. Opening them requires
+	 * Java 9+, older versions fail with an IOException.
+	 */
+	private static FileSystemDelegate getNestedJarFileSystem(Path path) throws IOException {
+		FileSystem ret = nestedFileSystems.get(path);
+
+		if (ret == null || !ret.isOpen()) {
+			synchronized (nestedFileSystems) {
+				ret = nestedFileSystems.get(path);
+
+				if (ret == null || !ret.isOpen()) {
+					try {
+						ret = FileSystems.newFileSystem(path, (ClassLoader) null);
+					} catch (IOException | ZipError | ProviderNotFoundException e) {
+						throw new IOException("Error accessing "+path+": "+e, e);
+					}
+
+					nestedFileSystems.put(path, ret);
+				}
+			}
+		}
+
+		return new FileSystemDelegate(ret, false);
+	}
+
 	public static FileSystemDelegate getJarFileSystem(URI uri, boolean create) throws IOException {
 		URI jarUri;
 
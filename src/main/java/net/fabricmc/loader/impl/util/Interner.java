@@ -0,0 +1,67 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread safe pool of canonical instances for immutable values, used to share equal metadata values between mods.
+ *
+ * <p>Values are pooled under an explicit key which has to fully determine the value's observable state. The value's
+ * own equals isn't always strict enough for that, for example versions 1.0 and 1.0.0 are equal but have different
+ * friendly strings. Pooled values are retained for the loader's lifetime, only values that are typically retained by
+ * mod metadata anyway should be pooled.
+ */
+public final class Interner<K, V> {
+	private static final Interner<String, String> STRINGS = new Interner<>();
+
+	private final ConcurrentMap<K, V> values = new ConcurrentHashMap<>();
+
+	/**
+	 * Get the canonical instance for a string, like {@link String#intern} but without involving the JVM's string table.
+	 *
+	 * @return the canonical instance or null if the string is null
+	 */
+	public static String intern(String s) {
+		if (s == null) return null;
+
+		return STRINGS.intern(s, s);
+	}
+
+	/**
+	 * Get the canonical instance for a key, allowing to skip creating the value.
+	 *
+	 * @return the canonical instance or null if there is none yet
+	 */
+	public V get(K key) {
+		return values.get(key);
+	}
+
+	/**
+	 * Get the canonical instance for a value.
+	 *
+	 * @param key key fully determining the value's state, must not be mutated afterwards
+	 * @param value value to use if there is no canonical instance yet
+	 * @return the canonical instance, either value or a previously interned one
+	 */
+	public V intern(K key, V value) {
+		V ret = values.putIfAbsent(key, value);
+
+		return ret != null ? ret : value;
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.util;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * URL handler serving the contents of jars that are only reachable through a non-default NIO file system, typically
+ * nested jars inside their parent mod's jar file system.
+ *
+ * <p>The URLs use the jar file system's own URI form ({@code jar:<jar uri>!/<entry>}) but are bound to this handler
+ * since the JDK's jar handler can't open them. The root URLs end in a slash, so URLClassLoader treats them like a
+ * directory and resolves resources relative to them.
+ */
+public final class NestedJarUrlStreamHandler extends URLStreamHandler {
+	private static final NestedJarUrlStreamHandler INSTANCE = new NestedJarUrlStreamHandler();
+	private static final String SEPARATOR = "!/";
+	private static final Map<String, Path> jars = new ConcurrentHashMap<>(); // root url -> jar path
+
+	private NestedJarUrlStreamHandler() { }
+
+	/**
+	 * Create the root URL for a jar file that isn't in the default file system.
+	 */
+	public static URL createUrl(Path jar) throws MalformedURLException {
+		String root = "jar:" + jar.toUri() + SEPARATOR;
+		jars.putIfAbsent(root, jar);
+
+		return new URL(null, root, INSTANCE);
+	}
+
+	/**
+	 * Get the jar path a URL created by this handler or pointing within such a URL refers to.
+	 *
+	 * @return the jar path or null if the URL is unrelated to this handler
+	 */
+	public static Path getJarPath(URL url) {
+		if (jars.isEmpty()) return null;
+
+		String str = url.toString();
+		int pos = str.lastIndexOf(SEPARATOR);
+		if (pos < 0) return null;
+
+		return jars.get(str.substring(0, pos + SEPARATOR.length()));
+	}
+
+	@Override
+	protected URLConnection openConnection(URL url) throws IOException {
+		String str = url.toString();
+		int pos = str.lastIndexOf(SEPARATOR);
+		Path jar = pos >= 0 ? jars.get(str.substring(0, pos + SEPARATOR.length())) : null;
+		if (jar == null) throw new IOException("unknown nested jar url "+url);
+
+		Path root = FileSystemUtil.getJarFileSystem(jar, false).get().getRootDirectories().iterator().next();
+		String entry = decode(str.substring(pos + SEPARATOR.length()));
+
+		return new Connection(url, entry.isEmpty() ? root : root.resolve(entry));
+	}
+
+	private static String decode(String path) {
+		if (path.indexOf('%') < 0) return path;
+
+		try {
+			return new URI(path).getPath();
+		} catch (URISyntaxException e) {
+			return path;
+		}
+	}
+
+	private static final class Connection extends URLConnection {
+		private final Path path;
+
+		Connection(URL url, Path path) {
+			super(url);
+
+			this.path = path;
+		}
+
+		@Override
+		public void connect() throws IOException {
+			if (!connected) {
+				if (!Files.exists(path)) throw new FileNotFoundException(url.toString());
+
+				connected = true;
+			}
+		}
+
+		@Override
+		public InputStream getInputStream() throws IOException {
+			connect();
+
+			return Files.newInputStream(path);
+		}
+
+		@Override
+		public long getContentLengthLong() {
+			try {
+				return Files.size(path);
+			} catch (IOException e) {
+				return -1;
+			}
+		}
+
+		@Override
+		public int getContentLength() {
+			long ret = getContentLengthLong();
+
+			return ret <= Integer.MAX_VALUE ? (int) ret : -1;
+		}
+	}
+}
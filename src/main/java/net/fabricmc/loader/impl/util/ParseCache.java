@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread safe cache for the immutable results of pure parse functions, keyed by the parsed string.
+ *
+ * <p>The cache is bounded by refusing new entries once full, the strings parsed early on (mod metadata) are the ones
+ * that repeat. Failed parses aren't cached.
+ */
+public final class ParseCache<V> {
+	private final String name;
+	private final int capacity;
+	private final ConcurrentMap<String, V> values;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	public ParseCache(String name, int capacity) {
+		this.name = name;
+		this.capacity = capacity;
+		this.values = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Get the cached result for a string.
+	 *
+	 * @return the result or null if it has to be parsed
+	 */
+	public V get(String key) {
+		V ret = values.get(key);
+		(ret != null ? hits : misses).increment();
+
+		return ret;
+	}
+
+	/**
+	 * Cache a freshly parsed result.
+	 *
+	 * @return the result to use, which is a concurrently cached one if present
+	 */
+	public V put(String key, V value) {
+		if (values.size() >= capacity) return value;
+
+		V prev = values.putIfAbsent(key, value);
+
+		return prev != null ? prev : value;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public int size() {
+		return values.size();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: %d hits, %d misses, %d entries", name, getHits(), getMisses(), size());
+	}
+}
@@ -44,6 +44,26 @@ public final class SystemProperties {
 	public static final String PATH_GROUPS = "fabric.classPathGroups";
 	// system level libraries, matching code sources will not be assumed to be part of the game or mods and remain on the system class path (paths separated by path separator)
 	public static final String SYSTEM_LIBRARIES = "fabric.systemLibraries";
+	// load nested jars directly from their parent jar instead of extracting them to the cache dir, requires Java 9+
+	public static final String LOAD_NESTED_JARS_IN_PLACE = "fabric.loadNestedJarsInPlace";
+	// directory for a content addressed store of extracted nested mods that can be shared between game instances
+	public static final String SHARED_MOD_STORE = "fabric.sharedModStore";
+	// mod discovery executor: "parallel" (default), "sequential" or "virtual" (virtual thread per jar, requires Java 21+)
+	public static final String DISCOVERY_EXECUTOR = "fabric.discoveryExecutor";
+	// max. number of threads for parallel mod discovery, defaults to the number of available processors
+	public static final String DISCOVERY_PARALLELISM = "fabric.discoveryParallelism";
+	// record startup phase timings as JFR events and a JSON report in the cache dir
+	public static final String PROFILE_STARTUP = "fabric.profileStartup";
+	// find dev class path mods through a class path index built in parallel and cached in the cache dir instead of the class loader
+	public static final String CLASS_PATH_INDEX = "fabric.classPathIndex";
+	// watch the mods dir for changes while running and journal them in the cache dir to skip listing it on the next launch
+	public static final String WATCH_MODS_DIR = "fabric.watchModsDir";
+	// max. heap bytes for buffered nested jars during discovery like 64m, excess is spilled to temporary files
+	public static final String DISCOVERY_MEMORY_BUDGET = "fabric.discoveryMemoryBudget";
+	// mod discovery scan index in the cache dir: "false" to disable, "validate" to also verify the jar contents against a digest
+	public static final String DISCOVERY_INDEX = "fabric.discoveryIndex";
+	// mod resolution lock in the cache dir to skip solving if the mod candidates didn't change, "false" to disable
+	public static final String RESOLUTION_LOCK = "fabric.resolutionLock";
 	// throw exceptions from entrypoints, discovery etc. directly instead of gathering and attaching as suppressed
 	public static final String DEBUG_THROW_DIRECTLY = "fabric.debug.throwDirectly";
 	// logs library classification activity
@@ -64,6 +84,12 @@ public final class SystemProperties {
 	public static final String DEBUG_DISCOVERY_TIMEOUT = "fabric.debug.discoveryTimeout";
 	// override the mod resolution timeout, unit in seconds, <= 0 to disable
 	public static final String DEBUG_RESOLUTION_TIMEOUT = "fabric.debug.resolutionTimeout";
+	// override the time budget for finding a fix after failed mod resolution, unit in seconds, <= 0 to disable, uses the best fix found so far once exceeded
+	public static final String DEBUG_RESOLUTION_FIX_TIMEOUT = "fabric.debug.resolutionFixTimeout";
+	// solve the whole mod set as one problem instead of splitting it into independent components
+	public static final String DEBUG_DISABLE_RESOLUTION_SPLIT = "fabric.debug.disableResolutionSplit";
+	// select the mod resolution solver backend: sat4j (default) or cdcl (built-in, experimental)
+	public static final String DEBUG_RESOLUTION_BACKEND = "fabric.debug.resolutionBackend";
 	// replace mod versions (modA:versionA,modB:versionB,...)
 	public static final String DEBUG_REPLACE_VERSION = "fabric.debug.replaceVersion";
 	// deobfuscate the game jar with the classpath
@@ -22,6 +22,8 @@ import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.CodeSource;
@@ -31,6 +33,9 @@ public final class UrlUtil {
 
 	public static Path getCodeSource(URL url, String localPath) throws UrlConversionException {
 		try {
+			Path nestedJar = NestedJarUrlStreamHandler.getJarPath(url);
+			if (nestedJar != null) return nestedJar;
+
 			URLConnection connection = url.openConnection();
 
 			if (connection instanceof JarURLConnection) {
@@ -50,6 +55,9 @@ public final class UrlUtil {
 	}
 
 	public static Path asPath(URL url) {
+		Path ret = NestedJarUrlStreamHandler.getJarPath(url);
+		if (ret != null) return ret;
+
 		try {
 			return Paths.get(url.toURI());
 		} catch (URISyntaxException e) {
@@ -62,6 +70,10 @@ public final class UrlUtil {
 	}
 
 	public static URL asUrl(Path path) throws MalformedURLException {
+		if (path.getFileSystem() != FileSystems.getDefault() && Files.isRegularFile(path)) { // jar in another jar
+			return NestedJarUrlStreamHandler.createUrl(path);
+		}
+
 		return path.toUri().toURL();
 	}
 
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.util.profiler;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Emits startup spans as the custom JFR event {@code fabricloader.StartupSpan}.
+ *
+ * <p>The event type is created through {@code jdk.jfr.EventFactory} via reflection since the loader targets Java 8,
+ * which may not ship JFR. Without JFR all methods are no-ops.
+ */
+final class JfrSpanEvents {
+	private static final Object FACTORY;
+	private static final Method NEW_EVENT;
+	private static final Method BEGIN;
+	private static final Method END;
+	private static final Method SET;
+	private static final Method COMMIT;
+
+	static {
+		Object factory = null;
+		Method newEvent = null, begin = null, end = null, set = null, commit = null;
+
+		try {
+			Class<?> annotationElementCls = Class.forName("jdk.jfr.AnnotationElement");
+			Class<?> valueDescriptorCls = Class.forName("jdk.jfr.ValueDescriptor");
+			Class<?> eventFactoryCls = Class.forName("jdk.jfr.EventFactory");
+			Class<?> eventCls = Class.forName("jdk.jfr.Event");
+
+			Constructor<?> annotationCtor = annotationElementCls.getConstructor(Class.class, Object.class);
+			List<Object> annotations = Arrays.asList(
+					annotationCtor.newInstance(Class.forName("jdk.jfr.Name"), "fabricloader.StartupSpan"),
+					annotationCtor.newInstance(Class.forName("jdk.jfr.Label"), "Startup Span"),
+					annotationCtor.newInstance(Class.forName("jdk.jfr.Category"), new String[] { "Fabric Loader" }));
+
+			Constructor<?> fieldCtor = valueDescriptorCls.getConstructor(Class.class, String.class);
+			List<Object> fields = Arrays.asList(
+					fieldCtor.newInstance(String.class, "name"),
+					fieldCtor.newInstance(String.class, "detail"),
+					fieldCtor.newInstance(String.class, "path"));
+
+			factory = eventFactoryCls.getMethod("create", List.class, List.class).invoke(null, annotations, fields);
+			newEvent = eventFactoryCls.getMethod("newEvent");
+			begin = eventCls.getMethod("begin");
+			end = eventCls.getMethod("end");
+			set = eventCls.getMethod("set", int.class, Object.class);
+			commit = eventCls.getMethod("commit");
+		} catch (Throwable t) {
+			Log.debug(LogCategory.GENERAL, "JFR unavailable, not emitting startup span events: %s", t);
+			factory = null;
+		}
+
+		FACTORY = factory;
+		NEW_EVENT = newEvent;
+		BEGIN = begin;
+		END = end;
+		SET = set;
+		COMMIT = commit;
+	}
+
+	private JfrSpanEvents() { }
+
+	static Object begin() {
+		if (FACTORY == null) return null;
+
+		try {
+			Object ret = NEW_EVENT.invoke(FACTORY);
+			BEGIN.invoke(ret);
+
+			return ret;
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	static void commit(Object event, String name, String detail, String path) {
+		if (event == null) return;
+
+		try {
+			END.invoke(event);
+			SET.invoke(event, 0, name);
+			SET.invoke(event, 1, detail);
+			SET.invoke(event, 2, path);
+			COMMIT.invoke(event);
+		} catch (ReflectiveOperationException e) {
+			// ignore
+		}
+	}
+}
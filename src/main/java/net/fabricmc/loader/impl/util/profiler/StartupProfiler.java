@@ -0,0 +1,305 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.util.profiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.fabricmc.loader.impl.FabricLoaderImpl;
+import net.fabricmc.loader.impl.util.SystemProperties;
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Records hierarchical timing spans for the loader's startup phases.
+ *
+ * <p>Spans are emitted as JFR events if JFR is available and collected into a JSON report, which gets rewritten
+ * whenever a top level span completes. Spans started on a thread become the parent of further spans started on the
+ * same thread until they are closed, work on other threads can be attached explicitly with {@link Span#child}.
+ *
+ * <p>Profiling is only active with the {@link SystemProperties#PROFILE_STARTUP} system property, otherwise all spans
+ * are a shared no-op instance.
+ */
+public final class StartupProfiler {
+	private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty(SystemProperties.PROFILE_STARTUP, "false"));
+	private static final long START_TIME_MS = System.currentTimeMillis();
+	private static final long START_TIME_NS = System.nanoTime();
+	private static final Span ROOT = new Span(null, "root", null, false);
+	private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+	private static volatile Path reportFile;
+
+	private StartupProfiler() { }
+
+	public static boolean isEnabled() {
+		return ENABLED;
+	}
+
+	/**
+	 * Start a span as a child of the thread's current span.
+	 */
+	public static Span start(String name) {
+		return start(name, null);
+	}
+
+	/**
+	 * Start a span as a child of the thread's current span.
+	 *
+	 * @param detail further information about the span's subject like a mod id or path, may be null
+	 */
+	public static Span start(String name, String detail) {
+		if (!ENABLED) return Span.NOOP;
+
+		Span parent = CURRENT.get();
+
+		return new Span(parent != null ? parent : ROOT, name, detail, true);
+	}
+
+	/**
+	 * Get the thread's current span, to attach work performed on other threads to it.
+	 */
+	public static Span current() {
+		if (!ENABLED) return Span.NOOP;
+
+		Span ret = CURRENT.get();
+
+		return ret != null ? ret : ROOT;
+	}
+
+	/**
+	 * Set the file receiving the JSON report and write the spans completed so far to it.
+	 */
+	public static void setReportFile(Path file) {
+		if (!ENABLED) return;
+
+		reportFile = file;
+		writeReport();
+	}
+
+	private static synchronized void writeReport() {
+		Path file = reportFile;
+		if (file == null) return;
+
+		Path tmpFile = file.resolveSibling(file.getFileName()+".tmp");
+
+		try {
+			Files.createDirectories(file.toAbsolutePath().getParent());
+
+			try (Writer writer = Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8)) {
+				writer.write("{\"loaderVersion\":");
+				writeString(FabricLoaderImpl.VERSION, writer);
+				writer.write(",\"startTime\":");
+				writer.write(Long.toString(START_TIME_MS));
+				writer.write(",\"spans\":");
+				writeSpans(ROOT.getChildren(), writer);
+				writer.write("}\n");
+			}
+
+			Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			Log.warn(LogCategory.GENERAL, "Error writing startup profile %s", file, e);
+		}
+	}
+
+	private static void writeSpans(List<Span> spans, Writer writer) throws IOException {
+		writer.write('[');
+		boolean first = true;
+
+		for (Span span : spans) {
+			if (span.endTime == 0) continue; // still running
+
+			if (first) {
+				first = false;
+			} else {
+				writer.write(',');
+			}
+
+			writer.write("{\"name\":");
+			writeString(span.name, writer);
+
+			if (span.detail != null) {
+				writer.write(",\"detail\":");
+				writeString(span.detail, writer);
+			}
+
+			writer.write(",\"thread\":");
+			writeString(span.thread, writer);
+			writer.write(String.format(",\"startMs\":%.3f,\"durationMs\":%.3f", (span.startTime - START_TIME_NS) * 1e-6, (span.endTime - span.startTime) * 1e-6));
+
+			Map<String, Long> counters = span.getCounters();
+
+			if (!counters.isEmpty()) {
+				writer.write(",\"counters\":{");
+				boolean firstCounter = true;
+
+				for (Map.Entry<String, Long> entry : counters.entrySet()) {
+					if (firstCounter) {
+						firstCounter = false;
+					} else {
+						writer.write(',');
+					}
+
+					writeString(entry.getKey(), writer);
+					writer.write(':');
+					writer.write(Long.toString(entry.getValue()));
+				}
+
+				writer.write('}');
+			}
+
+			List<Span> children = span.getChildren();
+
+			if (!children.isEmpty()) {
+				writer.write(",\"children\":");
+				writeSpans(children, writer);
+			}
+
+			writer.write('}');
+		}
+
+		writer.write(']');
+	}
+
+	private static void writeString(String str, Writer writer) throws IOException {
+		writer.write('"');
+
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+
+			switch (c) {
+			case '"': writer.write("\\\""); break;
+			case '\\': writer.write("\\\\"); break;
+			case '\n': writer.write("\\n"); break;
+			case '\r': writer.write("\\r"); break;
+			case '\t': writer.write("\\t"); break;
+			default:
+				if (c < 0x20) {
+					writer.write(String.format("\\u%04x", (int) c));
+				} else {
+					writer.write(c);
+				}
+			}
+		}
+
+		writer.write('"');
+	}
+
+	public static final class Span implements AutoCloseable {
+		static final Span NOOP = new Span(null, "noop", null, false);
+
+		private final Span parent;
+		private final String name;
+		private final String detail;
+		private final String thread;
+		private final List<Span> children = new ArrayList<>();
+		private final Map<String, Long> counters = new LinkedHashMap<>();
+		private final Span prevCurrent;
+		private final Object jfrEvent;
+		private final long startTime;
+		private volatile long endTime;
+
+		private Span(Span parent, String name, String detail, boolean bind) {
+			this.parent = parent;
+			this.name = name;
+			this.detail = detail;
+			this.thread = Thread.currentThread().getName();
+
+			if (bind) {
+				synchronized (parent.children) {
+					parent.children.add(this);
+				}
+
+				prevCurrent = CURRENT.get();
+				CURRENT.set(this);
+				jfrEvent = JfrSpanEvents.begin();
+			} else {
+				prevCurrent = null;
+				jfrEvent = null;
+			}
+
+			this.startTime = System.nanoTime();
+		}
+
+		/**
+		 * Start a span as a child of this span, for work performed on behalf of this span in another thread.
+		 */
+		public Span child(String name, String detail) {
+			if (this == NOOP) return NOOP;
+
+			return new Span(this, name, detail, true);
+		}
+
+		/**
+		 * Record a counter for the work performed within this span, like the number of processed items.
+		 */
+		public void setCounter(String name, long value) {
+			if (this == NOOP) return;
+
+			synchronized (counters) {
+				counters.put(name, value);
+			}
+		}
+
+		Map<String, Long> getCounters() {
+			synchronized (counters) {
+				return new LinkedHashMap<>(counters);
+			}
+		}
+
+		List<Span> getChildren() {
+			synchronized (children) {
+				return new ArrayList<>(children);
+			}
+		}
+
+		@Override
+		public void close() {
+			if (this == NOOP || endTime != 0) return;
+
+			endTime = System.nanoTime();
+
+			if (CURRENT.get() == this) {
+				if (prevCurrent != null) {
+					CURRENT.set(prevCurrent);
+				} else {
+					CURRENT.remove();
+				}
+			}
+
+			JfrSpanEvents.commit(jfrEvent, name, detail, getPath());
+
+			if (parent == ROOT) writeReport();
+		}
+
+		private String getPath() {
+			StringBuilder ret = new StringBuilder(name);
+
+			for (Span span = parent; span != null && span != ROOT; span = span.parent) {
+				ret.insert(0, '/').insert(0, span.name);
+			}
+
+			return ret.toString();
+		}
+	}
+}
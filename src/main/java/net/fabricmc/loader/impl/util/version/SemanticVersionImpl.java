@@ -16,11 +16,11 @@
 
 package net.fabricmc.loader.impl.util.version;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.StringTokenizer;
-import java.util.regex.Pattern;
 
 import net.fabricmc.loader.api.SemanticVersion;
 import net.fabricmc.loader.api.Version;
@@ -37,81 +37,81 @@ import net.fabricmc.loader.api.VersionParsingException;
  */
 @SuppressWarnings("deprecation")
 public class SemanticVersionImpl extends net.fabricmc.loader.util.version.SemanticVersionImpl implements SemanticVersion {
-	private static final Pattern DOT_SEPARATED_ID = Pattern.compile("|[-0-9A-Za-z]+(\\.[-0-9A-Za-z]+)*");
-	private static final Pattern UNSIGNED_INTEGER = Pattern.compile("0|[1-9][0-9]*");
+	// prerelease identifier keys besides the numeric value of short numeric identifiers
+	private static final long NON_NUMERIC_ID = -1;
+	private static final long LONG_NUMERIC_ID = -2;
+	private static final int MAX_SHORT_NUMERIC_ID_LENGTH = 18;
+
 	private final int[] components;
 	private final String prerelease;
 	private final String build;
 	private String friendlyName;
 
+	// comparison key: components packed in pairs without trailing zeros (null with wildcards), tokenized prerelease
+	private final long[] packedComponents;
+	private final String[] prereleaseIds;
+	private final long[] prereleaseIdKeys;
+
 	public SemanticVersionImpl(String version, boolean storeX) throws VersionParsingException {
-		int buildDelimPos = version.indexOf('+');
+		int end = version.indexOf('+');
 
-		if (buildDelimPos >= 0) {
-			build = version.substring(buildDelimPos + 1);
-			version = version.substring(0, buildDelimPos);
+		if (end >= 0) {
+			build = version.substring(end + 1);
 		} else {
 			build = null;
+			end = version.length();
 		}
 
-		int dashDelimPos = version.indexOf('-');
+		int coreEnd = version.indexOf('-');
 
-		if (dashDelimPos >= 0) {
-			prerelease = version.substring(dashDelimPos + 1);
-			version = version.substring(0, dashDelimPos);
+		if (coreEnd >= 0 && coreEnd < end) {
+			prerelease = version.substring(coreEnd + 1, end);
+
+			if (!isDotSeparatedId(prerelease)) {
+				throw new VersionParsingException("Invalid prerelease string '" + prerelease + "'!");
+			}
 		} else {
 			prerelease = null;
+			coreEnd = end;
 		}
 
-		if (prerelease != null && !DOT_SEPARATED_ID.matcher(prerelease).matches()) {
-			throw new VersionParsingException("Invalid prerelease string '" + prerelease + "'!");
-		}
-
-		if (version.endsWith(".")) {
+		if (coreEnd > 0 && version.charAt(coreEnd - 1) == '.') {
 			throw new VersionParsingException("Negative version number component found!");
-		} else if (version.startsWith(".")) {
+		} else if (coreEnd > 0 && version.charAt(0) == '.') {
 			throw new VersionParsingException("Missing version component!");
 		}
 
-		String[] componentStrings = version.split("\\.");
+		int componentCount = 1;
 
-		if (componentStrings.length < 1) {
-			throw new VersionParsingException("Did not provide version numbers!");
+		for (int i = 0; i < coreEnd; i++) {
+			if (version.charAt(i) == '.') componentCount++;
 		}
 
-		int[] components = new int[componentStrings.length];
+		int[] components = new int[componentCount];
 		int firstWildcardIdx = -1;
+		int start = 0;
 
-		for (int i = 0; i < componentStrings.length; i++) {
-			String compStr = componentStrings[i];
+		for (int i = 0; i < componentCount; i++) {
+			int compEnd = version.indexOf('.', start);
+			if (compEnd < 0 || compEnd > coreEnd) compEnd = coreEnd;
 
 			if (storeX) {
-				if (compStr.equals("x") || compStr.equals("X") || compStr.equals("*")) {
+				if (compEnd == start + 1 && isWildcard(version.charAt(start))) {
 					if (prerelease != null) {
 						throw new VersionParsingException("Pre-release versions are not allowed to use X-ranges!");
 					}
 
 					components[i] = COMPONENT_WILDCARD;
 					if (firstWildcardIdx < 0) firstWildcardIdx = i;
+					start = compEnd + 1;
 					continue;
 				} else if (i > 0 && components[i - 1] == COMPONENT_WILDCARD) {
 					throw new VersionParsingException("Interjacent wildcard (1.x.2) are disallowed!");
 				}
 			}
 
-			if (compStr.trim().isEmpty()) {
-				throw new VersionParsingException("Missing version number component!");
-			}
-
-			try {
-				components[i] = Integer.parseInt(compStr);
-
-				if (components[i] < 0) {
-					throw new VersionParsingException("Negative version number component '" + compStr + "'!");
-				}
-			} catch (NumberFormatException e) {
-				throw new VersionParsingException("Could not parse version number component '" + compStr + "'!", e);
-			}
+			components[i] = parseComponent(version, start, compEnd);
+			start = compEnd + 1;
 		}
 
 		if (storeX && components.length == 1 && components[0] == COMPONENT_WILDCARD) {
@@ -124,6 +124,9 @@ public class SemanticVersionImpl extends net.fabricmc.loader.util.version.Semant
 		}
 
 		this.components = components;
+		this.packedComponents = packComponents(components);
+		this.prereleaseIds = splitPrerelease(prerelease);
+		this.prereleaseIdKeys = getIdKeys(prereleaseIds);
 
 		buildFriendlyName();
 	}
@@ -134,10 +137,154 @@ public class SemanticVersionImpl extends net.fabricmc.loader.util.version.Semant
 		this.components = components;
 		this.prerelease = prerelease;
 		this.build = build;
+		this.packedComponents = packComponents(components);
+		this.prereleaseIds = splitPrerelease(prerelease);
+		this.prereleaseIdKeys = getIdKeys(prereleaseIds);
 
 		buildFriendlyName();
 	}
 
+	private static boolean isWildcard(char c) {
+		return c == 'x' || c == 'X' || c == '*';
+	}
+
+	private static int parseComponent(String version, int start, int end) throws VersionParsingException {
+		int len = end - start;
+
+		if (len > 0 && len <= 9) { // fast path for plain ascii digits, 9 digits can't overflow
+			int ret = 0;
+
+			for (int i = start; i < end; i++) {
+				char c = version.charAt(i);
+
+				if (c < '0' || c > '9') {
+					ret = -1;
+					break;
+				}
+
+				ret = ret * 10 + c - '0';
+			}
+
+			if (ret >= 0) return ret;
+		}
+
+		String compStr = version.substring(start, end);
+
+		if (compStr.trim().isEmpty()) {
+			throw new VersionParsingException("Missing version number component!");
+		}
+
+		try {
+			int ret = Integer.parseInt(compStr);
+
+			if (ret < 0) {
+				throw new VersionParsingException("Negative version number component '" + compStr + "'!");
+			}
+
+			return ret;
+		} catch (NumberFormatException e) {
+			throw new VersionParsingException("Could not parse version number component '" + compStr + "'!", e);
+		}
+	}
+
+	/**
+	 * Check whether s is empty or dot separated identifiers consisting of {@code [-0-9A-Za-z]}.
+	 */
+	private static boolean isDotSeparatedId(String s) {
+		int len = s.length();
+		if (len == 0) return true;
+
+		boolean idStart = true;
+
+		for (int i = 0; i < len; i++) {
+			char c = s.charAt(i);
+
+			if (c == '.') {
+				if (idStart) return false;
+				idStart = true;
+			} else if (c >= '0' && c <= '9' || c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '-') {
+				idStart = false;
+			} else {
+				return false;
+			}
+		}
+
+		return !idStart;
+	}
+
+	private static long[] packComponents(int[] components) {
+		int len = components.length;
+
+		for (int c : components) {
+			if (c < 0) return null;
+		}
+
+		while (len > 0 && components[len - 1] == 0) {
+			len--;
+		}
+
+		long[] ret = new long[(len + 1) / 2];
+
+		for (int i = 0; i < len; i++) {
+			ret[i / 2] |= (long) components[i] << ((i & 1) == 0 ? 32 : 0);
+		}
+
+		return ret;
+	}
+
+	private static String[] splitPrerelease(String prerelease) {
+		if (prerelease == null) return null;
+
+		// same tokenization as StringTokenizer, which skips empty tokens
+		List<String> ret = new ArrayList<>();
+		int start = 0;
+		int end;
+
+		while ((end = prerelease.indexOf('.', start)) >= 0) {
+			if (end > start) ret.add(prerelease.substring(start, end));
+			start = end + 1;
+		}
+
+		if (start < prerelease.length()) ret.add(prerelease.substring(start));
+
+		return ret.toArray(new String[0]);
+	}
+
+	private static long[] getIdKeys(String[] ids) {
+		if (ids == null) return null;
+
+		long[] ret = new long[ids.length];
+
+		for (int i = 0; i < ids.length; i++) {
+			String id = ids[i];
+
+			if (!isUnsignedInteger(id)) {
+				ret[i] = NON_NUMERIC_ID;
+			} else if (id.length() > MAX_SHORT_NUMERIC_ID_LENGTH) {
+				ret[i] = LONG_NUMERIC_ID;
+			} else {
+				ret[i] = Long.parseLong(id);
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Check whether s matches {@code 0|[1-9][0-9]*}.
+	 */
+	private static boolean isUnsignedInteger(String s) {
+		int len = s.length();
+		if (len == 0 || len > 1 && s.charAt(0) == '0') return false;
+
+		for (int i = 0; i < len; i++) {
+			char c = s.charAt(i);
+			if (c < '0' || c > '9') return false;
+		}
+
+		return true;
+	}
+
 	private void buildFriendlyName() {
 		StringBuilder fnBuilder = new StringBuilder();
 		boolean first = true;
@@ -205,12 +352,16 @@ public class SemanticVersionImpl extends net.fabricmc.loader.util.version.Semant
 
 	@Override
 	public boolean equals(Object o) {
-		if (!(o instanceof SemanticVersionImpl)) {
+		if (o == this) { // common with interned versions
+			return true;
+		} else if (!(o instanceof SemanticVersionImpl)) {
 			return false;
 		} else {
 			SemanticVersionImpl other = (SemanticVersionImpl) o;
 
-			if (!equalsComponentsExactly(other)) {
+			if (packedComponents != null && other.packedComponents != null) {
+				if (!Arrays.equals(packedComponents, other.packedComponents)) return false;
+			} else if (!equalsComponentsExactly(other)) {
 				return false;
 			}
 
@@ -220,7 +371,10 @@ public class SemanticVersionImpl extends net.fabricmc.loader.util.version.Semant
 
 	@Override
 	public int hashCode() {
-		return Arrays.hashCode(components) * 73 + (prerelease != null ? prerelease.hashCode() * 11 : 0) + (build != null ? build.hashCode() : 0);
+		// packed components ignore trailing zeros like equals does
+		int componentsHash = packedComponents != null ? Arrays.hashCode(packedComponents) : Arrays.hashCode(components);
+
+		return componentsHash * 73 + (prerelease != null ? prerelease.hashCode() * 11 : 0) + (build != null ? build.hashCode() : 0);
 	}
 
 	@Override
@@ -230,13 +384,7 @@ public class SemanticVersionImpl extends net.fabricmc.loader.util.version.Semant
 
 	@Override
 	public boolean hasWildcard() {
-		for (int i : components) {
-			if (i < 0) {
-				return true;
-			}
-		}
-
-		return false;
+		return packedComponents == null;
 	}
 
 	public boolean equalsComponentsExactly(SemanticVersionImpl other) {
@@ -251,7 +399,15 @@ public class SemanticVersionImpl extends net.fabricmc.loader.util.version.Semant
 
 	@Override
 	public int compareTo(Version other) {
-		if (!(other instanceof SemanticVersion)) {
+		if (other == this) {
+			return 0;
+		} else if (other instanceof SemanticVersionImpl) {
+			SemanticVersionImpl o = (SemanticVersionImpl) other;
+
+			if (packedComponents != null && o.packedComponents != null) {
+				return compareToPacked(o);
+			}
+		} else if (!(other instanceof SemanticVersion)) {
 			return getFriendlyString().compareTo(other.getFriendlyString());
 		}
 
@@ -269,47 +425,65 @@ public class SemanticVersionImpl extends net.fabricmc.loader.util.version.Semant
 			if (compare != 0) return compare;
 		}
 
-		Optional<String> prereleaseA = getPrereleaseKey();
-		Optional<String> prereleaseB = o.getPrereleaseKey();
-
-		if (prereleaseA.isPresent() || prereleaseB.isPresent()) {
-			if (prereleaseA.isPresent() && prereleaseB.isPresent()) {
-				StringTokenizer prereleaseATokenizer = new StringTokenizer(prereleaseA.get(), ".");
-				StringTokenizer prereleaseBTokenizer = new StringTokenizer(prereleaseB.get(), ".");
-
-				while (prereleaseATokenizer.hasMoreElements()) {
-					if (prereleaseBTokenizer.hasMoreElements()) {
-						String partA = prereleaseATokenizer.nextToken();
-						String partB = prereleaseBTokenizer.nextToken();
-
-						if (UNSIGNED_INTEGER.matcher(partA).matches()) {
-							if (UNSIGNED_INTEGER.matcher(partB).matches()) {
-								int compare = Integer.compare(partA.length(), partB.length());
-								if (compare != 0) return compare;
-							} else {
-								return -1;
-							}
-						} else {
-							if (UNSIGNED_INTEGER.matcher(partB).matches()) {
-								return 1;
-							}
-						}
-
-						int compare = partA.compareTo(partB);
-						if (compare != 0) return compare;
-					} else {
-						return 1;
-					}
-				}
+		String[] idsB;
+		long[] keysB;
 
-				return prereleaseBTokenizer.hasMoreElements() ? -1 : 0;
-			} else if (prereleaseA.isPresent()) {
-				return o.hasWildcard() ? 0 : -1;
-			} else { // prereleaseB.isPresent()
-				return hasWildcard() ? 0 : 1;
-			}
+		if (o instanceof SemanticVersionImpl) {
+			idsB = ((SemanticVersionImpl) o).prereleaseIds;
+			keysB = ((SemanticVersionImpl) o).prereleaseIdKeys;
+		} else {
+			idsB = splitPrerelease(o.getPrereleaseKey().orElse(null));
+			keysB = getIdKeys(idsB);
+		}
+
+		if (prereleaseIds != null && idsB != null) {
+			return comparePrerelease(prereleaseIds, prereleaseIdKeys, idsB, keysB);
+		} else if (prereleaseIds != null) {
+			return o.hasWildcard() ? 0 : -1;
+		} else if (idsB != null) {
+			return hasWildcard() ? 0 : 1;
 		} else {
 			return 0;
 		}
 	}
+
+	private int compareToPacked(SemanticVersionImpl o) {
+		long[] a = packedComponents;
+		long[] b = o.packedComponents;
+
+		for (int i = 0, max = Math.max(a.length, b.length); i < max; i++) {
+			int compare = Long.compare(i < a.length ? a[i] : 0, i < b.length ? b[i] : 0);
+			if (compare != 0) return compare;
+		}
+
+		// neither version has wildcards, so a prerelease always sorts before its release
+		if (prereleaseIds != null) {
+			return o.prereleaseIds != null ? comparePrerelease(prereleaseIds, prereleaseIdKeys, o.prereleaseIds, o.prereleaseIdKeys) : -1;
+		} else {
+			return o.prereleaseIds != null ? 1 : 0;
+		}
+	}
+
+	private static int comparePrerelease(String[] idsA, long[] keysA, String[] idsB, long[] keysB) {
+		for (int i = 0, max = Math.min(idsA.length, idsB.length); i < max; i++) {
+			long keyA = keysA[i];
+			long keyB = keysB[i];
+			int compare;
+
+			if (keyA >= 0 && keyB >= 0) { // both short numeric
+				compare = Long.compare(keyA, keyB);
+			} else if ((keyA == NON_NUMERIC_ID) != (keyB == NON_NUMERIC_ID)) { // numeric identifiers sort first
+				return keyA == NON_NUMERIC_ID ? 1 : -1;
+			} else if (keyA != NON_NUMERIC_ID) { // numeric with at least one being long, compare length first
+				compare = Integer.compare(idsA[i].length(), idsB[i].length());
+				if (compare == 0) compare = idsA[i].compareTo(idsB[i]);
+			} else {
+				compare = idsA[i].compareTo(idsB[i]);
+			}
+
+			if (compare != 0) return compare;
+		}
+
+		return Integer.compare(idsA.length, idsB.length);
+	}
 }
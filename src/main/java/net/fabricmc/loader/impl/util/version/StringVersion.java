@@ -32,7 +32,9 @@ public class StringVersion implements Version {
 
 	@Override
 	public boolean equals(Object obj) {
-		if (obj instanceof StringVersion) {
+		if (obj == this) {
+			return true;
+		} else if (obj instanceof StringVersion) {
 			return version.equals(((StringVersion) obj).version);
 		} else {
 			return false;
@@ -191,6 +191,10 @@ public final class VersionIntervalImpl implements VersionInterval {
 	public static List<VersionInterval> and(Collection<VersionInterval> a, Collection<VersionInterval> b) {
 		if (a.isEmpty() || b.isEmpty()) return Collections.emptyList();
 
+		VersionIntervalSet setA = VersionIntervalSet.of(a);
+		VersionIntervalSet setB = setA != null ? VersionIntervalSet.of(b) : null;
+		if (setB != null) return setA.and(setB);
+
 		if (a.size() == 1 && b.size() == 1) {
 			VersionInterval merged = and(a.iterator().next(), b.iterator().next());
 			return merged != null ? Collections.singletonList(merged) : Collections.emptyList();
@@ -228,6 +232,10 @@ public final class VersionIntervalImpl implements VersionInterval {
 			}
 		}
 
+		VersionIntervalSet setA = VersionIntervalSet.of(a);
+		VersionIntervalSet setB = setA != null ? VersionIntervalSet.of(b) : null;
+		if (setB != null) return setA.or(setB);
+
 		List<VersionInterval> ret = new ArrayList<>(a.size() + 1);
 
 		for (VersionInterval v : a) {
@@ -461,6 +469,9 @@ public final class VersionIntervalImpl implements VersionInterval {
 		if (intervals.isEmpty()) return Collections.singletonList(INFINITE);
 		if (intervals.size() == 1) return not(intervals.iterator().next());
 
+		VersionIntervalSet set = VersionIntervalSet.of(intervals);
+		if (set != null) return set.not();
+
 		// !(i0 || i1 || i2) == !i0 && !i1 && !i2
 
 		List<VersionInterval> ret = null;
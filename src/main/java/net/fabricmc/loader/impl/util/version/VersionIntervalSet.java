@@ -0,0 +1,340 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.util.version;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+import net.fabricmc.loader.api.SemanticVersion;
+import net.fabricmc.loader.api.Version;
+import net.fabricmc.loader.api.metadata.version.VersionInterval;
+
+/**
+ * Immutable union of semantic version intervals in canonical form.
+ *
+ * <p>The intervals are sorted, non-empty and neither overlap nor touch, so equal sets have equal content. The bounds
+ * are stored in flat arrays, union, intersection and complement are linear merges over them and {@link #contains}
+ * is a binary search. The set is a read-only {@code List<VersionInterval>} to be usable wherever the API expects
+ * interval lists, the interval objects are created on first access.
+ */
+public final class VersionIntervalSet extends AbstractList<VersionInterval> implements RandomAccess {
+	private static final byte MIN_INCLUSIVE = 1;
+	private static final byte MAX_INCLUSIVE = 2;
+
+	public static final VersionIntervalSet EMPTY = new VersionIntervalSet(new SemanticVersion[0], new byte[0]);
+	public static final VersionIntervalSet INFINITE = new VersionIntervalSet(new SemanticVersion[2], new byte[1]);
+
+	private final int size;
+	private final SemanticVersion[] bounds; // min and max of each interval, null for unbounded
+	private final byte[] flags; // MIN_INCLUSIVE and MAX_INCLUSIVE of each interval
+	private volatile VersionInterval[] intervals;
+
+	private VersionIntervalSet(SemanticVersion[] bounds, byte[] flags) {
+		this.size = flags.length;
+		this.bounds = bounds;
+		this.flags = flags;
+	}
+
+	/**
+	 * Create a canonical set from a single interval.
+	 *
+	 * @return the set or null if the interval isn't semantic
+	 */
+	public static VersionIntervalSet of(VersionInterval interval) {
+		if (interval == null) return EMPTY;
+		if (!interval.isSemantic()) return null;
+		if (interval.getMin() == null && interval.getMax() == null) return INFINITE;
+
+		Builder builder = new Builder(1);
+		builder.add(interval);
+
+		return builder.build();
+	}
+
+	/**
+	 * Create a canonical set from arbitrary intervals.
+	 *
+	 * @return the set or null if any of the intervals isn't semantic
+	 */
+	public static VersionIntervalSet of(Collection<VersionInterval> intervals) {
+		if (intervals instanceof VersionIntervalSet) return (VersionIntervalSet) intervals;
+		if (intervals.isEmpty()) return EMPTY;
+		if (intervals.size() == 1) return of(intervals.iterator().next());
+
+		VersionInterval[] sorted = new VersionInterval[intervals.size()];
+		int count = 0;
+
+		for (VersionInterval interval : intervals) {
+			if (interval == null) continue;
+			if (!interval.isSemantic()) return null;
+
+			sorted[count++] = interval;
+		}
+
+		Arrays.sort(sorted, 0, count, (a, b) -> compareMin((SemanticVersion) a.getMin(), a.isMinInclusive(), (SemanticVersion) b.getMin(), b.isMinInclusive()));
+		Builder builder = new Builder(count);
+
+		for (int i = 0; i < count; i++) {
+			builder.add(sorted[i]);
+		}
+
+		return builder.build();
+	}
+
+	public boolean isInfinite() {
+		return size == 1 && bounds[0] == null && bounds[1] == null;
+	}
+
+	/**
+	 * Determine whether the version is part of any of the intervals, non-semantic versions never are.
+	 */
+	public boolean contains(Version version) {
+		if (!(version instanceof SemanticVersion)) return false;
+
+		// find the last interval starting at or before version
+		int low = 0;
+		int high = size - 1;
+		int idx = -1;
+
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			SemanticVersion min = bounds[mid * 2];
+			int cmp;
+
+			if (min == null || (cmp = min.compareTo(version)) < 0 || cmp == 0 && (flags[mid] & MIN_INCLUSIVE) != 0) {
+				idx = mid;
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+
+		if (idx < 0) return false;
+
+		SemanticVersion max = bounds[idx * 2 + 1];
+		int cmp;
+
+		return max == null || (cmp = max.compareTo(version)) > 0 || cmp == 0 && (flags[idx] & MAX_INCLUSIVE) != 0;
+	}
+
+	public VersionIntervalSet or(VersionIntervalSet o) {
+		if (o.size == 0 || isInfinite()) return this;
+		if (size == 0 || o.isInfinite()) return o;
+
+		Builder builder = new Builder(size + o.size);
+		int i = 0;
+		int j = 0;
+
+		while (i < size || j < o.size) {
+			if (j >= o.size || i < size && compareMin(bounds[i * 2], (flags[i] & MIN_INCLUSIVE) != 0, o.bounds[j * 2], (o.flags[j] & MIN_INCLUSIVE) != 0) <= 0) {
+				builder.add(bounds[i * 2], flags[i], bounds[i * 2 + 1]);
+				i++;
+			} else {
+				builder.add(o.bounds[j * 2], o.flags[j], o.bounds[j * 2 + 1]);
+				j++;
+			}
+		}
+
+		return builder.build();
+	}
+
+	public VersionIntervalSet and(VersionIntervalSet o) {
+		if (size == 0 || o.isInfinite()) return this;
+		if (o.size == 0 || isInfinite()) return o;
+
+		Builder builder = new Builder(size + o.size);
+		int i = 0;
+		int j = 0;
+
+		while (i < size && j < o.size) {
+			// intersection of the current pair: the larger min to the smaller max
+			SemanticVersion aMin = bounds[i * 2];
+			boolean aMinInclusive = (flags[i] & MIN_INCLUSIVE) != 0;
+			SemanticVersion bMin = o.bounds[j * 2];
+			boolean bMinInclusive = (o.flags[j] & MIN_INCLUSIVE) != 0;
+			SemanticVersion aMax = bounds[i * 2 + 1];
+			boolean aMaxInclusive = (flags[i] & MAX_INCLUSIVE) != 0;
+			SemanticVersion bMax = o.bounds[j * 2 + 1];
+			boolean bMaxInclusive = (o.flags[j] & MAX_INCLUSIVE) != 0;
+
+			boolean useA = compareMin(aMin, aMinInclusive, bMin, bMinInclusive) >= 0;
+			SemanticVersion min = useA ? aMin : bMin;
+			boolean minInclusive = useA ? aMinInclusive : bMinInclusive;
+			int maxCmp = compareMax(aMax, aMaxInclusive, bMax, bMaxInclusive);
+			SemanticVersion max = maxCmp <= 0 ? aMax : bMax;
+			boolean maxInclusive = maxCmp <= 0 ? aMaxInclusive : bMaxInclusive;
+
+			builder.add(min, toFlags(minInclusive, maxInclusive), max);
+
+			// advance the interval ending first, the other one may still overlap the next interval
+			if (maxCmp <= 0) i++;
+			if (maxCmp >= 0) j++;
+		}
+
+		return builder.build();
+	}
+
+	public VersionIntervalSet not() {
+		if (size == 0) return INFINITE;
+		if (isInfinite()) return EMPTY;
+
+		Builder builder = new Builder(size + 1);
+
+		if (bounds[0] != null) {
+			builder.add(null, toFlags(false, (flags[0] & MIN_INCLUSIVE) == 0), bounds[0]);
+		}
+
+		for (int i = 0; i < size; i++) {
+			SemanticVersion max = bounds[i * 2 + 1];
+			if (max == null) break; // unbounded towards max, must be the last interval
+
+			SemanticVersion nextMin = i + 1 < size ? bounds[i * 2 + 2] : null;
+			boolean nextMinInclusive = i + 1 < size && (flags[i + 1] & MIN_INCLUSIVE) != 0;
+			builder.add(max, toFlags((flags[i] & MAX_INCLUSIVE) == 0, !nextMinInclusive && nextMin != null), nextMin);
+		}
+
+		return builder.build();
+	}
+
+	@Override
+	public VersionInterval get(int index) {
+		if (index < 0 || index >= size) throw new IndexOutOfBoundsException(Integer.toString(index));
+
+		VersionInterval[] intervals = this.intervals;
+
+		if (intervals == null) {
+			intervals = new VersionInterval[size];
+
+			for (int i = 0; i < size; i++) {
+				SemanticVersion min = bounds[i * 2];
+				SemanticVersion max = bounds[i * 2 + 1];
+
+				if (min == null && max == null) {
+					intervals[i] = VersionInterval.INFINITE;
+				} else {
+					intervals[i] = new VersionIntervalImpl(min, (flags[i] & MIN_INCLUSIVE) != 0, max, (flags[i] & MAX_INCLUSIVE) != 0);
+				}
+			}
+
+			this.intervals = intervals;
+		}
+
+		return intervals[index];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	private static byte toFlags(boolean minInclusive, boolean maxInclusive) {
+		return (byte) ((minInclusive ? MIN_INCLUSIVE : 0) | (maxInclusive ? MAX_INCLUSIVE : 0));
+	}
+
+	/**
+	 * Compare lower bounds, null is -∞ and an inclusive bound is lower than an exclusive one at the same version.
+	 */
+	private static int compareMin(SemanticVersion a, boolean aInclusive, SemanticVersion b, boolean bInclusive) {
+		if (a == null) return b == null ? 0 : -1;
+		if (b == null) return 1;
+
+		int cmp = a.compareTo((Version) b);
+		if (cmp != 0 || aInclusive == bInclusive) return cmp;
+
+		return aInclusive ? -1 : 1;
+	}
+
+	/**
+	 * Compare upper bounds, null is ∞ and an inclusive bound is higher than an exclusive one at the same version.
+	 */
+	private static int compareMax(SemanticVersion a, boolean aInclusive, SemanticVersion b, boolean bInclusive) {
+		if (a == null) return b == null ? 0 : 1;
+		if (b == null) return -1;
+
+		int cmp = a.compareTo((Version) b);
+		if (cmp != 0 || aInclusive == bInclusive) return cmp;
+
+		return aInclusive ? 1 : -1;
+	}
+
+	/**
+	 * Accumulates intervals sorted by their lower bound, dropping empty ones and coalescing overlapping or touching ones.
+	 */
+	private static final class Builder {
+		private SemanticVersion[] bounds;
+		private byte[] flags;
+		private int size;
+
+		Builder(int capacity) {
+			bounds = new SemanticVersion[capacity * 2];
+			flags = new byte[capacity];
+		}
+
+		void add(VersionInterval interval) {
+			add((SemanticVersion) interval.getMin(), toFlags(interval.isMinInclusive(), interval.isMaxInclusive()), (SemanticVersion) interval.getMax());
+		}
+
+		void add(SemanticVersion min, byte flags, SemanticVersion max) {
+			int cmp;
+
+			// unbounded ends are never inclusive
+			if (min == null) flags &= ~MIN_INCLUSIVE;
+			if (max == null) flags &= ~MAX_INCLUSIVE;
+
+			if (min != null && max != null && ((cmp = min.compareTo((Version) max)) > 0 || cmp == 0 && flags != (MIN_INCLUSIVE | MAX_INCLUSIVE))) {
+				return; // empty
+			}
+
+			if (size > 0) {
+				int last = size - 1;
+				SemanticVersion lastMax = bounds[last * 2 + 1];
+
+				if (lastMax == null) return; // last interval already extends to ∞
+
+				if (min == null || (cmp = min.compareTo((Version) lastMax)) < 0 || cmp == 0 && ((flags & MIN_INCLUSIVE) != 0 || (this.flags[last] & MAX_INCLUSIVE) != 0)) {
+					// overlapping or touching, extend the last interval if this one reaches further
+					if (compareMax(max, (flags & MAX_INCLUSIVE) != 0, lastMax, (this.flags[last] & MAX_INCLUSIVE) != 0) > 0) {
+						bounds[last * 2 + 1] = max;
+						this.flags[last] = (byte) (this.flags[last] & MIN_INCLUSIVE | flags & MAX_INCLUSIVE);
+					}
+
+					return;
+				}
+			}
+
+			if (size == this.flags.length) {
+				this.bounds = Arrays.copyOf(this.bounds, size * 4 + 2);
+				this.flags = Arrays.copyOf(this.flags, size * 2 + 1);
+			}
+
+			bounds[size * 2] = min;
+			bounds[size * 2 + 1] = max;
+			this.flags[size] = flags;
+			size++;
+		}
+
+		VersionIntervalSet build() {
+			if (size == 0) return EMPTY;
+			if (size == 1 && bounds[0] == null && bounds[1] == null) return INFINITE;
+
+			return new VersionIntervalSet(size * 2 == bounds.length ? bounds : Arrays.copyOf(bounds, size * 2),
+					size == flags.length ? flags : Arrays.copyOf(flags, size));
+		}
+	}
+}
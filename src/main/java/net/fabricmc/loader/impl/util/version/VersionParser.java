@@ -19,22 +19,34 @@ package net.fabricmc.loader.impl.util.version;
 import net.fabricmc.loader.api.SemanticVersion;
 import net.fabricmc.loader.api.Version;
 import net.fabricmc.loader.api.VersionParsingException;
+import net.fabricmc.loader.impl.util.Interner;
+import net.fabricmc.loader.impl.util.ParseCache;
 
 public final class VersionParser {
+	private static final int CACHE_CAPACITY = 8192;
+	// results by input string, separately for storeX since it changes what parses successfully
+	private static final ParseCache<Version> VERSIONS = new ParseCache<>("versions", CACHE_CAPACITY);
+	private static final ParseCache<Version> X_VERSIONS = new ParseCache<>("x-range versions", CACHE_CAPACITY);
+	// pooled by friendly string, which fully determines the version's components, unlike equals
+	private static final Interner<String, SemanticVersionImpl> SEMANTIC_VERSIONS = new Interner<>();
+	private static final Interner<String, StringVersion> STRING_VERSIONS = new Interner<>();
+
 	public static Version parse(String s, boolean storeX) throws VersionParsingException {
 		if (s == null || s.isEmpty()) {
 			throw new VersionParsingException("Version must be a non-empty string!");
 		}
 
-		Version version;
+		ParseCache<Version> cache = storeX ? X_VERSIONS : VERSIONS;
+		Version version = cache.get(s);
+		if (version != null) return version;
 
 		try {
-			version = new SemanticVersionImpl(s, storeX);
+			version = intern(new SemanticVersionImpl(s, storeX));
 		} catch (VersionParsingException e) {
-			version = new StringVersion(s);
+			version = STRING_VERSIONS.intern(s, new StringVersion(s));
 		}
 
-		return version;
+		return cache.put(s, version);
 	}
 
 	public static SemanticVersion parseSemantic(String s) throws VersionParsingException {
@@ -42,6 +54,21 @@ public final class VersionParser {
 			throw new VersionParsingException("Version must be a non-empty string!");
 		}
 
-		return new SemanticVersionImpl(s, false);
+		// shares the cache with parse, a cached non-semantic version has to be parsed again for the exception
+		Version version = VERSIONS.get(s);
+		if (version instanceof SemanticVersion) return (SemanticVersion) version;
+
+		SemanticVersionImpl ret = intern(new SemanticVersionImpl(s, false));
+		VERSIONS.put(s, ret);
+
+		return ret;
+	}
+
+	public static String getCacheStats() {
+		return VERSIONS+", "+X_VERSIONS;
+	}
+
+	private static SemanticVersionImpl intern(SemanticVersionImpl version) {
+		return SEMANTIC_VERSIONS.intern(version.getFriendlyString(), version);
 	}
 }
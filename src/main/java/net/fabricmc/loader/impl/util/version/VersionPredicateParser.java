@@ -31,11 +31,25 @@ import net.fabricmc.loader.api.metadata.version.VersionComparisonOperator;
 import net.fabricmc.loader.api.metadata.version.VersionInterval;
 import net.fabricmc.loader.api.metadata.version.VersionPredicate;
 import net.fabricmc.loader.api.metadata.version.VersionPredicate.PredicateTerm;
+import net.fabricmc.loader.impl.util.Interner;
+import net.fabricmc.loader.impl.util.ParseCache;
 
 public final class VersionPredicateParser {
 	private static final VersionComparisonOperator[] OPERATORS = VersionComparisonOperator.values();
+	// pooled by string representation, which unlike equals reflects the reference versions' friendly strings
+	private static final Interner<String, VersionPredicate> PREDICATES = new Interner<>();
+	private static final ParseCache<VersionPredicate> CACHE = new ParseCache<>("version predicates", 8192);
 
 	public static VersionPredicate parse(String predicate) throws VersionParsingException {
+		VersionPredicate ret = CACHE.get(predicate);
+		if (ret != null) return ret;
+
+		ret = parse0(predicate);
+
+		return CACHE.put(predicate, ret);
+	}
+
+	private static VersionPredicate parse0(String predicate) throws VersionParsingException {
 		List<SingleVersionPredicate> predicateList = new ArrayList<>();
 
 		for (String s : predicate.split(" ")) {
@@ -89,13 +103,17 @@ public final class VersionPredicateParser {
 			predicateList.add(new SingleVersionPredicate(operator, version));
 		}
 
+		VersionPredicate ret;
+
 		if (predicateList.isEmpty()) {
 			return AnyVersionPredicate.INSTANCE;
 		} else if (predicateList.size() == 1) {
-			return predicateList.get(0);
+			ret = predicateList.get(0);
 		} else {
-			return new MultiVersionPredicate(predicateList);
+			ret = new MultiVersionPredicate(predicateList);
 		}
+
+		return PREDICATES.intern(ret.toString(), ret);
 	}
 
 	public static Set<VersionPredicate> parse(Collection<String> predicates) throws VersionParsingException {
@@ -108,6 +126,10 @@ public final class VersionPredicateParser {
 		return ret;
 	}
 
+	public static String getCacheStats() {
+		return CACHE.toString();
+	}
+
 	public static VersionPredicate getAny() {
 		return AnyVersionPredicate.INSTANCE;
 	}
@@ -151,6 +173,8 @@ public final class VersionPredicateParser {
 		public boolean test(Version version) {
 			Objects.requireNonNull(version, "null version");
 
+			if (version == refVersion) return operator.isMinInclusive() || operator.isMaxInclusive(); // common with interned versions
+
 			return operator.test(version, refVersion);
 		}
 
@@ -183,7 +207,9 @@ public final class VersionPredicateParser {
 
 		@Override
 		public boolean equals(Object obj) {
-			if (obj instanceof SingleVersionPredicate) {
+			if (obj == this) {
+				return true;
+			} else if (obj instanceof SingleVersionPredicate) {
 				SingleVersionPredicate o = (SingleVersionPredicate) obj;
 
 				return operator == o.operator && refVersion.equals(o.refVersion);
@@ -241,7 +267,9 @@ public final class VersionPredicateParser {
 
 		@Override
 		public boolean equals(Object obj) {
-			if (obj instanceof MultiVersionPredicate) {
+			if (obj == this) {
+				return true;
+			} else if (obj instanceof MultiVersionPredicate) {
 				MultiVersionPredicate o = (MultiVersionPredicate) obj;
 
 				return predicates.equals(o.predicates);
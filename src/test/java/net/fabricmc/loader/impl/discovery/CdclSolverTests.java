@@ -0,0 +1,431 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link CdclSolver}, checked against brute force enumeration where the instances are small enough.
+ *
+ * <p>These live in the discovery package since the solver is an implementation detail of the resolver.
+ */
+final class CdclSolverTests {
+	private static final int SEEDS = 300;
+
+	@Test
+	@DisplayName("Satisfiable clause set")
+	public void testSatisfiable() {
+		CdclSolver solver = createSolver(3);
+		int a = lit(0), b = lit(1), c = lit(2);
+		List<int[]> clauses = new ArrayList<>();
+
+		addClause(solver, clauses, a, b);
+		addClause(solver, clauses, CdclSolver.negate(a), c);
+		addClause(solver, clauses, CdclSolver.negate(b), CdclSolver.negate(c));
+		addClause(solver, clauses, CdclSolver.negate(c), CdclSolver.negate(a), b);
+
+		assertEquals(CdclSolver.Result.SATISFIABLE, solver.solve(new int[0], 0));
+		assertTrue(satisfies(solver.getModel(), clauses));
+		assertTrue(solver.isOptimal());
+		assertEquals(1, solver.getSolutionCount());
+	}
+
+	@Test
+	@DisplayName("Unsatisfiable clause set")
+	public void testUnsatisfiable() {
+		CdclSolver solver = createSolver(2);
+		int a = lit(0), b = lit(1);
+
+		assertTrue(solver.addClause(a, b));
+		assertTrue(solver.addClause(CdclSolver.negate(a), b));
+		assertTrue(solver.addClause(a, CdclSolver.negate(b)));
+		solver.addClause(CdclSolver.negate(a), CdclSolver.negate(b));
+
+		assertEquals(CdclSolver.Result.UNSATISFIABLE, solver.solve(new int[0], 0));
+		assertNull(solver.getModel());
+
+		// contradicting units are detected while adding
+
+		CdclSolver units = createSolver(1);
+		assertTrue(units.addClause(lit(0)));
+		assertFalse(units.addClause(CdclSolver.negate(lit(0))));
+		assertEquals(CdclSolver.Result.UNSATISFIABLE, units.solve(new int[0], 0));
+	}
+
+	@Test
+	@DisplayName("Pigeonhole principle is unsatisfiable")
+	public void testPigeonhole() {
+		for (int holes = 1; holes <= 5; holes++) {
+			assertEquals(CdclSolver.Result.UNSATISFIABLE, createPigeonhole(holes + 1, holes).solve(new int[0], 0), "pigeons: "+(holes + 1));
+			assertEquals(CdclSolver.Result.SATISFIABLE, createPigeonhole(holes, holes).solve(new int[0], 0), "pigeons: "+holes);
+		}
+	}
+
+	@Test
+	@DisplayName("Random 3-SAT matches brute force")
+	public void testRandomSat() {
+		int satCount = 0;
+
+		for (int seed = 0; seed < SEEDS; seed++) {
+			Random random = new Random(seed);
+			int varCount = 4 + random.nextInt(9);
+			List<int[]> clauses = createRandomClauses(random, varCount, varCount * 4 + random.nextInt(varCount), 3);
+			CdclSolver solver = createSolver(varCount);
+
+			for (int[] clause : clauses) {
+				solver.addClause(clause);
+			}
+
+			boolean expected = findBest(varCount, clauses, new int[0], new int[0], new BigInteger[0]) != null;
+			CdclSolver.Result result = solver.solve(new int[0], 0);
+
+			assertEquals(expected ? CdclSolver.Result.SATISFIABLE : CdclSolver.Result.UNSATISFIABLE, result, "seed: "+seed);
+			if (expected) assertTrue(satisfies(solver.getModel(), clauses), "seed: "+seed);
+			if (expected) satCount++;
+		}
+
+		// make sure the instances cover both outcomes
+
+		assertTrue(satCount > SEEDS / 10 && satCount < SEEDS * 9 / 10, "satisfiable instances: "+satCount);
+	}
+
+	@Test
+	@DisplayName("Failed assumptions form a core")
+	public void testCore() {
+		CdclSolver solver = createSolver(4);
+		int a = lit(0), b = lit(1), c = lit(2), d = lit(3);
+
+		assertTrue(solver.addClause(CdclSolver.negate(a), d));
+		assertTrue(solver.addClause(CdclSolver.negate(b), CdclSolver.negate(d)));
+
+		int[] assumptions = { a, c, b };
+		assertEquals(CdclSolver.Result.UNSATISFIABLE, solver.solve(assumptions, 0));
+
+		int[] core = solver.getCore();
+		assertTrue(contains(core, a));
+		assertTrue(contains(core, b));
+		assertFalse(contains(core, c));
+
+		// the assumptions don't stick, the solver stays usable
+
+		assertEquals(CdclSolver.Result.SATISFIABLE, solver.solve(new int[] { c }, 0));
+		assertFalse(solver.getModel()[0] && solver.getModel()[1]);
+		assertEquals(CdclSolver.Result.SATISFIABLE, solver.solve(new int[] { a, c }, 0));
+		assertTrue(solver.getModel()[3]);
+	}
+
+	@Test
+	@DisplayName("Random cores match brute force")
+	public void testRandomCore() {
+		int unsatCount = 0;
+
+		for (int seed = 0; seed < SEEDS; seed++) {
+			Random random = new Random(seed);
+			int varCount = 4 + random.nextInt(7);
+			List<int[]> clauses = createRandomClauses(random, varCount, varCount * 2, 2);
+			int[] assumptions = createRandomAssumptions(random, varCount);
+			CdclSolver solver = createSolver(varCount);
+
+			for (int[] clause : clauses) {
+				solver.addClause(clause);
+			}
+
+			boolean expected = findBest(varCount, clauses, assumptions, new int[0], new BigInteger[0]) != null;
+			CdclSolver.Result result = solver.solve(assumptions, 0);
+			assertEquals(expected ? CdclSolver.Result.SATISFIABLE : CdclSolver.Result.UNSATISFIABLE, result, "seed: "+seed);
+			if (expected) continue;
+
+			unsatCount++;
+
+			// the core alone has to be unsatisfiable together with the clauses
+
+			int[] core = solver.getCore();
+
+			for (int lit : core) {
+				assertTrue(contains(assumptions, lit), "seed: "+seed);
+			}
+
+			assertNull(findBest(varCount, clauses, core, new int[0], new BigInteger[0]), "seed: "+seed);
+		}
+
+		assertTrue(unsatCount > SEEDS / 10 && unsatCount < SEEDS * 9 / 10, "unsatisfiable instances: "+unsatCount);
+	}
+
+	@Test
+	@DisplayName("Minimization finds the optimum")
+	public void testMinimize() {
+		int satCount = 0;
+
+		for (int seed = 0; seed < SEEDS; seed++) {
+			Random random = new Random(seed);
+			int varCount = 4 + random.nextInt(9);
+			List<int[]> clauses = createRandomClauses(random, varCount, varCount * 2, 2);
+			int[] assumptions = random.nextBoolean() ? createRandomAssumptions(random, varCount) : new int[0];
+			int[] objLits = new int[1 + random.nextInt(varCount)];
+			BigInteger[] weights = new BigInteger[objLits.length];
+
+			for (int i = 0; i < objLits.length; i++) {
+				objLits[i] = CdclSolver.lit(i, random.nextBoolean());
+				weights[i] = BigInteger.valueOf(1 + random.nextInt(random.nextBoolean() ? 4 : 1000));
+			}
+
+			CdclSolver solver = createSolver(varCount);
+
+			for (int[] clause : clauses) {
+				solver.addClause(clause);
+			}
+
+			BigInteger expected = findBest(varCount, clauses, assumptions, objLits, weights);
+			CdclSolver.Result result = solver.minimize(assumptions, objLits, weights, 0);
+
+			if (expected == null) {
+				assertEquals(CdclSolver.Result.UNSATISFIABLE, result, "seed: "+seed);
+
+				for (int lit : solver.getCore()) {
+					assertTrue(contains(assumptions, lit), "seed: "+seed); // no internal activation literal
+				}
+			} else {
+				satCount++;
+				assertEquals(CdclSolver.Result.SATISFIABLE, result, "seed: "+seed);
+				assertTrue(satisfies(solver.getModel(), clauses), "seed: "+seed);
+				assertEquals(expected, cost(solver.getModel(), objLits, weights), "seed: "+seed);
+				assertTrue(solver.isOptimal(), "seed: "+seed);
+				assertTrue(solver.getSolutionCount() >= 1, "seed: "+seed);
+
+				// the bound got retired, the unrestricted problem remains
+
+				assertEquals(CdclSolver.Result.SATISFIABLE, solver.solve(assumptions, 0), "seed: "+seed);
+			}
+		}
+
+		assertTrue(satCount > SEEDS / 10 && satCount < SEEDS * 9 / 10, "satisfiable instances: "+satCount);
+	}
+
+	@Test
+	@DisplayName("Minimization keeps improving on the first solution")
+	public void testMinimizeImproves() {
+		// deciding the heavy a false first forces b and c, costing 6 instead of the optimal 4
+
+		CdclSolver solver = createSolver(3);
+		int a = lit(0), b = lit(1), c = lit(2);
+		assertTrue(solver.addClause(a, b));
+		assertTrue(solver.addClause(a, c));
+
+		int[] objLits = { a, b, c };
+		BigInteger[] weights = { BigInteger.valueOf(4), BigInteger.valueOf(3), BigInteger.valueOf(3) };
+
+		assertEquals(CdclSolver.Result.SATISFIABLE, solver.minimize(new int[0], objLits, weights, 0));
+		assertEquals(BigInteger.valueOf(4), cost(solver.getModel(), objLits, weights));
+		assertTrue(solver.isOptimal());
+		assertEquals(2, solver.getSolutionCount());
+	}
+
+	@Test
+	@DisplayName("Deadline without solution")
+	public void testTimeout() {
+		CdclSolver solver = createPigeonhole(6, 5);
+
+		assertEquals(CdclSolver.Result.TIMEOUT, solver.solve(new int[0], getExpiredDeadline()));
+		assertNull(solver.getModel());
+		assertFalse(solver.isOptimal());
+
+		// the solver stays usable after timing out
+
+		assertEquals(CdclSolver.Result.UNSATISFIABLE, solver.solve(new int[0], 0));
+	}
+
+	@Test
+	@DisplayName("Deadline after the first solution keeps it")
+	public void testMinimizeTimeout() {
+		// same as testMinimizeImproves, the first solution is found without any conflict and thus deadline check
+
+		CdclSolver solver = createSolver(3);
+		int a = lit(0), b = lit(1), c = lit(2);
+		assertTrue(solver.addClause(a, b));
+		assertTrue(solver.addClause(a, c));
+
+		int[] objLits = { a, b, c };
+		BigInteger[] weights = { BigInteger.valueOf(4), BigInteger.valueOf(3), BigInteger.valueOf(3) };
+
+		assertEquals(CdclSolver.Result.SATISFIABLE, solver.minimize(new int[0], objLits, weights, getExpiredDeadline()));
+		assertNotNull(solver.getModel());
+		assertEquals(BigInteger.valueOf(6), cost(solver.getModel(), objLits, weights));
+		assertFalse(solver.isOptimal());
+		assertEquals(1, solver.getSolutionCount());
+
+		// without deadline the optimum is found, the bound from the aborted run doesn't linger
+
+		assertEquals(CdclSolver.Result.SATISFIABLE, solver.minimize(new int[0], objLits, weights, 0));
+		assertEquals(BigInteger.valueOf(4), cost(solver.getModel(), objLits, weights));
+		assertTrue(solver.isOptimal());
+	}
+
+	private static CdclSolver createSolver(int varCount) {
+		CdclSolver ret = new CdclSolver();
+
+		for (int i = 0; i < varCount; i++) {
+			assertEquals(i, ret.newVar());
+		}
+
+		return ret;
+	}
+
+	private static int lit(int var) {
+		return CdclSolver.lit(var, false);
+	}
+
+	private static void addClause(CdclSolver solver, List<int[]> clauses, int... lits) {
+		assertTrue(solver.addClause(lits));
+		clauses.add(lits);
+	}
+
+	/**
+	 * Create the problem of putting each pigeon into a hole without sharing, unsatisfiable with more pigeons than holes.
+	 */
+	private static CdclSolver createPigeonhole(int pigeons, int holes) {
+		CdclSolver ret = createSolver(pigeons * holes);
+
+		for (int p = 0; p < pigeons; p++) {
+			int[] clause = new int[holes];
+
+			for (int h = 0; h < holes; h++) {
+				clause[h] = lit(p * holes + h);
+			}
+
+			ret.addClause(clause);
+		}
+
+		for (int h = 0; h < holes; h++) {
+			for (int p = 0; p < pigeons; p++) {
+				for (int q = p + 1; q < pigeons; q++) {
+					ret.addClause(CdclSolver.negate(lit(p * holes + h)), CdclSolver.negate(lit(q * holes + h)));
+				}
+			}
+		}
+
+		return ret;
+	}
+
+	private static List<int[]> createRandomClauses(Random random, int varCount, int count, int minWidth) {
+		List<int[]> ret = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			int[] clause = new int[minWidth + random.nextInt(4 - minWidth)];
+
+			for (int j = 0; j < clause.length; j++) {
+				clause[j] = CdclSolver.lit(random.nextInt(varCount), random.nextBoolean());
+			}
+
+			ret.add(clause);
+		}
+
+		return ret;
+	}
+
+	private static int[] createRandomAssumptions(Random random, int varCount) {
+		int[] ret = new int[1 + random.nextInt(varCount)];
+
+		for (int i = 0; i < ret.length; i++) {
+			ret[i] = CdclSolver.lit(random.nextInt(varCount), random.nextBoolean());
+		}
+
+		return ret;
+	}
+
+	/**
+	 * Determine the minimum objective value by enumerating all assignments.
+	 *
+	 * @return minimum cost or null if there is no solution
+	 */
+	private static BigInteger findBest(int varCount, List<int[]> clauses, int[] assumptions, int[] objLits, BigInteger[] weights) {
+		BigInteger ret = null;
+		boolean[] model = new boolean[varCount];
+
+		for (int bits = 0; bits < 1 << varCount; bits++) {
+			for (int var = 0; var < varCount; var++) {
+				model[var] = (bits >>> var & 1) != 0;
+			}
+
+			if (!satisfies(model, clauses)) continue;
+
+			boolean assumptionsHold = true;
+
+			for (int lit : assumptions) {
+				if (!isTrue(model, lit)) assumptionsHold = false;
+			}
+
+			if (!assumptionsHold) continue;
+
+			BigInteger cost = cost(model, objLits, weights);
+			if (ret == null || cost.compareTo(ret) < 0) ret = cost;
+		}
+
+		return ret;
+	}
+
+	private static boolean satisfies(boolean[] model, List<int[]> clauses) {
+		clauseLoop: for (int[] clause : clauses) {
+			for (int lit : clause) {
+				if (isTrue(model, lit)) continue clauseLoop;
+			}
+
+			return false;
+		}
+
+		return true;
+	}
+
+	private static BigInteger cost(boolean[] model, int[] objLits, BigInteger[] weights) {
+		BigInteger ret = BigInteger.ZERO;
+
+		for (int i = 0; i < objLits.length; i++) {
+			if (isTrue(model, objLits[i])) ret = ret.add(weights[i]);
+		}
+
+		return ret;
+	}
+
+	private static boolean isTrue(boolean[] model, int lit) {
+		return model[lit >>> 1] == ((lit & 1) == 0);
+	}
+
+	private static boolean contains(int[] lits, int lit) {
+		for (int l : lits) {
+			if (l == lit) return true;
+		}
+
+		return false;
+	}
+
+	private static long getExpiredDeadline() {
+		long ret = System.nanoTime() - 1;
+
+		return ret != 0 ? ret : -1; // 0 means no deadline
+	}
+}
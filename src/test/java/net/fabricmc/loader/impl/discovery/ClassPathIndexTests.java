@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class ClassPathIndexTests {
+	@TempDir
+	Path dir;
+
+	@Test
+	@DisplayName("Mod roots in class path order")
+	public void testModRoots() throws IOException {
+		Path modDir = createDir("modDir", true);
+		Path plainDir = createDir("plainDir", false);
+		Path modJar = createJar("mod.jar", true);
+		Path plainJar = createJar("plain.jar", false);
+		Path notJar = Files.write(dir.resolve("notJar.jar"), "not a jar".getBytes(StandardCharsets.UTF_8));
+		Path missing = dir.resolve("missing.jar");
+
+		ClassPathIndex index = ClassPathIndex.create(Arrays.asList(modJar, plainDir, notJar, modDir, plainJar, missing, modJar), null);
+
+		assertEquals(Arrays.asList(modJar, modDir), index.getModRoots());
+		assertEquals(Arrays.asList(modJar, plainDir, notJar, modDir, plainJar, missing), new ArrayList<>(index.getRoots()));
+	}
+
+	@Test
+	@DisplayName("Many roots")
+	public void testManyRoots() throws IOException {
+		List<Path> classPath = new ArrayList<>();
+		List<Path> expected = new ArrayList<>();
+
+		for (int i = 0; i < 200; i++) {
+			boolean mod = i % 3 == 0;
+			Path root = i % 2 == 0 ? createDir("dir"+i, mod) : createJar("jar"+i+".jar", mod);
+			classPath.add(root);
+			if (mod) expected.add(root);
+		}
+
+		assertEquals(expected, ClassPathIndex.create(classPath, null).getModRoots());
+	}
+
+	@Test
+	@DisplayName("Unchanged jars are served from the cache")
+	public void testCache() throws IOException {
+		Path cacheFile = dir.resolve("cache").resolve("classPathIndex.bin");
+		Path jar = createJar("mod.jar", true);
+		FileTime time = Files.getLastModifiedTime(jar);
+		List<Path> classPath = Collections.singletonList(jar);
+
+		assertEquals(classPath, ClassPathIndex.create(classPath, cacheFile).getModRoots());
+		assertTrue(Files.exists(cacheFile));
+
+		// same size and modification time, but no longer a mod: only a cache hit still reports it
+
+		Files.write(jar, new byte[(int) Files.size(jar)]);
+		Files.setLastModifiedTime(jar, time);
+
+		assertEquals(classPath, ClassPathIndex.create(classPath, cacheFile).getModRoots());
+		assertTrue(ClassPathIndex.create(classPath, null).getModRoots().isEmpty());
+
+		Files.setLastModifiedTime(jar, FileTime.fromMillis(time.toMillis() - 60_000));
+
+		assertTrue(ClassPathIndex.create(classPath, cacheFile).getModRoots().isEmpty());
+	}
+
+	@Test
+	@DisplayName("Directories aren't cached")
+	public void testDirectoryNotCached() throws IOException {
+		Path cacheFile = dir.resolve("cache").resolve("classPathIndex.bin");
+		Path modDir = createDir("modDir", false);
+		List<Path> classPath = Collections.singletonList(modDir);
+
+		assertTrue(ClassPathIndex.create(classPath, cacheFile).getModRoots().isEmpty());
+
+		Files.write(modDir.resolve("fabric.mod.json"), "{}".getBytes(StandardCharsets.UTF_8));
+
+		assertEquals(classPath, ClassPathIndex.create(classPath, cacheFile).getModRoots());
+	}
+
+	@Test
+	@DisplayName("Corrupt cache is ignored")
+	public void testCorruptCache() throws IOException {
+		Path cacheFile = dir.resolve("cache").resolve("classPathIndex.bin");
+		Path jar = createJar("mod.jar", true);
+		List<Path> classPath = Collections.singletonList(jar);
+
+		ClassPathIndex.create(classPath, cacheFile);
+		byte[] data = Files.readAllBytes(cacheFile);
+		Files.write(cacheFile, Arrays.copyOf(data, data.length - 5));
+
+		assertEquals(classPath, ClassPathIndex.create(classPath, cacheFile).getModRoots());
+		assertArrayEquals(data, Files.readAllBytes(cacheFile)); // rewritten
+	}
+
+	private Path createDir(String name, boolean mod) throws IOException {
+		Path ret = Files.createDirectories(dir.resolve(name));
+		Files.write(ret.resolve(mod ? "fabric.mod.json" : "other.json"), "{}".getBytes(StandardCharsets.UTF_8));
+
+		return ret;
+	}
+
+	private Path createJar(String name, boolean mod) throws IOException {
+		Path ret = dir.resolve(name);
+
+		try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(ret))) {
+			zos.putNextEntry(new ZipEntry(mod ? "fabric.mod.json" : "other.json"));
+			zos.write("{}".getBytes(StandardCharsets.UTF_8));
+			zos.closeEntry();
+		}
+
+		return ret;
+	}
+}
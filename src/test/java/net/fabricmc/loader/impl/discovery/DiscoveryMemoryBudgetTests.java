@@ -0,0 +1,228 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.fabricmc.loader.impl.metadata.DependencyOverrides;
+import net.fabricmc.loader.impl.metadata.LoaderModMetadata;
+import net.fabricmc.loader.impl.metadata.ModMetadataParser;
+import net.fabricmc.loader.impl.metadata.ParseMetadataException;
+import net.fabricmc.loader.impl.metadata.VersionOverrides;
+import net.fabricmc.loader.impl.util.SystemProperties;
+
+final class DiscoveryMemoryBudgetTests {
+	@TempDir
+	Path dir;
+
+	@Test
+	@DisplayName("Size parsing")
+	public void testParseSize() {
+		assertEquals(1000, DiscoveryMemoryBudget.parseSize("1000"));
+		assertEquals(64 << 10, DiscoveryMemoryBudget.parseSize("64k"));
+		assertEquals(64 << 20, DiscoveryMemoryBudget.parseSize("64M"));
+		assertEquals(2L << 30, DiscoveryMemoryBudget.parseSize(" 2g "));
+		assertEquals(0, DiscoveryMemoryBudget.parseSize("0"));
+		assertThrows(NumberFormatException.class, () -> DiscoveryMemoryBudget.parseSize("-1m"));
+		assertThrows(NumberFormatException.class, () -> DiscoveryMemoryBudget.parseSize("m"));
+		assertThrows(NumberFormatException.class, () -> DiscoveryMemoryBudget.parseSize("64 mb"));
+		assertThrows(NumberFormatException.class, () -> DiscoveryMemoryBudget.parseSize(""));
+	}
+
+	@Test
+	@DisplayName("Budget is only created when configured")
+	public void testCreate() {
+		try {
+			System.clearProperty(SystemProperties.DISCOVERY_MEMORY_BUDGET);
+			assertNull(DiscoveryMemoryBudget.create(dir));
+
+			System.setProperty(SystemProperties.DISCOVERY_MEMORY_BUDGET, "lots");
+			assertNull(DiscoveryMemoryBudget.create(dir));
+
+			System.setProperty(SystemProperties.DISCOVERY_MEMORY_BUDGET, "64m");
+			assertNotNull(DiscoveryMemoryBudget.create(dir));
+		} finally {
+			System.clearProperty(SystemProperties.DISCOVERY_MEMORY_BUDGET);
+		}
+	}
+
+	@Test
+	@DisplayName("Data exceeding the budget is spilled")
+	public void testSpill() throws IOException {
+		Path tmpDir = dir.resolve("tmp");
+		DiscoveryMemoryBudget budget = createBudget(100, tmpDir);
+
+		ByteBuffer first = createData(60, 1);
+		ByteBuffer second = createData(60, 2);
+		ByteBuffer third = createData(40, 3);
+
+		assertSame(first, budget.hold(first, "first"));
+
+		ByteBuffer spilled = budget.hold(second, "second");
+		assertTrue(spilled.isDirect());
+		assertEquals(second, spilled);
+		assertTrue(isEmpty(tmpDir)); // file already deleted, the mapping stays valid
+
+		assertSame(third, budget.hold(third, "third")); // still fits
+
+		budget.free(first);
+		assertSame(first, budget.hold(first, "first"));
+	}
+
+	@Test
+	@DisplayName("Direct buffers aren't accounted")
+	public void testDirect() {
+		DiscoveryMemoryBudget budget = createBudget(100, dir);
+		ByteBuffer direct = ByteBuffer.allocateDirect(1000);
+		ByteBuffer heap = createData(100, 1);
+
+		assertSame(direct, budget.hold(direct, "direct"));
+		assertSame(heap, budget.hold(heap, "heap"));
+	}
+
+	@Test
+	@DisplayName("Data is kept on the heap if it can't be spilled")
+	public void testSpillFailure() throws IOException {
+		Path tmpDir = Files.write(dir.resolve("file"), new byte[0]); // not a directory
+		DiscoveryMemoryBudget budget = createBudget(100, tmpDir);
+
+		ByteBuffer first = createData(60, 1);
+		ByteBuffer second = createData(60, 2);
+
+		assertSame(first, budget.hold(first, "first"));
+		assertSame(second, budget.hold(second, "second"));
+	}
+
+	@Test
+	@DisplayName("Released data is reloaded from the parent")
+	public void testRelease() throws IOException, ParseMetadataException {
+		byte[] retainedJar = createJar("retained");
+		byte[] releasedJar = createJar("released");
+		Path parentJar = dir.resolve("parent.jar");
+
+		try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(parentJar))) {
+			zos.putNextEntry(new ZipEntry("META-INF/jars/retained.jar"));
+			zos.write(retainedJar);
+			zos.closeEntry();
+			zos.putNextEntry(new ZipEntry("META-INF/jars/released.jar"));
+			zos.write(releasedJar);
+			zos.closeEntry();
+		}
+
+		ModCandidate retained = createNested(retainedJar, "META-INF/jars/retained.jar");
+		ModCandidate released = createNested(releasedJar, "META-INF/jars/released.jar");
+		ModCandidate parent = ModCandidate.createPlain(Collections.singletonList(parentJar), parseMetadata(createJar("parent")), false, Collections.emptyList());
+		retained.addParent(parent);
+		released.addParent(parent);
+
+		int limit = retainedJar.length + releasedJar.length;
+		DiscoveryMemoryBudget budget = createBudget(limit, dir.resolve("tmp"));
+		ByteBuffer retainedData = budget.hold(ByteBuffer.wrap(retainedJar), "retained");
+		ByteBuffer releasedData = budget.hold(ByteBuffer.wrap(releasedJar), "released");
+		assertFalse(retainedData.isDirect());
+		assertFalse(releasedData.isDirect());
+		budget.setData(retained, retainedData);
+		budget.setData(released, releasedData);
+
+		budget.release(Collections.singletonList(retained));
+
+		assertSame(retainedData, retained.getData());
+		assertNotSame(releasedData, released.getData());
+		assertEquals(releasedData, released.getData());
+
+		// the released data's space is available again, the retained data's isn't
+
+		ByteBuffer data = createData(releasedJar.length, 1);
+		assertSame(data, budget.hold(data, "fits"));
+		assertTrue(budget.hold(createData(1, 2), "exceeds").isDirect());
+	}
+
+	private static DiscoveryMemoryBudget createBudget(long limit, Path tmpDir) {
+		try {
+			System.setProperty(SystemProperties.DISCOVERY_MEMORY_BUDGET, Long.toString(limit));
+
+			return DiscoveryMemoryBudget.create(tmpDir);
+		} finally {
+			System.clearProperty(SystemProperties.DISCOVERY_MEMORY_BUDGET);
+		}
+	}
+
+	private static boolean isEmpty(Path dir) throws IOException {
+		try (Stream<Path> stream = Files.list(dir)) {
+			return !stream.findAny().isPresent();
+		}
+	}
+
+	private static ByteBuffer createData(int size, int value) {
+		byte[] ret = new byte[size];
+
+		for (int i = 0; i < size; i++) {
+			ret[i] = (byte) (value + i);
+		}
+
+		return ByteBuffer.wrap(ret);
+	}
+
+	private static ModCandidate createNested(byte[] jar, String localPath) throws IOException, ParseMetadataException {
+		return ModCandidate.createNested(localPath, -1, ModCandidate.computeDigest(ByteBuffer.wrap(jar)), parseMetadata(jar), false, Collections.emptyList());
+	}
+
+	private static LoaderModMetadata parseMetadata(byte[] jar) throws IOException, ParseMetadataException {
+		ByteBuffer data = ZipBufferReader.readEntry(ByteBuffer.wrap(jar), "fabric.mod.json");
+		byte[] metadata = new byte[data.remaining()];
+		data.get(metadata);
+
+		return ModMetadataParser.parseMetadata(new ByteArrayInputStream(metadata), "test.jar", Collections.emptyList(),
+				new VersionOverrides(), new DependencyOverrides(Paths.get("missing")), false);
+	}
+
+	private static byte[] createJar(String id) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+		try (ZipOutputStream zos = new ZipOutputStream(bos)) {
+			zos.putNextEntry(new ZipEntry("fabric.mod.json"));
+			zos.write(String.format("{\"schemaVersion\": 1, \"id\": \"%s\", \"version\": \"1.0.0\"}", id).getBytes(StandardCharsets.UTF_8));
+			zos.closeEntry();
+		}
+
+		return bos.toByteArray();
+	}
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import net.fabricmc.loader.impl.metadata.ParseMetadataException;
+import net.fabricmc.loader.impl.util.SystemProperties;
+
+/**
+ * Tests of the split into independent components, checking that solving the components on their own yields the same
+ * result as a single global solve.
+ */
+final class ModComponentSplitterTests {
+	private static final String[] PREDICATES = { "*", ">=2", "<2", "1.x", "<3" };
+
+	@Test
+	@DisplayName("Components")
+	public void testSplit() throws ParseMetadataException {
+		ModPack pack = new ModPack()
+				.add("mod-a", "1.0.0", "depends mod-b *")
+				.add("mod-b", "1.0.0")
+				.add("mod-c", "1.0.0", "provides mod-alias")
+				.add("mod-d", "1.0.0", "recommends mod-alias *")
+				.add("mod-e", "1.0.0", "breaks mod-f *")
+				.add("mod-f", "1.0.0")
+				.add("mod-g", "1.0.0", "depends minecraft *", "depends mod-missing *")
+				.add("mod-h", "1.0.0", "suggests mod-a *")
+				.addNested("mod-h", "1.0.0", "mod-i", "1.0.0")
+				.add("mod-j", "1.0.0", "depends minecraft *")
+				.add("mod-k", "1.0.0", "breaks minecraft <1");
+
+		List<ModCandidate> sorted = new ArrayList<>(pack.mods);
+		Map<String, List<ModCandidate>> modsById = new LinkedHashMap<>();
+		ModPrioSorter.sort(sorted, modsById);
+
+		Map<String, ModCandidate> selectedMods = new HashMap<>();
+		selectedMods.put("minecraft", new ModPack().add("minecraft", "1.20.1").mods.get(0));
+
+		List<ModComponentSplitter.Component> components = ModComponentSplitter.split(sorted, modsById, selectedMods);
+		Set<Set<String>> ids = new HashSet<>();
+		int modCount = 0;
+
+		for (ModComponentSplitter.Component component : components) {
+			Set<String> componentIds = toIds(component.mods);
+			assertEquals(componentIds, toIds(component.modsById.values().stream().flatMap(Collection::stream).collect(Collectors.toList())));
+			assertTrue(ids.add(componentIds));
+			modCount += component.mods.size();
+
+			// mods stay in priority order
+
+			List<ModCandidate> expectedOrder = new ArrayList<>(sorted);
+			expectedOrder.retainAll(component.mods);
+			assertEquals(expectedOrder, component.mods);
+		}
+
+		assertEquals(sorted.size(), modCount);
+		assertEquals(new HashSet<>(Arrays.asList(
+				set("mod-a", "mod-b"), // dependency
+				set("mod-c", "mod-d"), // dependency through a provided id
+				set("mod-e", "mod-f"), // breaks
+				set("mod-g"), // dependencies on preselected and missing mods don't connect
+				set("mod-h", "mod-i"), // nested without selected parent
+				set("mod-j"),
+				set("mod-k"))), ids);
+	}
+
+	@Test
+	@DisplayName("Split and global solve agree")
+	public void testSplitSolve() throws Exception {
+		int failures = 0;
+
+		for (int seed = 0; seed < 40; seed++) {
+			if (!compare(createClusteredPack(new Random(seed), 20, seed % 4 == 0), "seed "+seed)) failures++;
+		}
+
+		// make sure the packs cover both outcomes
+
+		assertTrue(failures > 3 && failures < 37, "failing packs: "+failures);
+	}
+
+	/**
+	 * Solve a pack with and without the split into components and check that both agree.
+	 *
+	 * @return whether the pack resolved
+	 */
+	private static boolean compare(List<ModCandidate> mods, String desc) throws ModResolutionException {
+		List<ModCandidate> sorted = new ArrayList<>(mods);
+		Map<String, List<ModCandidate>> modsById = new LinkedHashMap<>();
+		ModPrioSorter.sort(sorted, modsById);
+
+		List<String> splitSelection = new ArrayList<>();
+		List<String> globalSelection = new ArrayList<>();
+		ModSolver.Result split = solve(sorted, modsById, splitSelection, false);
+		ModSolver.Result global = solve(sorted, modsById, globalSelection, true);
+
+		assertEquals(global.success, split.success, desc);
+
+		if (global.success) {
+			assertEquals(globalSelection, splitSelection, desc);
+		} else {
+			assertEquals(describeFix(global.fix), describeFix(split.fix), desc); // fix computation is always global
+		}
+
+		return global.success;
+	}
+
+	private static ModSolver.Result solve(List<ModCandidate> sorted, Map<String, List<ModCandidate>> modsById, List<String> selection, boolean disableSplit) throws ModResolutionException {
+		Map<String, ModCandidate> selectedMods = new HashMap<>(sorted.size());
+		List<ModCandidate> uniqueSelectedMods = new ArrayList<>(sorted.size());
+		ModSolver.Result ret;
+
+		try {
+			if (disableSplit) System.setProperty(SystemProperties.DEBUG_DISABLE_RESOLUTION_SPLIT, "true");
+
+			ret = ModSolver.solve(sorted, modsById, selectedMods, uniqueSelectedMods, new CdclResolverBackend());
+		} finally {
+			System.clearProperty(SystemProperties.DEBUG_DISABLE_RESOLUTION_SPLIT);
+		}
+
+		for (ModCandidate mod : uniqueSelectedMods) {
+			selection.add(mod.getId()+" "+mod.getVersion().getFriendlyString());
+		}
+
+		selection.sort(null);
+
+		return ret;
+	}
+
+	private static String describeFix(ModSolver.Fix fix) {
+		if (fix == null) return null;
+
+		Set<String> removed = new TreeSet<>();
+
+		for (ModCandidate mod : fix.modsToRemove) {
+			removed.add(mod.getId()+" "+mod.getVersion().getFriendlyString());
+		}
+
+		return "add "+new TreeSet<>(fix.modsToAdd.stream().map(Object::toString).collect(Collectors.toList()))+", remove "+removed;
+	}
+
+	/**
+	 * Create a pack of mostly independent clusters of mods, occasionally linked to earlier clusters.
+	 */
+	private static List<ModCandidate> createClusteredPack(Random random, int clusters, boolean conflicts) throws ParseMetadataException {
+		ModPack ret = new ModPack();
+		List<String> ids = new ArrayList<>();
+
+		for (int c = 0; c < clusters; c++) {
+			int clusterStart = ids.size();
+			int size = 1 + random.nextInt(4);
+
+			for (int i = 0; i < size; i++) {
+				String id = "cluster"+c+"-mod"+i;
+				int variants = random.nextInt(3) == 0 ? 2 : 1;
+
+				for (int v = 1; v <= variants; v++) {
+					List<String> deps = new ArrayList<>();
+					Set<String> targets = new HashSet<>(); // each id may only appear once per mod
+
+					if (i > 0 && random.nextBoolean()) {
+						String target = ids.get(clusterStart + random.nextInt(i));
+						if (targets.add(target)) deps.add("depends "+target+" "+PREDICATES[random.nextInt(conflicts ? PREDICATES.length : 1)]);
+					}
+
+					if (c > 0 && random.nextInt(10) == 0) {
+						String target = ids.get(random.nextInt(clusterStart));
+						if (targets.add(target)) deps.add("recommends "+target+" >=2");
+					}
+
+					if (conflicts && i > 0 && random.nextInt(4) == 0) {
+						String target = ids.get(clusterStart + random.nextInt(i));
+						if (targets.add(target)) deps.add("breaks "+target+" "+PREDICATES[random.nextInt(PREDICATES.length)]);
+					}
+
+					ret.add(id, v+".0.0", deps.toArray(new String[0]));
+
+					if (random.nextInt(5) == 0) {
+						ret.addNested(id, v+".0.0", id+"-lib", v+".0.0", "depends "+id+" *");
+					}
+				}
+
+				ids.add(id);
+			}
+		}
+
+		return ret.mods;
+	}
+
+	private static Set<String> toIds(Collection<ModCandidate> mods) {
+		Set<String> ret = new TreeSet<>();
+
+		for (ModCandidate mod : mods) {
+			ret.add(mod.getId());
+		}
+
+		return ret;
+	}
+
+	private static Set<String> set(String... ids) {
+		return new TreeSet<>(Arrays.asList(ids));
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.fabricmc.loader.impl.metadata.DependencyOverrides;
+import net.fabricmc.loader.impl.metadata.LoaderModMetadata;
+import net.fabricmc.loader.impl.metadata.ModMetadataParser;
+import net.fabricmc.loader.impl.metadata.ParseMetadataException;
+import net.fabricmc.loader.impl.metadata.VersionOverrides;
+
+/**
+ * Builder for mod candidate sets as produced by discovery, for resolution tests.
+ */
+final class ModPack {
+	private static final VersionOverrides versionOverrides = new VersionOverrides();
+	private static final DependencyOverrides depOverrides = new DependencyOverrides(Paths.get("missing"));
+
+	final List<ModCandidate> mods = new ArrayList<>();
+
+	/**
+	 * Add a root mod candidate.
+	 *
+	 * @param deps dependencies in the form {@code <kind> <mod id> <version predicate>}, e.g. {@code depends b >=2}, or
+	 * provided ids in the form {@code provides <mod id>}
+	 */
+	ModPack add(String id, String version, String... deps) throws ParseMetadataException {
+		Path path = Paths.get(id+"-"+version+".jar");
+		mods.add(ModCandidate.createPlain(Collections.singletonList(path), createMetadata(id, version, path.toString(), deps), false, new ArrayList<>()));
+
+		return this;
+	}
+
+	/**
+	 * Add a mod candidate nested in an already added one.
+	 */
+	ModPack addNested(String parentId, String parentVersion, String id, String version, String... deps) throws ParseMetadataException {
+		ModCandidate parent = get(parentId, parentVersion);
+		String localPath = "META-INF/jars/"+id+"-"+version+".jar";
+		byte[] digest = ModCandidate.computeDigest(ByteBuffer.wrap((id+" "+version).getBytes(StandardCharsets.UTF_8)));
+		ModCandidate mod = ModCandidate.createNested(localPath, -1, digest, createMetadata(id, version, localPath, deps), false, new ArrayList<>());
+		parent.getNestedMods().add(mod);
+		mod.addParent(parent);
+		mods.add(mod);
+
+		return this;
+	}
+
+	ModCandidate get(String id, String version) {
+		for (ModCandidate mod : mods) {
+			if (mod.getId().equals(id) && mod.getVersion().getFriendlyString().equals(version)) return mod;
+		}
+
+		throw new IllegalArgumentException("no mod "+id+" "+version);
+	}
+
+	private static LoaderModMetadata createMetadata(String id, String version, String path, String... deps) throws ParseMetadataException {
+		Map<String, List<String>> depsByKind = new LinkedHashMap<>();
+		List<String> provides = new ArrayList<>();
+
+		for (String dep : deps) {
+			String[] parts = dep.split(" ", 3);
+
+			if (parts[0].equals("provides")) {
+				provides.add("\""+parts[1]+"\"");
+			} else {
+				depsByKind.computeIfAbsent(parts[0], ignore -> new ArrayList<>()).add("\""+parts[1]+"\": \""+parts[2]+"\"");
+			}
+		}
+
+		StringBuilder json = new StringBuilder();
+		json.append("{ \"schemaVersion\": 1, \"id\": \"").append(id).append("\", \"version\": \"").append(version).append('"');
+		if (!provides.isEmpty()) json.append(", \"provides\": [ ").append(String.join(", ", provides)).append(" ]");
+
+		for (Map.Entry<String, List<String>> entry : depsByKind.entrySet()) {
+			json.append(", \"").append(entry.getKey()).append("\": { ").append(String.join(", ", entry.getValue())).append(" }");
+		}
+
+		json.append(" }");
+
+		return ModMetadataParser.parseMetadata(new ByteArrayInputStream(json.toString().getBytes(StandardCharsets.UTF_8)),
+				path, Collections.emptyList(), versionOverrides, depOverrides, false);
+	}
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import net.fabricmc.loader.impl.metadata.ParseMetadataException;
+
+final class ModResolverTests {
+	private static final String[] PREDICATES = { "*", "*", ">=2", "<2", "1.x" };
+	private static final String[] GAME_PREDICATES = { "*", "1.20.x", ">=1.20", "<1.20" };
+
+	@Test
+	@DisplayName("Greedy selection of consistent packs")
+	public void testGreedy() throws Exception {
+		assertEquals(Arrays.asList("minecraft 1.20.1", "mod-a 1.0.0", "mod-b 2.0.0", "mod-c 1.0.0"), selectGreedily(new ModPack()
+				.add("minecraft", "1.20.1")
+				.add("mod-a", "1.0.0", "depends mod-b >=2", "depends minecraft 1.20.x")
+				.add("mod-b", "1.0.0")
+				.add("mod-b", "2.0.0", "breaks mod-c >=2")
+				.add("mod-c", "1.0.0", "recommends mod-a *", "suggests mod-d *", "depends minecraft >=1")));
+
+		// nested mods load with their selected parent
+
+		assertEquals(Arrays.asList("mod-a 1.0.0", "mod-b 1.0.0"), selectGreedily(new ModPack()
+				.add("mod-a", "1.0.0")
+				.addNested("mod-a", "1.0.0", "mod-b", "1.0.0")));
+
+		// recommendations no candidate can meet don't affect the selection
+
+		assertEquals(Arrays.asList("mod-a 1.0.0", "mod-b 1.0.0"), selectGreedily(new ModPack()
+				.add("mod-a", "1.0.0", "recommends mod-b >=2")
+				.add("mod-b", "1.0.0")));
+
+		// hard deps on mods without candidates are only tolerated for preselected mods
+
+		assertEquals(Arrays.asList("minecraft 1.20.1"), selectGreedily(new ModPack()
+				.add("minecraft", "1.20.1", "depends java >=17")));
+	}
+
+	@Test
+	@DisplayName("Greedy selection defers to the solver")
+	public void testGreedyDeclined() throws Exception {
+		assertEquals(null, selectGreedily(new ModPack() // preferred candidate excluded
+				.add("mod-a", "1.0.0", "depends mod-b <2")
+				.add("mod-b", "1.0.0")
+				.add("mod-b", "2.0.0")));
+
+		assertEquals(null, selectGreedily(new ModPack() // missing dependency
+				.add("mod-a", "1.0.0", "depends mod-b *")));
+
+		assertEquals(null, selectGreedily(new ModPack() // recommendation only met by another candidate
+				.add("mod-a", "1.0.0", "recommends mod-b <2")
+				.add("mod-b", "1.0.0")
+				.add("mod-b", "2.0.0")));
+
+		assertEquals(null, selectGreedily(new ModPack() // breaks
+				.add("mod-a", "1.0.0", "breaks mod-b *")
+				.add("mod-b", "1.0.0")));
+
+		assertEquals(null, selectGreedily(new ModPack() // incompatible with the game
+				.add("minecraft", "1.20.1")
+				.add("mod-a", "1.0.0", "depends minecraft <1.20")));
+
+		assertEquals(null, selectGreedily(new ModPack() // provided id
+				.add("mod-a", "1.0.0", "provides mod-b")
+				.add("mod-c", "1.0.0", "depends mod-b *")));
+
+		assertEquals(null, selectGreedily(new ModPack() // nested in a candidate that isn't preferred
+				.add("mod-a", "1.0.0")
+				.addNested("mod-a", "1.0.0", "mod-b", "1.0.0")
+				.add("mod-a", "2.0.0")));
+	}
+
+	@Test
+	@DisplayName("Greedy selection matches the solver")
+	public void testGreedyMatchesSolver() throws Exception {
+		int greedy = 0;
+		int declined = 0;
+
+		for (int seed = 0; seed < 200; seed++) {
+			Random random = new Random(seed);
+			ModPack pack = createRandomPack(random, 2 + random.nextInt(12));
+			List<String> greedySelection = selectGreedily(pack);
+
+			if (greedySelection != null) {
+				assertEquals(solve(pack), greedySelection, "seed "+seed);
+				greedy++;
+			} else {
+				declined++;
+			}
+		}
+
+		// make sure the packs cover both outcomes
+
+		assertTrue(greedy > 20, "greedy packs: "+greedy);
+		assertTrue(declined > 20, "declined packs: "+declined);
+	}
+
+	@Test
+	@DisplayName("Declined greedy selection leaves the selection unchanged")
+	public void testGreedyUnchanged() throws Exception {
+		Resolution resolution = new Resolution(new ModPack()
+				.add("minecraft", "1.20.1")
+				.add("mod-a", "1.0.0", "depends mod-b <2")
+				.add("mod-b", "1.0.0")
+				.add("mod-b", "2.0.0"));
+		Map<String, ModCandidate> selectedMods = new HashMap<>(resolution.selectedMods);
+		List<ModCandidate> uniqueSelectedMods = new ArrayList<>(resolution.uniqueSelectedMods);
+
+		assertFalse(ModResolver.selectGreedily(resolution.modsById, resolution.selectedMods, resolution.uniqueSelectedMods));
+		assertEquals(selectedMods, resolution.selectedMods);
+		assertEquals(uniqueSelectedMods, resolution.uniqueSelectedMods);
+	}
+
+	/**
+	 * Apply the greedy selection to a pack, preselecting the game if present.
+	 *
+	 * @return the selection or null if the greedy selection doesn't apply
+	 */
+	private static List<String> selectGreedily(ModPack pack) throws ModResolutionException {
+		Resolution resolution = new Resolution(pack);
+		if (!ModResolver.selectGreedily(resolution.modsById, resolution.selectedMods, resolution.uniqueSelectedMods)) return null;
+
+		return resolution.getSelection();
+	}
+
+	/**
+	 * Solve a pack, preselecting the game if present.
+	 *
+	 * @return the selection or null if the pack has no solution
+	 */
+	private static List<String> solve(ModPack pack) throws ModResolutionException {
+		Resolution resolution = new Resolution(pack);
+		ModSolver.Result result = ModSolver.solve(resolution.sorted, resolution.modsById, resolution.selectedMods, resolution.uniqueSelectedMods, new CdclResolverBackend());
+
+		return result.success ? resolution.getSelection() : null;
+	}
+
+	/**
+	 * Create a pack of mods with random dependencies, some of them on a game or with nested libraries.
+	 */
+	private static ModPack createRandomPack(Random random, int size) throws ParseMetadataException {
+		ModPack ret = new ModPack();
+		boolean hasGame = random.nextBoolean();
+		if (hasGame) ret.add("minecraft", "1.20.1");
+
+		for (int i = 0; i < size; i++) {
+			String id = "mod"+i;
+			int variants = random.nextInt(4) == 0 ? 2 : 1;
+
+			for (int v = 1; v <= variants; v++) {
+				List<String> deps = new ArrayList<>();
+				Set<Integer> targets = new HashSet<>(); // each id may only appear once per mod
+
+				if (hasGame && random.nextInt(3) == 0) {
+					deps.add("depends minecraft "+GAME_PREDICATES[random.nextInt(GAME_PREDICATES.length)]);
+				}
+
+				for (int j = random.nextInt(3); j > 0 && i > 0; j--) {
+					int target = random.nextInt(i);
+					if (targets.add(target)) deps.add("depends mod"+target+" "+PREDICATES[random.nextInt(PREDICATES.length)]);
+				}
+
+				if (i > 0 && random.nextInt(8) == 0) {
+					int target = random.nextInt(i);
+					if (targets.add(target)) deps.add("breaks mod"+target+" "+PREDICATES[2 + random.nextInt(PREDICATES.length - 2)]);
+				}
+
+				if (i > 0 && random.nextInt(8) == 0) {
+					int target = random.nextInt(i);
+					if (targets.add(target)) deps.add("recommends mod"+target+" >=2");
+				}
+
+				ret.add(id, v+".0.0", deps.toArray(new String[0]));
+
+				if (random.nextInt(6) == 0) {
+					ret.addNested(id, v+".0.0", id+"-lib", v+".0.0", "depends "+id+" *");
+				}
+			}
+		}
+
+		Collections.shuffle(ret.mods, random); // discovery order isn't sorted either
+
+		return ret;
+	}
+
+	/**
+	 * Resolver state as set up by {@link ModResolver} before selecting the remaining mods.
+	 */
+	private static final class Resolution {
+		final List<ModCandidate> sorted;
+		final Map<String, List<ModCandidate>> modsById = new LinkedHashMap<>();
+		final Map<String, ModCandidate> selectedMods = new HashMap<>();
+		final List<ModCandidate> uniqueSelectedMods = new ArrayList<>();
+
+		Resolution(ModPack pack) throws ModResolutionException {
+			sorted = new ArrayList<>(pack.mods);
+			ModPrioSorter.sort(sorted, modsById);
+
+			List<ModCandidate> game = modsById.get("minecraft");
+			if (game != null) ModResolver.preselectMod(game.get(0), sorted, modsById, selectedMods, uniqueSelectedMods);
+		}
+
+		List<String> getSelection() {
+			List<String> ret = new ArrayList<>();
+
+			for (ModCandidate mod : uniqueSelectedMods) {
+				ret.add(mod.getId()+" "+mod.getVersion().getFriendlyString());
+			}
+
+			ret.sort(null);
+
+			return ret;
+		}
+	}
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.fabricmc.api.EnvType;
+
+final class ModScanIndexTests {
+	private static final byte[] ROOT_METADATA = "{\"schemaVersion\": 1, \"id\": \"root\", \"version\": \"1.0.0\"}".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] NESTED_METADATA = "{\"schemaVersion\": 1, \"id\": \"nested\", \"version\": \"2.0.0\"}".getBytes(StandardCharsets.UTF_8);
+
+	@TempDir
+	Path dir;
+
+	@Test
+	@DisplayName("Entries survive saving and loading")
+	public void testRoundTrip() throws IOException {
+		Path jar = createJar("root.jar", "content");
+		Path other = createJar("other.jar", "not a mod");
+		ModScanIndex index = load(false);
+		index.put(jar, index.stamp(jar), createNode());
+		index.put(other, index.stamp(other), ModScanIndex.Node.NO_MOD);
+		index.save();
+
+		index = load(false);
+		ModScanIndex.Node root = index.get(jar).node;
+		assertNotNull(root);
+		assertTrue(root.isMod());
+		assertNull(root.localPath);
+		assertArrayEquals(ROOT_METADATA, root.metadata);
+		assertNull(root.binaryMetadata);
+		assertEquals(1, root.nestedMods.size());
+
+		ModScanIndex.Node nested = root.nestedMods.get(0);
+		assertEquals("META-INF/jars/nested.jar", nested.localPath);
+		assertEquals(42, nested.hash);
+		assertArrayEquals(new byte[] { 1, 2, 3 }, nested.digest);
+		assertArrayEquals(NESTED_METADATA, nested.metadata);
+		assertArrayEquals(new byte[] { 4, 5 }, nested.binaryMetadata);
+		assertTrue(nested.nestedMods.isEmpty());
+
+		ModScanIndex.Node notMod = index.get(other).node;
+		assertNotNull(notMod);
+		assertFalse(notMod.isMod());
+	}
+
+	@Test
+	@DisplayName("Unused entries are dropped")
+	public void testUnusedDropped() throws IOException {
+		Path jar = createJar("root.jar", "content");
+		Path other = createJar("other.jar", "content");
+		ModScanIndex index = load(false);
+		index.put(jar, index.stamp(jar), createNode());
+		index.put(other, index.stamp(other), createNode());
+		index.save();
+
+		index = load(false);
+		assertNotNull(index.get(jar).node);
+		index.save();
+
+		index = load(false);
+		assertNotNull(index.get(jar).node);
+		assertNull(index.get(other).node);
+	}
+
+	@Test
+	@DisplayName("Size change makes an entry stale")
+	public void testStaleSize() throws IOException {
+		Path jar = createJar("root.jar", "content");
+		FileTime time = Files.getLastModifiedTime(jar);
+		save(jar, false);
+
+		Files.write(jar, "longer content".getBytes(StandardCharsets.UTF_8));
+		Files.setLastModifiedTime(jar, time);
+
+		assertNull(load(false).get(jar).node);
+	}
+
+	@Test
+	@DisplayName("Modification time change makes an entry stale")
+	public void testStaleModificationTime() throws IOException {
+		Path jar = createJar("root.jar", "content");
+		FileTime time = Files.getLastModifiedTime(jar);
+		save(jar, false);
+
+		Files.setLastModifiedTime(jar, FileTime.fromMillis(time.toMillis() - 60_000));
+
+		assertNull(load(false).get(jar).node);
+	}
+
+	@Test
+	@DisplayName("Content change is only detected with digest validation")
+	public void testDigestValidation() throws IOException {
+		Path jar = createJar("root.jar", "content");
+		FileTime time = Files.getLastModifiedTime(jar);
+		save(jar, true);
+
+		// same size and modification time
+
+		Files.write(jar, "CONTENT".getBytes(StandardCharsets.UTF_8));
+		Files.setLastModifiedTime(jar, time);
+
+		assertNotNull(load(false).get(jar).node);
+		assertNull(load(true).get(jar).node);
+	}
+
+	@Test
+	@DisplayName("Change during the scan leaves the entry stale")
+	public void testChangeDuringScan() throws IOException {
+		Path jar = createJar("root.jar", "content");
+		ModScanIndex index = load(false);
+		ModScanIndex.Lookup lookup = index.get(jar);
+		assertNull(lookup.node);
+
+		// the jar gets replaced after it got stamped, but before its scan result is stored
+
+		Files.write(jar, "replaced content".getBytes(StandardCharsets.UTF_8));
+		index.put(jar, lookup.stamp, createNode());
+		index.save();
+
+		assertNull(load(false).get(jar).node);
+	}
+
+	@Test
+	@DisplayName("Invalidated entries aren't used")
+	public void testInvalidate() throws IOException {
+		Path jar = createJar("root.jar", "content");
+		save(jar, false);
+
+		ModScanIndex index = load(false);
+		index.invalidate(jar);
+		assertNull(index.get(jar).node);
+		index.save();
+
+		assertNull(load(false).get(jar).node);
+	}
+
+	@Test
+	@DisplayName("Index for another environment is discarded")
+	public void testEnvironmentMismatch() throws IOException {
+		Path jar = createJar("root.jar", "content");
+		save(jar, false);
+
+		assertNull(ModScanIndex.load(getIndexFile(), EnvType.SERVER, false, false).get(jar).node);
+		assertNull(ModScanIndex.load(getIndexFile(), EnvType.CLIENT, true, false).get(jar).node);
+		assertNotNull(load(false).get(jar).node);
+	}
+
+	@Test
+	@DisplayName("Corrupt index is ignored")
+	public void testCorrupt() throws IOException {
+		Path jar = createJar("root.jar", "content");
+		save(jar, false);
+
+		byte[] data = Files.readAllBytes(getIndexFile());
+		Files.write(getIndexFile(), Arrays.copyOf(data, data.length - 10));
+
+		assertNull(load(false).get(jar).node);
+	}
+
+	private void save(Path jar, boolean validateDigest) throws IOException {
+		ModScanIndex index = load(validateDigest);
+		index.put(jar, index.stamp(jar), createNode());
+		index.save();
+	}
+
+	private ModScanIndex load(boolean validateDigest) {
+		return ModScanIndex.load(getIndexFile(), EnvType.CLIENT, false, validateDigest);
+	}
+
+	private Path getIndexFile() {
+		return dir.resolve("index").resolve("discoveryIndex.bin");
+	}
+
+	private Path createJar(String name, String content) throws IOException {
+		return Files.write(dir.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static ModScanIndex.Node createNode() {
+		ModScanIndex.Node nested = new ModScanIndex.Node("META-INF/jars/nested.jar", 42, new byte[] { 1, 2, 3 }, NESTED_METADATA, new byte[] { 4, 5 }, Collections.emptyList());
+
+		return new ModScanIndex.Node(null, -1, null, ROOT_METADATA, null, Collections.singletonList(nested));
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class ModsDirJournalTests {
+	private static final long WATCH_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(30);
+
+	@TempDir
+	Path dir;
+
+	@Test
+	@DisplayName("Unchanged directory listing is reused")
+	public void testListingReuse() throws IOException {
+		Path modsDir = createModsDir("a.jar", "b.jar");
+		List<Path> files = scan(modsDir);
+
+		assertEquals(files, load(modsDir).beginScan());
+	}
+
+	@Test
+	@DisplayName("Listing without a previous scan")
+	public void testNoJournal() throws IOException {
+		Path modsDir = createModsDir("a.jar");
+
+		assertNull(load(modsDir).beginScan());
+		assertTrue(load(modsDir).getModifiedFiles().isEmpty());
+	}
+
+	@Test
+	@DisplayName("Directory modification invalidates the listing")
+	public void testDirModified() throws IOException {
+		Path modsDir = createModsDir("a.jar", "b.jar");
+		scan(modsDir);
+
+		Files.setLastModifiedTime(modsDir, FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(5)));
+
+		assertNull(load(modsDir).beginScan());
+	}
+
+	@Test
+	@DisplayName("Directory modified shortly before the scan isn't trusted")
+	public void testTimestampResolution() throws IOException {
+		Path modsDir = createModsDir("a.jar");
+		Files.setLastModifiedTime(modsDir, FileTime.fromMillis(System.currentTimeMillis()));
+
+		ModsDirJournal journal = load(modsDir);
+		journal.beginScan();
+		journal.endScan(Collections.singletonList(modsDir.resolve("a.jar")));
+
+		assertNull(load(modsDir).beginScan());
+	}
+
+	@Test
+	@DisplayName("Journal for another directory is discarded")
+	public void testOtherDir() throws IOException {
+		Path modsDir = createModsDir("a.jar");
+		scan(modsDir);
+
+		Path otherDir = Files.createDirectories(dir.resolve("other"));
+		Files.setLastModifiedTime(otherDir, Files.getLastModifiedTime(modsDir));
+
+		assertNull(ModsDirJournal.load(getJournalFile(), otherDir).beginScan());
+	}
+
+	@Test
+	@DisplayName("Content change while watched marks the file as modified")
+	public void testWatchedModification() throws IOException, InterruptedException {
+		Path modsDir = createModsDir("a.jar", "b.jar");
+		List<Path> files = scan(modsDir);
+
+		Files.write(modsDir.resolve("a.jar"), "changed".getBytes(StandardCharsets.UTF_8));
+		ModsDirJournal journal = awaitModified(modsDir, modsDir.resolve("a.jar"));
+
+		assertEquals(Collections.singletonList(modsDir.resolve("a.jar")), journal.getModifiedFiles());
+		assertEquals(files, journal.beginScan()); // no structural change
+	}
+
+	@Test
+	@DisplayName("File added while watched invalidates the listing")
+	public void testWatchedCreation() throws IOException, InterruptedException {
+		Path modsDir = createModsDir("a.jar");
+		scan(modsDir);
+
+		// restore the directory's modification time to only leave the watcher to detect the change
+
+		FileTime time = Files.getLastModifiedTime(modsDir);
+		createMod(modsDir, "b.jar");
+		Files.setLastModifiedTime(modsDir, time);
+
+		assertNull(awaitModified(modsDir, modsDir.resolve("b.jar")).beginScan());
+	}
+
+	/**
+	 * Run a full scan on a directory whose modification time is old enough for its listing to be reused.
+	 */
+	private List<Path> scan(Path modsDir) throws IOException {
+		Files.setLastModifiedTime(modsDir, FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(1)));
+
+		List<Path> ret = Arrays.asList(modsDir.resolve("a.jar"), modsDir.resolve("b.jar"));
+		if (!Files.exists(ret.get(1))) ret = ret.subList(0, 1);
+
+		ModsDirJournal journal = load(modsDir);
+		assertNull(journal.beginScan());
+		journal.endScan(ret);
+
+		return ret;
+	}
+
+	/**
+	 * Wait for the watcher of a previous scan to record a modified file.
+	 */
+	private ModsDirJournal awaitModified(Path modsDir, Path file) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + WATCH_TIMEOUT_MS;
+
+		do {
+			ModsDirJournal ret = load(modsDir);
+			if (ret.getModifiedFiles().contains(file)) return ret;
+
+			Thread.sleep(50);
+		} while (System.currentTimeMillis() < deadline);
+
+		fail("watcher didn't record the modification of "+file);
+
+		return null;
+	}
+
+	private ModsDirJournal load(Path modsDir) {
+		return ModsDirJournal.load(getJournalFile(), modsDir);
+	}
+
+	private Path getJournalFile() {
+		return dir.resolve("journal").resolve("modsDirJournal.bin");
+	}
+
+	private Path createModsDir(String... names) throws IOException {
+		Path ret = Files.createDirectories(dir.resolve("mods"));
+
+		for (String name : names) {
+			createMod(ret, name);
+		}
+
+		return ret;
+	}
+
+	private static void createMod(Path modsDir, String name) throws IOException {
+		Files.write(modsDir.resolve(name), name.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.fabricmc.api.EnvType;
+import net.fabricmc.loader.impl.metadata.ParseMetadataException;
+
+final class ResolutionLockTests {
+	@TempDir
+	Path dir;
+
+	@Test
+	@DisplayName("Selection survives saving and loading")
+	public void testRoundTrip() throws ParseMetadataException {
+		save(createPack().mods, "mod-a 1.0.0", "mod-b 1.0.0", "mod-c 1.0.0");
+
+		List<ModCandidate> mods = createPack().mods;
+		List<ModCandidate> loaded = load(mods, EnvType.CLIENT, Collections.emptyMap());
+
+		assertNotNull(loaded);
+		assertEquals(toKeys(Arrays.asList(mods.get(0), mods.get(1), mods.get(3))), toKeys(loaded));
+
+		for (ModCandidate mod : loaded) {
+			assertTrue(mods.stream().anyMatch(m -> m == mod)); // current candidates, not the ones from saving
+		}
+	}
+
+	@Test
+	@DisplayName("Changed candidates don't match")
+	public void testMismatch() throws ParseMetadataException {
+		save(createPack().mods, "mod-a 1.0.0", "mod-b 1.0.0", "mod-c 1.0.0");
+
+		assertNull(load(new ModPack() // changed dependency
+				.add("mod-a", "1.0.0", "depends mod-b <3")
+				.add("mod-b", "1.0.0")
+				.add("mod-b", "2.0.0")
+				.add("mod-c", "1.0.0")
+				.mods, EnvType.CLIENT, Collections.emptyMap()));
+
+		assertNull(load(new ModPack() // changed version
+				.add("mod-a", "1.0.0", "depends mod-b <2")
+				.add("mod-b", "1.0.0")
+				.add("mod-b", "2.0.0")
+				.add("mod-c", "1.0.1")
+				.mods, EnvType.CLIENT, Collections.emptyMap()));
+
+		assertNull(load(createPack() // added candidate
+				.add("mod-d", "1.0.0")
+				.mods, EnvType.CLIENT, Collections.emptyMap()));
+
+		List<ModCandidate> mods = createPack().mods; // removed candidate
+		mods.remove(2);
+		assertNull(load(mods, EnvType.CLIENT, Collections.emptyMap()));
+
+		assertNotNull(load(createPack().mods, EnvType.CLIENT, Collections.emptyMap()));
+	}
+
+	@Test
+	@DisplayName("Different environment doesn't match")
+	public void testEnvironment() throws ParseMetadataException {
+		save(createPack().mods, "mod-a 1.0.0", "mod-b 1.0.0", "mod-c 1.0.0");
+
+		Map<String, Set<ModCandidate>> envDisabledMods = new HashMap<>();
+		envDisabledMods.put("mod-d", Collections.singleton(new ModPack().add("mod-d", "1.0.0").mods.get(0)));
+
+		assertNull(load(createPack().mods, EnvType.SERVER, Collections.emptyMap()));
+		assertNull(load(createPack().mods, EnvType.CLIENT, envDisabledMods));
+	}
+
+	@Test
+	@DisplayName("Ambiguous candidates aren't locked")
+	public void testAmbiguous() throws ParseMetadataException {
+		List<ModCandidate> mods = createPack()
+				.add("mod-c", "1.0.0") // same id, version and path
+				.mods;
+
+		assertNull(ResolutionLock.create(getLockFile(), mods, EnvType.CLIENT, Collections.emptyMap()));
+	}
+
+	@Test
+	@DisplayName("Missing or corrupt lock is ignored")
+	public void testCorrupt() throws IOException, ParseMetadataException {
+		assertNull(load(createPack().mods, EnvType.CLIENT, Collections.emptyMap()));
+
+		save(createPack().mods, "mod-a 1.0.0", "mod-b 1.0.0", "mod-c 1.0.0");
+		byte[] data = Files.readAllBytes(getLockFile());
+		Files.write(getLockFile(), Arrays.copyOf(data, data.length - 10));
+
+		assertNull(load(createPack().mods, EnvType.CLIENT, Collections.emptyMap()));
+	}
+
+	@Test
+	@DisplayName("Resolver restores the locked selection")
+	public void testResolver() throws IOException, ModResolutionException, ParseMetadataException {
+		Path lockFile = getLockFile();
+		FileTime oldTime = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+
+		// mod-a rules out the preferred mod-b 2.0.0, so the greedy selection doesn't apply and the solver runs
+
+		Set<String> expected = new TreeSet<>(Arrays.asList("mod-a 1.0.0", "mod-b 1.0.0", "mod-c 1.0.0"));
+		assertEquals(expected, toKeys(resolve(createPack().mods, lockFile)));
+		assertTrue(Files.exists(lockFile));
+		Files.setLastModifiedTime(lockFile, oldTime);
+
+		assertEquals(expected, toKeys(resolve(createPack().mods, lockFile)));
+		assertEquals(oldTime, Files.getLastModifiedTime(lockFile)); // restored, not solved and saved again
+
+		List<ModCandidate> changed = new ModPack()
+				.add("mod-a", "1.0.0", "depends mod-b <2")
+				.add("mod-b", "1.0.0")
+				.add("mod-b", "2.0.0")
+				.add("mod-c", "1.1.0")
+				.mods;
+
+		assertEquals(new TreeSet<>(Arrays.asList("mod-a 1.0.0", "mod-b 1.0.0", "mod-c 1.1.0")), toKeys(resolve(changed, lockFile)));
+		assertNotEquals(oldTime, Files.getLastModifiedTime(lockFile));
+	}
+
+	private static ModPack createPack() throws ParseMetadataException {
+		return new ModPack()
+				.add("mod-a", "1.0.0", "depends mod-b <2")
+				.add("mod-b", "1.0.0")
+				.add("mod-b", "2.0.0")
+				.add("mod-c", "1.0.0");
+	}
+
+	private void save(List<ModCandidate> mods, String... selected) {
+		Set<String> selectedKeys = new TreeSet<>(Arrays.asList(selected));
+		ResolutionLock lock = ResolutionLock.create(getLockFile(), mods, EnvType.CLIENT, Collections.emptyMap());
+		assertNotNull(lock);
+
+		lock.save(mods.stream().filter(m -> selectedKeys.contains(toKey(m))).collect(Collectors.toList()));
+	}
+
+	private List<ModCandidate> load(List<ModCandidate> mods, EnvType envType, Map<String, Set<ModCandidate>> envDisabledMods) {
+		ResolutionLock lock = ResolutionLock.create(getLockFile(), mods, envType, envDisabledMods);
+		assertNotNull(lock);
+
+		return lock.load();
+	}
+
+	private static List<ModCandidate> resolve(List<ModCandidate> mods, Path lockFile) throws ModResolutionException {
+		return ModResolver.resolve(mods, EnvType.CLIENT, Collections.emptyMap(), lockFile);
+	}
+
+	private Path getLockFile() {
+		return dir.resolve("cache").resolve("resolutionLock.bin");
+	}
+
+	private static Set<String> toKeys(Collection<ModCandidate> mods) {
+		Set<String> ret = new TreeSet<>();
+
+		for (ModCandidate mod : mods) {
+			ret.add(toKey(mod));
+		}
+
+		return ret;
+	}
+
+	private static String toKey(ModCandidate mod) {
+		return mod.getId()+" "+mod.getVersion().getFriendlyString();
+	}
+}
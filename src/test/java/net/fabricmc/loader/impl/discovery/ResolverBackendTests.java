@@ -0,0 +1,423 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import net.fabricmc.loader.impl.metadata.ParseMetadataException;
+
+/**
+ * Differential tests of the solver backends, resolving the same mod sets with SAT4J as the reference and the built-in
+ * CDCL backend.
+ *
+ * <p>The selection is fully determined by the objective function and so is the cost of the suggested fix, any difference
+ * points at a backend bug. Failure explanations may differ between the backends, but both have to be minimal: the
+ * explained constraints conflict and dropping any one of them resolves the conflict.
+ */
+final class ResolverBackendTests {
+	private static final String[] PREDICATES = { "*", ">=1", "1.x", "<2" }; // always matched by 1.0.0
+	private static final String[] CONFLICTING_PREDICATES = { "*", ">=2", "<2", "1.x", "^2.0.0", ">=1.0.0 <3", "3.x" };
+
+	@Test
+	@DisplayName("Random packs resolve the same")
+	public void testRandomPacks() throws Exception {
+		int failures = 0;
+
+		for (int seed = 0; seed < 60; seed++) {
+			if (!compare(createRandomPack(new Random(seed), 25, seed % 3 == 0), "seed "+seed)) failures++;
+		}
+
+		// make sure the packs cover both outcomes
+
+		assertTrue(failures > 5 && failures < 55, "failing packs: "+failures);
+	}
+
+	@Test
+	@DisplayName("Large packs resolve the same")
+	public void testLargePacks() throws Exception {
+		for (int seed = 0; seed < 4; seed++) {
+			compare(createRandomPack(new Random(seed), 400, false), "seed "+seed);
+		}
+	}
+
+	@Test
+	@DisplayName("Missing dependency")
+	public void testMissingDependency() throws Exception {
+		assertFalse(compare(new ModPack()
+				.add("mod-a", "1.0.0", "depends mod-b *")
+				.add("mod-c", "1.0.0"),
+				"missing"));
+	}
+
+	@Test
+	@DisplayName("Conflicting version ranges")
+	public void testVersionConflict() throws Exception {
+		assertFalse(compare(new ModPack()
+				.add("mod-a", "1.0.0", "depends mod-c >=2")
+				.add("mod-b", "1.0.0", "depends mod-c <2")
+				.add("mod-c", "1.0.0")
+				.add("mod-c", "2.0.0"),
+				"version conflict"));
+	}
+
+	@Test
+	@DisplayName("Breaking mods")
+	public void testBreaks() throws Exception {
+		assertFalse(compare(new ModPack()
+				.add("mod-a", "1.0.0", "breaks mod-b *")
+				.add("mod-b", "1.0.0")
+				.add("mod-b", "2.0.0"),
+				"breaks"));
+
+		assertTrue(compare(new ModPack()
+				.add("mod-a", "1.0.0", "breaks mod-b <2")
+				.add("mod-b", "1.0.0")
+				.add("mod-b", "2.0.0"),
+				"avoidable break"));
+	}
+
+	@Test
+	@DisplayName("Transitive conflict")
+	public void testTransitiveConflict() throws Exception {
+		assertFalse(compare(new ModPack()
+				.add("mod-a", "1.0.0", "depends mod-b >=2")
+				.add("mod-b", "1.0.0")
+				.add("mod-b", "2.0.0", "depends mod-c ^3.0.0")
+				.add("mod-c", "1.0.0")
+				.add("mod-c", "2.0.0", "breaks mod-a *"),
+				"transitive"));
+	}
+
+	/**
+	 * Resolve a pack with both backends and check that they agree.
+	 *
+	 * @return whether the pack resolved
+	 */
+	private static boolean compare(ModPack pack, String desc) throws ModResolutionException {
+		return compare(pack.mods, desc);
+	}
+
+	private static boolean compare(List<ModCandidate> mods, String desc) throws ModResolutionException {
+		List<ModCandidate> sorted = new ArrayList<>(mods);
+		Map<String, List<ModCandidate>> modsById = new LinkedHashMap<>();
+		ModPrioSorter.sort(sorted, modsById);
+
+		RecordingBackend reference = new RecordingBackend(new Sat4jResolverBackend());
+		RecordingBackend candidate = new RecordingBackend(new CdclResolverBackend());
+		List<String> expectedSelection = new ArrayList<>();
+		List<String> actualSelection = new ArrayList<>();
+		ModSolver.Result expected = solve(sorted, modsById, reference, expectedSelection);
+		ModSolver.Result actual = solve(sorted, modsById, candidate, actualSelection);
+
+		assertEquals(expected.success, actual.success, desc);
+
+		if (expected.success) {
+			assertEquals(expectedSelection, actualSelection, desc);
+		} else {
+			assertEquals(expected.fix != null, actual.fix != null, desc);
+
+			if (expected.fix != null) {
+				assertTrue(expected.fix.optimal, desc);
+				assertTrue(actual.fix.optimal, desc);
+				assertEquals(reference.lastCost, candidate.lastCost, desc); // the fix solve is the last one
+			}
+
+			assertFalse(reference.failures.isEmpty(), desc);
+			assertEquals(reference.failures.size(), candidate.failures.size(), desc);
+		}
+
+		for (Failure failure : reference.failures) {
+			assertMinimal(failure, desc+", "+reference.getName());
+		}
+
+		for (Failure failure : candidate.failures) {
+			assertMinimal(failure, desc+", "+candidate.getName());
+		}
+
+		return expected.success;
+	}
+
+	private static ModSolver.Result solve(List<ModCandidate> sorted, Map<String, List<ModCandidate>> modsById, ResolverBackend backend, List<String> selection) throws ModResolutionException {
+		Map<String, ModCandidate> selectedMods = new HashMap<>(sorted.size());
+		List<ModCandidate> uniqueSelectedMods = new ArrayList<>(sorted.size());
+		ModSolver.Result ret = ModSolver.solve(sorted, modsById, selectedMods, uniqueSelectedMods, backend);
+
+		for (ModCandidate mod : uniqueSelectedMods) {
+			selection.add(mod.getId()+" "+mod.getVersion().getFriendlyString());
+		}
+
+		selection.sort(null);
+
+		return ret;
+	}
+
+	/**
+	 * Check that the explained constraints conflict and that each of them is needed for the conflict.
+	 *
+	 * <p>The check replays the constraints on a fresh problem, so it is independent of the explaining backend's state.
+	 */
+	private static void assertMinimal(Failure failure, String desc) throws ModResolutionException {
+		assertFalse(failure.constraints.isEmpty(), desc);
+		assertFalse(solveSubset(failure, null), desc+": "+failure.constraints+" don't conflict");
+
+		for (Constraint excluded : failure.constraints) {
+			assertTrue(solveSubset(failure, excluded), desc+": "+failure.constraints+" conflict without "+excluded);
+		}
+	}
+
+	private static boolean solveSubset(Failure failure, Constraint excluded) throws ModResolutionException {
+		ResolverBackend.Problem problem = new CdclResolverBackend().createProblem();
+
+		for (Constraint constraint : failure.constraints) {
+			if (constraint != excluded) constraint.adder.addTo(problem, constraint.name);
+		}
+
+		try {
+			return problem.solve(failure.assumptions, 0);
+		} catch (ResolverBackend.TimeoutException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	private static List<ModCandidate> createRandomPack(Random random, int size, boolean conflicts) throws ParseMetadataException {
+		ModPack ret = new ModPack();
+		String[] predicates = conflicts ? CONFLICTING_PREDICATES : PREDICATES;
+
+		for (int i = 0; i < size; i++) {
+			String id = "mod"+i;
+			int variants = random.nextInt(3) == 0 ? 2 + random.nextInt(2) : 1;
+
+			for (int v = 1; v <= variants; v++) {
+				List<String> deps = new ArrayList<>();
+				Set<Integer> targets = new TreeSet<>(); // each id may only appear once per mod
+				int depCount = i > 0 ? random.nextInt(3) : 0;
+
+				for (int j = 0; j < depCount; j++) {
+					int target = random.nextInt(i);
+					if (targets.add(target)) deps.add("depends mod"+target+" "+predicates[random.nextInt(predicates.length)]);
+				}
+
+				if (i > 0 && random.nextInt(conflicts ? 6 : 10) == 0) {
+					int target = random.nextInt(i);
+					if (targets.add(target)) deps.add("breaks mod"+target+" "+(conflicts ? "*" : ">=3"));
+				}
+
+				if (i > 0 && random.nextInt(6) == 0) {
+					int target = random.nextInt(i);
+					if (targets.add(target)) deps.add("recommends mod"+target+" >=2");
+				}
+
+				ret.add(id, v+".0.0", deps.toArray(new String[0]));
+			}
+		}
+
+		Collections.shuffle(ret.mods, random); // discovery order isn't sorted either
+
+		return ret.mods;
+	}
+
+	/**
+	 * Backend decorator recording the explained failures and the objective value of the last solution.
+	 *
+	 * <p>Constraints may share their name, e.g. a breaks dependency with one constraint per matching mod. The backends
+	 * explain failures with a minimal set of constraints, so the decorator names each constraint uniquely to tell them
+	 * apart and maps the explanation back to the original names.
+	 */
+	private static final class RecordingBackend implements ResolverBackend {
+		final ResolverBackend backend;
+		final List<Failure> failures = Collections.synchronizedList(new ArrayList<>());
+		volatile BigInteger lastCost;
+
+		RecordingBackend(ResolverBackend backend) {
+			this.backend = backend;
+		}
+
+		@Override
+		public String getName() {
+			return backend.getName();
+		}
+
+		@Override
+		public Problem createProblem() {
+			return new RecordingProblem(this, backend.createProblem());
+		}
+	}
+
+	private static final class RecordingProblem implements ResolverBackend.Problem {
+		private final RecordingBackend owner;
+		private final ResolverBackend.Problem problem;
+		private final Map<Explanation, Constraint> constraints = new IdentityHashMap<>(); // by unique name
+		private final Map<DomainObject, BigInteger> objective = new HashMap<>();
+		private List<DomainObject> lastAssumptions = Collections.emptyList();
+
+		RecordingProblem(RecordingBackend owner, ResolverBackend.Problem problem) {
+			this.owner = owner;
+			this.problem = problem;
+		}
+
+		@Override
+		public void clause(Explanation name, DomainObject... objs) throws ModResolutionException {
+			add(name, (p, n) -> p.clause(n, objs));
+		}
+
+		@Override
+		public void implication(Explanation name, DomainObject premise, DomainObject... conclusions) throws ModResolutionException {
+			add(name, (p, n) -> p.implication(n, premise, conclusions));
+		}
+
+		@Override
+		public void atMostOne(Explanation name, DomainObject... objs) throws ModResolutionException {
+			add(name, (p, n) -> p.atMostOne(n, objs));
+		}
+
+		@Override
+		public void setTrue(DomainObject obj, Explanation name) throws ModResolutionException {
+			add(name, (p, n) -> p.setTrue(obj, n));
+		}
+
+		@Override
+		public void setFalse(DomainObject obj, Explanation name) throws ModResolutionException {
+			add(name, (p, n) -> p.setFalse(obj, n));
+		}
+
+		private void add(Explanation name, ConstraintAdder adder) throws ModResolutionException {
+			Explanation uniqueName = new Explanation(name.error, name.toString());
+			constraints.put(uniqueName, new Constraint(name, adder));
+			adder.addTo(problem, uniqueName);
+		}
+
+		@Override
+		public void addToObjectiveFunction(DomainObject obj, BigInteger weight) {
+			objective.merge(obj, weight, BigInteger::add);
+			problem.addToObjectiveFunction(obj, weight);
+		}
+
+		@Override
+		public boolean solve(Collection<DomainObject> assumptions, int timeout) throws ResolverBackend.TimeoutException {
+			lastAssumptions = new ArrayList<>(assumptions);
+			boolean ret = problem.solve(assumptions, timeout);
+
+			if (ret) {
+				BigInteger cost = BigInteger.ZERO;
+
+				for (DomainObject obj : problem.getSolution()) {
+					BigInteger weight = objective.get(obj);
+					if (weight != null) cost = cost.add(weight);
+				}
+
+				owner.lastCost = cost;
+			}
+
+			return ret;
+		}
+
+		@Override
+		public boolean isOptimal() {
+			return problem.isOptimal();
+		}
+
+		@Override
+		public List<DomainObject> getSolution() {
+			return problem.getSolution();
+		}
+
+		@Override
+		public Set<Explanation> why() throws ResolverBackend.TimeoutException {
+			List<Constraint> explanation = new ArrayList<>();
+			Set<Explanation> ret = new TreeSet<>();
+
+			for (Explanation uniqueName : problem.why()) {
+				Constraint constraint = constraints.get(uniqueName);
+				assertNotNull(constraint);
+				explanation.add(constraint);
+				ret.add(constraint.name);
+			}
+
+			owner.failures.add(new Failure(explanation, lastAssumptions));
+
+			return ret;
+		}
+
+		@Override
+		public int getSolutionCount() {
+			return problem.getSolutionCount();
+		}
+
+		@Override
+		public long getConflicts() {
+			return problem.getConflicts();
+		}
+
+		@Override
+		public long getDecisions() {
+			return problem.getDecisions();
+		}
+
+		@Override
+		public void reset() {
+			problem.reset();
+		}
+	}
+
+	private interface ConstraintAdder {
+		void addTo(ResolverBackend.Problem problem, Explanation name) throws ModResolutionException;
+	}
+
+	private static final class Constraint {
+		final Explanation name;
+		final ConstraintAdder adder;
+
+		Constraint(Explanation name, ConstraintAdder adder) {
+			this.name = name;
+			this.adder = adder;
+		}
+
+		@Override
+		public String toString() {
+			return name.toString();
+		}
+	}
+
+	private static final class Failure {
+		final List<Constraint> constraints; // the explanation
+		final List<DomainObject> assumptions;
+
+		Failure(List<Constraint> constraints, List<DomainObject> assumptions) {
+			this.constraints = constraints;
+			this.assumptions = assumptions;
+		}
+	}
+}
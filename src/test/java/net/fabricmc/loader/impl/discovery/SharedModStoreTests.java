@@ -0,0 +1,251 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.fabricmc.loader.impl.metadata.DependencyOverrides;
+import net.fabricmc.loader.impl.metadata.LoaderModMetadata;
+import net.fabricmc.loader.impl.metadata.ModMetadataParser;
+import net.fabricmc.loader.impl.metadata.ParseMetadataException;
+import net.fabricmc.loader.impl.metadata.VersionOverrides;
+
+final class SharedModStoreTests {
+	private static final long OLD_TIME = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1);
+
+	@TempDir
+	Path dir;
+
+	@Test
+	@DisplayName("Instances share the same blob")
+	public void testLink() throws IOException, ParseMetadataException {
+		byte[] jar = createJar("shared", "1.0.0");
+		Path store = dir.resolve("store");
+
+		Path a = new SharedModStore(store, createInstance("a")).link(createMod(jar, true), dir.resolve("a/mods"));
+		Path b = new SharedModStore(store, createInstance("b")).link(createMod(jar, true), dir.resolve("b/mods"));
+
+		assertArrayEquals(jar, Files.readAllBytes(a));
+		assertArrayEquals(jar, Files.readAllBytes(b));
+		assertEquals(a.getFileName(), b.getFileName());
+		assertTrue(Files.isSameFile(a, b));
+		assertTrue(Files.isSameFile(a, getBlob(store, jar)));
+	}
+
+	@Test
+	@DisplayName("Unchanged instance file is reused without its data")
+	public void testReuse() throws IOException, ParseMetadataException {
+		byte[] jar = createJar("shared", "1.0.0");
+		Path store = dir.resolve("store");
+		Path gameDir = createInstance("a");
+
+		SharedModStore modStore = new SharedModStore(store, gameDir);
+		Path linked = modStore.link(createMod(jar, true), gameDir.resolve("mods"));
+		modStore.commit();
+
+		// the mod's data isn't available, so it can only be provided from the previous launch
+		Path reused = new SharedModStore(store, gameDir).link(createMod(jar, false), gameDir.resolve("mods"));
+
+		assertEquals(linked, reused);
+		assertArrayEquals(jar, Files.readAllBytes(reused));
+	}
+
+	@Test
+	@DisplayName("Modified blob is replaced")
+	public void testModifiedBlob() throws IOException, ParseMetadataException {
+		byte[] jar = createJar("shared", "1.0.0");
+		Path store = dir.resolve("store");
+		Path gameDir = createInstance("a");
+
+		SharedModStore modStore = new SharedModStore(store, gameDir);
+		Path linked = modStore.link(createMod(jar, true), gameDir.resolve("mods"));
+		modStore.commit();
+
+		// rewriting the hard linked instance file in place modifies the blob without changing its size
+
+		byte[] modified = jar.clone();
+		modified[modified.length / 2] ^= 1;
+		Files.write(linked, modified);
+		Files.setLastModifiedTime(linked, FileTime.fromMillis(OLD_TIME)); // may be within the same millisecond otherwise
+		assertArrayEquals(modified, Files.readAllBytes(getBlob(store, jar)));
+
+		Path relinked = new SharedModStore(store, gameDir).link(createMod(jar, true), gameDir.resolve("mods"));
+
+		assertArrayEquals(jar, Files.readAllBytes(relinked));
+		assertArrayEquals(jar, Files.readAllBytes(getBlob(store, jar)));
+	}
+
+	@Test
+	@DisplayName("Blob with the recorded size and modification time isn't hashed")
+	public void testUnchangedBlob() throws IOException, ParseMetadataException {
+		byte[] jar = createJar("shared", "1.0.0");
+		Path store = dir.resolve("store");
+		Path gameDir = createInstance("a");
+
+		SharedModStore modStore = new SharedModStore(store, gameDir);
+		Path linked = modStore.link(createMod(jar, true), gameDir.resolve("mods"));
+		modStore.commit();
+
+		// modification that keeps the size and modification time, only detectable by hashing
+
+		FileTime time = Files.getLastModifiedTime(linked);
+		byte[] modified = jar.clone();
+		modified[modified.length / 2] ^= 1;
+		Files.write(linked, modified);
+		Files.setLastModifiedTime(linked, time);
+
+		Path reused = new SharedModStore(store, gameDir).link(createMod(jar, true), gameDir.resolve("mods"));
+
+		assertEquals(linked, reused);
+		assertArrayEquals(modified, Files.readAllBytes(reused));
+	}
+
+	@Test
+	@DisplayName("Unreferenced blobs are collected")
+	public void testGc() throws IOException, ParseMetadataException {
+		byte[] removedJar = createJar("removed", "1.0.0");
+		byte[] keptJar = createJar("kept", "1.0.0");
+		byte[] recentJar = createJar("recent", "1.0.0");
+		byte[] otherJar = createJar("other", "1.0.0");
+		Path store = dir.resolve("store");
+
+		// instance a references kept, instance b references removed and recent before getting deleted
+
+		Path gameDirA = createInstance("a");
+		SharedModStore modStore = new SharedModStore(store, gameDirA);
+		modStore.link(createMod(keptJar, true), gameDirA.resolve("mods"));
+		modStore.commit();
+
+		Path gameDirB = createInstance("b");
+		modStore = new SharedModStore(store, gameDirB);
+		modStore.link(createMod(removedJar, true), gameDirB.resolve("mods"));
+		modStore.link(createMod(recentJar, true), gameDirB.resolve("mods"));
+		modStore.commit();
+
+		deleteRecursively(gameDirB);
+		Files.setLastModifiedTime(getBlob(store, removedJar), FileTime.fromMillis(OLD_TIME));
+		Files.setLastModifiedTime(getBlob(store, keptJar), FileTime.fromMillis(OLD_TIME));
+
+		Path gameDirC = createInstance("c");
+		modStore = new SharedModStore(store, gameDirC);
+		modStore.link(createMod(otherJar, true), gameDirC.resolve("mods"));
+		modStore.commit();
+
+		assertFalse(Files.exists(getBlob(store, removedJar)));
+		assertTrue(Files.exists(getBlob(store, keptJar))); // still referenced
+		assertTrue(Files.exists(getBlob(store, recentJar))); // within the grace period
+		assertTrue(Files.exists(getBlob(store, otherJar)));
+	}
+
+	private Path createInstance(String name) throws IOException {
+		return Files.createDirectories(dir.resolve(name));
+	}
+
+	private static void deleteRecursively(Path path) throws IOException {
+		if (Files.isDirectory(path)) {
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+				for (Path child : stream) {
+					deleteRecursively(child);
+				}
+			}
+		}
+
+		Files.delete(path);
+	}
+
+	private static Path getBlob(Path store, byte[] jar) {
+		String digest = toHex(ModCandidate.computeDigest(ByteBuffer.wrap(jar)));
+
+		return store.resolve("blobs").resolve(digest.substring(0, 2)).resolve(digest+".jar");
+	}
+
+	/**
+	 * Create a nested mod candidate for a jar.
+	 *
+	 * @param withData whether the candidate's data is available, otherwise it can't be extracted
+	 */
+	private static ModCandidate createMod(byte[] jar, boolean withData) throws IOException, ParseMetadataException {
+		LoaderModMetadata metadata = ModMetadataParser.parseMetadata(new ByteArrayInputStream(readMetadata(jar)), "nested.jar", Collections.emptyList(),
+				new VersionOverrides(), new DependencyOverrides(Paths.get("missing")), false);
+
+		CRC32 crc = new CRC32();
+		crc.update(jar);
+
+		ModCandidate ret = ModCandidate.createNested("META-INF/jars/nested.jar", crc.getValue() << 32 | jar.length,
+				ModCandidate.computeDigest(ByteBuffer.wrap(jar)), metadata, false, Collections.emptyList());
+		if (withData) ret.setData(ByteBuffer.wrap(jar), true);
+
+		return ret;
+	}
+
+	private static byte[] readMetadata(byte[] jar) throws IOException {
+		ByteBuffer ret = ZipBufferReader.readEntry(ByteBuffer.wrap(jar), "fabric.mod.json");
+		byte[] data = new byte[ret.remaining()];
+		ret.get(data);
+
+		return data;
+	}
+
+	private static byte[] createJar(String id, String version) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+		try (ZipOutputStream zos = new ZipOutputStream(bos)) {
+			zos.putNextEntry(new ZipEntry("fabric.mod.json"));
+			zos.write(String.format("{\"schemaVersion\": 1, \"id\": \"%s\", \"version\": \"%s\"}", id, version).getBytes(StandardCharsets.UTF_8));
+			zos.closeEntry();
+			zos.putNextEntry(new ZipEntry("data.txt"));
+			zos.write(("content of "+id).getBytes(StandardCharsets.UTF_8));
+			zos.closeEntry();
+		}
+
+		return bos.toByteArray();
+	}
+
+	private static String toHex(byte[] data) {
+		StringBuilder ret = new StringBuilder(data.length * 2);
+
+		for (byte b : data) {
+			ret.append(Character.forDigit((b >>> 4) & 0xf, 16));
+			ret.append(Character.forDigit(b & 0xf, 16));
+		}
+
+		return ret.toString();
+	}
+}
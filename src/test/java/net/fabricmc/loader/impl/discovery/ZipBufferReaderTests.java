@@ -0,0 +1,270 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.discovery;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class ZipBufferReaderTests {
+	@TempDir
+	Path dir;
+
+	@Test
+	@DisplayName("Stored and deflated entries match ZipFile")
+	public void testEntries() throws IOException {
+		Path jar = dir.resolve("test.jar");
+		Files.write(jar, createArchive());
+
+		compareWithZipFile(jar, ZipBufferReader.map(jar)); // direct buffer
+		compareWithZipFile(jar, ByteBuffer.wrap(Files.readAllBytes(jar))); // heap buffer
+	}
+
+	@Test
+	@DisplayName("Archive with prefix matches ZipFile")
+	public void testPrefixed() throws IOException {
+		byte[] prefix = "#!/bin/sh\nexec java -jar \"$0\" \"$@\"\n".getBytes(StandardCharsets.UTF_8);
+		byte[] archive = createArchive();
+		byte[] data = new byte[prefix.length + archive.length];
+		System.arraycopy(prefix, 0, data, 0, prefix.length);
+		System.arraycopy(archive, 0, data, prefix.length, archive.length);
+
+		Path jar = dir.resolve("prefixed.jar");
+		Files.write(jar, data);
+
+		compareWithZipFile(jar, ZipBufferReader.map(jar));
+	}
+
+	@Test
+	@DisplayName("Archive within a larger buffer")
+	public void testSlice() throws IOException {
+		byte[] archive = createArchive();
+		ByteBuffer buffer = ByteBuffer.allocate(archive.length + 20);
+		buffer.position(10);
+		buffer.put(archive);
+		buffer.flip();
+		buffer.position(10);
+
+		Path jar = dir.resolve("test.jar");
+		Files.write(jar, archive);
+
+		compareWithZipFile(jar, buffer);
+		assertEquals(10, buffer.position()); // not consumed
+	}
+
+	@Test
+	@DisplayName("Zip64 archive is rejected and read through the fallback")
+	public void testZip64() throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+		try (ZipOutputStream zos = new ZipOutputStream(bos)) {
+			// more entries than the regular end of central directory record can hold
+
+			for (int i = 0; i < 0x10000; i++) {
+				zos.putNextEntry(new ZipEntry("e"+i));
+				zos.closeEntry();
+			}
+
+			zos.putNextEntry(new ZipEntry("fabric.mod.json"));
+			zos.write("{}".getBytes(StandardCharsets.UTF_8));
+			zos.closeEntry();
+		}
+
+		ByteBuffer archive = ByteBuffer.wrap(bos.toByteArray());
+
+		assertThrows(ZipException.class, () -> new ZipBufferReader(archive));
+
+		ByteBuffer data = ZipBufferReader.readEntry(archive, "fabric.mod.json");
+		assertNotNull(data);
+		assertArrayEquals("{}".getBytes(StandardCharsets.UTF_8), toArray(data));
+		assertNull(ZipBufferReader.readEntry(archive, "missing"));
+	}
+
+	@Test
+	@DisplayName("Truncated archive is rejected")
+	public void testTruncated() throws IOException {
+		byte[] archive = createArchive();
+
+		assertThrows(ZipException.class, () -> new ZipBufferReader(ByteBuffer.wrap(archive, 0, archive.length / 2)));
+	}
+
+	@Test
+	@DisplayName("Deflated entry with a wrong crc is rejected")
+	public void testCrcMismatch() throws IOException {
+		byte[] archive = createArchive();
+		String name = "deflated.txt";
+		ByteBuffer buffer = ByteBuffer.wrap(archive).order(ByteOrder.LITTLE_ENDIAN);
+		int pos = 0;
+
+		// flip a bit in the crc of the entry's central directory header
+
+		while (buffer.getInt(pos) != 0x02014b50
+				|| buffer.getShort(pos + 28) != name.length()
+				|| !name.equals(new String(archive, pos + 46, name.length(), StandardCharsets.UTF_8))) {
+			pos++;
+		}
+
+		archive[pos + 16] ^= 1;
+
+		ZipBufferReader reader = new ZipBufferReader(ByteBuffer.wrap(archive));
+		ZipException e = assertThrows(ZipException.class, () -> reader.getData(reader.getEntry(name)));
+		assertEquals("crc mismatch for "+name, e.getMessage());
+	}
+
+	@Test
+	@DisplayName("Single entry lookup")
+	public void testReadEntry() throws IOException {
+		ByteBuffer archive = ByteBuffer.wrap(createArchive());
+
+		assertArrayEquals(createText().getBytes(StandardCharsets.UTF_8), toArray(ZipBufferReader.readEntry(archive, "deflated.txt")));
+		assertArrayEquals(createText().getBytes(StandardCharsets.UTF_8), toArray(ZipBufferReader.readEntry(archive, "stored.txt")));
+		assertNull(ZipBufferReader.readEntry(archive, "missing.txt"));
+		assertNull(ZipBufferReader.readEntry(archive, "deflated.tx"));
+	}
+
+	private static void compareWithZipFile(Path jar, ByteBuffer archive) throws IOException {
+		ZipBufferReader reader = new ZipBufferReader(archive);
+		int count = 0;
+
+		try (ZipFile zf = new ZipFile(jar.toFile())) {
+			for (Enumeration<? extends ZipEntry> e = zf.entries(); e.hasMoreElements(); ) {
+				ZipEntry expected = e.nextElement();
+				ZipBufferReader.Entry entry = reader.getEntry(expected.getName());
+				assertNotNull(entry, expected.getName());
+				assertEquals(expected.getMethod(), entry.method, expected.getName());
+				assertEquals(expected.getCrc(), entry.crc, expected.getName());
+				assertEquals(expected.getSize(), entry.size, expected.getName());
+				assertEquals(expected.getCompressedSize(), entry.compressedSize, expected.getName());
+
+				byte[] data = toArray(reader.getData(entry));
+
+				try (InputStream is = zf.getInputStream(expected)) {
+					assertArrayEquals(readAll(is), data, expected.getName());
+				}
+
+				assertEquals(expected.getCompressedSize(), reader.getRawData(entry).remaining(), expected.getName());
+				count++;
+			}
+		}
+
+		assertEquals(7, count);
+		assertNull(reader.getEntry("missing"));
+		assertNull(reader.getEntry("META-INF/"));
+	}
+
+	/**
+	 * Create an archive mixing stored and deflated entries of various sizes.
+	 */
+	private static byte[] createArchive() throws IOException {
+		Random random = new Random(0);
+		byte[] text = createText().getBytes(StandardCharsets.UTF_8);
+		byte[] incompressible = new byte[100_000];
+		random.nextBytes(incompressible);
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+
+		try (ZipOutputStream zos = new ZipOutputStream(bos)) {
+			zos.setComment("archive comment");
+			zos.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+			zos.write("Manifest-Version: 1.0\r\n".getBytes(StandardCharsets.UTF_8));
+			zos.closeEntry();
+			zos.putNextEntry(new ZipEntry("assets/"));
+			zos.closeEntry();
+			zos.putNextEntry(new ZipEntry("empty.txt"));
+			zos.closeEntry();
+			putStored(zos, "stored.txt", text);
+			putStored(zos, "META-INF/jars/nested.jar", incompressible);
+			zos.putNextEntry(new ZipEntry("deflated.txt"));
+			zos.write(text);
+			zos.closeEntry();
+
+			ZipEntry entry = new ZipEntry("assets/random.bin");
+			entry.setExtra(new byte[] { (byte) 0xfe, (byte) 0xca, 2, 0, 1, 2 }); // extra field to skip
+			entry.setComment("entry comment");
+			zos.putNextEntry(entry);
+			zos.write(incompressible);
+			zos.closeEntry();
+		}
+
+		return bos.toByteArray();
+	}
+
+	private static void putStored(ZipOutputStream zos, String name, byte[] data) throws IOException {
+		CRC32 crc = new CRC32();
+		crc.update(data);
+
+		ZipEntry entry = new ZipEntry(name);
+		entry.setMethod(ZipEntry.STORED);
+		entry.setSize(data.length);
+		entry.setCompressedSize(data.length);
+		entry.setCrc(crc.getValue());
+		zos.putNextEntry(entry);
+		zos.write(data);
+		zos.closeEntry();
+	}
+
+	private static String createText() {
+		StringBuilder sb = new StringBuilder();
+
+		for (int i = 0; i < 5000; i++) {
+			sb.append("line ").append(i).append(" of a compressible text\n");
+		}
+
+		return sb.toString();
+	}
+
+	private static byte[] toArray(ByteBuffer buffer) {
+		byte[] ret = new byte[buffer.remaining()];
+		buffer.duplicate().get(ret);
+
+		return ret;
+	}
+
+	private static byte[] readAll(InputStream is) throws IOException {
+		ByteArrayOutputStream ret = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int len;
+
+		while ((len = is.read(buffer)) >= 0) {
+			ret.write(buffer, 0, len);
+		}
+
+		return ret.toByteArray();
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.launch.resolve;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class ResolveOnlyLauncherTests {
+	@TempDir
+	Path dir;
+
+	/**
+	 * Resolve a small pack, the launcher can only be created once per JVM.
+	 */
+	@Test
+	@DisplayName("Small pack resolves")
+	public void testResolve() throws IOException {
+		byte[] lib = createJar("{\"schemaVersion\": 1, \"id\": \"lib\", \"version\": \"1.0.0\"}", null, null, false);
+		Path modsDir = Files.createDirectories(dir.resolve("mods"));
+
+		// both mods ship the same library at different paths, stored and deflated
+
+		Files.write(modsDir.resolve("mod-a.jar"), createJar("{\"schemaVersion\": 1, \"id\": \"mod-a\", \"version\": \"1.0.0\", "
+				+ "\"depends\": {\"minecraft\": \"1.20.x\", \"lib\": \">=1\"}, \"jars\": [{\"file\": \"META-INF/jars/lib.jar\"}]}",
+				"META-INF/jars/lib.jar", lib, true));
+		Files.write(modsDir.resolve("mod-b.jar"), createJar("{\"schemaVersion\": 1, \"id\": \"mod-b\", \"version\": \"2.0.0\", "
+				+ "\"jars\": [{\"file\": \"META-INF/jars/libs/lib-1.0.0.jar\"}]}",
+				"META-INF/jars/libs/lib-1.0.0.jar", lib, false));
+		Files.write(modsDir.resolve("readme.txt"), "not a mod".getBytes(StandardCharsets.UTF_8));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int ret = ResolveOnlyLauncher.run(new String[] { "--gameVersion", "1.20.1", "--gameDir", dir.toString() }, new PrintStream(out, true, "UTF-8"));
+		String report = new String(out.toByteArray(), StandardCharsets.UTF_8);
+
+		assertEquals(0, ret, report);
+		assertTrue(report.contains("\"success\": true"), report);
+		assertTrue(report.contains("\"gameVersion\": \"1.20.1\""), report);
+		assertTrue(report.contains("\"environment\": \"server\""), report);
+		assertTrue(report.contains("{\"id\": \"minecraft\", \"version\": \"1.20.1\", \"origin\": \"builtin\"}"), report);
+		assertTrue(report.contains("{\"id\": \"mod-a\", \"version\": \"1.0.0\", \"origin\": "), report);
+		assertTrue(report.contains("{\"id\": \"mod-b\", \"version\": \"2.0.0\", \"origin\": "), report);
+		assertTrue(report.contains("\"parents\": [\"mod-a\", \"mod-b\"]}"), report); // one lib shared by both
+		assertEquals(1, count(report, "{\"id\": \"lib\""), report);
+		assertTrue(report.contains("\"errors\": []"), report);
+		assertTrue(report.contains("\"resolutionMs\": "), report);
+	}
+
+	@Test
+	@DisplayName("Invalid arguments")
+	public void testUsage() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		assertEquals(2, ResolveOnlyLauncher.run(new String[0], new PrintStream(out)));
+		assertEquals(2, ResolveOnlyLauncher.run(new String[] { "--gameVersion", "1.20.1", "--side", "both" }, new PrintStream(out)));
+		assertEquals(0, out.size());
+	}
+
+	private static byte[] createJar(String modJson, String nestedPath, byte[] nested, boolean stored) throws IOException {
+		ByteArrayOutputStream ret = new ByteArrayOutputStream();
+
+		try (ZipOutputStream zos = new ZipOutputStream(ret)) {
+			zos.putNextEntry(new ZipEntry("fabric.mod.json"));
+			zos.write(modJson.getBytes(StandardCharsets.UTF_8));
+			zos.closeEntry();
+
+			if (nested != null) {
+				ZipEntry entry = new ZipEntry(nestedPath);
+
+				if (stored) {
+					CRC32 crc = new CRC32();
+					crc.update(nested);
+					entry.setMethod(ZipEntry.STORED);
+					entry.setSize(nested.length);
+					entry.setCrc(crc.getValue());
+				}
+
+				zos.putNextEntry(entry);
+				zos.write(nested);
+				zos.closeEntry();
+			}
+		}
+
+		return ret.toByteArray();
+	}
+
+	private static int count(String str, String part) {
+		int ret = 0;
+
+		for (int pos = str.indexOf(part); pos >= 0; pos = str.indexOf(part, pos + 1)) {
+			ret++;
+		}
+
+		return ret;
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2016 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class NestedJarUrlStreamHandlerTests {
+	private static final byte[] CONTENT = "nested content".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] SPACE_CONTENT = "content with space".getBytes(StandardCharsets.UTF_8);
+
+	@TempDir
+	Path dir;
+
+	private FileSystemUtil.FileSystemDelegate outerFs;
+	private Path nestedJar;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		ByteArrayOutputStream nested = new ByteArrayOutputStream();
+
+		try (ZipOutputStream zos = new ZipOutputStream(nested)) {
+			zos.putNextEntry(new ZipEntry("fabric.mod.json"));
+			zos.write("{}".getBytes(StandardCharsets.UTF_8));
+			zos.closeEntry();
+			zos.putNextEntry(new ZipEntry("assets/test/data.txt"));
+			zos.write(CONTENT);
+			zos.closeEntry();
+			zos.putNextEntry(new ZipEntry("assets/test/with space.txt"));
+			zos.write(SPACE_CONTENT);
+			zos.closeEntry();
+		}
+
+		Path outer = dir.resolve("outer.jar");
+
+		try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(outer))) {
+			zos.putNextEntry(new ZipEntry("META-INF/jars/nested.jar"));
+			zos.write(nested.toByteArray());
+			zos.closeEntry();
+		}
+
+		outerFs = FileSystemUtil.getJarFileSystem(outer, false);
+		nestedJar = outerFs.get().getPath("META-INF/jars/nested.jar");
+	}
+
+	@AfterEach
+	public void tearDown() throws IOException {
+		outerFs.close();
+	}
+
+	@Test
+	@DisplayName("Root URL form")
+	public void testCreateUrl() throws IOException {
+		URL root = NestedJarUrlStreamHandler.createUrl(nestedJar);
+
+		assertEquals("jar", root.getProtocol());
+		assertTrue(root.toString().endsWith("!/"), root.toString());
+		assertEquals(root, NestedJarUrlStreamHandler.createUrl(nestedJar));
+		assertEquals(root, UrlUtil.asUrl(nestedJar));
+	}
+
+	@Test
+	@DisplayName("Jar path lookup")
+	public void testGetJarPath() throws IOException {
+		URL root = NestedJarUrlStreamHandler.createUrl(nestedJar);
+
+		assertEquals(nestedJar, NestedJarUrlStreamHandler.getJarPath(root));
+		assertEquals(nestedJar, NestedJarUrlStreamHandler.getJarPath(new URL(root, "assets/test/data.txt")));
+		assertEquals(nestedJar, UrlUtil.asPath(new URL(root, "assets/test/data.txt")));
+		assertNull(NestedJarUrlStreamHandler.getJarPath(dir.toUri().toURL()));
+		assertNull(NestedJarUrlStreamHandler.getJarPath(new URL("jar:" + dir.resolve("other.jar").toUri() + "!/data.txt")));
+	}
+
+	@Test
+	@DisplayName("Entry content and length")
+	public void testOpenEntry() throws IOException {
+		URL root = NestedJarUrlStreamHandler.createUrl(nestedJar);
+		URLConnection connection = new URL(root, "assets/test/data.txt").openConnection();
+
+		assertEquals(CONTENT.length, connection.getContentLength());
+		assertEquals(CONTENT.length, connection.getContentLengthLong());
+
+		try (InputStream is = connection.getInputStream()) {
+			assertArrayEquals(CONTENT, readAll(is));
+		}
+
+		try (InputStream is = new URL(root, "assets/test/with%20space.txt").openStream()) {
+			assertArrayEquals(SPACE_CONTENT, readAll(is));
+		}
+	}
+
+	@Test
+	@DisplayName("Missing entry")
+	public void testMissingEntry() throws IOException {
+		URL url = new URL(NestedJarUrlStreamHandler.createUrl(nestedJar), "assets/test/missing.txt");
+
+		assertThrows(FileNotFoundException.class, () -> url.openConnection().connect());
+		assertThrows(FileNotFoundException.class, url::openStream);
+		assertEquals(-1, url.openConnection().getContentLength());
+	}
+
+	@Test
+	@DisplayName("Resources through URLClassLoader")
+	public void testClassLoader() throws IOException {
+		try (URLClassLoader cl = new URLClassLoader(new URL[] { NestedJarUrlStreamHandler.createUrl(nestedJar) }, null)) {
+			URL url = cl.getResource("assets/test/data.txt");
+			assertNotNull(url);
+			assertEquals(nestedJar, NestedJarUrlStreamHandler.getJarPath(url));
+
+			try (InputStream is = url.openStream()) {
+				assertArrayEquals(CONTENT, readAll(is));
+			}
+
+			try (InputStream is = cl.getResourceAsStream("assets/test/with space.txt")) {
+				assertNotNull(is);
+				assertArrayEquals(SPACE_CONTENT, readAll(is));
+			}
+
+			assertNull(cl.getResource("assets/test/missing.txt"));
+		}
+	}
+
+	private static byte[] readAll(InputStream is) throws IOException {
+		ByteArrayOutputStream ret = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int len;
+
+		while ((len = is.read(buffer)) >= 0) {
+			ret.write(buffer, 0, len);
+		}
+
+		return ret.toByteArray();
+	}
+}
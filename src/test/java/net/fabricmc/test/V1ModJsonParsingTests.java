@@ -27,14 +27,18 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import net.fabricmc.api.EnvType;
 import net.fabricmc.loader.api.SemanticVersion;
 import net.fabricmc.loader.api.metadata.CustomValue;
 import net.fabricmc.loader.impl.metadata.DependencyOverrides;
@@ -124,6 +128,14 @@ final class V1ModJsonParsingTests {
 
 		final CustomValue.CvObject eightAsObject = eight.getAsObject();
 		assertEquals(2, eightAsObject.size(), "Custom value \"eight\" was expected to have 2 values in object but found " + eightAsObject.size());
+
+		// Objects and arrays are their own CvObject/CvArray, including nested ones
+		assertTrue(four instanceof CustomValue.CvArray, "Custom value \"four\" is not a CvArray");
+		assertTrue(eight instanceof CustomValue.CvObject, "Custom value \"eight\" is not a CvObject");
+
+		final CustomValue eleven = eightAsObject.get("ten").getAsObject().get("eleven");
+		assertTrue(eleven instanceof CustomValue.CvArray, "Custom value \"eleven\" is not a CvArray");
+		assertEquals("fifteen", ((CustomValue.CvArray) eleven).get(1).getAsObject().get("value2").getAsString());
 	}
 
 	@Test
@@ -195,6 +207,32 @@ final class V1ModJsonParsingTests {
 		assertEquals(expected, actual, "Found " + actual.orElse("no icon") + " for preferred size " + preferredSize + " instead of expected size " + expectedSize);
 	}
 
+	@Test
+	@DisplayName("Binary metadata round trip")
+	public void testBinaryRoundTrip() throws IOException, ParseMetadataException {
+		final AtomicReference<byte[]> binary = new AtomicReference<>();
+		final LoaderModMetadata metadata = parseMetadata(specPath.resolve("long.json"), binary);
+		assertNotNull(binary.get(), "No binary metadata was generated");
+
+		final LoaderModMetadata binaryMetadata = ModMetadataParser.parseBinaryMetadata(binary.get(), "dummy", Collections.emptyList(), new VersionOverrides(), new DependencyOverrides(Paths.get("randomMissing")), false);
+
+		assertEquals(metadata.getId(), binaryMetadata.getId());
+		assertEquals(metadata.getVersion(), binaryMetadata.getVersion());
+		assertEquals(new ArrayList<>(metadata.getDependencies()), new ArrayList<>(binaryMetadata.getDependencies()));
+		assertEquals(metadata.getEntrypointKeys(), binaryMetadata.getEntrypointKeys());
+		assertEquals(metadata.getMixinConfigs(EnvType.CLIENT), binaryMetadata.getMixinConfigs(EnvType.CLIENT));
+		assertEquals(metadata.getMixinConfigs(EnvType.SERVER), binaryMetadata.getMixinConfigs(EnvType.SERVER));
+		assertEquals(metadata.getAccessWidener(), binaryMetadata.getAccessWidener());
+		assertEquals(metadata.getContact().asMap(), binaryMetadata.getContact().asMap());
+		assertEquals(metadata.getAuthors().size(), binaryMetadata.getAuthors().size());
+		assertEquals(metadata.getIconPath(64), binaryMetadata.getIconPath(64));
+		assertEquals(metadata.getCustomValues().keySet(), binaryMetadata.getCustomValues().keySet());
+
+		// Corrupted data must be rejected so the caller falls back to the JSON
+		final byte[] corrupted = Arrays.copyOf(binary.get(), binary.get().length / 2);
+		assertThrows(IOException.class, () -> ModMetadataParser.parseBinaryMetadata(corrupted, "dummy", Collections.emptyList(), new VersionOverrides(), new DependencyOverrides(Paths.get("randomMissing")), false));
+	}
+
 	/*
 	 * Spec violation tests
 	 */
@@ -214,6 +252,14 @@ final class V1ModJsonParsingTests {
 		}, "Parser did not fail when the duplicate \"schemaVersion\" mismatches");
 	}
 
+	@Test
+	public void verifyInvalidCustomValueFails() {
+		// Nested custom values are validated while parsing, not when they are first accessed
+		assertThrows(ParseMetadataException.class, () -> {
+			parseMetadata(errorPath.resolve("invalid_custom_value.json"));
+		}, "Parser did not fail for an invalid nested custom value");
+	}
+
 	/*
 	 * Warning tests
 	 */
@@ -222,8 +268,12 @@ final class V1ModJsonParsingTests {
 	public void testWarnings() { }
 
 	private static LoaderModMetadata parseMetadata(Path path) throws IOException, ParseMetadataException {
+		return parseMetadata(path, null);
+	}
+
+	private static LoaderModMetadata parseMetadata(Path path, AtomicReference<byte[]> binaryOut) throws IOException, ParseMetadataException {
 		try (InputStream is = Files.newInputStream(path)) {
-			return ModMetadataParser.parseMetadata(is, "dummy", Collections.emptyList(), new VersionOverrides(), new DependencyOverrides(Paths.get("randomMissing")), false);
+			return ModMetadataParser.parseMetadata(is, "dummy", Collections.emptyList(), new VersionOverrides(), new DependencyOverrides(Paths.get("randomMissing")), false, binaryOut != null ? binaryOut::set : null);
 		}
 	}
 }
@@ -16,13 +16,19 @@
 
 package net.fabricmc.test;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.function.Predicate;
 
 import org.jetbrains.annotations.Nullable;
 
+import net.fabricmc.loader.api.SemanticVersion;
 import net.fabricmc.loader.api.Version;
 import net.fabricmc.loader.api.VersionParsingException;
+import net.fabricmc.loader.api.metadata.version.VersionInterval;
 import net.fabricmc.loader.impl.util.version.SemanticVersionImpl;
+import net.fabricmc.loader.impl.util.version.VersionIntervalSet;
 import net.fabricmc.loader.impl.util.version.VersionPredicateParser;
 
 public class VersionParsingTests {
@@ -93,6 +99,59 @@ public class VersionParsingTests {
 		testTrue(tryParseSemantic("1.0.0+20130313144700", false));
 		testTrue(tryParseSemantic("1.0.0-beta+exp.sha.5114f85", false));
 
+		// Test: comparison and equality.
+		testTrue(new SemanticVersionImpl("1.0", false).equals(new SemanticVersionImpl("1.0.0", false)));
+		testTrue(new SemanticVersionImpl("1.0", false).hashCode() == new SemanticVersionImpl("1.0.0", false).hashCode());
+		testFalse(new SemanticVersionImpl("1.0.0", false).equals(new SemanticVersionImpl("1.0.0.1", false)));
+		testTrue(new SemanticVersionImpl("1.2.3", false).compareTo(new SemanticVersionImpl("1.2.3.0.1", false)) < 0);
+		testTrue(new SemanticVersionImpl("1.10", false).compareTo(new SemanticVersionImpl("1.9.9", false)) > 0);
+		testTrue(new SemanticVersionImpl("1.0-alpha", false).compareTo(new SemanticVersionImpl("1.0", false)) < 0);
+		testTrue(new SemanticVersionImpl("1.0-2", false).compareTo(new SemanticVersionImpl("1.0-10", false)) < 0);
+		testTrue(new SemanticVersionImpl("1.0-10", false).compareTo(new SemanticVersionImpl("1.0-a", false)) < 0);
+		testTrue(new SemanticVersionImpl("1.0-99999999999999999999", false).compareTo(new SemanticVersionImpl("1.0-100000000000000000000", false)) < 0);
+		testTrue(new SemanticVersionImpl("1.0-alpha", false).compareTo(new SemanticVersionImpl("1.0-alpha.1", false)) < 0);
+		testTrue(new SemanticVersionImpl("1.0+a", false).compareTo(new SemanticVersionImpl("1.0+b", false)) == 0);
+
+		// Test: parse results are shared.
+		testTrue(Version.parse("1.2.3") == Version.parse("1.2.3"));
+		testTrue(SemanticVersion.parse("1.2.3") == Version.parse("1.2.3"));
+		testTrue(Version.parse("1.2.3 beta") == Version.parse("1.2.3 beta"));
+
+		try {
+			SemanticVersion.parse("1.2.3 beta"); // cached as non-semantic above
+			throw new RuntimeException("Test failed!");
+		} catch (VersionParsingException e) {
+			// expected
+		}
+
+		testTrue(VersionPredicateParser.parse(">=1.2 <2") == VersionPredicateParser.parse(">=1.2 <2"));
+
+		// Test: interval sets.
+		{
+			List<VersionInterval> a = VersionPredicateParser.parse(">=1.4 <1.6").getInterval().or(Collections.singletonList(VersionPredicateParser.parse(">=1.0 <1.2").getInterval()));
+			List<VersionInterval> b = VersionInterval.or(a, VersionPredicateParser.parse(">=1.2 <1.4").getInterval());
+			testTrue(a.size() == 2);
+			testTrue(b.size() == 1 && b.get(0).equals(VersionPredicateParser.parse(">=1.0 <1.6").getInterval()));
+			testTrue(VersionInterval.and(a, VersionInterval.not(a)).isEmpty());
+			testTrue(VersionInterval.not(VersionInterval.not(a)).equals(a));
+
+			VersionIntervalSet set = VersionIntervalSet.of(a);
+			testTrue(set.contains(new SemanticVersionImpl("1.1.9", false)));
+			testTrue(set.contains(new SemanticVersionImpl("1.4", false)));
+			testFalse(set.contains(new SemanticVersionImpl("1.2", false)));
+			testFalse(set.contains(new SemanticVersionImpl("1.6", false)));
+			testFalse(set.contains(new SemanticVersionImpl("0.9", false)));
+
+			// regression: [1.0,1.5) merged after the unsorted [1.2,1.9) and [1.6,) got dropped
+			List<VersionInterval> unsorted = Arrays.asList(VersionPredicateParser.parse(">=1.2 <1.9").getInterval(), VersionPredicateParser.parse(">=1.6").getInterval());
+			VersionInterval low = VersionPredicateParser.parse(">=1.0 <1.5").getInterval();
+			List<VersionInterval> union = VersionInterval.or(unsorted, low);
+			testTrue(union.size() == 1 && union.get(0).equals(VersionPredicateParser.parse(">=1.0").getInterval()));
+			testTrue(VersionIntervalSet.of(Arrays.asList(unsorted.get(0), unsorted.get(1), low)).equals(union));
+			testTrue(VersionIntervalSet.of(union).contains(new SemanticVersionImpl("1.5.5", false)));
+			testFalse(VersionIntervalSet.of(union).contains(new SemanticVersionImpl("0.9", false)));
+		}
+
 		// Test: comparator range with pre-releases.
 		{
 			Predicate<Version> predicate = VersionPredicateParser.parse(">=0.3.1-beta.2 <0.4.0");